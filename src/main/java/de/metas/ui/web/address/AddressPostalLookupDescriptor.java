@@ -8,15 +8,20 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
+import javax.annotation.Nullable;
+
 import org.adempiere.ad.trx.api.ITrx;
 import org.adempiere.exceptions.DBException;
 import org.compiere.model.I_C_Location;
 import org.compiere.model.I_C_Postal;
+import org.compiere.util.CtxName;
+import org.compiere.util.CtxNames;
 import org.compiere.util.DB;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 
+import de.metas.cache.CCache;
 import de.metas.cache.CCache.CCacheStats;
 import de.metas.i18n.ITranslatableString;
 import de.metas.i18n.TranslatableStrings;
@@ -59,9 +64,17 @@ public class AddressPostalLookupDescriptor implements LookupDescriptor, LookupDa
 	private static final Optional<String> LookupTableName = Optional.of(I_C_Postal.Table_Name);
 	private static final String CACHE_PREFIX = I_C_Postal.Table_Name;
 	private static final String CONTEXT_LookupTableName = I_C_Postal.Table_Name;
+	private static final CtxName PARAM_C_Country_ID = CtxNames.parse(I_C_Location.COLUMNNAME_C_Country_ID);
 
 	private final AddressCountryLookupDescriptor countryLookup;
 
+	/** Postal indexes by C_Country_ID; reset when C_Postal is changed */
+	private final CCache<Integer, PostalIndex> postalIndexByCountryId = CCache.<Integer, PostalIndex> builder()
+			.cacheName(CACHE_PREFIX + "#PostalIndexByCountryId")
+			.tableName(I_C_Postal.Table_Name)
+			.initialCapacity(10)
+			.build();
+
 	@lombok.Builder
 	private AddressPostalLookupDescriptor(@NonNull final AddressCountryLookupDescriptor countryLookup)
 	{
@@ -83,19 +96,20 @@ public class AddressPostalLookupDescriptor implements LookupDescriptor, LookupDa
 	@Override
 	public boolean isCached()
 	{
-		return true; // not cached but returning true to avoid caching
+		return true; // we are using our own postal indexes
 	}
 
 	@Override
 	public void cacheInvalidate()
 	{
+		postalIndexByCountryId.reset();
 		countryLookup.cacheInvalidate();
 	}
 
 	@Override
 	public List<CCacheStats> getCacheStats()
 	{
-		return ImmutableList.of();
+		return ImmutableList.of(postalIndexByCountryId.stats());
 	}
 
 	@Override
@@ -113,13 +127,13 @@ public class AddressPostalLookupDescriptor implements LookupDescriptor, LookupDa
 	@Override
 	public boolean hasParameters()
 	{
-		return false;
+		return true;
 	}
 
 	@Override
 	public Set<String> getDependsOnFieldNames()
 	{
-		return ImmutableSet.of();
+		return ImmutableSet.of(I_C_Location.COLUMNNAME_C_Country_ID);
 	}
 
 	@Override
@@ -162,21 +176,24 @@ public class AddressPostalLookupDescriptor implements LookupDescriptor, LookupDa
 	@Override
 	public Builder newContextForFetchingList()
 	{
-		return LookupDataSourceContext.builder(CONTEXT_LookupTableName);
+		return LookupDataSourceContext.builder(CONTEXT_LookupTableName)
+				.requiresParameter(PARAM_C_Country_ID);
 	}
 
 	@Override
 	public LookupValuesList retrieveEntities(final LookupDataSourceContext evalCtx)
 	{
+		final int countryId = evalCtx.get_ValueAsInt(I_C_Location.COLUMNNAME_C_Country_ID, -1);
+
 		//
 		// Determine what we will filter
 		final String filter = evalCtx.getFilter();
-		String filterUC;
+		final boolean matchAll;
 		final int limit;
 		final int offset = evalCtx.getOffset(0);
 		if (filter == LookupDataSourceContext.FILTER_Any)
 		{
-			filterUC = "%"; // N/A
+			matchAll = true;
 			limit = evalCtx.getLimit(Integer.MAX_VALUE);
 		}
 		else if (Check.isEmpty(filter, true))
@@ -184,6 +201,34 @@ public class AddressPostalLookupDescriptor implements LookupDescriptor, LookupDa
 			return LookupValuesList.EMPTY;
 		}
 		else
+		{
+			matchAll = false;
+			limit = evalCtx.getLimit(100);
+		}
+
+		//
+		// Search the index of given country.
+		// If no country was specified, search in database, because loading the indexes of all countries would take too much memory.
+		if (countryId <= 0)
+		{
+			return retrieveEntitiesFromDB(matchAll ? null : filter, offset, limit);
+		}
+
+		final PostalIndex postalIndex = getPostalIndex(countryId);
+		final List<PostalIndex.Entry> entries = matchAll ? postalIndex.getAll(offset, limit) : postalIndex.findContaining(filter, offset, limit);
+		return entries.stream()
+				.map(this::buildPostalLookupValue)
+				.collect(LookupValuesList.collect());
+	}
+
+	private LookupValuesList retrieveEntitiesFromDB(@Nullable final String filter, final int offset, final int limit)
+	{
+		String filterUC;
+		if (filter == null)
+		{
+			filterUC = "%";
+		}
+		else
 		{
 			filterUC = filter.trim().toUpperCase();
 			if (!filterUC.startsWith("%"))
@@ -194,7 +239,6 @@ public class AddressPostalLookupDescriptor implements LookupDescriptor, LookupDa
 			{
 				filterUC = filterUC + "%";
 			}
-			limit = evalCtx.getLimit(100);
 		}
 
 		final String sql = "SELECT "
@@ -204,9 +248,8 @@ public class AddressPostalLookupDescriptor implements LookupDescriptor, LookupDa
 				+ "\n, " + I_C_Postal.COLUMNNAME_Township
 				+ "\n, " + I_C_Postal.COLUMNNAME_C_Country_ID
 				+ "\n FROM " + I_C_Postal.Table_Name
-				+ "\n WHERE "
-				+ "\n " + I_C_Postal.COLUMNNAME_Postal + " ILIKE ?"
-				+ "\n OR " + I_C_Postal.COLUMNNAME_City + " ILIKE ?"
+				+ "\n WHERE " + I_C_Postal.COLUMNNAME_IsActive + "='Y'"
+				+ "\n AND (" + I_C_Postal.COLUMNNAME_Postal + " ILIKE ? OR " + I_C_Postal.COLUMNNAME_City + " ILIKE ?)"
 				+ "\n ORDER BY " + I_C_Postal.COLUMNNAME_City + ", " + I_C_Postal.COLUMNNAME_Postal + ", " + I_C_Postal.COLUMNNAME_C_Postal_ID
 				+ "\n LIMIT ? OFFSET ?";
 
@@ -223,18 +266,56 @@ public class AddressPostalLookupDescriptor implements LookupDescriptor, LookupDa
 			final List<LookupValue> lookupValues = new ArrayList<>();
 			while (rs.next())
 			{
-				final int postalId = rs.getInt(I_C_Postal.COLUMNNAME_C_Postal_ID);
-				final String postal = rs.getString(I_C_Postal.COLUMNNAME_Postal);
-				final String city = rs.getString(I_C_Postal.COLUMNNAME_City);
-				final String township = rs.getString(I_C_Postal.COLUMNNAME_Township);
-				final int countryId = rs.getInt(I_C_Postal.COLUMNNAME_C_Country_ID);
+				lookupValues.add(buildPostalLookupValue(retrievePostalIndexEntry(rs)));
+			}
 
-				final LookupValue countryLookupValue = countryLookup.getLookupValueById(countryId);
+			return LookupValuesList.fromCollection(lookupValues);
+		}
+		catch (final SQLException ex)
+		{
+			throw new DBException(ex, sql, sqlParams);
+		}
+		finally
+		{
+			DB.close(rs, pstmt);
+		}
+	}
+
+	private PostalIndex getPostalIndex(final int countryId)
+	{
+		return postalIndexByCountryId.getOrLoad(countryId, () -> retrievePostalIndex(countryId));
+	}
+
+	private static PostalIndex retrievePostalIndex(final int countryId)
+	{
+		final String sql = "SELECT "
+				+ "\n " + I_C_Postal.COLUMNNAME_C_Postal_ID
+				+ "\n, " + I_C_Postal.COLUMNNAME_Postal
+				+ "\n, " + I_C_Postal.COLUMNNAME_City
+				+ "\n, " + I_C_Postal.COLUMNNAME_Township
+				+ "\n, " + I_C_Postal.COLUMNNAME_C_Country_ID
+				+ "\n FROM " + I_C_Postal.Table_Name
+				+ "\n WHERE " + I_C_Postal.COLUMNNAME_C_Country_ID + "=?"
+				+ "\n AND " + I_C_Postal.COLUMNNAME_IsActive + "='Y'"
+				+ "\n ORDER BY " + I_C_Postal.COLUMNNAME_City + ", " + I_C_Postal.COLUMNNAME_Postal + ", " + I_C_Postal.COLUMNNAME_C_Postal_ID; // same order as the SQL search
+
+		final Object[] sqlParams = new Object[] { countryId };
 
-				lookupValues.add(buildPostalLookupValue(postalId, postal, city, township, countryLookupValue.getDisplayNameTrl()));
+		PreparedStatement pstmt = null;
+		ResultSet rs = null;
+		try
+		{
+			pstmt = DB.prepareStatement(sql, ITrx.TRXNAME_None);
+			DB.setParameters(pstmt, sqlParams);
+			rs = pstmt.executeQuery();
+
+			final List<PostalIndex.Entry> entries = new ArrayList<>();
+			while (rs.next())
+			{
+				entries.add(retrievePostalIndexEntry(rs));
 			}
 
-			return LookupValuesList.fromCollection(lookupValues);
+			return PostalIndex.of(entries);
 		}
 		catch (final SQLException ex)
 		{
@@ -246,6 +327,23 @@ public class AddressPostalLookupDescriptor implements LookupDescriptor, LookupDa
 		}
 	}
 
+	private static PostalIndex.Entry retrievePostalIndexEntry(final ResultSet rs) throws SQLException
+	{
+		return PostalIndex.Entry.builder()
+				.postalId(rs.getInt(I_C_Postal.COLUMNNAME_C_Postal_ID))
+				.postal(rs.getString(I_C_Postal.COLUMNNAME_Postal))
+				.city(rs.getString(I_C_Postal.COLUMNNAME_City))
+				.township(rs.getString(I_C_Postal.COLUMNNAME_Township))
+				.countryId(rs.getInt(I_C_Postal.COLUMNNAME_C_Country_ID))
+				.build();
+	}
+
+	private IntegerLookupValue buildPostalLookupValue(final PostalIndex.Entry entry)
+	{
+		final LookupValue countryLookupValue = countryLookup.getLookupValueById(entry.getCountryId());
+		return buildPostalLookupValue(entry.getPostalId(), entry.getPostal(), entry.getCity(), entry.getTownship(), countryLookupValue.getDisplayNameTrl());
+	}
+
 	public IntegerLookupValue getLookupValueFromLocation(final I_C_Location locationRecord)
 	{
 		final I_C_Postal postalRecord = locationRecord.getC_Postal();
@@ -0,0 +1,160 @@
+package de.metas.ui.web.address;
+
+import java.text.Normalizer;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.google.common.collect.ImmutableList;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Immutable in-memory index of postal codes (usually the ones of one country).
+ * <p>
+ * Supports the same search as the former SQL search (postal code or city contains the filter, case insensitive),
+ * but the postal codes and city names are normalized once, when the index is built (lower case, no accents, no whitespaces in postal codes).
+ * <p>
+ * The entries are kept in the order they were given, so the caller decides the sort order (e.g. the database's ORDER BY City, Postal, C_Postal_ID).
+ */
+@Immutable
+final class PostalIndex
+{
+	public static PostalIndex of(@NonNull final List<Entry> entriesInOrder)
+	{
+		return new PostalIndex(entriesInOrder);
+	}
+
+	private static final Pattern PATTERN_Diacritics = Pattern.compile("\\p{M}+");
+	private static final Pattern PATTERN_Whitespaces = Pattern.compile("\\s+");
+
+	private final ImmutableList<Entry> entries;
+	private final String[] postalKeys;
+	private final String[] cityKeys;
+
+	private PostalIndex(final List<Entry> entriesInOrder)
+	{
+		this.entries = ImmutableList.copyOf(entriesInOrder);
+
+		final int size = entries.size();
+		this.postalKeys = new String[size];
+		this.cityKeys = new String[size];
+		for (int entryIdx = 0; entryIdx < size; entryIdx++)
+		{
+			final Entry entry = entries.get(entryIdx);
+			postalKeys[entryIdx] = normalizePostal(entry.getPostal());
+			cityKeys[entryIdx] = normalizeCity(entry.getCity());
+		}
+	}
+
+	public int size()
+	{
+		return entries.size();
+	}
+
+	public ImmutableList<Entry> getAll(final int offset, final int limit)
+	{
+		final int fromIndex = Math.min(Math.max(offset, 0), entries.size());
+		final int toIndex = (int)Math.min((long)fromIndex + Math.max(limit, 0), entries.size());
+		return entries.subList(fromIndex, toIndex);
+	}
+
+	/**
+	 * @return entries whose postal code or city contains given filter
+	 */
+	public ImmutableList<Entry> findContaining(@Nullable final String filter, final int offset, final int limit)
+	{
+		final String postalFilter = normalizePostal(filter);
+		final String cityFilter = normalizeCity(filter);
+		if (postalFilter.isEmpty() && cityFilter.isEmpty())
+		{
+			return ImmutableList.of();
+		}
+
+		final ImmutableList.Builder<Entry> result = ImmutableList.builder();
+		int toSkip = Math.max(offset, 0);
+		int toCollect = Math.max(limit, 0);
+		for (int entryIdx = 0, size = entries.size(); entryIdx < size && toCollect > 0; entryIdx++)
+		{
+			final boolean matches = (!postalFilter.isEmpty() && postalKeys[entryIdx].contains(postalFilter))
+					|| (!cityFilter.isEmpty() && cityKeys[entryIdx].contains(cityFilter));
+			if (!matches)
+			{
+				continue;
+			}
+
+			if (toSkip > 0)
+			{
+				toSkip--;
+				continue;
+			}
+
+			result.add(entries.get(entryIdx));
+			toCollect--;
+		}
+
+		return result.build();
+	}
+
+	static String normalizeCity(@Nullable final String city)
+	{
+		if (city == null)
+		{
+			return "";
+		}
+
+		final String withoutDiacritics = PATTERN_Diacritics.matcher(Normalizer.normalize(city, Normalizer.Form.NFD)).replaceAll("");
+		return PATTERN_Whitespaces.matcher(withoutDiacritics.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+	}
+
+	static String normalizePostal(@Nullable final String postal)
+	{
+		if (postal == null)
+		{
+			return "";
+		}
+
+		return PATTERN_Whitespaces.matcher(postal).replaceAll("").toLowerCase(Locale.ROOT);
+	}
+
+	@Value
+	@Builder
+	public static class Entry
+	{
+		int postalId;
+		@Nullable
+		String postal;
+		@Nullable
+		String city;
+		@Nullable
+		String township;
+		int countryId;
+	}
+}
@@ -0,0 +1,128 @@
+package de.metas.ui.web.cache;
+
+import org.adempiere.service.ISysConfigBL;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import de.metas.util.Check;
+import de.metas.util.Services;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.ToString;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Computes the maximum number of entries of a cache, such that the cache stays within a given fraction of the max heap.
+ * <p>
+ * The budget of an instance ({@link #heapPercent}) is shared by all caches which are sized by it. If the caches are created per lookup, per view etc,
+ * set {@link #expectedCachesCount} to the number of such caches which are expected to be alive at the same time; each of them gets its share of the budget.
+ * <p>
+ * All instances together are sharing one global budget: the sysconfig {@value #SYSCONFIG_TotalHeapPercent} (default {@value #DEFAULT_TotalHeapPercent}%).
+ * The {@link #heapPercent}s of all instances are summing up to the default global budget, so each budget is scaled by the configured global budget
+ * relative to the default one. Because of this, the size of a cache does not depend on which other caches were created before it.
+ * <p>
+ * <b>Important:</b> when adding a new instance or changing the {@link #heapPercent} of an existing one,
+ * make sure the {@link #heapPercent}s of all instances are still summing up to at most {@value #DEFAULT_TotalHeapPercent}.
+ * <p>
+ * The max size can be overridden at runtime by setting the sysconfig {@link #getSysConfigName()} to a value greater than zero.
+ */
+@ToString
+public final class HeapBudgetCacheSize
+{
+	public static final String SYSCONFIG_TotalHeapPercent = "webui.cache.TotalHeapPercent";
+	@VisibleForTesting
+	static final int DEFAULT_TotalHeapPercent = 20;
+
+	private final String sysConfigName;
+	private final long estimatedEntrySizeBytes;
+	private final int heapPercent;
+	private final int expectedCachesCount;
+	private final int minSize;
+	private final int maxSize;
+
+	@Builder
+	private HeapBudgetCacheSize(
+			@NonNull final String sysConfigName,
+			final long estimatedEntrySizeBytes,
+			final int heapPercent,
+			final int expectedCachesCount,
+			final int minSize,
+			final int maxSize)
+	{
+		Check.assumeGreaterThanZero(estimatedEntrySizeBytes, "estimatedEntrySizeBytes");
+		Check.assume(heapPercent > 0 && heapPercent <= 100, "heapPercent shall be between 1 and 100 but it was {}", heapPercent);
+		Check.assumeGreaterThanZero(minSize, "minSize");
+
+		this.sysConfigName = sysConfigName;
+		this.estimatedEntrySizeBytes = estimatedEntrySizeBytes;
+		this.heapPercent = heapPercent;
+		this.expectedCachesCount = Math.max(expectedCachesCount, 1);
+		this.minSize = minSize;
+		this.maxSize = maxSize > 0 ? Math.max(maxSize, minSize) : Integer.MAX_VALUE;
+	}
+
+	public String getSysConfigName()
+	{
+		return sysConfigName;
+	}
+
+	/**
+	 * @return configured size if any, else the size of one cache computed from current max heap
+	 */
+	public int get()
+	{
+		final ISysConfigBL sysConfigBL = Services.get(ISysConfigBL.class);
+		final int configuredSize = sysConfigBL.getIntValue(sysConfigName, -1);
+		if (configuredSize > 0)
+		{
+			return configuredSize;
+		}
+
+		final int totalHeapPercent = sysConfigBL.getIntValue(SYSCONFIG_TotalHeapPercent, DEFAULT_TotalHeapPercent);
+		return computeForMaxHeap(Runtime.getRuntime().maxMemory(), totalHeapPercent);
+	}
+
+	@VisibleForTesting
+	int computeForMaxHeap(
+			final long maxHeapBytes,
+			final int totalHeapPercent)
+	{
+		final double scale = (double)Math.max(totalHeapPercent, 0) / DEFAULT_TotalHeapPercent;
+		final long budgetBytes = (long)(maxHeapBytes / 100 * heapPercent * scale) / expectedCachesCount;
+		final long size = budgetBytes / estimatedEntrySizeBytes;
+
+		if (size < minSize)
+		{
+			return minSize;
+		}
+		else if (size > maxSize)
+		{
+			return maxSize;
+		}
+		else
+		{
+			return (int)size;
+		}
+	}
+}
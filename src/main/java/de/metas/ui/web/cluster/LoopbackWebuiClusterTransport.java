@@ -0,0 +1,80 @@
+package de.metas.ui.web.cluster;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import lombok.NonNull;
+import lombok.ToString;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * In-JVM transport: delivers the batches to the other transports of the same {@link Hub}.
+ */
+@ToString(exclude = "hub")
+public final class LoopbackWebuiClusterTransport implements WebuiClusterTransport
+{
+	/**
+	 * The nodes of an in-JVM cluster.
+	 */
+	public static final class Hub
+	{
+		private final List<LoopbackWebuiClusterTransport> transports = new CopyOnWriteArrayList<>();
+	}
+
+	public static final Hub DEFAULT_HUB = new Hub();
+
+	private final Hub hub;
+	private volatile Consumer<WebuiClusterEventBatch> receiver;
+
+	public LoopbackWebuiClusterTransport(@NonNull final Hub hub)
+	{
+		this.hub = hub;
+	}
+
+	@Override
+	public void start(@NonNull final Consumer<WebuiClusterEventBatch> receiver)
+	{
+		this.receiver = receiver;
+		hub.transports.add(this);
+	}
+
+	@Override
+	public void send(@NonNull final WebuiClusterEventBatch batch)
+	{
+		for (final LoopbackWebuiClusterTransport transport : hub.transports)
+		{
+			if (transport != this)
+			{
+				transport.receiver.accept(batch);
+			}
+		}
+	}
+
+	@Override
+	public void stop()
+	{
+		hub.transports.remove(this);
+	}
+}
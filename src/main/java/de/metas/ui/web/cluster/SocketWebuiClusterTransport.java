@@ -0,0 +1,568 @@
+package de.metas.ui.web.cluster;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import javax.annotation.Nullable;
+
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.util.concurrent.CustomizableThreadFactory;
+import org.slf4j.Logger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.net.HostAndPort;
+
+import de.metas.JsonObjectMapperHolder;
+import de.metas.logging.LogManager;
+import de.metas.util.Check;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.ToString;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Simple TCP transport: each batch is sent as one JSON line to each configured peer.
+ * <p>
+ * It's meant for small clusters and multi-process tests. A peer which is down does not get the batches sent meanwhile.
+ * <p>
+ * The resources are bounded, so a misbehaving peer cannot take this node down:
+ * <ul>
+ * <li>inbound connections are read by a fixed number of threads; further connections are refused
+ * <li>inbound lines longer than {@link #maxLineBytes} are skipped
+ * <li>each peer has its own bounded send queue and sender thread, so {@link #send(WebuiClusterEventBatch)} never blocks.
+ * When the queue of a stalled peer is full, the batches for that peer are dropped.
+ * <li>each write has a deadline; when it's exceeded, the connection is closed and the batch is dropped for that peer
+ * </ul>
+ * <p>
+ * The connections are not authenticated, so by default it listens on the loopback interface only.
+ * To reach other hosts, bind it to an address of a trusted (e.g. private cluster) network.
+ */
+@ToString(of = { "bindAddress", "port", "peers" })
+public final class SocketWebuiClusterTransport implements WebuiClusterTransport
+{
+	private static final Logger logger = LogManager.getLogger(SocketWebuiClusterTransport.class);
+
+	private final ObjectMapper jsonObjectMapper = JsonObjectMapperHolder.newJsonObjectMapper();
+	@Nullable
+	private final String bindAddress;
+	private final int port;
+	private final int maxLineBytes;
+	private final ImmutableList<PeerConnection> peers;
+	private final ExecutorService acceptThread;
+	private final ThreadPoolExecutor readerThreads;
+	private final ExecutorService senderThreads;
+	private final ScheduledExecutorService writeDeadlineTimer;
+
+	private ServerSocket serverSocket;
+	private volatile boolean stopped = false;
+
+	public static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 5000;
+	public static final int DEFAULT_SO_TIMEOUT_MILLIS = 5000;
+	public static final int DEFAULT_WRITE_TIMEOUT_MILLIS = 5000;
+	public static final int DEFAULT_MAX_LINE_BYTES = 8 * 1024 * 1024;
+	public static final int DEFAULT_MAX_INBOUND_CONNECTIONS = 16;
+	public static final int DEFAULT_PEER_QUEUE_CAPACITY = 1000;
+	private static final long STOP_DRAIN_TIMEOUT_MILLIS = 1000;
+
+	/**
+	 * Listens on the loopback interface.
+	 *
+	 * @param port port to listen on; zero means any free port (see {@link #getLocalPort()})
+	 * @param peers comma separated <code>host:port</code> list of the other nodes
+	 */
+	public SocketWebuiClusterTransport(final int port, @Nullable final String peers)
+	{
+		this(null, port, peers, DEFAULT_CONNECT_TIMEOUT_MILLIS, DEFAULT_SO_TIMEOUT_MILLIS, DEFAULT_WRITE_TIMEOUT_MILLIS, DEFAULT_MAX_LINE_BYTES, DEFAULT_MAX_INBOUND_CONNECTIONS, DEFAULT_PEER_QUEUE_CAPACITY);
+	}
+
+	/**
+	 * @param bindAddress address to listen on; <code>null</code> or empty means the loopback interface
+	 * @param port port to listen on; zero means any free port (see {@link #getLocalPort()})
+	 * @param peers comma separated <code>host:port</code> list of the other nodes
+	 * @param connectTimeoutMillis timeout for connecting to a peer
+	 * @param soTimeoutMillis socket timeout of the peer connections
+	 * @param writeTimeoutMillis deadline for writing one batch to a peer; zero or less means {@link #DEFAULT_WRITE_TIMEOUT_MILLIS}
+	 * @param maxLineBytes longest batch line accepted from other nodes; zero or less means {@link #DEFAULT_MAX_LINE_BYTES}
+	 * @param maxInboundConnections how many connections from other nodes are read at the same time; zero or less means {@link #DEFAULT_MAX_INBOUND_CONNECTIONS}
+	 * @param peerQueueCapacity how many batches are queued per peer; zero or less means {@link #DEFAULT_PEER_QUEUE_CAPACITY}
+	 */
+	@Builder
+	private SocketWebuiClusterTransport(
+			@Nullable final String bindAddress,
+			final int port,
+			@Nullable final String peers,
+			final int connectTimeoutMillis,
+			final int soTimeoutMillis,
+			final int writeTimeoutMillis,
+			final int maxLineBytes,
+			final int maxInboundConnections,
+			final int peerQueueCapacity)
+	{
+		this.bindAddress = !Check.isEmpty(bindAddress, true) ? bindAddress.trim() : null;
+		this.port = port;
+		this.maxLineBytes = maxLineBytes > 0 ? maxLineBytes : DEFAULT_MAX_LINE_BYTES;
+		this.peers = Splitter.on(',')
+				.trimResults()
+				.omitEmptyStrings()
+				.splitToList(peers != null ? peers : "")
+				.stream()
+				.map(HostAndPort::fromString)
+				.map(address -> new PeerConnection(
+						address,
+						connectTimeoutMillis,
+						soTimeoutMillis,
+						writeTimeoutMillis > 0 ? writeTimeoutMillis : DEFAULT_WRITE_TIMEOUT_MILLIS,
+						peerQueueCapacity > 0 ? peerQueueCapacity : DEFAULT_PEER_QUEUE_CAPACITY))
+				.collect(ImmutableList.toImmutableList());
+
+		acceptThread = Executors.newSingleThreadExecutor(newThreadFactory("accept"));
+
+		final int readerThreadsCount = maxInboundConnections > 0 ? maxInboundConnections : DEFAULT_MAX_INBOUND_CONNECTIONS;
+		readerThreads = new ThreadPoolExecutor(
+				readerThreadsCount, readerThreadsCount,
+				0, TimeUnit.MILLISECONDS,
+				new SynchronousQueue<>(), // no queue: when all threads are busy, the connection is refused
+				newThreadFactory("reader"));
+
+		senderThreads = Executors.newFixedThreadPool(Math.max(this.peers.size(), 1), newThreadFactory("sender"));
+		writeDeadlineTimer = Executors.newSingleThreadScheduledExecutor(newThreadFactory("writeDeadline"));
+	}
+
+	private CustomizableThreadFactory newThreadFactory(final String name)
+	{
+		return CustomizableThreadFactory.builder()
+				.setThreadNamePrefix(getClass().getName() + "-" + name)
+				.setDaemon(true)
+				.build();
+	}
+
+	@Override
+	public synchronized void start(@NonNull final Consumer<WebuiClusterEventBatch> receiver)
+	{
+		try
+		{
+			serverSocket = new ServerSocket();
+			serverSocket.bind(bindAddress != null
+					? new InetSocketAddress(bindAddress, port)
+					: new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+		}
+		catch (final IOException ex)
+		{
+			throw new AdempiereException("Failed listening on " + (bindAddress != null ? bindAddress : "loopback") + ", port " + port, ex);
+		}
+
+		acceptThread.execute(() -> acceptConnections(receiver));
+		peers.forEach(peer -> senderThreads.execute(() -> peer.sendQueuedBatches(writeDeadlineTimer)));
+		logger.info("Listening on {}. Peers: {}", serverSocket.getLocalSocketAddress(), peers);
+	}
+
+	public int getLocalPort()
+	{
+		return serverSocket != null ? serverSocket.getLocalPort() : -1;
+	}
+
+	private void acceptConnections(final Consumer<WebuiClusterEventBatch> receiver)
+	{
+		while (!stopped)
+		{
+			final Socket socket;
+			try
+			{
+				socket = serverSocket.accept();
+			}
+			catch (final IOException ex)
+			{
+				if (!stopped)
+				{
+					logger.warn("Failed accepting connection", ex);
+				}
+				continue;
+			}
+
+			try
+			{
+				readerThreads.execute(() -> readBatches(socket, receiver));
+			}
+			catch (final RejectedExecutionException ex)
+			{
+				logger.warn("Refused connection from {} because all {} reader threads are busy", socket.getRemoteSocketAddress(), readerThreads.getMaximumPoolSize());
+				closeNoFail(socket);
+			}
+		}
+	}
+
+	private void readBatches(final Socket socket, final Consumer<WebuiClusterEventBatch> receiver)
+	{
+		try (final BoundedLineReader reader = new BoundedLineReader(socket.getInputStream(), maxLineBytes))
+		{
+			while (!stopped)
+			{
+				final String line;
+				try
+				{
+					line = reader.readLine();
+				}
+				catch (final LineTooLongException ex)
+				{
+					logger.warn("Skipped batch from {} because it's longer than {} bytes", socket.getRemoteSocketAddress(), maxLineBytes);
+					continue;
+				}
+				if (line == null)
+				{
+					break;
+				}
+
+				final WebuiClusterEventBatch batch;
+				try
+				{
+					batch = jsonObjectMapper.readValue(line, WebuiClusterEventBatch.class);
+				}
+				catch (final IOException ex)
+				{
+					logger.warn("Failed parsing batch from {}. Skipped.", socket.getRemoteSocketAddress(), ex);
+					continue;
+				}
+
+				receiver.accept(batch);
+			}
+		}
+		catch (final SocketException ex)
+		{
+			logger.debug("Connection from {} was closed", socket.getRemoteSocketAddress(), ex);
+		}
+		catch (final IOException ex)
+		{
+			logger.warn("Failed reading from {}", socket.getRemoteSocketAddress(), ex);
+		}
+		finally
+		{
+			closeNoFail(socket);
+		}
+	}
+
+	/**
+	 * Enqueues given batch for each peer. Never blocks.
+	 */
+	@Override
+	public void send(@NonNull final WebuiClusterEventBatch batch)
+	{
+		if (peers.isEmpty())
+		{
+			return;
+		}
+
+		final String line;
+		try
+		{
+			line = jsonObjectMapper.writeValueAsString(batch);
+		}
+		catch (final IOException ex)
+		{
+			throw new AdempiereException("Failed serializing " + batch, ex);
+		}
+
+		peers.forEach(peer -> peer.enqueue(line));
+	}
+
+	@Override
+	public synchronized void stop()
+	{
+		stopped = true;
+
+		if (serverSocket != null)
+		{
+			try
+			{
+				serverSocket.close();
+			}
+			catch (final IOException ex)
+			{
+				logger.debug("Failed closing {}", serverSocket, ex);
+			}
+		}
+
+		// give the sender threads a chance to send what's still queued (e.g. the last batch flushed on shutdown)
+		final long drainDeadline = System.currentTimeMillis() + STOP_DRAIN_TIMEOUT_MILLIS;
+		peers.forEach(peer -> peer.awaitQueueDrained(drainDeadline));
+
+		acceptThread.shutdownNow();
+		readerThreads.shutdownNow();
+		senderThreads.shutdownNow();
+		writeDeadlineTimer.shutdownNow();
+		peers.forEach(PeerConnection::close);
+	}
+
+	private static void closeNoFail(final Closeable closeable)
+	{
+		try
+		{
+			closeable.close();
+		}
+		catch (final IOException ex)
+		{
+			logger.debug("Failed closing {}", closeable, ex);
+		}
+	}
+
+	@ToString(of = { "address", "droppedBatches" })
+	private static final class PeerConnection
+	{
+		private final HostAndPort address;
+		private final int connectTimeoutMillis;
+		private final int soTimeoutMillis;
+		private final int writeTimeoutMillis;
+		private final BlockingQueue<String> queue;
+		private final AtomicLong droppedBatches = new AtomicLong();
+		private volatile boolean overflowing = false;
+
+		private Socket socket;
+		private Writer writer;
+
+		private PeerConnection(
+				@NonNull final HostAndPort address,
+				final int connectTimeoutMillis,
+				final int soTimeoutMillis,
+				final int writeTimeoutMillis,
+				final int queueCapacity)
+		{
+			this.address = address;
+			this.connectTimeoutMillis = Math.max(connectTimeoutMillis, 0);
+			this.soTimeoutMillis = Math.max(soTimeoutMillis, 0);
+			this.writeTimeoutMillis = writeTimeoutMillis;
+			this.queue = new ArrayBlockingQueue<>(queueCapacity);
+		}
+
+		public void enqueue(final String line)
+		{
+			if (queue.offer(line))
+			{
+				return;
+			}
+
+			droppedBatches.incrementAndGet();
+			if (!overflowing)
+			{
+				overflowing = true;
+				logger.warn("Send queue of {} is full. Dropping batches for this peer until it catches up.", address);
+			}
+		}
+
+		public void awaitQueueDrained(final long deadlineMillis)
+		{
+			try
+			{
+				while (!queue.isEmpty() && System.currentTimeMillis() < deadlineMillis)
+				{
+					Thread.sleep(10);
+				}
+			}
+			catch (final InterruptedException ex)
+			{
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		/**
+		 * Sends the queued batches until the thread is interrupted. To be run on the peer's own sender thread.
+		 */
+		public void sendQueuedBatches(final ScheduledExecutorService writeDeadlineTimer)
+		{
+			while (!Thread.currentThread().isInterrupted())
+			{
+				final String line;
+				try
+				{
+					line = queue.take();
+				}
+				catch (final InterruptedException ex)
+				{
+					Thread.currentThread().interrupt();
+					return;
+				}
+
+				if (sendNoFail(line, writeDeadlineTimer))
+				{
+					overflowing = false;
+				}
+			}
+		}
+
+		private boolean sendNoFail(final String line, final ScheduledExecutorService writeDeadlineTimer)
+		{
+			ScheduledFuture<?> writeDeadline = null;
+			try
+			{
+				final Writer writer = getOrConnectWriter();
+
+				// Socket writes cannot time out by themselves, so we are closing the socket when the deadline was exceeded
+				writeDeadline = writeDeadlineTimer.schedule(this::close, writeTimeoutMillis, TimeUnit.MILLISECONDS);
+
+				writer.write(line);
+				writer.write('\n');
+				writer.flush();
+				return true;
+			}
+			catch (final IOException | RejectedExecutionException ex)
+			{
+				droppedBatches.incrementAndGet();
+				logger.warn("Failed sending to {}. The batch is lost for this peer.", address, ex);
+				close();
+				return false;
+			}
+			finally
+			{
+				if (writeDeadline != null)
+				{
+					writeDeadline.cancel(false);
+				}
+			}
+		}
+
+		private synchronized Writer getOrConnectWriter() throws IOException
+		{
+			if (writer == null)
+			{
+				socket = new Socket();
+				socket.setSoTimeout(soTimeoutMillis);
+				socket.connect(new InetSocketAddress(address.getHost(), address.getPort()), connectTimeoutMillis);
+				writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+			}
+			return writer;
+		}
+
+		public synchronized void close()
+		{
+			writer = null;
+			if (socket != null)
+			{
+				closeNoFail(socket);
+				socket = null;
+			}
+		}
+	}
+
+	/**
+	 * Thrown by {@link BoundedLineReader#readLine()} when a line was too long. The line was consumed, so the next line can be read.
+	 */
+	@VisibleForTesting
+	static final class LineTooLongException extends IOException
+	{
+		private static final long serialVersionUID = 1L;
+
+		private LineTooLongException(final int maxLineBytes)
+		{
+			super("Line is longer than " + maxLineBytes + " bytes");
+		}
+	}
+
+	/**
+	 * Reads UTF-8 lines of at most <code>maxLineBytes</code>, so that a peer cannot make us buffer an endless line.
+	 */
+	@VisibleForTesting
+	static final class BoundedLineReader implements Closeable
+	{
+		private final InputStream in;
+		private final int maxLineBytes;
+		private final ByteArrayOutputStream lineBuffer = new ByteArrayOutputStream();
+
+		BoundedLineReader(@NonNull final InputStream in, final int maxLineBytes)
+		{
+			Check.assumeGreaterThanZero(maxLineBytes, "maxLineBytes");
+			this.in = new BufferedInputStream(in);
+			this.maxLineBytes = maxLineBytes;
+		}
+
+		/**
+		 * @return next line, without the line terminator, or <code>null</code> at the end of stream
+		 * @throws LineTooLongException if the line was longer than <code>maxLineBytes</code>; the line is skipped
+		 */
+		@Nullable
+		public String readLine() throws IOException
+		{
+			lineBuffer.reset();
+			boolean tooLong = false;
+
+			int b;
+			while ((b = in.read()) != -1)
+			{
+				if (b == '\n')
+				{
+					if (tooLong)
+					{
+						throw new LineTooLongException(maxLineBytes);
+					}
+					return new String(lineBuffer.toByteArray(), StandardCharsets.UTF_8);
+				}
+
+				if (tooLong)
+				{
+					continue;
+				}
+				if (lineBuffer.size() >= maxLineBytes)
+				{
+					tooLong = true;
+					lineBuffer.reset();
+					continue;
+				}
+				lineBuffer.write(b);
+			}
+
+			// end of stream: an incomplete line is not a batch, so it's ignored
+			return null;
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			in.close();
+		}
+	}
+}
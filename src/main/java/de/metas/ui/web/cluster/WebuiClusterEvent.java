@@ -0,0 +1,76 @@
+package de.metas.ui.web.cluster;
+
+import javax.annotation.Nullable;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.NonNull;
+import lombok.Value;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Event sent to the other webui nodes.
+ * <p>
+ * Events are compared by all their fields, so publishing the same event more than once in a batch window sends it only once.
+ */
+@JsonAutoDetect(fieldVisibility = Visibility.ANY, getterVisibility = Visibility.NONE, isGetterVisibility = Visibility.NONE, setterVisibility = Visibility.NONE)
+@Value
+public class WebuiClusterEvent
+{
+	public static WebuiClusterEvent of(@NonNull final String type, @NonNull final String key)
+	{
+		return new WebuiClusterEvent(type, key, null);
+	}
+
+	public static WebuiClusterEvent of(@NonNull final String type, @NonNull final String key, @Nullable final String payload)
+	{
+		return new WebuiClusterEvent(type, key, payload);
+	}
+
+	/** Event type, used to dispatch the event to its subscribers */
+	@JsonProperty("type")
+	String type;
+
+	@JsonProperty("key")
+	String key;
+
+	@JsonProperty("payload")
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	String payload;
+
+	@JsonCreator
+	private WebuiClusterEvent(
+			@JsonProperty("type") @NonNull final String type,
+			@JsonProperty("key") @NonNull final String key,
+			@JsonProperty("payload") @Nullable final String payload)
+	{
+		this.type = type;
+		this.key = key;
+		this.payload = payload;
+	}
+}
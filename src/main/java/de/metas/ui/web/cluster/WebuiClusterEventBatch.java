@@ -0,0 +1,57 @@
+package de.metas.ui.web.cluster;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
+
+import lombok.NonNull;
+import lombok.Value;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Events sent together by a node.
+ */
+@JsonAutoDetect(fieldVisibility = Visibility.ANY, getterVisibility = Visibility.NONE, isGetterVisibility = Visibility.NONE, setterVisibility = Visibility.NONE)
+@Value
+public class WebuiClusterEventBatch
+{
+	@JsonProperty("senderNodeId")
+	String senderNodeId;
+
+	@JsonProperty("events")
+	List<WebuiClusterEvent> events;
+
+	@JsonCreator
+	public WebuiClusterEventBatch(
+			@JsonProperty("senderNodeId") @NonNull final String senderNodeId,
+			@JsonProperty("events") @NonNull final List<WebuiClusterEvent> events)
+	{
+		this.senderNodeId = senderNodeId;
+		this.events = ImmutableList.copyOf(events);
+	}
+}
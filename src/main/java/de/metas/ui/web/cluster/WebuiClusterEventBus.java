@@ -0,0 +1,382 @@
+package de.metas.ui.web.cluster;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.util.concurrent.CustomizableThreadFactory;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+
+import de.metas.logging.LogManager;
+import de.metas.util.Check;
+import lombok.NonNull;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Fans out events to the other webui nodes, so that the node-local caches, views and websocket topics are kept in sync when running more than one node behind a load balancer.
+ * <p>
+ * Published events are collected for {@link #batchDelayMillis} (or until {@link #maxBatchSize} events are pending), deduplicated and then sent as one batch.
+ * At most {@link #maxPendingEvents} are kept; further events are dropped (and counted) until the pending ones were sent.
+ * Received events are dispatched on a separate thread, grouped by type, to the {@link #subscribe(String, Consumer) subscribers}.
+ * A node never receives its own events.
+ * <p>
+ * The bus is disabled by default (single node setup). In that case publishing is a no-op.
+ */
+@Component
+public class WebuiClusterEventBus
+{
+	private static final Logger logger = LogManager.getLogger(WebuiClusterEventBus.class);
+
+	public enum TransportType
+	{
+		NONE, LOOPBACK, SOCKET
+	}
+
+	private final String nodeId = UUID.randomUUID().toString();
+	@Nullable
+	private final WebuiClusterTransport transport;
+	private final long batchDelayMillis;
+	private final int maxBatchSize;
+	private final int maxPendingEvents;
+
+	private final Map<String, List<Consumer<List<WebuiClusterEvent>>>> subscribersByType = new ConcurrentHashMap<>();
+
+	private final Object pendingLock = new Object();
+	private LinkedHashSet<WebuiClusterEvent> pendingEvents = new LinkedHashSet<>();
+	private boolean flushScheduled = false;
+
+	private final ScheduledExecutorService flushExecutor;
+	private final ExecutorService dispatchExecutor;
+
+	private final AtomicLong publishedEvents = new AtomicLong();
+	private final AtomicLong duplicateEvents = new AtomicLong();
+	private final AtomicLong droppedEvents = new AtomicLong();
+	private final AtomicLong sentBatches = new AtomicLong();
+	private final AtomicLong sendErrors = new AtomicLong();
+	private final AtomicLong receivedBatches = new AtomicLong();
+	private final AtomicLong receivedEvents = new AtomicLong();
+
+	@Autowired
+	public WebuiClusterEventBus(
+			@Value("${metasfresh.webui.cluster.transport:NONE}") final TransportType transportType,
+			@Value("${metasfresh.webui.cluster.socket.bindAddress:}") final String socketBindAddress,
+			@Value("${metasfresh.webui.cluster.socket.port:0}") final int socketPort,
+			@Value("${metasfresh.webui.cluster.socket.peers:}") final String socketPeers,
+			@Value("${metasfresh.webui.cluster.socket.connectTimeoutMillis:" + SocketWebuiClusterTransport.DEFAULT_CONNECT_TIMEOUT_MILLIS + "}") final int socketConnectTimeoutMillis,
+			@Value("${metasfresh.webui.cluster.socket.soTimeoutMillis:" + SocketWebuiClusterTransport.DEFAULT_SO_TIMEOUT_MILLIS + "}") final int socketSoTimeoutMillis,
+			@Value("${metasfresh.webui.cluster.socket.writeTimeoutMillis:" + SocketWebuiClusterTransport.DEFAULT_WRITE_TIMEOUT_MILLIS + "}") final int socketWriteTimeoutMillis,
+			@Value("${metasfresh.webui.cluster.socket.maxLineBytes:" + SocketWebuiClusterTransport.DEFAULT_MAX_LINE_BYTES + "}") final int socketMaxLineBytes,
+			@Value("${metasfresh.webui.cluster.batchDelayMillis:50}") final long batchDelayMillis,
+			@Value("${metasfresh.webui.cluster.maxBatchSize:500}") final int maxBatchSize,
+			@Value("${metasfresh.webui.cluster.maxPendingEvents:10000}") final int maxPendingEvents)
+	{
+		this(createTransport(transportType, SocketWebuiClusterTransport.builder()
+				.bindAddress(socketBindAddress)
+				.port(socketPort)
+				.peers(socketPeers)
+				.connectTimeoutMillis(socketConnectTimeoutMillis)
+				.soTimeoutMillis(socketSoTimeoutMillis)
+				.writeTimeoutMillis(socketWriteTimeoutMillis)
+				.maxLineBytes(socketMaxLineBytes)),
+				batchDelayMillis,
+				maxBatchSize,
+				maxPendingEvents);
+	}
+
+	@VisibleForTesting
+	WebuiClusterEventBus(
+			@Nullable final WebuiClusterTransport transport,
+			final long batchDelayMillis,
+			final int maxBatchSize,
+			final int maxPendingEvents)
+	{
+		Check.assumeGreaterThanZero(maxBatchSize, "maxBatchSize");
+		Check.assumeGreaterThanZero(maxPendingEvents, "maxPendingEvents");
+
+		this.transport = transport;
+		this.batchDelayMillis = Math.max(batchDelayMillis, 0);
+		this.maxBatchSize = maxBatchSize;
+		this.maxPendingEvents = maxPendingEvents;
+
+		if (transport != null)
+		{
+			flushExecutor = Executors.newSingleThreadScheduledExecutor(CustomizableThreadFactory.builder()
+					.setThreadNamePrefix(getClass().getName() + "-flush")
+					.setDaemon(true)
+					.build());
+			dispatchExecutor = Executors.newSingleThreadExecutor(CustomizableThreadFactory.builder()
+					.setThreadNamePrefix(getClass().getName() + "-dispatch")
+					.setDaemon(true)
+					.build());
+		}
+		else
+		{
+			flushExecutor = null;
+			dispatchExecutor = null;
+		}
+	}
+
+	@Nullable
+	private static WebuiClusterTransport createTransport(
+			@NonNull final TransportType transportType,
+			@NonNull final SocketWebuiClusterTransport.SocketWebuiClusterTransportBuilder socketTransportBuilder)
+	{
+		switch (transportType)
+		{
+			case NONE:
+				return null;
+			case LOOPBACK:
+				return new LoopbackWebuiClusterTransport(LoopbackWebuiClusterTransport.DEFAULT_HUB);
+			case SOCKET:
+				return socketTransportBuilder.build();
+			default:
+				throw new AdempiereException("Unknown transport type: " + transportType);
+		}
+	}
+
+	@PostConstruct
+	public void start()
+	{
+		if (transport == null)
+		{
+			logger.info("Cluster event bus is disabled");
+			return;
+		}
+
+		transport.start(this::onBatchReceived);
+		logger.info("Cluster event bus started. nodeId={}, transport={}", nodeId, transport);
+	}
+
+	@PreDestroy
+	public void stop()
+	{
+		if (transport == null)
+		{
+			return;
+		}
+
+		flushNow();
+		transport.stop();
+		flushExecutor.shutdownNow();
+		dispatchExecutor.shutdownNow();
+	}
+
+	public boolean isEnabled()
+	{
+		return transport != null;
+	}
+
+	@VisibleForTesting
+	String getNodeId()
+	{
+		return nodeId;
+	}
+
+	/**
+	 * Subscribes to the events of given type which were published by the other nodes.
+	 * The subscriber gets all events of one received batch at once.
+	 */
+	public void subscribe(@NonNull final String type, @NonNull final Consumer<List<WebuiClusterEvent>> subscriber)
+	{
+		subscribersByType.computeIfAbsent(type, k -> new CopyOnWriteArrayList<>()).add(subscriber);
+	}
+
+	public void publish(@NonNull final WebuiClusterEvent event)
+	{
+		publishAll(ImmutableList.of(event));
+	}
+
+	public void publishAll(@NonNull final Iterable<WebuiClusterEvent> events)
+	{
+		if (transport == null)
+		{
+			return;
+		}
+
+		synchronized (pendingLock)
+		{
+			for (final WebuiClusterEvent event : events)
+			{
+				publishedEvents.incrementAndGet();
+				if (pendingEvents.contains(event))
+				{
+					duplicateEvents.incrementAndGet();
+				}
+				else if (pendingEvents.size() >= maxPendingEvents)
+				{
+					droppedEvents.incrementAndGet();
+				}
+				else
+				{
+					pendingEvents.add(event);
+				}
+			}
+
+			if (pendingEvents.isEmpty())
+			{
+				return;
+			}
+
+			if (pendingEvents.size() >= maxBatchSize)
+			{
+				flushExecutor.execute(this::flushNow);
+				flushScheduled = true;
+			}
+			else if (!flushScheduled)
+			{
+				flushExecutor.schedule(this::flushNow, batchDelayMillis, TimeUnit.MILLISECONDS);
+				flushScheduled = true;
+			}
+		}
+	}
+
+	@VisibleForTesting
+	void flushNow()
+	{
+		final List<WebuiClusterEvent> events;
+		synchronized (pendingLock)
+		{
+			flushScheduled = false;
+			if (pendingEvents.isEmpty())
+			{
+				return;
+			}
+
+			events = new ArrayList<>(pendingEvents);
+			pendingEvents = new LinkedHashSet<>();
+		}
+
+		for (final List<WebuiClusterEvent> chunk : chunk(events, maxBatchSize))
+		{
+			final WebuiClusterEventBatch batch = new WebuiClusterEventBatch(nodeId, chunk);
+			try
+			{
+				transport.send(batch);
+				sentBatches.incrementAndGet();
+			}
+			catch (final Exception ex)
+			{
+				sendErrors.incrementAndGet();
+				logger.warn("Failed sending {} events to the other nodes. Ignored.", chunk.size(), ex);
+			}
+		}
+	}
+
+	private static <T> List<List<T>> chunk(final List<T> list, final int chunkSize)
+	{
+		final List<List<T>> chunks = new ArrayList<>();
+		for (int i = 0; i < list.size(); i += chunkSize)
+		{
+			chunks.add(list.subList(i, Math.min(i + chunkSize, list.size())));
+		}
+		return chunks;
+	}
+
+	private void onBatchReceived(@NonNull final WebuiClusterEventBatch batch)
+	{
+		if (nodeId.equals(batch.getSenderNodeId()))
+		{
+			return;
+		}
+
+		receivedBatches.incrementAndGet();
+		receivedEvents.addAndGet(batch.getEvents().size());
+
+		dispatchExecutor.execute(() -> dispatch(batch));
+	}
+
+	private void dispatch(final WebuiClusterEventBatch batch)
+	{
+		final Map<String, List<WebuiClusterEvent>> eventsByType = new LinkedHashMap<>();
+		for (final WebuiClusterEvent event : batch.getEvents())
+		{
+			eventsByType.computeIfAbsent(event.getType(), k -> new ArrayList<>()).add(event);
+		}
+
+		eventsByType.forEach((type, events) -> {
+			final List<Consumer<List<WebuiClusterEvent>>> subscribers = subscribersByType.get(type);
+			if (subscribers == null)
+			{
+				return;
+			}
+
+			for (final Consumer<List<WebuiClusterEvent>> subscriber : subscribers)
+			{
+				try
+				{
+					subscriber.accept(events);
+				}
+				catch (final Exception ex)
+				{
+					logger.warn("Subscriber {} failed handling {} events of type {}. Ignored.", subscriber, events.size(), type, ex);
+				}
+			}
+		});
+	}
+
+	public WebuiClusterEventBusStats getStats()
+	{
+		final int pendingCount;
+		synchronized (pendingLock)
+		{
+			pendingCount = pendingEvents.size();
+		}
+
+		return WebuiClusterEventBusStats.builder()
+				.enabled(isEnabled())
+				.nodeId(nodeId)
+				.transport(transport != null ? transport.toString() : null)
+				.pendingEvents(pendingCount)
+				.publishedEvents(publishedEvents.get())
+				.duplicateEvents(duplicateEvents.get())
+				.droppedEvents(droppedEvents.get())
+				.sentBatches(sentBatches.get())
+				.sendErrors(sendErrors.get())
+				.receivedBatches(receivedBatches.get())
+				.receivedEvents(receivedEvents.get())
+				.build();
+	}
+}
@@ -0,0 +1,54 @@
+package de.metas.ui.web.cluster;
+
+import javax.annotation.Nullable;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Snapshot of {@link WebuiClusterEventBus}'s counters.
+ */
+@Value
+@Builder
+public class WebuiClusterEventBusStats
+{
+	boolean enabled;
+	@NonNull
+	String nodeId;
+	@Nullable
+	String transport;
+
+	int pendingEvents;
+	long publishedEvents;
+	/** events which were published again while already pending, so they were not sent twice */
+	long duplicateEvents;
+	/** events which were not sent because too many events were already pending */
+	long droppedEvents;
+	long sentBatches;
+	long sendErrors;
+	long receivedBatches;
+	long receivedEvents;
+}
@@ -51,10 +51,13 @@ import de.metas.notification.UserNotificationRequest.UserNotificationRequestBuil
 import de.metas.notification.UserNotificationTargetType;
 import de.metas.security.IUserRolePermissionsDAO;
 import de.metas.ui.web.base.model.I_T_WEBUI_ViewSelection;
+import de.metas.ui.web.cluster.WebuiClusterEventBus;
+import de.metas.ui.web.cluster.WebuiClusterEventBusStats;
 import de.metas.ui.web.config.WebConfig;
 import de.metas.ui.web.debug.JSONCacheResetResult.JSONCacheResetResultBuilder;
 import de.metas.ui.web.exceptions.EntityNotFoundException;
 import de.metas.ui.web.menu.MenuTreeRepository;
+import de.metas.ui.web.pattribute.ASIRepository;
 import de.metas.ui.web.process.ProcessRestController;
 import de.metas.ui.web.session.UserSession;
 import de.metas.ui.web.view.IView;
@@ -70,13 +73,18 @@ import de.metas.ui.web.view.event.ViewChanges;
 import de.metas.ui.web.view.json.JSONViewResult;
 import de.metas.ui.web.websocket.WebSocketConfig;
 import de.metas.ui.web.websocket.WebsocketEventLogRecord;
+import de.metas.ui.web.websocket.WebsocketMetrics;
 import de.metas.ui.web.websocket.WebsocketSender;
+import de.metas.ui.web.websocket.WebsocketSubscriptionsExecutor;
 import de.metas.ui.web.window.WindowConstants;
 import de.metas.ui.web.window.datatypes.DocumentIdsSelection;
 import de.metas.ui.web.window.datatypes.WindowId;
 import de.metas.ui.web.window.datatypes.json.JSONOptions;
 import de.metas.ui.web.window.model.DocumentCollection;
 import de.metas.ui.web.window.model.lookup.LookupDataSourceFactory;
+import de.metas.ui.web.window.model.lookup.LookupValueInternPool;
+import de.metas.ui.web.window.model.lookup.warmup.LookupWarmUpService;
+import de.metas.ui.web.window.model.lookup.warmup.LookupWarmUpStatus;
 import de.metas.user.UserId;
 import de.metas.util.Check;
 import de.metas.util.GuavaCollectors;
@@ -143,10 +151,30 @@ public class DebugRestController
 	@Lazy
 	private WebsocketSender websocketSender;
 
+	@Autowired
+	@Lazy
+	private WebsocketMetrics websocketMetrics;
+
+	@Autowired
+	@Lazy
+	private WebsocketSubscriptionsExecutor websocketSubscriptionsExecutor;
+
 	@Autowired
 	@Lazy
 	private ObjectMapper sharedJsonObjectMapper;
 
+	@Autowired
+	@Lazy
+	private LookupWarmUpService lookupWarmUpService;
+
+	@Autowired
+	@Lazy
+	private ASIRepository asiRepository;
+
+	@Autowired
+	@Lazy
+	private WebuiClusterEventBus clusterEventBus;
+
 	private JSONOptions newJSONOptions()
 	{
 		return JSONOptions.of(userSession);
@@ -300,6 +328,44 @@ public class DebugRestController
 				.collect(GuavaCollectors.toImmutableList());
 	}
 
+	@GetMapping("/lookups/cacheHitStats")
+	public List<String> getLookupCacheHitStats()
+	{
+		userSession.assertLoggedIn();
+
+		return LookupDataSourceFactory.instance.getCacheHitStats()
+				.stream()
+				.map(stats -> stats.toString())
+				.collect(GuavaCollectors.toImmutableList());
+	}
+
+	@GetMapping("/asi/cacheStats")
+	public List<String> getASICacheStats()
+	{
+		userSession.assertLoggedIn();
+
+		return asiRepository.getCacheStats()
+				.stream()
+				.map(stats -> stats.toString())
+				.collect(GuavaCollectors.toImmutableList());
+	}
+
+	@GetMapping("/lookups/internPoolStats")
+	public LookupValueInternPool.Stats getLookupValueInternPoolStats()
+	{
+		userSession.assertLoggedIn();
+
+		return LookupValueInternPool.instance.getStats();
+	}
+
+	@GetMapping("/lookups/warmUp/status")
+	public LookupWarmUpStatus getLookupWarmUpStatus()
+	{
+		userSession.assertLoggedIn();
+
+		return lookupWarmUpService.getStatus();
+	}
+
 	@RequestMapping(value = "/eventBus/postEvent", method = RequestMethod.GET)
 	public void postEvent(
 			@RequestParam(name = "topicName", defaultValue = "de.metas.event.GeneralNotifications") final String topicName //
@@ -551,6 +617,38 @@ public class DebugRestController
 		return websocketSender.getLoggedEvents(destinationFilter);
 	}
 
+	@GetMapping("/websocket/metrics")
+	public WebsocketMetrics.Snapshot getWebsocketMetrics()
+	{
+		userSession.assertLoggedIn();
+
+		return websocketMetrics.snapshot();
+	}
+
+	@PostMapping("/websocket/metrics/reset")
+	public void resetWebsocketMetrics()
+	{
+		userSession.assertLoggedIn();
+
+		websocketMetrics.reset();
+	}
+
+	@GetMapping("/websocket/subscriptions/stats")
+	public WebsocketSubscriptionsExecutor.Stats getWebsocketSubscriptionsStats()
+	{
+		userSession.assertLoggedIn();
+
+		return websocketSubscriptionsExecutor.getStats();
+	}
+
+	@GetMapping("/cluster/stats")
+	public WebuiClusterEventBusStats getClusterEventBusStats()
+	{
+		userSession.assertLoggedIn();
+
+		return clusterEventBus.getStats();
+	}
+
 	@PostMapping("/view/{viewId}/deleteRows")
 	public String viewDeleteRowIds(
 			@PathVariable("viewId") final String viewIdStr,
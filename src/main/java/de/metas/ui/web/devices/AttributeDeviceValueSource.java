@@ -0,0 +1,74 @@
+package de.metas.ui.web.devices;
+
+import org.adempiere.exceptions.AdempiereException;
+
+import de.metas.device.adempiere.AttributesDevicesHub.AttributeDeviceAccessor;
+import de.metas.device.adempiere.IDevicesHubFactory;
+import de.metas.util.Check;
+import de.metas.util.Services;
+import lombok.ToString;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * {@link DeviceValueSource} which is polling the {@link AttributeDeviceAccessor} of the default attributes devices hub.
+ * <p>
+ * NOTE: push is not supported, because the devices hub can only be asked for the current value ({@link AttributeDeviceAccessor#acquireValue()}),
+ * it does not notify when the value changes. The device's websocket producer is polling it instead.
+ */
+@ToString
+final class AttributeDeviceValueSource implements DeviceValueSource
+{
+	public static AttributeDeviceValueSource of(final String deviceId)
+	{
+		return new AttributeDeviceValueSource(deviceId);
+	}
+
+	private final String deviceId;
+
+	private AttributeDeviceValueSource(final String deviceId)
+	{
+		Check.assumeNotEmpty(deviceId, "deviceId is not empty");
+		this.deviceId = deviceId;
+	}
+
+	@Override
+	public String getDeviceId()
+	{
+		return deviceId;
+	}
+
+	@Override
+	public Object acquireValue()
+	{
+		final AttributeDeviceAccessor deviceAccessor = Services.get(IDevicesHubFactory.class)
+				.getDefaultAttributesDevicesHub()
+				.getAttributeDeviceAccessorById(deviceId);
+		if (deviceAccessor == null)
+		{
+			throw new AdempiereException("Device accessor no longer exists for: " + deviceId);
+		}
+
+		return deviceAccessor.acquireValue();
+	}
+}
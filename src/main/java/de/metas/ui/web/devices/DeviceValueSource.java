@@ -0,0 +1,60 @@
+package de.metas.ui.web.devices;
+
+import java.util.function.Consumer;
+
+import org.adempiere.util.lang.IAutoCloseable;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Source of a device's values (e.g. a scale).
+ * <p>
+ * All sources can be polled using {@link #acquireValue()}.
+ * Sources which know when the value changed can also push the values (see {@link #isPushSupported()}).
+ */
+public interface DeviceValueSource
+{
+	String getDeviceId();
+
+	/**
+	 * @return current value
+	 */
+	Object acquireValue();
+
+	/**
+	 * @return true if this source is able to notify the value changes (see {@link #addValueChangedListener(Consumer)})
+	 */
+	default boolean isPushSupported()
+	{
+		return false;
+	}
+
+	/**
+	 * @return subscription, to be closed when the listener is no longer interested
+	 * @throws UnsupportedOperationException if push is not supported
+	 */
+	default IAutoCloseable addValueChangedListener(final Consumer<Object> listener)
+	{
+		throw new UnsupportedOperationException("Push is not supported by " + this);
+	}
+}
@@ -0,0 +1,40 @@
+package de.metas.ui.web.devices;
+
+import javax.annotation.Nullable;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Provides {@link DeviceValueSource}s.
+ * <p>
+ * NOTE: if the implementation is annotated with {@link org.springframework.stereotype.Component} it will be automatically discovered by {@link DeviceWebSocketProducerFactory}.
+ */
+@FunctionalInterface
+public interface DeviceValueSourceProvider
+{
+	/**
+	 * @return device value source or null if this provider does not know the given device
+	 */
+	@Nullable
+	DeviceValueSource getDeviceValueSourceOrNull(String deviceId);
+}
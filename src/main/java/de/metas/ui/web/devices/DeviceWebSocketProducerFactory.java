@@ -1,16 +1,20 @@
 package de.metas.ui.web.devices;
 
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.adempiere.util.lang.IAutoCloseable;
 import org.springframework.stereotype.Component;
 
-import de.metas.device.adempiere.AttributesDevicesHub.AttributeDeviceAccessor;
-import de.metas.device.adempiere.IDevicesHubFactory;
 import de.metas.ui.web.websocket.WebSocketConfig;
 import de.metas.ui.web.websocket.WebSocketProducer;
 import de.metas.ui.web.websocket.WebSocketProducerFactory;
 import de.metas.ui.web.window.datatypes.Values;
 import de.metas.ui.web.window.datatypes.json.JSONOptions;
 import de.metas.util.Check;
-import de.metas.util.Services;
 import lombok.NonNull;
 import lombok.ToString;
 
@@ -37,7 +41,12 @@ import lombok.ToString;
  */
 
 /**
- * Creates {@link WebSocketProducer} instances which are reading {@link AttributeDeviceAccessor#acquireValue()} and creates {@link JSONDeviceValueChangedEvent}.
+ * Creates {@link WebSocketProducer} instances which are reading the device values from {@link DeviceValueSource}s and creates {@link JSONDeviceValueChangedEvent}s.
+ * <p>
+ * The device value sources are provided by the registered {@link DeviceValueSourceProvider}s. If none of them knows the device,
+ * the device's {@link de.metas.device.adempiere.AttributesDevicesHub.AttributeDeviceAccessor} is polled.
+ * <p>
+ * Events are produced only when the device value changed, or when there is a new subscriber.
  *
  * @author metas-dev <dev@metasfresh.com>
  *
@@ -47,6 +56,13 @@ public class DeviceWebSocketProducerFactory implements WebSocketProducerFactory
 {
 	private static final String TOPICNAME_Prefix = WebSocketConfig.TOPIC_Devices + "/";
 
+	private final CopyOnWriteArrayList<DeviceValueSourceProvider> deviceValueSourceProviders = new CopyOnWriteArrayList<>();
+
+	public DeviceWebSocketProducerFactory(final Optional<List<DeviceValueSourceProvider>> deviceValueSourceProviders)
+	{
+		deviceValueSourceProviders.ifPresent(this.deviceValueSourceProviders::addAll);
+	}
+
 	public static final String buildDeviceTopicName(final String deviceId)
 	{
 		Check.assumeNotEmpty(deviceId, "deviceId is not empty");
@@ -69,6 +85,11 @@ public class DeviceWebSocketProducerFactory implements WebSocketProducerFactory
 		}
 	}
 
+	public void registerDeviceValueSourceProvider(@NonNull final DeviceValueSourceProvider deviceValueSourceProvider)
+	{
+		deviceValueSourceProviders.addIfAbsent(deviceValueSourceProvider);
+	}
+
 	@Override
 	public String getTopicNamePrefix()
 	{
@@ -79,35 +100,83 @@ public class DeviceWebSocketProducerFactory implements WebSocketProducerFactory
 	public WebSocketProducer createProducer(final String topicName)
 	{
 		final String deviceId = extractDeviceIdFromTopicName(topicName);
-		return new DeviceWebSocketProducer(deviceId);
+		Check.assumeNotEmpty(deviceId, "deviceId is not empty");
+
+		return new DeviceWebSocketProducer(getDeviceValueSource(deviceId));
+	}
+
+	private DeviceValueSource getDeviceValueSource(final String deviceId)
+	{
+		for (final DeviceValueSourceProvider provider : deviceValueSourceProviders)
+		{
+			final DeviceValueSource deviceValueSource = provider.getDeviceValueSourceOrNull(deviceId);
+			if (deviceValueSource != null)
+			{
+				return deviceValueSource;
+			}
+		}
+
+		return AttributeDeviceValueSource.of(deviceId);
 	}
 
-	@ToString
+	@ToString(of = "deviceValueSource")
 	private static final class DeviceWebSocketProducer implements WebSocketProducer
 	{
-		private final String deviceId;
+		private final DeviceValueSource deviceValueSource;
 
-		public DeviceWebSocketProducer(final String deviceId)
+		private Object lastValueJson;
+		private boolean forceNextEvent = true;
+
+		public DeviceWebSocketProducer(@NonNull final DeviceValueSource deviceValueSource)
 		{
-			Check.assumeNotEmpty(deviceId, "deviceId is not empty");
-			this.deviceId = deviceId;
+			this.deviceValueSource = deviceValueSource;
 		}
 
 		@Override
 		public Object produceEvent(@NonNull final JSONOptions jsonOpts)
 		{
-			final AttributeDeviceAccessor deviceAccessor = Services.get(IDevicesHubFactory.class)
-					.getDefaultAttributesDevicesHub()
-					.getAttributeDeviceAccessorById(deviceId);
-			if (deviceAccessor == null)
+			final Object valueObj = deviceValueSource.acquireValue();
+			return toEventIfChanged(valueObj, jsonOpts);
+		}
+
+		@Override
+		public Optional<IAutoCloseable> startPushing(@NonNull final Consumer<Object> eventsSink)
+		{
+			if (!deviceValueSource.isPushSupported())
 			{
-				throw new RuntimeException("Device accessor no longer exists for: " + deviceId);
+				return Optional.empty();
 			}
 
-			final Object valueObj = deviceAccessor.acquireValue();
+			final IAutoCloseable subscription = deviceValueSource.addValueChangedListener(valueObj -> {
+				final Object event = toEventIfChanged(valueObj, JSONOptions.newInstance());
+				if (event != null)
+				{
+					eventsSink.accept(event);
+				}
+			});
+			return Optional.of(subscription);
+		}
+
+		@Override
+		public synchronized void onNewSubscription()
+		{
+			forceNextEvent = true;
+		}
+
+		/**
+		 * @return event or null if the value did not change since the last event
+		 */
+		private synchronized JSONDeviceValueChangedEvent toEventIfChanged(final Object valueObj, final JSONOptions jsonOpts)
+		{
 			final Object valueJson = Values.valueToJsonObject(valueObj, jsonOpts);
+			if (!forceNextEvent && Objects.equals(valueJson, lastValueJson))
+			{
+				return null;
+			}
 
-			return JSONDeviceValueChangedEvent.of(deviceId, valueJson);
+			lastValueJson = valueJson;
+			forceNextEvent = false;
+			return JSONDeviceValueChangedEvent.of(deviceValueSource.getDeviceId(), valueJson);
 		}
 	}
 }
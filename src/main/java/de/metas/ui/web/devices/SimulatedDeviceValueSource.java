@@ -0,0 +1,117 @@
+package de.metas.ui.web.devices;
+
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import javax.annotation.Nullable;
+
+import org.adempiere.util.lang.IAutoCloseable;
+import org.slf4j.Logger;
+
+import de.metas.logging.LogManager;
+import de.metas.util.Check;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.ToString;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Simulated device, to be used instead of a real device (e.g. a scale) in tests and development environments.
+ * <p>
+ * The value is set programmatically using {@link #setValue(Object)}, and the listeners are notified only if the value changed.
+ */
+@ToString(of = { "deviceId", "value" })
+public final class SimulatedDeviceValueSource implements DeviceValueSource
+{
+	private static final Logger logger = LogManager.getLogger(SimulatedDeviceValueSource.class);
+
+	private final String deviceId;
+	private volatile Object value;
+	private final CopyOnWriteArrayList<Consumer<Object>> listeners = new CopyOnWriteArrayList<>();
+
+	@Builder
+	private SimulatedDeviceValueSource(
+			@NonNull final String deviceId,
+			@Nullable final Object initialValue)
+	{
+		Check.assumeNotEmpty(deviceId, "deviceId is not empty");
+		this.deviceId = deviceId;
+		this.value = initialValue;
+	}
+
+	@Override
+	public String getDeviceId()
+	{
+		return deviceId;
+	}
+
+	@Override
+	public Object acquireValue()
+	{
+		return value;
+	}
+
+	@Override
+	public boolean isPushSupported()
+	{
+		return true;
+	}
+
+	@Override
+	public IAutoCloseable addValueChangedListener(@NonNull final Consumer<Object> listener)
+	{
+		listeners.add(listener);
+		return () -> listeners.remove(listener);
+	}
+
+	public int getListenersCount()
+	{
+		return listeners.size();
+	}
+
+	public void setValue(@Nullable final Object value)
+	{
+		synchronized (this)
+		{
+			if (Objects.equals(this.value, value))
+			{
+				return;
+			}
+			this.value = value;
+		}
+
+		for (final Consumer<Object> listener : listeners)
+		{
+			try
+			{
+				listener.accept(value);
+			}
+			catch (final Exception ex)
+			{
+				logger.warn("Failed notifying {} about value change of {}. Ignored.", listener, this, ex);
+			}
+		}
+	}
+}
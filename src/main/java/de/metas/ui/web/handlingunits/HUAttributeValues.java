@@ -0,0 +1,74 @@
+package de.metas.ui.web.handlingunits;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableMap;
+
+import lombok.NonNull;
+import lombok.Value;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Attribute values of one HU, as stored in its {@code M_HU_Attribute} records, indexed by attribute code ({@code M_Attribute.Value}).
+ * <p>
+ * Used to show attribute columns (e.g. best before date) in HU grids without loading the HU's attribute storage.
+ *
+ * @see HUEditorRowAttributesProvider#warmUp(java.util.Collection)
+ */
+@Value
+final class HUAttributeValues
+{
+	static final HUAttributeValues EMPTY = new HUAttributeValues(ImmutableMap.of());
+
+	static HUAttributeValues ofMap(@NonNull final Map<String, Object> valuesByAttributeCode)
+	{
+		return !valuesByAttributeCode.isEmpty()
+				? new HUAttributeValues(ImmutableMap.copyOf(valuesByAttributeCode))
+				: EMPTY;
+	}
+
+	@NonNull
+	ImmutableMap<String, Object> valuesByAttributeCode;
+
+	private HUAttributeValues(@NonNull final ImmutableMap<String, Object> valuesByAttributeCode)
+	{
+		this.valuesByAttributeCode = valuesByAttributeCode;
+	}
+
+	@Nullable
+	public Object getValue(@NonNull final String attributeCode)
+	{
+		return valuesByAttributeCode.get(attributeCode);
+	}
+
+	public Optional<LocalDate> getValueAsLocalDate(@NonNull final String attributeCode)
+	{
+		final Object value = getValue(attributeCode);
+		return value instanceof LocalDate ? Optional.of((LocalDate)value) : Optional.empty();
+	}
+}
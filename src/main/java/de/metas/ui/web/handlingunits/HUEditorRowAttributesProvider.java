@@ -1,29 +1,54 @@
 package de.metas.ui.web.handlingunits;
 
-import java.util.concurrent.ConcurrentHashMap;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
 
+import org.adempiere.ad.dao.IQueryBL;
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.mm.attributes.api.AttributeConstants;
+import org.adempiere.mm.attributes.api.IAttributeDAO;
+import org.adempiere.mm.attributes.spi.IAttributeValueContext;
 import org.adempiere.util.lang.ExtendedMemorizingSupplier;
+import org.compiere.model.I_M_Attribute;
+import org.compiere.model.X_M_Attribute;
+import org.compiere.util.TimeUtil;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Multimaps;
 
+import de.metas.cache.CCache;
+import de.metas.cache.CCache.CacheMapType;
 import de.metas.handlingunits.HuId;
 import de.metas.handlingunits.IHandlingUnitsBL;
 import de.metas.handlingunits.IHandlingUnitsDAO;
+import de.metas.handlingunits.attribute.IAttributeValue;
 import de.metas.handlingunits.attribute.storage.IAttributeStorage;
 import de.metas.handlingunits.attribute.storage.IAttributeStorageFactory;
 import de.metas.handlingunits.attribute.storage.IAttributeStorageFactoryService;
+import de.metas.handlingunits.attribute.storage.IAttributeStorageListener;
 import de.metas.handlingunits.model.I_M_HU;
+import de.metas.handlingunits.model.I_M_HU_Attribute;
 import de.metas.handlingunits.model.X_M_HU;
 import de.metas.handlingunits.storage.IHUProductStorage;
 import de.metas.handlingunits.storage.IHUStorage;
 import de.metas.handlingunits.storage.IHUStorageFactory;
 import de.metas.product.ProductId;
+import de.metas.ui.web.cache.HeapBudgetCacheSize;
 import de.metas.ui.web.view.IViewRowAttributesProvider;
 import de.metas.ui.web.window.datatypes.DocumentId;
 import de.metas.ui.web.window.datatypes.DocumentPath;
 import de.metas.ui.web.window.datatypes.DocumentType;
 import de.metas.util.Services;
 import lombok.Builder;
+import lombok.NonNull;
 import lombok.Value;
 
 /*
@@ -50,10 +75,53 @@ import lombok.Value;
 
 public class HUEditorRowAttributesProvider implements IViewRowAttributesProvider
 {
+	/** each view has its own provider */
+	private static final int EXPECTED_PROVIDERS_COUNT = 20;
+
+	private static final HeapBudgetCacheSize CACHESIZE_RowAttributes = HeapBudgetCacheSize.builder()
+			.sysConfigName("webui.HUEditorRowAttributesProvider.RowAttributes.CacheSize")
+			.estimatedEntrySizeBytes(16 * 1024) // one row attributes document, including its attribute storage
+			.heapPercent(2)
+			.expectedCachesCount(EXPECTED_PROVIDERS_COUNT)
+			.minSize(100)
+			.maxSize(10000)
+			.build();
+
+	private static final HeapBudgetCacheSize CACHESIZE_AttributeValues = HeapBudgetCacheSize.builder()
+			.sysConfigName("webui.HUEditorRowAttributesProvider.AttributeValues.CacheSize")
+			.estimatedEntrySizeBytes(1024) // the attribute values of one HU
+			.heapPercent(1)
+			.minSize(1000)
+			.maxSize(100000)
+			.build();
+
 	private final boolean readonly;
 
 	private final ExtendedMemorizingSupplier<IAttributeStorageFactory> _attributeStorageFactory = ExtendedMemorizingSupplier.of(() -> createAttributeStorageFactory());
-	private final ConcurrentHashMap<ViewRowAttributesKey, HUEditorRowAttributes> rowAttributesByKey = new ConcurrentHashMap<>();
+	private final Cache<ViewRowAttributesKey, HUEditorRowAttributes> rowAttributesByKey = CacheBuilder.newBuilder()
+			.maximumSize(CACHESIZE_RowAttributes.get())
+			.build();
+
+	/** The attribute values are not depending on the view, so they are shared by all providers */
+	private static final CCache<HuId, HUAttributeValues> attributeValuesByHUId = CCache.<HuId, HUAttributeValues> builder()
+			.cacheName("HUEditorRowAttributeValues")
+			.tableName(I_M_HU_Attribute.Table_Name)
+			.cacheMapType(CacheMapType.LRU)
+			.initialCapacity(CACHESIZE_AttributeValues.get())
+			.build();
+
+	/**
+	 * The HUs whose attribute values were loaded by this provider, so they can be forgotten when the view is invalidated.
+	 * Bounded like {@link #attributeValuesByHUId}; the HUs which are evicted meanwhile are usually evicted from there too.
+	 */
+	private final Cache<HuId, Boolean> huIdsWithAttributeValues = CacheBuilder.newBuilder()
+			.maximumSize(CACHESIZE_AttributeValues.get())
+			.build();
+
+	/** The storages (cached by {@link #_attributeStorageFactory}) which already have an {@link AttributeValuesInvalidator} */
+	private final Cache<IAttributeStorage, AttributeValuesInvalidator> attributeValuesInvalidatorsByStorage = CacheBuilder.newBuilder()
+			.weakKeys()
+			.build();
 
 	@Value
 	private static final class ViewRowAttributesKey
@@ -82,7 +150,92 @@ public class HUEditorRowAttributesProvider implements IViewRowAttributesProvider
 	public HUEditorRowAttributes getAttributes(final DocumentId viewRowId, final DocumentId huId)
 	{
 		final ViewRowAttributesKey key = new ViewRowAttributesKey(viewRowId, huId);
-		return rowAttributesByKey.computeIfAbsent(key, this::createRowAttributes);
+		try
+		{
+			return rowAttributesByKey.get(key, () -> createRowAttributes(key));
+		}
+		catch (final ExecutionException ex)
+		{
+			throw AdempiereException.wrapIfNeeded(ex.getCause());
+		}
+	}
+
+	/**
+	 * Loads the attribute values of given HUs with one query, so that {@link #getBestBeforeDate(HuId)} won't have to load them one by one.
+	 */
+	public void warmUp(@NonNull final Collection<HuId> huIds)
+	{
+		if (huIds.isEmpty())
+		{
+			return;
+		}
+
+		huIds.forEach(this::rememberHUWithAttributeValues);
+		attributeValuesByHUId.getAllOrLoad(huIds, HUEditorRowAttributesProvider::retrieveAttributeValues);
+	}
+
+	private static Map<HuId, HUAttributeValues> retrieveAttributeValues(final Collection<HuId> huIds)
+	{
+		final List<I_M_HU_Attribute> records = Services.get(IQueryBL.class)
+				.createQueryBuilderOutOfTrx(I_M_HU_Attribute.class)
+				.addInArrayFilter(I_M_HU_Attribute.COLUMNNAME_M_HU_ID, huIds)
+				.addOnlyActiveRecordsFilter()
+				.create()
+				.list();
+		final ImmutableListMultimap<HuId, I_M_HU_Attribute> recordsByHUId = Multimaps.index(records, record -> HuId.ofRepoId(record.getM_HU_ID()));
+
+		final IAttributeDAO attributesRepo = Services.get(IAttributeDAO.class);
+		final Map<HuId, HUAttributeValues> result = new HashMap<>(huIds.size());
+		for (final HuId huId : huIds)
+		{
+			final Map<String, Object> valuesByAttributeCode = new HashMap<>();
+			for (final I_M_HU_Attribute record : recordsByHUId.get(huId))
+			{
+				final I_M_Attribute attribute = attributesRepo.getAttributeById(record.getM_Attribute_ID()); // attribute definitions are cached
+				final Object value = extractValue(record, attribute);
+				if (value != null)
+				{
+					valuesByAttributeCode.put(attribute.getValue(), value);
+				}
+			}
+
+			result.put(huId, HUAttributeValues.ofMap(valuesByAttributeCode));
+		}
+
+		return result;
+	}
+
+	private static Object extractValue(final I_M_HU_Attribute record, final I_M_Attribute attribute)
+	{
+		final String attributeValueType = attribute.getAttributeValueType();
+		if (X_M_Attribute.ATTRIBUTEVALUETYPE_Date.equals(attributeValueType))
+		{
+			return TimeUtil.asLocalDate(record.getValueDate());
+		}
+		else if (X_M_Attribute.ATTRIBUTEVALUETYPE_Number.equals(attributeValueType))
+		{
+			return record.getValueNumber();
+		}
+		else
+		{
+			return record.getValue();
+		}
+	}
+
+	private void rememberHUWithAttributeValues(final HuId huId)
+	{
+		huIdsWithAttributeValues.put(huId, Boolean.TRUE);
+	}
+
+	private HUAttributeValues getAttributeValues(final HuId huId)
+	{
+		rememberHUWithAttributeValues(huId);
+		return attributeValuesByHUId.getOrLoad(huId, () -> retrieveAttributeValues(ImmutableSet.of(huId)).get(huId));
+	}
+
+	public Optional<LocalDate> getBestBeforeDate(@NonNull final HuId huId)
+	{
+		return getAttributeValues(huId).getValueAsLocalDate(AttributeConstants.ATTR_BestBeforeDate);
 	}
 
 	private HUEditorRowAttributes createRowAttributes(final ViewRowAttributesKey key)
@@ -90,6 +243,7 @@ public class HUEditorRowAttributesProvider implements IViewRowAttributesProvider
 		final I_M_HU hu = extractHU(key);
 		final IAttributeStorage attributesStorage = getAttributeStorageFactory().getAttributeStorage(hu);
 		attributesStorage.setSaveOnChange(true);
+		addAttributeValuesInvalidatorIfAbsent(attributesStorage, HuId.ofRepoId(hu.getM_HU_ID()));
 
 		final boolean rowAttributesReadonly = isReadonly() // readonly if the provider shall provide readonly attributes
 				|| !X_M_HU.HUSTATUS_Planning.equals(hu.getHUStatus()); // or, readonly if not Planning, see https://github.com/metasfresh/metasfresh-webui-api/issues/314
@@ -107,6 +261,25 @@ public class HUEditorRowAttributesProvider implements IViewRowAttributesProvider
 		return new HUEditorRowAttributes(documentPath, attributesStorage, productIDs, rowAttributesReadonly);
 	}
 
+	/**
+	 * Adds the listener only once, because the storages are cached by the factory, so the same storage is used again when the row attributes are created again.
+	 */
+	private void addAttributeValuesInvalidatorIfAbsent(final IAttributeStorage attributesStorage, final HuId huId)
+	{
+		try
+		{
+			attributeValuesInvalidatorsByStorage.get(attributesStorage, () -> {
+				final AttributeValuesInvalidator invalidator = new AttributeValuesInvalidator(attributeValuesByHUId, huId);
+				attributesStorage.addListener(invalidator);
+				return invalidator;
+			});
+		}
+		catch (final ExecutionException ex)
+		{
+			throw AdempiereException.wrapIfNeeded(ex.getCause());
+		}
+	}
+
 	private I_M_HU extractHU(final ViewRowAttributesKey key)
 	{
 		final HuId huId = HuId.ofRepoId(key.getHuId().toInt());
@@ -154,6 +327,66 @@ public class HUEditorRowAttributesProvider implements IViewRowAttributesProvider
 
 		//
 		// Destroy attribute documents
-		rowAttributesByKey.clear();
+		rowAttributesByKey.invalidateAll();
+
+		//
+		// Forget the attribute values of our HUs (but not the ones of the other views)
+		attributeValuesByHUId.removeAll(ImmutableSet.copyOf(huIdsWithAttributeValues.asMap().keySet()));
+		huIdsWithAttributeValues.invalidateAll();
+	}
+
+	/**
+	 * Forgets the attribute documents and the prefetched attribute values of given HUs, e.g. because they were changed by a process.
+	 */
+	public void invalidate(@NonNull final Collection<HuId> huIds)
+	{
+		if (huIds.isEmpty())
+		{
+			return;
+		}
+
+		//
+		// The attribute storages are cached by the factory, so we need a new one
+		// in order to have the attribute documents of given HUs reloaded from database.
+		// The attribute documents of the other HUs are still using their (current) storages.
+		_attributeStorageFactory.forget();
+
+		final ImmutableSet<DocumentId> huDocumentIds = huIds.stream()
+				.map(this::createAttributeKey)
+				.collect(ImmutableSet.toImmutableSet());
+		rowAttributesByKey.asMap().keySet().removeIf(key -> huDocumentIds.contains(key.getHuId()));
+
+		attributeValuesByHUId.removeAll(huIds);
+		huIdsWithAttributeValues.invalidateAll(huIds);
+	}
+
+	/**
+	 * Forgets the prefetched attribute values of an HU when any of its attributes is changed.
+	 */
+	@Value
+	private static class AttributeValuesInvalidator implements IAttributeStorageListener
+	{
+		@NonNull
+		CCache<HuId, HUAttributeValues> attributeValuesByHUId;
+		@NonNull
+		HuId huId;
+
+		@Override
+		public void onAttributeValueCreated(final IAttributeValueContext attributeValueContext, final IAttributeStorage storage, final IAttributeValue attributeValue)
+		{
+			attributeValuesByHUId.remove(huId);
+		}
+
+		@Override
+		public void onAttributeValueChanged(final IAttributeValueContext attributeValueContext, final IAttributeStorage storage, final IAttributeValue attributeValue, final Object valueOld)
+		{
+			attributeValuesByHUId.remove(huId);
+		}
+
+		@Override
+		public void onAttributeValueDeleted(final IAttributeValueContext attributeValueContext, final IAttributeStorage storage, final IAttributeValue attributeValue)
+		{
+			attributeValuesByHUId.remove(huId);
+		}
 	}
 }
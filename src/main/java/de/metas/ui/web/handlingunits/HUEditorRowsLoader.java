@@ -0,0 +1,704 @@
+package de.metas.ui.web.handlingunits;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.annotation.Nullable;
+
+import org.adempiere.ad.dao.IQueryBL;
+import org.adempiere.ad.service.IADReferenceDAO;
+import org.compiere.model.I_C_UOM;
+import org.compiere.model.I_M_Product;
+import org.compiere.util.Env;
+import org.slf4j.Logger;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ListMultimap;
+
+import de.metas.bpartner.BPartnerId;
+import de.metas.handlingunits.HuId;
+import de.metas.handlingunits.IHUStatusBL;
+import de.metas.handlingunits.IHandlingUnitsBL;
+import de.metas.handlingunits.exceptions.HUException;
+import de.metas.handlingunits.model.I_M_HU;
+import de.metas.handlingunits.model.I_M_HU_Item;
+import de.metas.handlingunits.model.I_M_HU_PI_Version;
+import de.metas.handlingunits.model.I_M_HU_Storage;
+import de.metas.handlingunits.model.I_M_Locator;
+import de.metas.handlingunits.model.I_M_Warehouse;
+import de.metas.handlingunits.model.X_M_HU;
+import de.metas.handlingunits.model.X_M_HU_Item;
+import de.metas.handlingunits.model.X_M_HU_PI_Version;
+import de.metas.handlingunits.reservation.HUReservationService;
+import de.metas.i18n.IMsgBL;
+import de.metas.logging.LogManager;
+import de.metas.order.OrderLineId;
+import de.metas.product.ProductId;
+import de.metas.quantity.Quantity;
+import de.metas.ui.web.handlingunits.util.HUPackingInfoFormatCache;
+import de.metas.ui.web.handlingunits.util.HUPackingInfoFormatter;
+import de.metas.ui.web.handlingunits.util.HUPackingInfoKey;
+import de.metas.ui.web.handlingunits.util.HUPackingInfos;
+import de.metas.ui.web.pporder.JSONLookupValueTool;
+import de.metas.ui.web.window.datatypes.WindowId;
+import de.metas.ui.web.window.datatypes.json.JSONLookupValue;
+import de.metas.util.Check;
+import de.metas.util.Services;
+import lombok.Builder;
+import lombok.NonNull;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Creates {@link HUEditorRow}s for a set of top level HUs.
+ * <p>
+ * The whole HU trees (LU, TU, VHU and their storages, locators, products and UOMs) are loaded with a fixed number of queries per tree level
+ * and then assembled in memory, so the number of queries does not depend on the number of HUs.
+ * The attribute values needed by the rows (e.g. best before date) are prefetched in bulk too, see {@link HUEditorRowAttributesProvider#warmUp(Collection)}.
+ * <p>
+ * The loaded data is kept in the instance, so create a new loader for each {@link #load(List)} call.
+ */
+final class HUEditorRowsLoader
+{
+	private static final String MSG_HU_RESERVED = "de.metas.handlingunit.HU_Reserved";
+
+	private static final transient Logger logger = LogManager.getLogger(HUEditorRowsLoader.class);
+
+	private final WindowId windowId;
+	private final HUEditorRowAttributesProvider attributesProvider;
+	private final HUEditorRowIsProcessedPredicate rowProcessedPredicate;
+	private final HUReservationsIndex huReservationsIndex;
+	private final boolean showBestBeforeDate;
+
+	//
+	// Loaded data
+	private final Map<HuId, I_M_HU> husById = new LinkedHashMap<>();
+	private final ListMultimap<HuId, I_M_HU> includedHUsByParentId = ArrayListMultimap.create();
+	private final Map<Integer, I_M_HU_Item> itemsById = new HashMap<>();
+	private final Map<Integer, I_M_HU_PI_Version> piVersionsById = new HashMap<>();
+	private final ListMultimap<HuId, I_M_HU_Storage> storagesByHUId = ArrayListMultimap.create();
+	private final Map<Integer, JSONLookupValue> locatorsById = new HashMap<>();
+	private final Map<Integer, JSONLookupValue> productsById = new HashMap<>();
+	private final Map<Integer, I_C_UOM> uomsById = new HashMap<>();
+	private final Map<HuId, String> packingInfosByHUId = new HashMap<>();
+	private final Map<String, JSONLookupValue> huStatusDisplaysByKey = new HashMap<>();
+
+	@Builder
+	private HUEditorRowsLoader(
+			@NonNull final WindowId windowId,
+			@Nullable final HUEditorRowAttributesProvider attributesProvider,
+			@NonNull final HUEditorRowIsProcessedPredicate rowProcessedPredicate,
+			@NonNull final HUReservationService huReservationService,
+			final boolean showBestBeforeDate)
+	{
+		this.windowId = windowId;
+		this.attributesProvider = attributesProvider;
+		this.rowProcessedPredicate = rowProcessedPredicate;
+		this.huReservationsIndex = new HUReservationsIndex(huReservationService);
+		this.showBestBeforeDate = showBestBeforeDate;
+	}
+
+	/**
+	 * @param topLevelHUs HUs for which the rows shall be created; they are assumed to be top level HUs
+	 * @return rows, in the same order as the given HUs
+	 */
+	public List<HUEditorRow> load(@NonNull final List<I_M_HU> topLevelHUs)
+	{
+		if (topLevelHUs.isEmpty())
+		{
+			return ImmutableList.of();
+		}
+
+		loadHUTrees(topLevelHUs);
+		loadStorages();
+		loadLocators();
+		loadProductsAndUOMs();
+		huReservationsIndex.warmUp(husById.keySet());
+		if (showBestBeforeDate && attributesProvider != null)
+		{
+			attributesProvider.warmUp(husById.keySet());
+		}
+		loadPackingInfos();
+
+		final HuId topLevelHUId = null;
+		return topLevelHUs.stream()
+				.map(hu -> createHUEditorRow(hu, topLevelHUId))
+				.collect(ImmutableList.toImmutableList());
+	}
+
+	private void loadHUTrees(final List<I_M_HU> topLevelHUs)
+	{
+		List<I_M_HU> currentLevelHUs = topLevelHUs;
+		while (!currentLevelHUs.isEmpty())
+		{
+			currentLevelHUs.forEach(hu -> husById.put(extractHUId(hu), hu));
+			loadPIVersions(currentLevelHUs);
+
+			final Set<HuId> parentHUIds = currentLevelHUs.stream()
+					.filter(this::hasIncludedHUs)
+					.map(HUEditorRowsLoader::extractHUId)
+					.collect(ImmutableSet.toImmutableSet());
+
+			currentLevelHUs = retrieveIncludedHUs(parentHUIds);
+		}
+	}
+
+	private boolean hasIncludedHUs(final I_M_HU hu)
+	{
+		final String huUnitType = getHUUnitType(hu);
+		if (X_M_HU_PI_Version.HU_UNITTYPE_LoadLogistiqueUnit.equals(huUnitType))
+		{
+			return true;
+		}
+		else if (X_M_HU_PI_Version.HU_UNITTYPE_TransportUnit.equals(huUnitType))
+		{
+			return !isAggregatedTU(hu);
+		}
+		else
+		{
+			return false;
+		}
+	}
+
+	private List<I_M_HU> retrieveIncludedHUs(final Set<HuId> parentHUIds)
+	{
+		if (parentHUIds.isEmpty())
+		{
+			return ImmutableList.of();
+		}
+
+		final IQueryBL queryBL = Services.get(IQueryBL.class);
+		final List<I_M_HU_Item> items = queryBL.createQueryBuilderOutOfTrx(I_M_HU_Item.class)
+				.addInArrayFilter(I_M_HU_Item.COLUMNNAME_M_HU_ID, parentHUIds)
+				.addOnlyActiveRecordsFilter()
+				.create()
+				.list();
+		if (items.isEmpty())
+		{
+			return ImmutableList.of();
+		}
+		items.forEach(item -> itemsById.put(item.getM_HU_Item_ID(), item));
+
+		final Set<Integer> itemIds = items.stream()
+				.map(I_M_HU_Item::getM_HU_Item_ID)
+				.collect(ImmutableSet.toImmutableSet());
+		final List<I_M_HU> includedHUs = queryBL.createQueryBuilderOutOfTrx(I_M_HU.class)
+				.addInArrayFilter(I_M_HU.COLUMNNAME_M_HU_Item_Parent_ID, itemIds)
+				.addOnlyActiveRecordsFilter()
+				.orderBy(I_M_HU.COLUMNNAME_M_HU_ID)
+				.create()
+				.list();
+		for (final I_M_HU includedHU : includedHUs)
+		{
+			final I_M_HU_Item parentItem = itemsById.get(includedHU.getM_HU_Item_Parent_ID());
+			includedHUsByParentId.put(HuId.ofRepoId(parentItem.getM_HU_ID()), includedHU);
+		}
+
+		return includedHUs;
+	}
+
+	private void loadPIVersions(final Collection<I_M_HU> hus)
+	{
+		final Set<Integer> piVersionIdsToLoad = hus.stream()
+				.map(I_M_HU::getM_HU_PI_Version_ID)
+				.filter(piVersionId -> piVersionId > 0 && !piVersionsById.containsKey(piVersionId))
+				.collect(ImmutableSet.toImmutableSet());
+		if (piVersionIdsToLoad.isEmpty())
+		{
+			return;
+		}
+
+		Services.get(IQueryBL.class).createQueryBuilderOutOfTrx(I_M_HU_PI_Version.class)
+				.addInArrayFilter(I_M_HU_PI_Version.COLUMNNAME_M_HU_PI_Version_ID, piVersionIdsToLoad)
+				.create()
+				.list()
+				.forEach(piVersion -> piVersionsById.put(piVersion.getM_HU_PI_Version_ID(), piVersion));
+	}
+
+	private void loadStorages()
+	{
+		Services.get(IQueryBL.class).createQueryBuilderOutOfTrx(I_M_HU_Storage.class)
+				.addInArrayFilter(I_M_HU_Storage.COLUMNNAME_M_HU_ID, husById.keySet())
+				.orderBy(I_M_HU_Storage.COLUMNNAME_M_HU_Storage_ID)
+				.create()
+				.list()
+				.forEach(storage -> storagesByHUId.put(HuId.ofRepoId(storage.getM_HU_ID()), storage));
+	}
+
+	private void loadLocators()
+	{
+		final Set<Integer> locatorIds = husById.values()
+				.stream()
+				.map(I_M_HU::getM_Locator_ID)
+				.filter(locatorId -> locatorId > 0)
+				.collect(ImmutableSet.toImmutableSet());
+		if (locatorIds.isEmpty())
+		{
+			return;
+		}
+
+		final IQueryBL queryBL = Services.get(IQueryBL.class);
+		final List<I_M_Locator> locators = queryBL.createQueryBuilderOutOfTrx(I_M_Locator.class)
+				.addInArrayFilter(I_M_Locator.COLUMNNAME_M_Locator_ID, locatorIds)
+				.create()
+				.list();
+
+		final Set<Integer> warehouseIds = locators.stream()
+				.map(I_M_Locator::getM_Warehouse_ID)
+				.collect(ImmutableSet.toImmutableSet());
+		final Map<Integer, I_M_Warehouse> warehousesById = queryBL.createQueryBuilderOutOfTrx(I_M_Warehouse.class)
+				.addInArrayFilter(I_M_Warehouse.COLUMNNAME_M_Warehouse_ID, warehouseIds)
+				.create()
+				.stream()
+				.collect(Collectors.toMap(I_M_Warehouse::getM_Warehouse_ID, Function.identity()));
+
+		for (final I_M_Locator locator : locators)
+		{
+			final I_M_Warehouse warehouse = warehousesById.get(locator.getM_Warehouse_ID());
+			locatorsById.put(locator.getM_Locator_ID(), createLocatorLookupValue(locator, warehouse));
+		}
+	}
+
+	private static JSONLookupValue createLocatorLookupValue(@NonNull final I_M_Locator locator, @Nullable final I_M_Warehouse warehouse)
+	{
+		final String warehouseName = warehouse != null ? warehouse.getName() : null;
+		final String caption = Stream.of(warehouseName, locator.getValue(), locator.getX(), locator.getX1(), locator.getY(), locator.getZ())
+				.filter(part -> !Check.isEmpty(part, true))
+				.map(String::trim)
+				.collect(Collectors.joining("_"));
+
+		return JSONLookupValue.of(locator.getM_Locator_ID(), caption);
+	}
+
+	private void loadProductsAndUOMs()
+	{
+		if (storagesByHUId.isEmpty())
+		{
+			return;
+		}
+
+		final IQueryBL queryBL = Services.get(IQueryBL.class);
+
+		final Set<Integer> productIds = storagesByHUId.values()
+				.stream()
+				.map(I_M_HU_Storage::getM_Product_ID)
+				.collect(ImmutableSet.toImmutableSet());
+		queryBL.createQueryBuilderOutOfTrx(I_M_Product.class)
+				.addInArrayFilter(I_M_Product.COLUMNNAME_M_Product_ID, productIds)
+				.create()
+				.list()
+				.forEach(product -> productsById.put(product.getM_Product_ID(), JSONLookupValueTool.createProductLookupValue(product)));
+
+		final Set<Integer> uomIds = storagesByHUId.values()
+				.stream()
+				.map(I_M_HU_Storage::getC_UOM_ID)
+				.collect(ImmutableSet.toImmutableSet());
+		queryBL.createQueryBuilderOutOfTrx(I_C_UOM.class)
+				.addInArrayFilter(I_C_UOM.COLUMNNAME_C_UOM_ID, uomIds)
+				.create()
+				.list()
+				.forEach(uom -> uomsById.put(uom.getC_UOM_ID(), uom));
+	}
+
+	private String getHUUnitType(final I_M_HU hu)
+	{
+		final I_M_HU_PI_Version piVersion = piVersionsById.get(hu.getM_HU_PI_Version_ID());
+		if (piVersion != null)
+		{
+			return piVersion.getHU_UnitType();
+		}
+
+		return Services.get(IHandlingUnitsBL.class).getHU_UnitType(hu);
+	}
+
+	private boolean isAggregatedTU(final I_M_HU hu)
+	{
+		final int parentItemId = hu.getM_HU_Item_Parent_ID();
+		if (parentItemId <= 0)
+		{
+			return false;
+		}
+
+		final I_M_HU_Item parentItem = itemsById.get(parentItemId);
+		if (parentItem != null)
+		{
+			return X_M_HU_Item.ITEMTYPE_HUAggregate.equals(parentItem.getItemType());
+		}
+
+		// the parent item was not loaded by us, i.e. the HU is not a top level HU
+		return Services.get(IHandlingUnitsBL.class).isAggregateHU(hu);
+	}
+
+	private HUEditorRow createHUEditorRow(
+			@NonNull final I_M_HU hu,
+			@Nullable final HuId topLevelHUId)
+	{
+		final HuId huId = extractHUId(hu);
+		final boolean aggregatedTU = isAggregatedTU(hu);
+		final String huUnitTypeCode = getHUUnitType(hu);
+		final HUEditorRowType huRecordType;
+		if (aggregatedTU)
+		{
+			huRecordType = HUEditorRowType.TU;
+		}
+		else
+		{
+			huRecordType = HUEditorRowType.ofHU_UnitType(huUnitTypeCode);
+		}
+		final Optional<OrderLineId> orderLineIdWithReservation = huReservationsIndex.getOrderLineIdByReservedVhuId(huId);
+
+		final String huUnitTypeDisplayName = huRecordType.getName();
+		final JSONLookupValue huUnitTypeLookupValue = JSONLookupValue.of(huUnitTypeCode, huUnitTypeDisplayName);
+
+		final boolean processed = rowProcessedPredicate.isProcessed(hu);
+		final HUEditorRowId rowId = HUEditorRowId.ofHU(huId, topLevelHUId);
+		final I_M_HU_Storage singleProductStorage = getSingleProductStorage(huId);
+
+		final HUEditorRow.Builder huEditorRow = HUEditorRow.builder(windowId)
+				.setRowId(rowId)
+				.setType(huRecordType)
+				.setTopLevel(topLevelHUId == null)
+				.setProcessed(processed)
+				.setBPartnerId(BPartnerId.ofRepoIdOrNull(hu.getC_BPartner_ID()))
+				.setAttributesProvider(attributesProvider)
+				//
+				.setCode(hu.getValue())
+				.setHUUnitType(huUnitTypeLookupValue)
+				.setHUStatusDisplay(createHUStatusDisplayLookupValue(hu))
+				.setHUStatus(hu.getHUStatus())
+				.setReservedForOrderLine(orderLineIdWithReservation.orElse(null))
+				.setPackingInfo(extractPackingInfo(hu, huRecordType, huUnitTypeCode, aggregatedTU, singleProductStorage));
+
+		//
+		// Acquire Best Before Date if required
+		if (showBestBeforeDate)
+		{
+			huEditorRow.setBestBeforeDate(extractBestBeforeDate(rowId));
+		}
+
+		//
+		// Locator
+		huEditorRow.setLocator(getLocatorLookupValue(hu.getM_Locator_ID()));
+
+		//
+		// Product/UOM/Qty if there is only one product stored
+		if (singleProductStorage != null)
+		{
+			huEditorRow
+					.setProduct(getProductLookupValue(singleProductStorage.getM_Product_ID()))
+					.setUOM(JSONLookupValueTool.createUOMLookupValue(getUOM(singleProductStorage.getC_UOM_ID())))
+					.setQtyCU(singleProductStorage.getQty());
+		}
+
+		//
+		// Included HUs
+		final HuId topLevelHUIdEffective = topLevelHUId != null ? topLevelHUId : huId;
+		if (aggregatedTU)
+		{
+			storagesByHUId.get(huId)
+					.stream()
+					.map(huStorage -> createHUEditorRow(huId, topLevelHUIdEffective, huStorage, processed))
+					.forEach(huEditorRow::addIncludedRow);
+		}
+		else if (X_M_HU_PI_Version.HU_UNITTYPE_LoadLogistiqueUnit.equals(huUnitTypeCode))
+		{
+			includedHUsByParentId.get(huId)
+					.stream()
+					.map(includedHU -> createHUEditorRow(includedHU, topLevelHUIdEffective))
+					.forEach(huEditorRow::addIncludedRow);
+		}
+		else if (X_M_HU_PI_Version.HU_UNITTYPE_TransportUnit.equals(huUnitTypeCode))
+		{
+			includedHUsByParentId.get(huId)
+					.stream()
+					.flatMap(includedVHU -> storagesByHUId.get(extractHUId(includedVHU)).stream())
+					.map(vhuProductStorage -> createHUEditorRow(huId, topLevelHUIdEffective, vhuProductStorage, processed))
+					.forEach(huEditorRow::addIncludedRow);
+		}
+		else if (X_M_HU_PI_Version.HU_UNITTYPE_VirtualPI.equals(huUnitTypeCode))
+		{
+			// do nothing
+		}
+		else
+		{
+			throw new HUException("Unknown HU_UnitType=" + huUnitTypeCode + " for " + hu);
+		}
+
+		return huEditorRow.build();
+	}
+
+	private HUEditorRow createHUEditorRow(
+			final HuId parentHUId,
+			final HuId topLevelHUId,
+			@NonNull final I_M_HU_Storage huStorage,
+			final boolean processed)
+	{
+		final HuId huId = HuId.ofRepoId(huStorage.getM_HU_ID());
+		final I_M_HU hu = husById.get(huId);
+		final ProductId productId = ProductId.ofRepoId(huStorage.getM_Product_ID());
+		final HUEditorRowAttributesProvider attributesProviderEffective = !huId.equals(parentHUId) ? attributesProvider : null;
+
+		final Optional<OrderLineId> reservedForOrderLineId = huReservationsIndex.getOrderLineIdByReservedVhuId(huId);
+
+		return HUEditorRow.builder(windowId)
+				.setRowId(HUEditorRowId.ofHUStorage(huId, topLevelHUId, productId))
+				.setType(HUEditorRowType.HUStorage)
+				.setTopLevel(false)
+				.setProcessed(processed)
+				.setAttributesProvider(attributesProviderEffective)
+				//
+				.setHUUnitType(JSONLookupValue.of(X_M_HU_PI_Version.HU_UNITTYPE_VirtualPI, "CU"))
+				.setHUStatus(hu.getHUStatus())
+				.setReservedForOrderLine(reservedForOrderLineId.orElse(null))
+				.setHUStatusDisplay(createHUStatusDisplayLookupValue(hu))
+				//
+				.setProduct(getProductLookupValue(productId.getRepoId()))
+				.setUOM(JSONLookupValueTool.createUOMLookupValue(getUOM(huStorage.getC_UOM_ID())))
+				.setQtyCU(huStorage.getQty())
+				//
+				.build();
+	}
+
+	@Nullable
+	private I_M_HU_Storage getSingleProductStorage(final HuId huId)
+	{
+		final List<I_M_HU_Storage> storages = storagesByHUId.get(huId);
+		return storages.size() == 1 ? storages.get(0) : null;
+	}
+
+	/**
+	 * Formats the packing infos of all loaded HUs, once per distinct {@link HUPackingInfoKey}.
+	 */
+	private void loadPackingInfos()
+	{
+		final String adLanguage = Env.getAD_Language(Env.getCtx());
+
+		final Map<HUPackingInfoKey, I_M_HU> husByPackingInfoKey = new HashMap<>();
+		final Map<HuId, HUPackingInfoKey> packingInfoKeysByHUId = new HashMap<>();
+		for (final I_M_HU hu : husById.values())
+		{
+			final HUPackingInfoKey packingInfoKey = createPackingInfoKey(hu, adLanguage);
+			if (packingInfoKey == null)
+			{
+				continue;
+			}
+
+			husByPackingInfoKey.putIfAbsent(packingInfoKey, hu);
+			packingInfoKeysByHUId.put(extractHUId(hu), packingInfoKey);
+		}
+
+		final Map<HUPackingInfoKey, String> packingInfosByKey = HUPackingInfoFormatCache.getAllOrFormat(
+				husByPackingInfoKey.keySet(),
+				packingInfoKey -> formatPackingInfo(husByPackingInfoKey.get(packingInfoKey)));
+
+		packingInfoKeysByHUId.forEach((huId, packingInfoKey) -> {
+			final String packingInfo = packingInfosByKey.get(packingInfoKey);
+			if (packingInfo != null)
+			{
+				packingInfosByHUId.put(huId, packingInfo);
+			}
+		});
+	}
+
+	/**
+	 * @return packing info key or null if the HU has no packing info or its packing info cannot be keyed (i.e. shall be formatted individually)
+	 */
+	@Nullable
+	private HUPackingInfoKey createPackingInfoKey(final I_M_HU hu, final String adLanguage)
+	{
+		final boolean aggregatedTU = isAggregatedTU(hu);
+		final String huUnitType = getHUUnitType(hu);
+
+		final HUPackingInfoKey.HUPackingInfoKeyBuilder packingInfoKey = HUPackingInfoKey.builder()
+				.huUnitType(huUnitType)
+				.aggregatedTU(aggregatedTU)
+				.piVersionId(hu.getM_HU_PI_Version_ID())
+				.adLanguage(adLanguage);
+
+		if (aggregatedTU)
+		{
+			final I_M_HU_Item parentItem = itemsById.get(hu.getM_HU_Item_Parent_ID());
+			if (parentItem == null)
+			{
+				return null;
+			}
+			packingInfoKey.parentPIItemId(parentItem.getM_HU_PI_Item_ID())
+					.qtyTUsPerLU(parentItem.getQty());
+		}
+		else if (X_M_HU_PI_Version.HU_UNITTYPE_LoadLogistiqueUnit.equals(huUnitType))
+		{
+			return packingInfoKey.build(); // only the LU's PI is shown
+		}
+		else if (!X_M_HU_PI_Version.HU_UNITTYPE_TransportUnit.equals(huUnitType))
+		{
+			return null; // no packing info for VHUs
+		}
+
+		final I_M_HU_Storage singleProductStorage = getSingleProductStorage(extractHUId(hu));
+		if (singleProductStorage != null)
+		{
+			packingInfoKey.qtyCU(singleProductStorage.getQty())
+					.uomId(singleProductStorage.getC_UOM_ID());
+		}
+
+		return packingInfoKey.build();
+	}
+
+	private String formatPackingInfo(final I_M_HU hu)
+	{
+		final I_M_HU_Storage singleProductStorage = getSingleProductStorage(extractHUId(hu));
+		final Quantity singleProductQty = singleProductStorage != null
+				? Quantity.of(singleProductStorage.getQty(), getUOM(singleProductStorage.getC_UOM_ID()))
+				: null;
+
+		return HUPackingInfoFormatter.newInstance()
+				.setShowLU(true)
+				.format(HUPackingInfos.of(hu, getHUUnitType(hu), isAggregatedTU(hu), singleProductQty));
+	}
+
+	private String extractPackingInfo(
+			final I_M_HU hu,
+			final HUEditorRowType huRecordType,
+			final String huUnitTypeCode,
+			final boolean aggregatedTU,
+			@Nullable final I_M_HU_Storage singleProductStorage)
+	{
+		if (!huRecordType.isPureHU())
+		{
+			return "";
+		}
+		if (huRecordType == HUEditorRowType.VHU)
+		{
+			return "";
+		}
+
+		final String packingInfo = packingInfosByHUId.get(extractHUId(hu));
+		if (packingInfo != null)
+		{
+			return packingInfo;
+		}
+
+		try
+		{
+			final Quantity singleProductQty = singleProductStorage != null
+					? Quantity.of(singleProductStorage.getQty(), getUOM(singleProductStorage.getC_UOM_ID()))
+					: null;
+
+			return HUPackingInfoFormatter.newInstance()
+					.setShowLU(true)
+					.format(HUPackingInfos.of(hu, huUnitTypeCode, aggregatedTU, singleProductQty));
+		}
+		catch (final Exception ex)
+		{
+			logger.warn("Failed extracting packing info for {}", hu, ex);
+			return "?";
+		}
+	}
+
+	@Nullable
+	private JSONLookupValue getLocatorLookupValue(final int locatorId)
+	{
+		if (locatorId <= 0)
+		{
+			return null;
+		}
+
+		final JSONLookupValue locator = locatorsById.get(locatorId);
+		return locator != null ? locator : JSONLookupValue.unknown(locatorId);
+	}
+
+	private JSONLookupValue getProductLookupValue(final int productId)
+	{
+		final JSONLookupValue product = productsById.get(productId);
+		return product != null ? product : JSONLookupValue.unknown(productId);
+	}
+
+	private I_C_UOM getUOM(final int uomId)
+	{
+		final I_C_UOM uom = uomsById.get(uomId);
+		if (uom == null)
+		{
+			throw new HUException("No UOM found for C_UOM_ID=" + uomId);
+		}
+		return uom;
+	}
+
+	/**
+	 * The HU status display depends only on the HU status and the reserved flag, so it's computed once per distinct combination.
+	 */
+	private JSONLookupValue createHUStatusDisplayLookupValue(@NonNull final I_M_HU hu)
+	{
+		final String huStatus = hu.getHUStatus();
+		final boolean reserved = hu.isReserved();
+		return huStatusDisplaysByKey.computeIfAbsent(huStatus + "#" + reserved, k -> createHUStatusDisplayLookupValue(hu, huStatus, reserved));
+	}
+
+	private static JSONLookupValue createHUStatusDisplayLookupValue(@NonNull final I_M_HU hu, final String huStatus, final boolean reserved)
+	{
+		final IHUStatusBL huStatusBL = Services.get(IHUStatusBL.class);
+
+		final String huStatusKey;
+		final String huStatusDisplayName;
+
+		if (reserved && huStatusBL.isPhysicalHU(hu)) // if e.g. a reserved HU was shipped, it shall be shown as "shipped" not "reserved"
+		{
+			huStatusKey = MSG_HU_RESERVED;
+			huStatusDisplayName = Services.get(IMsgBL.class).getMsg(Env.getCtx(), huStatusKey);
+		}
+		else
+		{
+			final IADReferenceDAO adReferenceDAO = Services.get(IADReferenceDAO.class);
+			huStatusKey = huStatus;
+			huStatusDisplayName = adReferenceDAO.retrieveListNameTrl(X_M_HU.HUSTATUS_AD_Reference_ID, huStatusKey);
+		}
+
+		return JSONLookupValue.of(huStatusKey, huStatusDisplayName);
+	}
+
+	@Nullable
+	private LocalDate extractBestBeforeDate(final HUEditorRowId rowId)
+	{
+		if (attributesProvider == null)
+		{
+			return null;
+		}
+
+		return attributesProvider.getBestBeforeDate(rowId.getHuId()).orElse(null);
+	}
+
+	private static HuId extractHUId(final I_M_HU hu)
+	{
+		return HuId.ofRepoId(hu.getM_HU_ID());
+	}
+}
@@ -48,6 +48,7 @@ class HUEditorRowsPagedLoadingIterator implements Iterator<HUEditorRow>
 
 	private final HUEditorViewRepository huEditorRepo;
 	private final CCache<DocumentId, HUEditorRow> cache;
+	private final boolean readOnlyCache;
 	private final int bufferSize;
 	private final Iterator<HUEditorRowId> rowIds;
 	private final HUEditorRowFilter filter;
@@ -57,16 +58,21 @@ class HUEditorRowsPagedLoadingIterator implements Iterator<HUEditorRow>
 	private boolean finished = false;
 
 
+	/**
+	 * @param readOnlyCache if true, the loaded rows are not added to the cache (useful when streaming a lot of rows, which would otherwise evict all the cached rows)
+	 */
 	@Builder
 	private HUEditorRowsPagedLoadingIterator(
 			@NonNull final HUEditorViewRepository huEditorRepo,
 			@NonNull final CCache<DocumentId, HUEditorRow> cache,
+			final boolean readOnlyCache,
 			final int bufferSize,
 			@NonNull final Iterator<HUEditorRowId> rowIds,
 			final HUEditorRowFilter filter)
 	{
 		this.huEditorRepo = huEditorRepo;
 		this.cache = cache;
+		this.readOnlyCache = readOnlyCache;
 		this.bufferSize = bufferSize > 0 ? bufferSize : DEFAULT_BUFFERSIZE;
 		this.rowIds = rowIds;
 		this.filter = filter != null ? filter : HUEditorRowFilter.ALL;
@@ -185,7 +191,10 @@ class HUEditorRowsPagedLoadingIterator implements Iterator<HUEditorRow>
 							if (topLevelRowId.equals(includedRowId))
 							{
 								rows[idx] = topLevelRow;
-								cache.put(topLevelRow.getId(), topLevelRow);
+								if (!readOnlyCache)
+								{
+									cache.put(topLevelRow.getId(), topLevelRow);
+								}
 							}
 							else
 							{
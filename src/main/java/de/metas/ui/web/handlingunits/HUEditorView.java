@@ -19,8 +19,10 @@ import java.util.Objects;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
 
 import de.metas.handlingunits.HuId;
+import de.metas.handlingunits.IHandlingUnitsBL;
 import de.metas.handlingunits.model.I_M_HU;
 import de.metas.i18n.ITranslatableString;
 import de.metas.i18n.TranslatableStrings;
@@ -388,6 +390,42 @@ public class HUEditorView implements IView
 		return rowsBuffer.removeHUIds(huIdsToRemove);
 	}
 
+	/**
+	 * Patches the rows of this view after some HUs were changed, instead of invalidating all rows.
+	 *
+	 * @param huIdsChanged changed HUs of any level; for HUs which were moved, their former top level HUs shall be included too
+	 */
+	public void patchRowsAfterHUsChanged(
+			@NonNull final Collection<HuId> huIdsToAdd,
+			@NonNull final Collection<HuId> huIdsToRemove,
+			@NonNull final Collection<HuId> huIdsChanged)
+	{
+		final ImmutableSet<HuId> huIdsChangedSet = ImmutableSet.copyOf(huIdsChanged);
+		final ImmutableSet<HuId> topLevelHUIds = !huIdsChangedSet.isEmpty()
+				? Services.get(IHandlingUnitsBL.class).getTopLevelHUs(huIdsChangedSet)
+				: ImmutableSet.of();
+
+		patchRows(HUEditorViewChanges.builder()
+				.addedHUIds(huIdsToAdd)
+				.removedHUIds(huIdsToRemove)
+				.changedTopLevelHUIds(topLevelHUIds)
+				.notTopLevelHUIds(Sets.difference(huIdsChangedSet, topLevelHUIds))
+				.build());
+	}
+
+	public void patchRows(@NonNull final HUEditorViewChanges changes)
+	{
+		if (changes.isEmpty())
+		{
+			return;
+		}
+
+		final DocumentIdsSelection changedRowIds = rowsBuffer.patchRows(changes);
+
+		ViewChangesCollector.getCurrentOrAutoflush()
+				.collectRowsChanged(this, changedRowIds);
+	}
+
 	private static final Set<HuId> extractHUIds(final Collection<I_M_HU> hus)
 	{
 		if (hus == null || hus.isEmpty())
@@ -405,11 +443,6 @@ public class HUEditorView implements IView
 	@Override
 	public void notifyRecordsChanged(final TableRecordReferenceSet recordRefs)
 	{
-		// TODO: notifyRecordsChanged:
-		// get M_HU_IDs from recordRefs,
-		// find the top level records from this view which contain our HUs
-		// invalidate those top levels only
-
 		final Set<HuId> huIdsToCheck = recordRefs
 				.streamIds(I_M_HU.Table_Name, HuId::ofRepoId)
 				.collect(ImmutableSet.toImmutableSet());
@@ -424,7 +457,10 @@ public class HUEditorView implements IView
 			return;
 		}
 
-		invalidateAll();
+		// reload only the changed top level rows
+		patchRows(HUEditorViewChanges.builder()
+				.changedTopLevelHUIds(huIdsToCheck)
+				.build());
 	}
 
 	@Override
@@ -59,8 +59,15 @@ interface HUEditorViewBuffer
 
 	boolean containsAnyOfHUIds(Collection<HuId> huIdsToCheck);
 
+	/**
+	 * Applies given changes to the rows which were already loaded, so the unchanged rows don't have to be reloaded.
+	 *
+	 * @return IDs of the changed top level rows or {@link DocumentIdsSelection#ALL} if rows were added or removed
+	 */
+	DocumentIdsSelection patchRows(HUEditorViewChanges changes);
+
 	/** @return top level rows and included rows recursive stream */
-	Stream<HUEditorRow> streamAllRecursive(HUEditorRowFilter filter) throws UnsupportedOperationException;
+	Stream<HUEditorRow> streamAllRecursive(HUEditorRowFilter filter);
 
 	/** @return true if there is any top level or included row which is matching given filter */
 	default boolean matchesAnyRowRecursive(final HUEditorRowFilter filter)
@@ -3,18 +3,23 @@ package de.metas.ui.web.handlingunits;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.stream.Stream;
 
 import org.adempiere.util.lang.ExtendedMemorizingSupplier;
+import org.adempiere.util.lang.Mutables;
+import org.adempiere.util.lang.SynchronizedMutable;
 import org.compiere.util.DB;
 
 import java.util.Objects;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 import de.metas.handlingunits.HuId;
 import de.metas.handlingunits.model.I_M_HU;
@@ -69,7 +74,7 @@ class HUEditorViewBuffer_FullyCached implements HUEditorViewBuffer
 
 	private final HUIdsFilterData huIdsFilterData;
 	private final ExtendedMemorizingSupplier<CopyOnWriteArraySet<HuId>> huIdsSupplier;
-	private final ExtendedMemorizingSupplier<IndexedHUEditorRows> rowsSupplier = ExtendedMemorizingSupplier.of(() -> retrieveHUEditorRows());
+	private final SynchronizedMutable<IndexedHUEditorRows> rowsRef = Mutables.synchronizedMutable(null);
 
 	private final DocumentQueryOrderByList defaultOrderBys;
 
@@ -131,7 +136,7 @@ class HUEditorViewBuffer_FullyCached implements HUEditorViewBuffer
 
 	private IndexedHUEditorRows getRows()
 	{
-		return rowsSupplier.get();
+		return rowsRef.computeIfNull(this::retrieveHUEditorRows);
 	}
 
 	private IndexedHUEditorRows retrieveHUEditorRows()
@@ -195,7 +200,7 @@ class HUEditorViewBuffer_FullyCached implements HUEditorViewBuffer
 	{
 		huIdsSupplier.forget();
 		huEditorRepo.invalidateCache();
-		rowsSupplier.forget();
+		rowsRef.setValue(null);
 	}
 
 	@Override
@@ -222,6 +227,70 @@ class HUEditorViewBuffer_FullyCached implements HUEditorViewBuffer
 		return getHUIds().removeAll(huIdsToRemove);
 	}
 
+	/**
+	 * Reloads only the changed top level rows and patches the rows index in place. If the rows were not loaded yet, only the HU IDs are updated.
+	 */
+	@Override
+	public DocumentIdsSelection patchRows(@NonNull final HUEditorViewChanges changes)
+	{
+		invalidateCachedHUData(changes);
+
+		boolean rowsAddedOrRemoved = addHUIds(changes.getAddedHUIds());
+		if (removeHUIds(changes.getRemovedHUIds()))
+		{
+			rowsAddedOrRemoved = true;
+		}
+		if (getHUIds().removeAll(changes.getNotTopLevelHUIds()))
+		{
+			rowsAddedOrRemoved = true;
+		}
+
+		if (rowsRef.getValue() == null)
+		{
+			// nothing loaded yet; the rows will be loaded when needed
+			return rowsAddedOrRemoved ? DocumentIdsSelection.ALL : DocumentIdsSelection.EMPTY;
+		}
+
+		final Set<HuId> huIds = getHUIds();
+		final ImmutableSet<HuId> huIdsToReload = changes.getHUIdsToReload()
+				.stream()
+				.filter(huIds::contains)
+				.collect(ImmutableSet.toImmutableSet());
+		final List<HUEditorRow> reloadedRows = !huIdsToReload.isEmpty()
+				? huEditorRepo.retrieveHUEditorRows(huIdsToReload, HUEditorRowFilter.ALL)
+				: ImmutableList.of();
+
+		// HUs which are no longer top level HUs (e.g. were moved to another HU in meantime) are not returned, so they are dropped too
+		if (reloadedRows.size() != huIdsToReload.size())
+		{
+			final ImmutableSet<HuId> reloadedHUIds = reloadedRows.stream().map(HUEditorRow::getHuId).collect(ImmutableSet.toImmutableSet());
+			huIds.removeAll(Sets.difference(huIdsToReload, reloadedHUIds));
+			rowsAddedOrRemoved = true;
+		}
+
+		rowsRef.computeIfNotNull(rows -> rows.patch(changes.getHUIdsToDrop(), huIdsToReload, reloadedRows));
+
+		return rowsAddedOrRemoved ? DocumentIdsSelection.ALL : HUEditorRowId.rowIdsFromTopLevelHuIds(huIdsToReload);
+	}
+
+	/**
+	 * Invalidates the cached data (e.g. attributes) of the changed HUs, including the HUs which are included in the changed top level rows.
+	 */
+	private void invalidateCachedHUData(final HUEditorViewChanges changes)
+	{
+		final Set<HuId> topLevelHUIds = Sets.union(changes.getHUIdsToReload(), changes.getHUIdsToDrop());
+		final IndexedHUEditorRows rows = rowsRef.getValue();
+
+		final ImmutableSet<HuId> huIdsToInvalidate = ImmutableSet.<HuId> builder()
+				.addAll(topLevelHUIds)
+				.addAll(rows != null ? rows.getHUIdsRecursive(topLevelHUIds) : ImmutableSet.of())
+				.build();
+		if (!huIdsToInvalidate.isEmpty())
+		{
+			huEditorRepo.invalidateCache(huIdsToInvalidate);
+		}
+	}
+
 	@Override
 	public boolean containsAnyOfHUIds(final Collection<HuId> huIdsToCheck)
 	{
@@ -270,6 +339,50 @@ class HUEditorViewBuffer_FullyCached implements HUEditorViewBuffer
 			rowId2parentId = buildRowId2ParentIdMap(this.rows);
 		}
 
+		/**
+		 * @return new instance where the top level rows of <code>huIdsToDrop</code> and <code>reloadedHUIds</code> are removed and the <code>reloadedRows</code> are added.
+		 *         A reloaded row keeps the position of the row it replaces, the new ones are added at the end.
+		 */
+		public IndexedHUEditorRows patch(final Set<HuId> huIdsToDrop, final Set<HuId> reloadedHUIds, final List<HUEditorRow> reloadedRows)
+		{
+			final ImmutableMap<HuId, HUEditorRow> reloadedRowsByHUId = Maps.uniqueIndex(reloadedRows, HUEditorRow::getHuId);
+			final HashSet<HuId> replacedHUIds = new HashSet<>();
+
+			final ImmutableList.Builder<HUEditorRow> rowsNew = ImmutableList.builder();
+			for (final HUEditorRow row : rows)
+			{
+				final HuId huId = row.getHuId();
+				final HUEditorRow reloadedRow = reloadedRowsByHUId.get(huId);
+				if (reloadedRow != null)
+				{
+					rowsNew.add(reloadedRow);
+					replacedHUIds.add(huId);
+				}
+				else if (!huIdsToDrop.contains(huId) && !reloadedHUIds.contains(huId))
+				{
+					rowsNew.add(row);
+				}
+			}
+
+			reloadedRows.stream()
+					.filter(row -> !replacedHUIds.contains(row.getHuId()))
+					.forEach(rowsNew::add);
+
+			return new IndexedHUEditorRows(rowsNew.build());
+		}
+
+		/** @return the HU IDs of given top level rows and of all their included rows */
+		public ImmutableSet<HuId> getHUIdsRecursive(final Set<HuId> topLevelHUIds)
+		{
+			return rows.stream()
+					.filter(row -> topLevelHUIds.contains(row.getHuId()))
+					.flatMap(HUEditorRow::streamRecursive)
+					.map(HUEditorRow::cast)
+					.map(HUEditorRow::getHuId)
+					.filter(Objects::nonNull)
+					.collect(ImmutableSet.toImmutableSet());
+		}
+
 		public HUEditorRow getById(final DocumentId rowId)
 		{
 			final HUEditorRow record = allRowsById.get(rowId);
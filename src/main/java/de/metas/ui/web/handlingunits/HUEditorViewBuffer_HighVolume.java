@@ -9,14 +9,17 @@ import java.util.function.Supplier;
 import java.util.function.UnaryOperator;
 import java.util.stream.Stream;
 
+import org.adempiere.service.ISysConfigBL;
 import org.adempiere.util.lang.Mutables;
 import org.adempiere.util.lang.SynchronizedMutable;
 
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
 
 import de.metas.cache.CCache;
 import de.metas.handlingunits.HuId;
 import de.metas.handlingunits.model.I_M_HU;
+import de.metas.ui.web.cache.HeapBudgetCacheSize;
 import de.metas.ui.web.document.filter.DocumentFilterList;
 import de.metas.ui.web.document.filter.sql.SqlDocumentFilterConverterContext;
 import de.metas.ui.web.exceptions.EntityNotFoundException;
@@ -27,8 +30,8 @@ import de.metas.ui.web.view.ViewRowIdsOrderedSelection;
 import de.metas.ui.web.view.ViewRowsOrderBy;
 import de.metas.ui.web.window.datatypes.DocumentId;
 import de.metas.ui.web.window.datatypes.DocumentIdsSelection;
-import de.metas.ui.web.window.datatypes.json.JSONOptions;
 import de.metas.ui.web.window.model.DocumentQueryOrderByList;
+import de.metas.util.Services;
 import de.metas.util.collections.IteratorUtils;
 import de.metas.util.collections.PagedIterator.PageFetcher;
 import lombok.NonNull;
@@ -57,8 +60,36 @@ import lombok.NonNull;
 
 public class HUEditorViewBuffer_HighVolume implements HUEditorViewBuffer
 {
-	private static final int HIGHVOLUME_THRESHOLD = 100;
-	private static final int STREAM_ALL_MAX_SIZE_ALLOWED = 200;
+	/**
+	 * Number of HU editor views which are expected to be alive at the same time. The rows budgets below are shared by them.
+	 */
+	private static final int EXPECTED_VIEWS_COUNT = 20;
+
+	/**
+	 * Number of HUs starting from which the rows are no longer fully cached (see {@link HUEditorViewBuffer_FullyCached}) but loaded on demand.
+	 */
+	private static final HeapBudgetCacheSize HIGHVOLUME_THRESHOLD = HeapBudgetCacheSize.builder()
+			.sysConfigName("webui.HUEditorView.HighVolumeThreshold")
+			.estimatedEntrySizeBytes(16 * 1024) // one top level HU row, including its included rows
+			.heapPercent(4)
+			.expectedCachesCount(EXPECTED_VIEWS_COUNT)
+			.minSize(100)
+			.maxSize(5000)
+			.build();
+
+	private static final HeapBudgetCacheSize CACHESIZE_huRowsById = HeapBudgetCacheSize.builder()
+			.sysConfigName("webui.HUEditorView.HighVolume.RowsCacheSize")
+			.estimatedEntrySizeBytes(16 * 1024) // one top level HU row, including its included rows
+			.heapPercent(4)
+			.expectedCachesCount(EXPECTED_VIEWS_COUNT)
+			.minSize(100)
+			.maxSize(20000)
+			.build();
+
+	private static final String SYSCONFIG_StreamAllChunkSize = "webui.HUEditorView.HighVolume.StreamAllChunkSize";
+	private static final int DEFAULT_StreamAllChunkSize = 500;
+
+	private static final int PAGE_SIZE = 100;
 
 	private final ViewEvaluationCtx viewEvaluationCtx;
 
@@ -69,7 +100,7 @@ public class HUEditorViewBuffer_HighVolume implements HUEditorViewBuffer
 	private final SynchronizedMutable<ViewRowIdsOrderedSelection> defaultSelectionRef;
 	private final transient ConcurrentHashMap<DocumentQueryOrderByList, ViewRowIdsOrderedSelection> selectionsByOrderBys = new ConcurrentHashMap<>();
 
-	private final CCache<DocumentId, HUEditorRow> cache_huRowsById = CCache.newLRUCache(I_M_HU.Table_Name + "#HUEditorRows#by#Id", 100, 2);
+	private final CCache<DocumentId, HUEditorRow> cache_huRowsById = CCache.newLRUCache(I_M_HU.Table_Name + "#HUEditorRows#by#Id", CACHESIZE_huRowsById.get(), 2);
 
 	HUEditorViewBuffer_HighVolume(
 			final ViewId viewId,
@@ -189,6 +220,55 @@ public class HUEditorViewBuffer_HighVolume implements HUEditorViewBuffer
 		return changeSelection(defaultSelection -> huEditorRepo.removeRowIdsFromSelection(defaultSelection, rowIdsToRemove));
 	}
 
+	/**
+	 * Adds/removes the top level rows to/from the selection and evicts only the changed top level rows from the rows cache.
+	 * The evicted rows are reloaded when they are requested next time.
+	 */
+	@Override
+	public DocumentIdsSelection patchRows(@NonNull final HUEditorViewChanges changes)
+	{
+		final DocumentIdsSelection rowIdsToReload = HUEditorRowId.rowIdsFromTopLevelHuIds(changes.getHUIdsToReload());
+		final DocumentIdsSelection rowIdsToDrop = HUEditorRowId.rowIdsFromTopLevelHuIds(changes.getHUIdsToDrop());
+
+		// Only the cached rows could have been already sent to frontend, so only those are reported as changed
+		final DocumentIdsSelection changedRowIds = rowIdsToReload.stream()
+				.filter(rowId -> cache_huRowsById.get(rowId) != null)
+				.collect(DocumentIdsSelection.toDocumentIdsSelection());
+
+		//
+		// Invalidate the cached data (e.g. attributes) of the changed HUs, including the ones which are included in the cached top level rows
+		final ImmutableSet<HuId> huIdsToInvalidate = Stream.concat(rowIdsToReload.stream(), rowIdsToDrop.stream())
+				.map(cache_huRowsById::get)
+				.filter(Objects::nonNull)
+				.flatMap(HUEditorRow::streamRecursive)
+				.map(HUEditorRow::cast)
+				.map(HUEditorRow::getHuId)
+				.filter(Objects::nonNull)
+				.collect(ImmutableSet.toImmutableSet());
+		final Set<HuId> topLevelHUIdsToInvalidate = Sets.union(changes.getHUIdsToReload(), changes.getHUIdsToDrop());
+		if (!huIdsToInvalidate.isEmpty() || !topLevelHUIdsToInvalidate.isEmpty())
+		{
+			huEditorRepo.invalidateCache(Sets.union(huIdsToInvalidate, topLevelHUIdsToInvalidate));
+		}
+		cache_huRowsById.removeAll(rowIdsToReload.toSet());
+		cache_huRowsById.removeAll(rowIdsToDrop.toSet());
+
+		boolean rowsAddedOrRemoved = addHUIds(changes.getAddedHUIds());
+		if (removeHUIds(changes.getRemovedHUIds()))
+		{
+			rowsAddedOrRemoved = true;
+		}
+
+		final DocumentIdsSelection rowIdsNotTopLevel = HUEditorRowId.rowIdsFromTopLevelHuIds(changes.getNotTopLevelHUIds());
+		if (!rowIdsNotTopLevel.isEmpty()
+				&& changeSelection(defaultSelection -> huEditorRepo.removeRowIdsFromSelection(defaultSelection, rowIdsNotTopLevel)))
+		{
+			rowsAddedOrRemoved = true;
+		}
+
+		return rowsAddedOrRemoved ? DocumentIdsSelection.ALL : changedRowIds;
+	}
+
 	@Override
 	public boolean containsAnyOfHUIds(final Collection<HuId> huIdsToCheck)
 	{
@@ -201,24 +281,42 @@ public class HUEditorViewBuffer_HighVolume implements HUEditorViewBuffer
 		return viewEvaluationCtx;
 	}
 
+	/**
+	 * Streams all rows of this view, including the included ones.
+	 * <p>
+	 * The top level HU IDs are fetched page by page from the selection and the rows are loaded in chunks, so only one chunk is kept in memory at a time.
+	 * The loaded rows are not added to the rows cache, to not evict the rows which are currently displayed.
+	 */
 	@Override
-	public Stream<HUEditorRow> streamAllRecursive(@NonNull final HUEditorRowFilter filter) throws UnsupportedOperationException
+	public Stream<HUEditorRow> streamAllRecursive(@NonNull final HUEditorRowFilter filter)
 	{
 		final ViewRowIdsOrderedSelection defaultSelection = getDefaultSelection();
-		if (defaultSelection.getSize() > STREAM_ALL_MAX_SIZE_ALLOWED)
-		{
-			throw new UnsupportedOperationException("Streaming all rows when selection is bigger than " + STREAM_ALL_MAX_SIZE_ALLOWED + " is not allowed");
-		}
+		final int chunkSize = getStreamAllChunkSize();
 
-		final JSONOptions jsonOpts = JSONOptions.newInstance();
+		final Iterator<HUEditorRowId> rowIds = streamHUIdsByPage(0, Integer.MAX_VALUE, chunkSize, defaultSelection.getOrderBys())
+				.map(HUEditorRowId::ofTopLevelHU)
+				.iterator();
 
-		final ViewRowsOrderBy orderBys = ViewRowsOrderBy.of(defaultSelection.getOrderBys(), jsonOpts);
-		return streamPage(0, STREAM_ALL_MAX_SIZE_ALLOWED, filter, orderBys)
+		return HUEditorRowsPagedLoadingIterator.builder()
+				.huEditorRepo(huEditorRepo)
+				.cache(cache_huRowsById)
+				.readOnlyCache(true)
+				.bufferSize(chunkSize)
+				.rowIds(rowIds)
+				.filter(filter)
+				.build()
+				.stream()
 				.flatMap(HUEditorRow::streamRecursive)
 				.map(HUEditorRow::cast)
 				.filter(HUEditorRowFilters.toPredicate(filter));
 	}
 
+	private static int getStreamAllChunkSize()
+	{
+		final int chunkSize = Services.get(ISysConfigBL.class).getIntValue(SYSCONFIG_StreamAllChunkSize, DEFAULT_StreamAllChunkSize);
+		return chunkSize > 0 ? chunkSize : DEFAULT_StreamAllChunkSize;
+	}
+
 	@Override
 	public Stream<HUEditorRow> streamByIdsExcludingIncludedRows(@NonNull final HUEditorRowFilter filter)
 	{
@@ -232,7 +330,7 @@ public class HUEditorViewBuffer_HighVolume implements HUEditorViewBuffer
 		if (onlyRowIds.isEmpty())
 		{
 			final DocumentQueryOrderByList defaultOrderBys = getDefaultSelection().getOrderBys();
-			huEditorRowIds = streamHUIdsByPage(0, Integer.MAX_VALUE, defaultOrderBys)
+			huEditorRowIds = streamHUIdsByPage(0, Integer.MAX_VALUE, PAGE_SIZE, defaultOrderBys)
 					.map(HUEditorRowId::ofTopLevelHU);
 		}
 		else
@@ -256,7 +354,7 @@ public class HUEditorViewBuffer_HighVolume implements HUEditorViewBuffer
 			@NonNull final HUEditorRowFilter filter,
 			@NonNull final ViewRowsOrderBy orderBys)
 	{
-		final Iterator<HUEditorRowId> rowIds = streamHUIdsByPage(firstRow, pageLength, orderBys.toDocumentQueryOrderByList())
+		final Iterator<HUEditorRowId> rowIds = streamHUIdsByPage(firstRow, pageLength, PAGE_SIZE, orderBys.toDocumentQueryOrderByList())
 				.map(HUEditorRowId::ofTopLevelHU)
 				.iterator();
 
@@ -276,12 +374,12 @@ public class HUEditorViewBuffer_HighVolume implements HUEditorViewBuffer
 		return (firstRow, maxRows) -> huEditorRepo.retrieveHUIdsPage(viewEvalCtx, selection, firstRow, maxRows);
 	}
 
-	private Stream<HuId> streamHUIdsByPage(final int firstRow, final int maxRows, final DocumentQueryOrderByList orderBys)
+	private Stream<HuId> streamHUIdsByPage(final int firstRow, final int maxRows, final int pageSize, final DocumentQueryOrderByList orderBys)
 	{
 		return IteratorUtils.<HuId> newPagedIterator()
 				.firstRow(firstRow)
 				.maxRows(maxRows)
-				.pageSize(100) // fetch 100items/chunk
+				.pageSize(pageSize)
 				.pageFetcher(huIdsPageFetcher(orderBys))
 				.build()
 				.stream();
@@ -334,7 +432,7 @@ public class HUEditorViewBuffer_HighVolume implements HUEditorViewBuffer
 		else
 		{
 			// consider high volume if it's above give threshold
-			return huIds.size() >= HIGHVOLUME_THRESHOLD;
+			return huIds.size() >= HIGHVOLUME_THRESHOLD.get();
 		}
 	}
 
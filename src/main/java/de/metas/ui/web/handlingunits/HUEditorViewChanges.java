@@ -0,0 +1,81 @@
+package de.metas.ui.web.handlingunits;
+
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
+import de.metas.handlingunits.HuId;
+import lombok.Builder;
+import lombok.Singular;
+import lombok.Value;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Row level changes of an {@link HUEditorView}, expressed as top level HU IDs.
+ * <p>
+ * Used to patch the already loaded rows instead of reloading the whole view.
+ *
+ * @see HUEditorView#patchRowsAfterHUsChanged(java.util.Collection, java.util.Collection, java.util.Collection)
+ */
+@Value
+@Builder
+public class HUEditorViewChanges
+{
+	/** HUs which shall be added to the view, as top level rows */
+	@Singular("addedHUId")
+	ImmutableSet<HuId> addedHUIds;
+
+	/** HUs which shall be removed from the view */
+	@Singular("removedHUId")
+	ImmutableSet<HuId> removedHUIds;
+
+	/** Top level HUs whose rows (including the included ones) shall be reloaded, if they are part of the view */
+	@Singular("changedTopLevelHUId")
+	ImmutableSet<HuId> changedTopLevelHUIds;
+
+	/** HUs which are not top level (anymore), e.g. because they were moved into an LU; their top level rows, if any, are dropped */
+	@Singular("notTopLevelHUId")
+	ImmutableSet<HuId> notTopLevelHUIds;
+
+	public boolean isEmpty()
+	{
+		return addedHUIds.isEmpty()
+				&& removedHUIds.isEmpty()
+				&& changedTopLevelHUIds.isEmpty()
+				&& notTopLevelHUIds.isEmpty();
+	}
+
+	/** @return HUs whose top level rows shall be dropped, without reloading them */
+	public Set<HuId> getHUIdsToDrop()
+	{
+		return Sets.union(removedHUIds, notTopLevelHUIds);
+	}
+
+	/** @return top level HUs whose rows shall be (re)loaded */
+	public Set<HuId> getHUIdsToReload()
+	{
+		return Sets.difference(Sets.union(addedHUIds, changedTopLevelHUIds), getHUIdsToDrop());
+	}
+}
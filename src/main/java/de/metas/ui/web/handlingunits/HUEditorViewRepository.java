@@ -1,5 +1,6 @@
 package de.metas.ui.web.handlingunits;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -41,6 +42,9 @@ public interface HUEditorViewRepository
 {
 	void invalidateCache();
 
+	/** Invalidates the cached data (e.g. attributes) of given HUs only */
+	void invalidateCache(Collection<HuId> huIds);
+
 	ViewRowIdsOrderedSelection createSelection(
 			ViewEvaluationCtx viewEvalCtx,
 			ViewId viewId,
@@ -0,0 +1,98 @@
+package de.metas.ui.web.handlingunits;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import de.metas.cache.CCache;
+import de.metas.cache.CCache.CacheMapType;
+import de.metas.handlingunits.HuId;
+import de.metas.handlingunits.model.I_M_HU_Reservation;
+import de.metas.handlingunits.reservation.HUReservationService;
+import de.metas.order.OrderLineId;
+import de.metas.ui.web.cache.HeapBudgetCacheSize;
+import lombok.NonNull;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * In-memory index of VHU reservations (VHU ID to sales order line ID), used to decorate the HU editor rows.
+ * <p>
+ * The index also remembers the VHUs which are not reserved. It's loaded in bulk (see {@link #warmUp(Collection)})
+ * and reset when {@code M_HU_Reservation} records are changed.
+ */
+final class HUReservationsIndex
+{
+	private static final HeapBudgetCacheSize CACHESIZE = HeapBudgetCacheSize.builder()
+			.sysConfigName("webui.HUReservationsIndex.CacheSize")
+			.estimatedEntrySizeBytes(128) // HU ID and the optional order line ID
+			.heapPercent(1)
+			.minSize(1000)
+			.maxSize(200000)
+			.build();
+
+	private static final CCache<HuId, Optional<OrderLineId>> orderLineIdsByVhuId = CCache.<HuId, Optional<OrderLineId>> builder()
+			.cacheName(I_M_HU_Reservation.Table_Name + "#OrderLineId#by#VHU_ID")
+			.tableName(I_M_HU_Reservation.Table_Name)
+			.cacheMapType(CacheMapType.LRU)
+			.initialCapacity(CACHESIZE.get())
+			.build();
+
+	private final HUReservationService huReservationService;
+
+	HUReservationsIndex(@NonNull final HUReservationService huReservationService)
+	{
+		this.huReservationService = huReservationService;
+	}
+
+	public void warmUp(@NonNull final Collection<HuId> vhuIds)
+	{
+		if (vhuIds.isEmpty())
+		{
+			return;
+		}
+
+		orderLineIdsByVhuId.getAllOrLoad(vhuIds, this::retrieveOrderLineIdsByVhuIds);
+	}
+
+	public Optional<OrderLineId> getOrderLineIdByReservedVhuId(@NonNull final HuId vhuId)
+	{
+		return orderLineIdsByVhuId.getOrLoad(vhuId, () -> retrieveOrderLineIdsByVhuIds(ImmutableSet.of(vhuId)).get(vhuId));
+	}
+
+	private Map<HuId, Optional<OrderLineId>> retrieveOrderLineIdsByVhuIds(@NonNull final Collection<HuId> vhuIds)
+	{
+		huReservationService.warmup(vhuIds); // loads the reservations of all given VHUs at once
+
+		final ImmutableMap.Builder<HuId, Optional<OrderLineId>> result = ImmutableMap.builder();
+		for (final HuId vhuId : ImmutableSet.copyOf(vhuIds))
+		{
+			final Optional<OrderLineId> orderLineId = huReservationService.getOrderLineIdByReservedVhuId(vhuId);
+			result.put(vhuId, orderLineId != null ? orderLineId : Optional.empty());
+		}
+		return result.build();
+	}
+}
@@ -1,63 +1,36 @@
 package de.metas.ui.web.handlingunits;
 
-import static org.adempiere.model.InterfaceWrapperHelper.loadOutOfTrx;
-
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.time.LocalDate;
 import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import javax.annotation.Nullable;
 
 import org.adempiere.ad.dao.IQueryBuilder;
-import org.adempiere.ad.service.IADReferenceDAO;
 import org.adempiere.ad.trx.api.ITrx;
 import org.adempiere.exceptions.DBException;
 import org.adempiere.model.InterfaceWrapperHelper;
 import org.adempiere.model.PlainContextAware;
-import org.compiere.model.I_C_UOM;
 import org.compiere.util.DB;
-import org.compiere.util.Env;
-import org.slf4j.Logger;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 
-import de.metas.bpartner.BPartnerId;
 import de.metas.handlingunits.HuId;
 import de.metas.handlingunits.IHUQueryBuilder;
-import de.metas.handlingunits.IHUStatusBL;
-import de.metas.handlingunits.IHandlingUnitsBL;
 import de.metas.handlingunits.IHandlingUnitsDAO;
-import de.metas.handlingunits.exceptions.HUException;
 import de.metas.handlingunits.model.I_M_HU;
-import de.metas.handlingunits.model.I_M_Locator;
-import de.metas.handlingunits.model.I_M_Warehouse;
-import de.metas.handlingunits.model.X_M_HU;
-import de.metas.handlingunits.model.X_M_HU_PI_Version;
 import de.metas.handlingunits.reservation.HUReservationService;
-import de.metas.handlingunits.storage.IHUProductStorage;
-import de.metas.handlingunits.storage.IHUStorage;
-import de.metas.handlingunits.storage.IHUStorageFactory;
-import de.metas.i18n.IMsgBL;
-import de.metas.logging.LogManager;
-import de.metas.order.OrderLineId;
-import de.metas.product.IProductBL;
-import de.metas.product.ProductId;
 import de.metas.ui.web.document.filter.DocumentFilterList;
 import de.metas.ui.web.document.filter.sql.SqlDocumentFilterConverter;
 import de.metas.ui.web.document.filter.sql.SqlDocumentFilterConverterContext;
 import de.metas.ui.web.document.filter.sql.SqlDocumentFilterConverters;
 import de.metas.ui.web.handlingunits.HUIdsFilterHelper.HUIdsFilterData;
-import de.metas.ui.web.handlingunits.util.HUPackingInfoFormatter;
-import de.metas.ui.web.handlingunits.util.HUPackingInfos;
 import de.metas.ui.web.view.SqlViewRowIdsOrderedSelectionFactory;
 import de.metas.ui.web.view.ViewEvaluationCtx;
 import de.metas.ui.web.view.ViewId;
@@ -69,14 +42,10 @@ import de.metas.ui.web.view.descriptor.SqlViewKeyColumnNamesMap;
 import de.metas.ui.web.view.descriptor.SqlViewRowIdsConverter;
 import de.metas.ui.web.view.descriptor.SqlViewSelectData;
 import de.metas.ui.web.view.descriptor.SqlViewSelectionQueryBuilder;
-import de.metas.ui.web.window.datatypes.DocumentId;
 import de.metas.ui.web.window.datatypes.DocumentIdsSelection;
 import de.metas.ui.web.window.datatypes.WindowId;
-import de.metas.ui.web.window.datatypes.json.JSONLookupValue;
 import de.metas.ui.web.window.model.DocumentQueryOrderByList;
 import de.metas.ui.web.window.model.sql.SqlOptions;
-import de.metas.util.Check;
-import de.metas.util.GuavaCollectors;
 import de.metas.util.Services;
 import de.metas.util.collections.PagedIterator.Page;
 import lombok.Builder;
@@ -106,15 +75,12 @@ import lombok.NonNull;
 
 public class SqlHUEditorViewRepository implements HUEditorViewRepository
 {
-	private static final String MSG_HU_RESERVED = "de.metas.handlingunit.HU_Reserved";
-
-	private static final transient Logger logger = LogManager.getLogger(SqlHUEditorViewRepository.class);
-
 	private final WindowId windowId;
 
 	private final HUEditorRowAttributesProvider attributesProvider;
 	private final HUEditorRowIsProcessedPredicate rowProcessedPredicate;
 	private final HUReservationService huReservationService;
+	private final HUReservationsIndex huReservationsIndex;
 
 	private final boolean showBestBeforeDate;
 
@@ -142,6 +108,7 @@ public class SqlHUEditorViewRepository implements HUEditorViewRepository
 		sqlViewSelect = sqlViewBinding.getSqlViewSelect();
 
 		this.huReservationService = huReservationService;
+		this.huReservationsIndex = new HUReservationsIndex(huReservationService);
 	}
 
 	@Override
@@ -153,6 +120,15 @@ public class SqlHUEditorViewRepository implements HUEditorViewRepository
 		}
 	}
 
+	@Override
+	public void invalidateCache(@NonNull final Collection<HuId> huIds)
+	{
+		if (attributesProvider != null)
+		{
+			attributesProvider.invalidate(huIds);
+		}
+	}
+
 	@Override
 	public SqlViewRowIdsConverter getRowIdsConverter()
 	{
@@ -162,13 +138,8 @@ public class SqlHUEditorViewRepository implements HUEditorViewRepository
 	@Override
 	public List<HUEditorRow> retrieveHUEditorRows(@NonNull final Set<HuId> huIds, @NonNull final HUEditorRowFilter filter)
 	{
-		huReservationService.warmup(huIds);
-
-		final HuId topLevelHUId = null;
-		return retrieveTopLevelHUs(huIds, filter)
-				.stream()
-				.map(hu -> createHUEditorRow(hu, topLevelHUId))
-				.collect(GuavaCollectors.toImmutableList());
+		final List<I_M_HU> topLevelHUs = retrieveTopLevelHUs(huIds, filter);
+		return newHUEditorRowsLoader().load(topLevelHUs);
 	}
 
 	@Override
@@ -182,8 +153,8 @@ public class SqlHUEditorViewRepository implements HUEditorViewRepository
 		// TODO: check if the huId is part of our collection
 
 		final I_M_HU hu = Services.get(IHandlingUnitsDAO.class).getByIdOutOfTrx(huId);
-		final HuId topLevelHUId = null; // assume given huId is a top level HU
-		return createHUEditorRow(hu, topLevelHUId);
+		// assume given huId is a top level HU
+		return newHUEditorRowsLoader().load(ImmutableList.of(hu)).get(0);
 	}
 
 	private static List<I_M_HU> retrieveTopLevelHUs(@NonNull final Collection<HuId> huIds, @NonNull final HUEditorRowFilter filter)
@@ -209,277 +180,15 @@ public class SqlHUEditorViewRepository implements HUEditorViewRepository
 				.list();
 	}
 
-	private HUEditorRow createHUEditorRow(
-			@NonNull final I_M_HU hu,
-			final HuId topLevelHUId)
-	{
-		// final Stopwatch stopwatch = Stopwatch.createStarted();
-
-		final IHandlingUnitsBL handlingUnitsBL = Services.get(IHandlingUnitsBL.class);
-		final boolean aggregatedTU = handlingUnitsBL.isAggregateHU(hu);
-		final String huUnitTypeCode = handlingUnitsBL.getHU_UnitType(hu);
-		final HUEditorRowType huRecordType;
-		if (aggregatedTU)
-		{
-			huRecordType = HUEditorRowType.TU;
-		}
-		else
-		{
-			huRecordType = HUEditorRowType.ofHU_UnitType(huUnitTypeCode);
-		}
-		final Optional<OrderLineId> orderLineIdWithReservation = huReservationService.getOrderLineIdByReservedVhuId(HuId.ofRepoId(hu.getM_HU_ID()));
-
-		final String huUnitTypeDisplayName = huRecordType.getName();
-		final JSONLookupValue huUnitTypeLookupValue = JSONLookupValue.of(huUnitTypeCode, huUnitTypeDisplayName);
-
-		final JSONLookupValue huStatusDisplay = createHUStatusDisplayLookupValue(hu);
-		final boolean processed = rowProcessedPredicate.isProcessed(hu);
-		final HuId huId = HuId.ofRepoId(hu.getM_HU_ID());
-		final HUEditorRowId rowId = HUEditorRowId.ofHU(huId, topLevelHUId);
-
-		final HUEditorRow.Builder huEditorRow = HUEditorRow.builder(windowId)
-				.setRowId(rowId)
-				.setType(huRecordType)
-				.setTopLevel(topLevelHUId == null)
-				.setProcessed(processed)
-				.setBPartnerId(BPartnerId.ofRepoIdOrNull(hu.getC_BPartner_ID()))
-				.setAttributesProvider(attributesProvider)
-				//
-				.setCode(hu.getValue())
-				.setHUUnitType(huUnitTypeLookupValue)
-				.setHUStatusDisplay(huStatusDisplay)
-				.setHUStatus(hu.getHUStatus())
-				.setReservedForOrderLine(orderLineIdWithReservation.orElse(null))
-
-				.setPackingInfo(extractPackingInfo(hu, huRecordType));
-
-		//
-		// Acquire Best Before Date if required
-		if (showBestBeforeDate)
-		{
-			huEditorRow.setBestBeforeDate(extractBestBeforeDate(attributesProvider, rowId));
-		}
-
-		//
-		// Locator
-
-		huEditorRow.setLocator(createLocatorLookupValue(hu.getM_Locator_ID()));
-
-		//
-		// Product/UOM/Qty if there is only one product stored
-		final IHUProductStorage singleProductStorage = getSingleProductStorage(hu);
-		if (singleProductStorage != null)
-		{
-			huEditorRow
-					.setProduct(createProductLookupValue(singleProductStorage.getProductId()))
-					.setUOM(createUOMLookupValue(singleProductStorage.getC_UOM()))
-					.setQtyCU(singleProductStorage.getQty().toBigDecimal());
-		}
-
-		//
-		// Included HUs
-		final HuId topLevelHUIdEffective = topLevelHUId != null ? topLevelHUId : huId;
-		if (aggregatedTU)
-		{
-			final IHUStorageFactory storageFactory = handlingUnitsBL.getStorageFactory();
-			storageFactory
-					.getStorage(hu)
-					.getProductStorages()
-					.stream()
-					.map(huStorage -> createHUEditorRow(huId, topLevelHUIdEffective, huStorage, processed))
-					.forEach(huEditorRow::addIncludedRow);
-
-		}
-		else if (X_M_HU_PI_Version.HU_UNITTYPE_LoadLogistiqueUnit.equals(huUnitTypeCode))
-		{
-			final IHandlingUnitsDAO handlingUnitsDAO = Services.get(IHandlingUnitsDAO.class);
-			handlingUnitsDAO.retrieveIncludedHUs(hu)
-					.stream()
-					.map(includedHU -> createHUEditorRow(includedHU, topLevelHUIdEffective))
-					.forEach(huEditorRow::addIncludedRow);
-		}
-		else if (X_M_HU_PI_Version.HU_UNITTYPE_TransportUnit.equals(huUnitTypeCode))
-		{
-			final IHandlingUnitsDAO handlingUnitsDAO = Services.get(IHandlingUnitsDAO.class);
-			final IHUStorageFactory storageFactory = handlingUnitsBL.getStorageFactory();
-			handlingUnitsDAO.retrieveIncludedHUs(hu)
-					.stream()
-					.map(includedVHU -> storageFactory.getStorage(includedVHU))
-					.flatMap(vhuStorage -> vhuStorage.getProductStorages().stream())
-					.map(vhuProductStorage -> createHUEditorRow(huId, topLevelHUIdEffective, vhuProductStorage, processed))
-					.forEach(huEditorRow::addIncludedRow);
-		}
-		else if (X_M_HU_PI_Version.HU_UNITTYPE_VirtualPI.equals(huUnitTypeCode))
-		{
-			// do nothing
-		}
-		else
-		{
-			throw new HUException("Unknown HU_UnitType=" + huUnitTypeCode + " for " + hu);
-		}
-
-		final HUEditorRow huEditorRowBuilt = huEditorRow.build();
-
-		// stopwatch.stop();
-		// System.out.println("createHUEditorRow: created " + huEditorRowBuilt + " in " + stopwatch);
-
-		return huEditorRowBuilt;
-	}
-
-	private static final String extractPackingInfo(final I_M_HU hu, final HUEditorRowType huUnitType)
+	private HUEditorRowsLoader newHUEditorRowsLoader()
 	{
-		if (!huUnitType.isPureHU())
-		{
-			return "";
-		}
-		if (huUnitType == HUEditorRowType.VHU)
-		{
-			return "";
-		}
-
-		try
-		{
-			return HUPackingInfoFormatter.newInstance()
-					.setShowLU(true)
-					.format(HUPackingInfos.of(hu));
-		}
-		catch (final Exception ex)
-		{
-			logger.warn("Failed extracting packing info for {}", hu, ex);
-			return "?";
-		}
-	}
-
-	private IHUProductStorage getSingleProductStorage(final I_M_HU hu)
-	{
-		final IHUStorage huStorage = Services.get(IHandlingUnitsBL.class).getStorageFactory()
-				.getStorage(hu);
-
-		final ProductId productId = huStorage.getSingleProductIdOrNull();
-		if (productId == null)
-		{
-			return null;
-		}
-
-		final IHUProductStorage productStorage = huStorage.getProductStorage(productId);
-		return productStorage;
-	}
-
-	private HUEditorRow createHUEditorRow(
-			final HuId parentHUId,
-			final HuId topLevelHUId,
-			@NonNull final IHUProductStorage huStorage,
-			final boolean processed)
-	{
-		// final Stopwatch stopwatch = Stopwatch.createStarted();
-
-		final I_M_HU hu = huStorage.getM_HU();
-		final HuId huId = HuId.ofRepoId(hu.getM_HU_ID());
-		final ProductId productId = huStorage.getProductId();
-		final HUEditorRowAttributesProvider attributesProviderEffective = !huId.equals(parentHUId) ? attributesProvider : null;
-
-		final Optional<OrderLineId> reservedForOrderLineId = huReservationService.getOrderLineIdByReservedVhuId(huId);
-
-		final HUEditorRow huEditorRow = HUEditorRow.builder(windowId)
-				.setRowId(HUEditorRowId.ofHUStorage(huId, topLevelHUId, productId))
-				.setType(HUEditorRowType.HUStorage)
-				.setTopLevel(false)
-				.setProcessed(processed)
-				.setAttributesProvider(attributesProviderEffective)
-				//
-				// .setHUId(huId)
-				// .setCode(hu.getValue()) // NOTE: don't show value on storage level
-				.setHUUnitType(JSONLookupValue.of(X_M_HU_PI_Version.HU_UNITTYPE_VirtualPI, "CU"))
-				.setHUStatus(hu.getHUStatus())
-				.setReservedForOrderLine(reservedForOrderLineId.orElse(null))
-				.setHUStatusDisplay(createHUStatusDisplayLookupValue(hu))
-				//
-				.setProduct(createProductLookupValue(productId))
-				.setUOM(createUOMLookupValue(huStorage.getC_UOM()))
-				.setQtyCU(huStorage.getQty().toBigDecimal())
-				//
+		return HUEditorRowsLoader.builder()
+				.windowId(windowId)
+				.attributesProvider(attributesProvider)
+				.rowProcessedPredicate(rowProcessedPredicate)
+				.huReservationService(huReservationService)
+				.showBestBeforeDate(showBestBeforeDate)
 				.build();
-
-		// System.out.println("createHUEditorRow: created " + huEditorRow + " (storage) in " + stopwatch);
-		return huEditorRow;
-	}
-
-	public JSONLookupValue createProductLookupValue(@Nullable final ProductId productId)
-	{
-		if (productId == null)
-		{
-			return null;
-		}
-
-		final String displayName = Services.get(IProductBL.class).getProductValueAndName(productId);
-		return JSONLookupValue.of(productId.getRepoId(), displayName);
-	}
-
-	private static JSONLookupValue createUOMLookupValue(@Nullable final I_C_UOM uom)
-	{
-		if (uom == null)
-		{
-			return null;
-		}
-
-		return JSONLookupValue.of(uom.getC_UOM_ID(), uom.getUOMSymbol());
-	}
-
-	private static JSONLookupValue createLocatorLookupValue(final int locatorId)
-	{
-		if (locatorId <= 0)
-		{
-			return null;
-		}
-
-		final I_M_Locator locator = loadOutOfTrx(locatorId, I_M_Locator.class);
-		if (locator == null)
-		{
-			return JSONLookupValue.unknown(locatorId);
-		}
-
-		final I_M_Warehouse warehouse = loadOutOfTrx(locator.getM_Warehouse_ID(), I_M_Warehouse.class);
-
-		final String caption = Stream.of(warehouse.getName(), locator.getValue(), locator.getX(), locator.getX1(), locator.getY(), locator.getZ())
-				.filter(part -> !Check.isEmpty(part, true))
-				.map(String::trim)
-				.collect(Collectors.joining("_"));
-
-		return JSONLookupValue.of(locatorId, caption);
-	}
-
-	private static JSONLookupValue createHUStatusDisplayLookupValue(@NonNull final I_M_HU hu)
-	{
-		final IHUStatusBL huStatusBL = Services.get(IHUStatusBL.class);
-
-		final String huStatusKey;
-		final String huStatusDisplayName;
-
-		if (hu.isReserved() && huStatusBL.isPhysicalHU(hu)) // if e.g. a reserved HU was shipped, it shall be shown as "shipped" not "reserved"
-		{
-			huStatusKey = MSG_HU_RESERVED;
-			huStatusDisplayName = Services.get(IMsgBL.class).getMsg(Env.getCtx(), huStatusKey);
-		}
-		else
-		{
-			final IADReferenceDAO adReferenceDAO = Services.get(IADReferenceDAO.class);
-			huStatusKey = hu.getHUStatus();
-			huStatusDisplayName = adReferenceDAO.retrieveListNameTrl(X_M_HU.HUSTATUS_AD_Reference_ID, huStatusKey);
-		}
-
-		return JSONLookupValue.of(huStatusKey, huStatusDisplayName);
-	}
-
-	private static LocalDate extractBestBeforeDate(final HUEditorRowAttributesProvider attributesProvider, final HUEditorRowId rowId)
-	{
-		if (attributesProvider == null)
-		{
-			return null;
-		}
-
-		final DocumentId attributesKey = attributesProvider.createAttributeKey(rowId.getHuId());
-		final HUEditorRowAttributes attributes = attributesProvider.getAttributes(rowId.toDocumentId(), attributesKey);
-		return attributes.getBestBeforeDate().orElse(null);
 	}
 
 	@Override
@@ -665,7 +374,7 @@ public class SqlHUEditorViewRepository implements HUEditorViewRepository
 	public void warmUp(@NonNull final Set<HuId> huIds)
 	{
 		InterfaceWrapperHelper.loadByRepoIdAwares(huIds, I_M_HU.class); // caches the given HUs with one SQL query
-		huReservationService.warmup(huIds);
+		huReservationsIndex.warmUp(huIds);
 	}
 
 }
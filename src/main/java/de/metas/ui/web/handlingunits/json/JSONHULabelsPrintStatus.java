@@ -0,0 +1,83 @@
+package de.metas.ui.web.handlingunits.json;
+
+import javax.annotation.Nullable;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Status of a batched HU labels print job, returned when the job is queued and then pushed on the owner's HU labels websocket topic on each change.
+ */
+@JsonAutoDetect(fieldVisibility = Visibility.ANY, getterVisibility = Visibility.NONE, isGetterVisibility = Visibility.NONE, setterVisibility = Visibility.NONE)
+@Value
+public class JSONHULabelsPrintStatus
+{
+	public enum Status
+	{
+		QUEUED, PRINTING, DONE, FAILED
+	}
+
+	@JsonProperty("jobId")
+	String jobId;
+
+	@JsonProperty("status")
+	Status status;
+
+	@JsonProperty("labelsCount")
+	int labelsCount;
+
+	@JsonProperty("labelsPrinted")
+	int labelsPrinted;
+
+	@JsonProperty("errorMessage")
+	@JsonInclude(JsonInclude.Include.NON_EMPTY)
+	String errorMessage;
+
+	@JsonProperty("websocketEndpoint")
+	String websocketEndpoint;
+
+	@Builder
+	private JSONHULabelsPrintStatus(
+			@NonNull final String jobId,
+			@NonNull final Status status,
+			final int labelsCount,
+			final int labelsPrinted,
+			@Nullable final String errorMessage,
+			@NonNull final String websocketEndpoint)
+	{
+		this.jobId = jobId;
+		this.status = status;
+		this.labelsCount = labelsCount;
+		this.labelsPrinted = labelsPrinted;
+		this.errorMessage = errorMessage;
+		this.websocketEndpoint = websocketEndpoint;
+	}
+}
@@ -0,0 +1,98 @@
+package de.metas.ui.web.handlingunits.json;
+
+import javax.annotation.Nullable;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Progress of a chunked HU transform, pushed on the view's HU transform websocket topic each time a chunk is done.
+ */
+@JsonAutoDetect(fieldVisibility = Visibility.ANY, getterVisibility = Visibility.NONE, isGetterVisibility = Visibility.NONE, setterVisibility = Visibility.NONE)
+@Value
+public class JSONHUTransformProgress
+{
+	public enum Status
+	{
+		RUNNING, DONE, DONE_WITH_ERRORS
+	}
+
+	@JsonProperty("transformId")
+	String transformId;
+
+	@JsonProperty("status")
+	Status status;
+
+	@JsonProperty("rowsCount")
+	int rowsCount;
+
+	@JsonProperty("rowsProcessed")
+	int rowsProcessed;
+
+	@JsonProperty("rowsFailed")
+	int rowsFailed;
+
+	@JsonProperty("chunksCount")
+	int chunksCount;
+
+	@JsonProperty("chunksProcessed")
+	int chunksProcessed;
+
+	@JsonProperty("errorMessage")
+	@JsonInclude(JsonInclude.Include.NON_EMPTY)
+	String errorMessage;
+
+	@JsonProperty("websocketEndpoint")
+	String websocketEndpoint;
+
+	@Builder
+	private JSONHUTransformProgress(
+			@NonNull final String transformId,
+			@NonNull final Status status,
+			final int rowsCount,
+			final int rowsProcessed,
+			final int rowsFailed,
+			final int chunksCount,
+			final int chunksProcessed,
+			@Nullable final String errorMessage,
+			@NonNull final String websocketEndpoint)
+	{
+		this.transformId = transformId;
+		this.status = status;
+		this.rowsCount = rowsCount;
+		this.rowsProcessed = rowsProcessed;
+		this.rowsFailed = rowsFailed;
+		this.chunksCount = chunksCount;
+		this.chunksProcessed = chunksProcessed;
+		this.errorMessage = errorMessage;
+		this.websocketEndpoint = websocketEndpoint;
+	}
+}
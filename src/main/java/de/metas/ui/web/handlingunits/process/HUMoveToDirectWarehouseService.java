@@ -2,7 +2,12 @@ package de.metas.ui.web.handlingunits.process;
 
 import java.sql.Timestamp;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
+import org.adempiere.ad.trx.api.ITrxManager;
 import org.adempiere.exceptions.AdempiereException;
 import org.adempiere.model.PlainContextAware;
 import org.adempiere.util.lang.IAutoCloseable;
@@ -10,7 +15,11 @@ import org.compiere.model.I_M_Warehouse;
 import org.compiere.util.Env;
 import org.slf4j.Logger;
 
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Multimaps;
 
 import de.metas.handlingunits.HuId;
 import de.metas.handlingunits.IHandlingUnitsBL;
@@ -65,6 +74,7 @@ public class HUMoveToDirectWarehouseService
 	// services
 	private static final transient Logger logger = LogManager.getLogger(HUMoveToDirectWarehouseService.class);
 	private final transient IHUMovementBL huMovementBL = Services.get(IHUMovementBL.class);
+	private final transient ITrxManager trxManager = Services.get(ITrxManager.class);
 	private DocumentCollection documentsCollection; // to be configured
 
 	// parameters
@@ -72,11 +82,13 @@ public class HUMoveToDirectWarehouseService
 	private String _description = null;
 	private boolean _failOnFirstError = false;
 	private boolean _failIfNoHUs = false; // default false for backward compatibility
+	private int _batchSize = 0; // <= 0 means one movement per HU
 	private ILoggable loggable = Loggables.nop();
 	private HUEditorView huView;
 
 	// state
 	private transient I_M_Warehouse _targetWarehouse;
+	private final Set<HuId> huIdsToRemoveFromView = new LinkedHashSet<>();
 
 	private HUMoveToDirectWarehouseService()
 	{
@@ -88,15 +100,7 @@ public class HUMoveToDirectWarehouseService
 
 		try (final IAutoCloseable c = ViewChangesCollector.currentOrNewThreadLocalCollector())
 		{
-			//
-			// Move the HUs, one by one
-			int countMoved = 0;
-			while (hus.hasNext())
-			{
-				final I_M_HU hu = hus.next();
-				generateMovement(hu);
-				countMoved++;
-			}
+			final int countMoved = isBatched() ? moveInBatches(hus) : moveOneByOne(hus);
 
 			// Stop here if nothing moved
 			if (countMoved <= 0)
@@ -111,11 +115,64 @@ public class HUMoveToDirectWarehouseService
 			// Invalidate given view, if any
 			if (huView != null)
 			{
+				if (!huIdsToRemoveFromView.isEmpty())
+				{
+					huView.removeHUIds(huIdsToRemoveFromView);
+					huIdsToRemoveFromView.clear();
+				}
 				huView.invalidateAll();
 			}
 		}
 	}
 
+	private int moveOneByOne(final Iterator<I_M_HU> hus)
+	{
+		int countMoved = 0;
+		while (hus.hasNext())
+		{
+			final I_M_HU hu = hus.next();
+			if (generateMovement(hu))
+			{
+				countMoved++;
+			}
+		}
+
+		return countMoved;
+	}
+
+	/**
+	 * Moves the HUs in chunks of {@link #getBatchSize()}.
+	 * The HUs of each chunk are grouped by their source warehouse and one movement is created and committed for each group.
+	 */
+	private int moveInBatches(final Iterator<I_M_HU> hus)
+	{
+		final Stopwatch stopwatch = Stopwatch.createStarted();
+		int countMoved = 0;
+
+		final Iterator<List<I_M_HU>> chunks = Iterators.partition(hus, getBatchSize());
+		while (chunks.hasNext())
+		{
+			final ImmutableListMultimap<Integer, I_M_HU> husBySourceWarehouseId = Multimaps.index(chunks.next(), hu -> IHandlingUnitsBL.extractWarehouse(hu).getM_Warehouse_ID());
+			for (final Integer sourceWarehouseId : husBySourceWarehouseId.keySet())
+			{
+				countMoved += generateMovement(husBySourceWarehouseId.get(sourceWarehouseId));
+			}
+
+			logProgress(countMoved, stopwatch);
+		}
+
+		return countMoved;
+	}
+
+	private void logProgress(final int countMoved, final Stopwatch stopwatch)
+	{
+		final long elapsedMillis = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+		final long husPerSecond = elapsedMillis > 0 ? countMoved * 1000L / elapsedMillis : countMoved;
+
+		loggable.addLog("Moved {} HUs in {} ({} HUs/sec)", countMoved, stopwatch, husPerSecond);
+		logger.info("Moved {} HUs in {} ({} HUs/sec)", countMoved, stopwatch, husPerSecond);
+	}
+
 	private void checkPreconditions()
 	{
 		getTargetWarehouse(); // will fail if direct warehouse is not configured or found
@@ -125,8 +182,9 @@ public class HUMoveToDirectWarehouseService
 	 * Generate a movement which will move given HU to {@link #getTargetWarehouse()}.
 	 *
 	 * @param hu
+	 * @return true if the HU was moved
 	 */
-	private final void generateMovement(@NonNull final I_M_HU hu)
+	private final boolean generateMovement(@NonNull final I_M_HU hu)
 	{
 		final I_M_Warehouse targetWarehouse = getTargetWarehouse();
 
@@ -152,6 +210,7 @@ public class HUMoveToDirectWarehouseService
 			notifyHUMoved(hu);
 
 			loggable.addLog("@Created@ @M_Movement_ID@: {}", movement.getDocumentNo());
+			return true;
 		}
 		catch (final Exception ex)
 		{
@@ -165,6 +224,63 @@ public class HUMoveToDirectWarehouseService
 			final String errmsg = "Error on " + hu.getValue() + ": " + ex.getLocalizedMessage();
 			loggable.addLog(errmsg);
 			logger.warn(errmsg, ex);
+			return false;
+		}
+	}
+
+	/**
+	 * Generate one movement which will move all given HUs (which are all in the same warehouse) to {@link #getTargetWarehouse()}.
+	 * <p>
+	 * If that fails, the HUs are moved one by one, so that only the failing HUs are skipped.
+	 *
+	 * @return how many HUs were moved
+	 */
+	private int generateMovement(@NonNull final List<I_M_HU> hus)
+	{
+		final I_M_Warehouse targetWarehouse = getTargetWarehouse();
+
+		try
+		{
+			final I_M_Movement movement = trxManager.callInNewTrx(() -> {
+				final HUMovementBuilder movementBuilder = new HUMovementBuilder()
+						.setContextInitial(PlainContextAware.newWithThreadInheritedTrx())
+						.setWarehouseFrom(IHandlingUnitsBL.extractWarehouse(hus.get(0)))
+						.setWarehouseTo(targetWarehouse)
+						.setMovementDate(getMovementDate())
+						.setDescription(getDescription());
+				hus.forEach(movementBuilder::addHU);
+				return movementBuilder.createMovement();
+			});
+			if (movement == null)
+			{
+				throw new AdempiereException("No Movement created");
+			}
+
+			hus.forEach(this::notifyHUMoved);
+
+			loggable.addLog("@Created@ @M_Movement_ID@: {} ({} HUs)", movement.getDocumentNo(), hus.size());
+			return hus.size();
+		}
+		catch (final Exception ex)
+		{
+			if (isFailOnFirstError())
+			{
+				throw AdempiereException.wrapIfNeeded(ex)
+						.setParameter("HUs", hus)
+						.markAsUserValidationError();
+			}
+
+			logger.warn("Failed moving {} HUs with one movement. Moving them one by one.", hus.size(), ex);
+
+			int countMoved = 0;
+			for (final I_M_HU hu : hus)
+			{
+				if (generateMovement(hu))
+				{
+					countMoved++;
+				}
+			}
+			return countMoved;
 		}
 	}
 
@@ -218,6 +334,26 @@ public class HUMoveToDirectWarehouseService
 		return _failIfNoHUs;
 	}
 
+	/**
+	 * @param batchSize if greater than zero, the HUs are moved in chunks of given size, using one movement per source warehouse and chunk;
+	 *            else one movement is created for each HU.
+	 */
+	public HUMoveToDirectWarehouseService setBatchSize(final int batchSize)
+	{
+		_batchSize = batchSize;
+		return this;
+	}
+
+	private int getBatchSize()
+	{
+		return _batchSize;
+	}
+
+	private boolean isBatched()
+	{
+		return _batchSize > 0;
+	}
+
 	public HUMoveToDirectWarehouseService setDocumentsCollection(final DocumentCollection documentsCollection)
 	{
 		this.documentsCollection = documentsCollection;
@@ -253,7 +389,14 @@ public class HUMoveToDirectWarehouseService
 		// Don't invalidate. We will do it at the end of all processing.
 		if (huView != null)
 		{
-			huView.removeHUIds(ImmutableSet.of(huId));
+			if (isBatched())
+			{
+				huIdsToRemoveFromView.add(huId);
+			}
+			else
+			{
+				huView.removeHUIds(ImmutableSet.of(huId));
+			}
 		}
 	}
 
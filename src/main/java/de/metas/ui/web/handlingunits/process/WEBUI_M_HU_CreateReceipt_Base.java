@@ -185,8 +185,8 @@ public abstract class WEBUI_M_HU_CreateReceipt_Base
 		huReceiptScheduleBL.processReceiptSchedules(parameters);
 		// NOTE: at this point, the user was already notified about generated material receipts
 
-		// Reset the view's affected HUs
-		getView().invalidateAll();
+		// Reload the view's affected HUs
+		getView().patchRowsAfterHUsChanged(ImmutableSet.of(), ImmutableSet.of(), selectedHuIds);
 
 		viewsRepo.notifyRecordsChanged(TableRecordReferenceSet.of(TableRecordReference.ofSet(receiptSchedules)));
 
@@ -5,6 +5,7 @@ import java.util.Iterator;
 
 import org.adempiere.ad.dao.impl.TypedSqlQueryFilter;
 import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.service.ISysConfigBL;
 import org.adempiere.util.api.IRangeAwareParams;
 import org.adempiere.warehouse.WarehouseId;
 import org.compiere.model.IQuery;
@@ -50,8 +51,12 @@ import de.metas.util.Services;
  */
 public class WEBUI_M_HU_MoveToDirectWarehouse_Mass extends HUEditorProcessTemplate
 {
+	private static final String SYSCONFIG_BatchSize = "de.metas.ui.web.handlingunits.process.WEBUI_M_HU_MoveToDirectWarehouse_Mass.BatchSize";
+	private static final int DEFAULT_BatchSize = 500;
+
 	// services
 	private final transient IHandlingUnitsDAO handlingUnitsDAO = Services.get(IHandlingUnitsDAO.class);
+	private final transient ISysConfigBL sysConfigBL = Services.get(ISysConfigBL.class);
 	@Autowired
 	private DocumentCollection documentsCollection;
 
@@ -81,6 +86,7 @@ public class WEBUI_M_HU_MoveToDirectWarehouse_Mass extends HUEditorProcessTempla
 				.setMovementDate(p_MovementDate)
 				.setDescription(p_Description)
 				.setFailOnFirstError(false)
+				.setBatchSize(sysConfigBL.getIntValue(SYSCONFIG_BatchSize, DEFAULT_BatchSize))
 				.setLoggable(this)
 				.move(retrieveHUs());
 
@@ -1,7 +1,9 @@
 package de.metas.ui.web.handlingunits.process;
 
 import java.util.List;
+import java.util.Objects;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Profile;
 
 import com.google.common.collect.ImmutableList;
@@ -16,6 +18,11 @@ import de.metas.process.Param;
 import de.metas.process.ProcessPreconditionsResolution;
 import de.metas.process.RunOutOfTrx;
 import de.metas.ui.web.handlingunits.HUEditorProcessTemplate;
+import de.metas.ui.web.handlingunits.HUEditorRow;
+import de.metas.ui.web.handlingunits.report.HULabelsBatchPrinter;
+import de.metas.ui.web.handlingunits.report.HULabelsBatchPrinter.HULabelsPrintRequest;
+import de.metas.ui.web.window.datatypes.DocumentIdsSelection;
+import de.metas.user.UserId;
 
 /*
  * #%L
@@ -43,6 +50,9 @@ public class WEBUI_M_HU_PrintReceiptLabel
 		extends HUEditorProcessTemplate
 		implements IProcessPrecondition
 {
+	@Autowired
+	private HULabelsBatchPrinter labelsBatchPrinter;
+
 	@Param(mandatory = true, parameterName = "Copies")
 	private int p_copies = 1;
 
@@ -61,21 +71,36 @@ public class WEBUI_M_HU_PrintReceiptLabel
 		{
 			return ProcessPreconditionsResolution.reject("Receipt label process not configured via sysconfig " + HUReportService.SYSCONFIG_RECEIPT_LABEL_PROCESS_ID);
 		}
-		if (!getSelectedRowIds().isSingleDocumentId())
+		final DocumentIdsSelection selectedRowIds = getSelectedRowIds();
+		if (selectedRowIds.isEmpty() || selectedRowIds.isAll())
 		{
-			return ProcessPreconditionsResolution.reject("No (single) row selected");
+			return ProcessPreconditionsResolution.reject("No row selected");
 		}
 
-		final HUToReport hu = getSingleSelectedRow().getAsHUToReportOrNull();
-		if (hu == null)
+		if (selectedRowIds.isSingleDocumentId())
 		{
-			return ProcessPreconditionsResolution.reject("No (single) HU selected");
+			final HUToReport hu = getSingleSelectedRow().getAsHUToReportOrNull();
+			if (hu == null)
+			{
+				return ProcessPreconditionsResolution.reject("No (single) HU selected");
+			}
+
+			final List<HUToReport> husToProcess = huReportService.getHUsToProcess(hu, adProcessId);
+			if (husToProcess.isEmpty())
+			{
+				return ProcessPreconditionsResolution.reject("current HU's type does not match the receipt label process");
+			}
 		}
-
-		final List<HUToReport> husToProcess = huReportService.getHUsToProcess(hu, adProcessId);
-		if (husToProcess.isEmpty())
+		else
 		{
-			return ProcessPreconditionsResolution.reject("current HU's type does not match the receipt label process");
+			final boolean anyHUToProcess = getView().streamByIds(selectedRowIds)
+					.map(HUEditorRow::getAsHUToReportOrNull)
+					.filter(Objects::nonNull)
+					.anyMatch(hu -> !huReportService.getHUsToProcess(hu, adProcessId).isEmpty());
+			if (!anyHUToProcess)
+			{
+				return ProcessPreconditionsResolution.reject("selected HUs' types do not match the receipt label process");
+			}
 		}
 
 		return ProcessPreconditionsResolution.accept();
@@ -88,6 +113,12 @@ public class WEBUI_M_HU_PrintReceiptLabel
 		final HUReportService huReportService = HUReportService.get();
 
 		final AdProcessId adProcessId = huReportService.retrievePrintReceiptLabelProcessIdOrNull();
+		if (!getSelectedRowIds().isSingleDocumentId())
+		{
+			printLabelsInBackground(adProcessId);
+			return MSG_OK;
+		}
+
 		final HUToReport hu = getSingleSelectedRow().getAsHUToReport();
 
 		final List<HUToReport> husToProcess = huReportService.getHUsToProcess(hu, adProcessId)
@@ -103,4 +134,27 @@ public class WEBUI_M_HU_PrintReceiptLabel
 		return MSG_OK;
 	}
 
+	/**
+	 * Prints the labels of all selected HUs as one batch job. The job's progress is pushed on the user's HU labels websocket topic.
+	 */
+	private void printLabelsInBackground(final AdProcessId adProcessId)
+	{
+		final HUReportService huReportService = HUReportService.get();
+
+		final List<HUToReport> husToProcess = getView().streamByIds(getSelectedRowIds())
+				.map(HUEditorRow::getAsHUToReportOrNull)
+				.filter(Objects::nonNull)
+				.flatMap(hu -> huReportService.getHUsToProcess(hu, adProcessId).stream())
+				.filter(HUToReport::isTopLevel) // issue https://github.com/metasfresh/metasfresh/issues/3851
+				.distinct()
+				.collect(ImmutableList.toImmutableList());
+
+		labelsBatchPrinter.enqueue(HULabelsPrintRequest.builder()
+				.labelProcessId(adProcessId)
+				.hus(husToProcess)
+				.copies(p_copies)
+				.ownerUserId(UserId.ofRepoId(getAD_User_ID()))
+				.build());
+	}
+
 }
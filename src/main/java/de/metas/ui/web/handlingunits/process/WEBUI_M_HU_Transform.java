@@ -3,9 +3,12 @@ package de.metas.ui.web.handlingunits.process;
 import static org.adempiere.model.InterfaceWrapperHelper.load;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
+import org.adempiere.exceptions.AdempiereException;
 import org.adempiere.util.lang.impl.TableRecordReference;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Profile;
@@ -13,7 +16,9 @@ import org.springframework.context.annotation.Profile;
 import java.util.Objects;
 import java.util.Optional;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
 
 import de.metas.Profiles;
 import de.metas.handlingunits.HuId;
@@ -30,9 +35,11 @@ import de.metas.process.ProcessPreconditionsResolution;
 import de.metas.process.RunOutOfTrx;
 import de.metas.ui.web.handlingunits.HUEditorProcessTemplate;
 import de.metas.ui.web.handlingunits.HUEditorRow;
+import de.metas.ui.web.handlingunits.HUEditorRowId;
 import de.metas.ui.web.handlingunits.HUEditorView;
 import de.metas.ui.web.handlingunits.process.WebuiHUTransformCommand.ActionType;
 import de.metas.ui.web.process.descriptor.ProcessParamLookupValuesProvider;
+import de.metas.ui.web.websocket.WebSocketConfig;
 import de.metas.ui.web.window.datatypes.DocumentIdsSelection;
 import de.metas.ui.web.window.datatypes.LookupValuesList;
 import de.metas.ui.web.window.descriptor.DocumentLayoutElementFieldDescriptor.LookupSource;
@@ -78,6 +85,8 @@ public class WEBUI_M_HU_Transform
 	// Services
 	@Autowired
 	private DocumentCollection documentsCollection;
+	@Autowired
+	private WebuiHUTransformChunkedExecutor chunkedExecutor;
 
 	//
 	// Parameters
@@ -128,7 +137,7 @@ public class WEBUI_M_HU_Transform
 	protected WebuiHUTransformParametersFiller newParametersFiller()
 	{
 		final HUEditorView view = getView();
-		final HUEditorRow selectedRow = getSingleSelectedRow();
+		final HUEditorRow selectedRow = getTemplateRow();
 
 		return WebuiHUTransformParametersFiller.builder()
 				.view(view)
@@ -200,7 +209,7 @@ public class WEBUI_M_HU_Transform
 	}
 
 	/**
-	 * This process is applicable if there is exactly one HU-row selected
+	 * This process is applicable if there is exactly one HU-row selected, or more HU-rows which would get the same parameters proposed (see {@link #getParametersTemplateKey(HUEditorRow)}).
 	 */
 	@Override
 	protected ProcessPreconditionsResolution checkPreconditionsApplicable()
@@ -210,14 +219,62 @@ public class WEBUI_M_HU_Transform
 			return ProcessPreconditionsResolution.rejectWithInternalReason("not the HU view");
 		}
 
-		if (!getSelectedRowIds().isSingleDocumentId())
+		final DocumentIdsSelection selectedRowIds = getSelectedRowIds();
+		if (selectedRowIds.isSingleDocumentId())
+		{
+			return ProcessPreconditionsResolution.accept();
+		}
+		if (selectedRowIds.isEmpty() || selectedRowIds.isAll())
 		{
 			return ProcessPreconditionsResolution.rejectBecauseNotSingleSelection();
 		}
 
+		final long selectedRowTemplatesCount = getView().streamByIds(selectedRowIds)
+				.map(WEBUI_M_HU_Transform::getParametersTemplateKey)
+				.distinct()
+				.count();
+		if (selectedRowTemplatesCount != 1)
+		{
+			return ProcessPreconditionsResolution.rejectWithInternalReason("selected rows are not of the same type, product, packing and quantity");
+		}
+
 		return ProcessPreconditionsResolution.accept();
 	}
 
+	/**
+	 * The actions and parameters (e.g. the maximum QtyCU/QtyTU) are proposed from the first selected row and then applied to each selected row,
+	 * so all selected rows have to match in the row properties the proposal is based on.
+	 *
+	 * @return the row properties from which the actions and parameters are proposed
+	 */
+	private static List<Object> getParametersTemplateKey(final HUEditorRow row)
+	{
+		final BigDecimal qtyCU = row.getQtyCU();
+		return Arrays.asList(
+				row.getType(),
+				row.getProductId(),
+				row.getC_UOM_ID(),
+				row.getPackingInfo(),
+				qtyCU != null ? qtyCU.stripTrailingZeros() : null,
+				row.isHUPlanningReceiptOwnerPM());
+	}
+
+	/**
+	 * @return the single selected row or, if more rows of the same type are selected, the first one. It's used to propose the actions and parameters.
+	 */
+	private HUEditorRow getTemplateRow()
+	{
+		final DocumentIdsSelection selectedRowIds = getSelectedRowIds();
+		if (selectedRowIds.isSingleDocumentId())
+		{
+			return getSingleSelectedRow();
+		}
+
+		return getView().streamByIds(selectedRowIds)
+				.findFirst()
+				.orElseThrow(() -> new AdempiereException("@NoSelection@"));
+	}
+
 	@Override
 	@RunOutOfTrx
 	protected final String doIt() throws Exception
@@ -234,18 +291,83 @@ public class WEBUI_M_HU_Transform
 				.huPlanningReceiptOwnerPM_LU(p_HUPlanningReceiptOwnerPM_LU)
 				.build();
 
-		final WebuiHUTransformCommand command = WebuiHUTransformCommand.builder()
-				.selectedRow(getSingleSelectedRow())
-				.contextDocumentLines(getContextDocumentLines())
-				.parameters(parameters)
-				.build();
-
-		final WebuiHUTransformCommandResult result = command.execute();
-		updateViewFromResult(result);
+		if (getSelectedRowIds().isSingleDocumentId())
+		{
+			final WebuiHUTransformCommand command = WebuiHUTransformCommand.builder()
+					.selectedRow(getSingleSelectedRow())
+					.contextDocumentLines(getContextDocumentLines())
+					.parameters(parameters)
+					.build();
+
+			final WebuiHUTransformCommandResult result = command.execute();
+			updateViewFromResult(result);
+		}
+		else
+		{
+			transformInChunks(parameters);
+		}
 
 		return MSG_OK;
 	}
 
+	/**
+	 * Applies the transform to each selected row, in chunks; a failed chunk is rolled back but does not affect the others.
+	 * The chunks are transformed in parallel, unless the view has context document lines which all chunks would update.
+	 */
+	private void transformInChunks(final WebuiHUTransformParameters parameters)
+	{
+		final HUEditorView view = getView();
+		final List<TableRecordReference> contextDocumentLines = getContextDocumentLines();
+
+		final WebuiHUTransformChunkedExecutor.ChunkedResult chunkedResult = chunkedExecutor.execute(WebuiHUTransformChunkedExecutor.Request.<HUEditorRow> builder()
+				.rows(view.streamByIds(getSelectedRowIds()).collect(ImmutableList.toImmutableList()))
+				.groupingKeyFunction(row -> getChunkGroupingKey(row, parameters.getActionType()))
+				.transformer(row -> WebuiHUTransformCommand.builder()
+						.selectedRow(row)
+						.contextDocumentLines(contextDocumentLines)
+						.parameters(parameters)
+						.build()
+						.execute())
+				// all rows are transformed against the same context document lines (e.g. receipt schedules), so the chunks would lock the same records
+				.parallel(contextDocumentLines.isEmpty())
+				.websocketEndpoint(WebSocketConfig.buildHUTransformTopicName(view.getViewId().toJson()))
+				.build());
+
+		updateViewFromResult(chunkedResult.getResult());
+
+		if (!chunkedResult.isSuccess())
+		{
+			throw new AdempiereException("Failed transforming " + chunkedResult.getRowsFailed() + " of " + chunkedResult.getRowsCount() + " rows. The other rows were transformed.",
+					chunkedResult.getErrors().get(0));
+		}
+	}
+
+	/**
+	 * @return key of the rows which have to be transformed sequentially, in the same chunk
+	 */
+	private Object getChunkGroupingKey(final HUEditorRow row, final ActionType actionType)
+	{
+		// all rows go into the same existing TU/LU
+		if (actionType == ActionType.CU_To_ExistingTU || actionType == ActionType.TU_To_ExistingLU)
+		{
+			return actionType;
+		}
+
+		final HUEditorView view = getView();
+		HUEditorRow topLevelRow = row;
+		while (!topLevelRow.isTopLevel())
+		{
+			final HUEditorRow parentRow = view.getParentRowByChildIdOrNull(topLevelRow.getId());
+			if (parentRow == null)
+			{
+				break;
+			}
+			topLevelRow = parentRow;
+		}
+
+		return topLevelRow.getId();
+	}
+
 	/**
 	 * @return context document/lines (e.g. the receipt schedules)
 	 */
@@ -257,79 +379,65 @@ public class WEBUI_M_HU_Transform
 				.collect(GuavaCollectors.toImmutableList());
 	}
 
+	/**
+	 * Patches only the affected rows of the view, instead of reloading all of them, unless the result asks for a full view invalidation.
+	 */
 	private final void updateViewFromResult(final WebuiHUTransformCommandResult result)
 	{
-		final HUEditorView view = getView();
+		final ImmutableSet<HuId> huIdsChanged = ImmutableSet.<HuId> builder()
+				.addAll(result.getHuIdsChanged())
+				.addAll(getSelectedHUIdsIncludingTopLevel())
+				.build();
 
-		boolean changes = false;
-		if (view.addHUIds(result.getHuIdsToAddToView()))
-		{
-			changes = true;
-		}
-		if (view.removeHUIds(result.getHuIdsToRemoveFromView()))
-		{
-			changes = true;
-		}
-		if (!result.getHuIdsChanged().isEmpty())
-		{
-			removeHUsIfDestroyed(result.getHuIdsChanged());
-			changes = true;
-		}
-		if (removeSelectedRowsIfHUDestoyed())
+		final ImmutableSet<HuId> huIdsToRemove = ImmutableSet.<HuId> builder()
+				.addAll(result.getHuIdsToRemoveFromView())
+				.addAll(extractDestroyedHUIds(huIdsChanged))
+				.build();
+
+		final HUEditorView view = getView();
+		if (result.isFullViewInvalidation())
 		{
-			changes = true;
+			// e.g. the TU was moved to an LU which is not yet a row of this view
+			view.addHUIds(result.getHuIdsToAddToView());
+			view.removeHUIds(huIdsToRemove);
+			view.invalidateAll();
 		}
-		//
-		if (changes)
+		else
 		{
-			view.invalidateAll();
+			view.patchRowsAfterHUsChanged(
+					result.getHuIdsToAddToView(),
+					huIdsToRemove,
+					Sets.difference(huIdsChanged, huIdsToRemove));
 		}
 	}
 
 	/**
-	 * @return true if view was changed and needs invalidation
+	 * @return the HUs of the selected rows and their top level HUs, as they were before the transform
 	 */
-	private final boolean removeSelectedRowsIfHUDestoyed()
+	private ImmutableSet<HuId> getSelectedHUIdsIncludingTopLevel()
 	{
 		final DocumentIdsSelection selectedRowIds = getSelectedRowIds();
-		if (selectedRowIds.isEmpty())
+		if (selectedRowIds.isEmpty() || selectedRowIds.isAll())
 		{
-			return false;
-		}
-		else if (selectedRowIds.isAll())
-		{
-			return false;
+			return ImmutableSet.of();
 		}
 
-		final HUEditorView view = getView();
-		final ImmutableSet<HuId> selectedHUIds = view.streamByIds(selectedRowIds)
-				.map(row -> row.getHuId())
+		return selectedRowIds.stream()
+				.map(HUEditorRowId::ofDocumentId)
+				.flatMap(rowId -> Stream.of(rowId.getHuId(), rowId.getTopLevelHUId()))
 				.filter(Objects::nonNull)
 				.collect(ImmutableSet.toImmutableSet());
-
-		return removeHUsIfDestroyed(selectedHUIds);
 	}
 
-	/**
-	 * @return true if at least one HU was removed
-	 */
-	private boolean removeHUsIfDestroyed(final Collection<HuId> huIds)
+	private static ImmutableSet<HuId> extractDestroyedHUIds(final Collection<HuId> huIds)
 	{
-		final ImmutableSet<HuId> destroyedHUIds = huIds.stream()
+		return huIds.stream()
 				.distinct()
 				.map(huId -> load(huId, I_M_HU.class))
 				.filter(Services.get(IHandlingUnitsBL.class)::isDestroyed)
 				.map(I_M_HU::getM_HU_ID)
 				.map(HuId::ofRepoId)
 				.collect(ImmutableSet.toImmutableSet());
-		if (destroyedHUIds.isEmpty())
-		{
-			return false;
-		}
-
-		final HUEditorView view = getView();
-		final boolean changes = view.removeHUIds(destroyedHUIds);
-		return changes;
 	}
 
 	@Override
@@ -0,0 +1,386 @@
+package de.metas.ui.web.handlingunits.process;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import javax.annotation.Nullable;
+import javax.annotation.PreDestroy;
+
+import org.adempiere.ad.trx.api.ITrxManager;
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.util.concurrent.CustomizableThreadFactory;
+import org.adempiere.util.lang.IAutoCloseable;
+import org.compiere.util.Env;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+
+import de.metas.logging.LogManager;
+import de.metas.ui.web.handlingunits.json.JSONHUTransformProgress;
+import de.metas.ui.web.websocket.WebsocketSender;
+import de.metas.util.Services;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Singular;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Runs one transform per row for a (large) selection of rows.
+ * <p>
+ * The rows are split in chunks. Rows which share the same grouping key (e.g. same top level HU) are never put in different chunks,
+ * so the chunks are independent of each other and are processed in parallel by a bounded pool, each chunk in its own transaction.
+ * Chunks which would still update the same records (see {@link Request#isParallel()}) are processed sequentially, in the calling thread.
+ * If a chunk fails, only that chunk is rolled back. The progress is published on the given websocket endpoint after each chunk.
+ */
+@Component
+public class WebuiHUTransformChunkedExecutor
+{
+	private static final Logger logger = LogManager.getLogger(WebuiHUTransformChunkedExecutor.class);
+	private final ITrxManager trxManager = Services.get(ITrxManager.class);
+	private final WebsocketSender websocketSender;
+
+	private final ThreadPoolExecutor executor;
+	private final int chunkSize;
+
+	@Autowired
+	public WebuiHUTransformChunkedExecutor(
+			@NonNull final WebsocketSender websocketSender,
+			@Value("${metasfresh.webui.handlingunits.transform.threads:4}") final int threads,
+			@Value("${metasfresh.webui.handlingunits.transform.chunkSize:20}") final int chunkSize)
+	{
+		this.websocketSender = websocketSender;
+		this.chunkSize = Math.max(chunkSize, 1);
+
+		final int threadsEffective = Math.max(threads, 1);
+		executor = new ThreadPoolExecutor(
+				threadsEffective,
+				threadsEffective,
+				1, TimeUnit.MINUTES,
+				new LinkedBlockingQueue<>(),
+				CustomizableThreadFactory.builder()
+						.setThreadNamePrefix(getClass().getName())
+						.setDaemon(true)
+						.build());
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	@PreDestroy
+	@VisibleForTesting
+	void shutdown()
+	{
+		executor.shutdownNow();
+	}
+
+	@lombok.Value
+	@Builder
+	public static class Request<T>
+	{
+		@Singular
+		ImmutableList<T> rows;
+
+		/** Rows with the same grouping key are processed sequentially, in the same chunk */
+		@NonNull
+		Function<T, Object> groupingKeyFunction;
+
+		@NonNull
+		Function<T, WebuiHUTransformCommandResult> transformer;
+
+		/** If false, the chunks are processed one after the other (still each in its own transaction), e.g. because they all update the same records */
+		@Builder.Default
+		boolean parallel = true;
+
+		@Nullable
+		String websocketEndpoint;
+	}
+
+	@lombok.Value
+	public static class ChunkedResult
+	{
+		/** merged result of all chunks which were successfully processed */
+		@NonNull
+		WebuiHUTransformCommandResult result;
+
+		int rowsCount;
+		int rowsFailed;
+
+		@NonNull
+		ImmutableList<Throwable> errors;
+
+		public boolean isSuccess()
+		{
+			return errors.isEmpty();
+		}
+	}
+
+	public <T> ChunkedResult execute(@NonNull final Request<T> request)
+	{
+		final Stopwatch stopwatch = Stopwatch.createStarted();
+		final List<List<T>> chunks = splitInChunks(request.getRows(), request.getGroupingKeyFunction(), chunkSize);
+
+		final ProgressPublisher progress = new ProgressPublisher(
+				request.getWebsocketEndpoint(),
+				request.getRows().size(),
+				chunks.size());
+		progress.publish();
+
+		final Properties ctx = Env.getCtx();
+		final List<Future<ChunkOutcome>> futures = new ArrayList<>(chunks.size());
+		for (final List<T> chunk : chunks)
+		{
+			if (request.isParallel())
+			{
+				final Properties chunkCtx = Env.copyCtx(ctx);
+				futures.add(executor.submit(() -> {
+					try (final IAutoCloseable c = Env.switchContext(chunkCtx))
+					{
+						return executeChunk(chunk, request.getTransformer(), progress);
+					}
+				}));
+			}
+			else
+			{
+				futures.add(CompletableFuture.completedFuture(executeChunk(chunk, request.getTransformer(), progress)));
+			}
+		}
+
+		final List<WebuiHUTransformCommandResult> results = new ArrayList<>();
+		final ImmutableList.Builder<Throwable> errors = ImmutableList.builder();
+		int rowsFailed = 0;
+		for (final Future<ChunkOutcome> future : futures)
+		{
+			final ChunkOutcome outcome = getOutcome(future);
+			if (outcome.getError() != null)
+			{
+				errors.add(outcome.getError());
+				rowsFailed += outcome.getRowsCount();
+			}
+			else
+			{
+				results.addAll(outcome.getResults());
+			}
+		}
+
+		progress.publishDone();
+		logger.info("Transformed {} rows in {} chunks ({} rows failed) in {}", request.getRows().size(), chunks.size(), rowsFailed, stopwatch);
+
+		return new ChunkedResult(
+				mergeResults(results),
+				request.getRows().size(),
+				rowsFailed,
+				errors.build());
+	}
+
+	private <T> ChunkOutcome executeChunk(
+			@NonNull final List<T> chunk,
+			@NonNull final Function<T, WebuiHUTransformCommandResult> transformer,
+			@NonNull final ProgressPublisher progress)
+	{
+		final ChunkOutcome outcome = executeChunk(chunk, transformer);
+		progress.chunkDone(outcome);
+		return outcome;
+	}
+
+	private <T> ChunkOutcome executeChunk(
+			@NonNull final List<T> chunk,
+			@NonNull final Function<T, WebuiHUTransformCommandResult> transformer)
+	{
+		try
+		{
+			final List<WebuiHUTransformCommandResult> results = trxManager.callInNewTrx(() -> chunk.stream()
+					.map(transformer)
+					.collect(ImmutableList.toImmutableList()));
+			return new ChunkOutcome(chunk.size(), results, null);
+		}
+		catch (final Exception ex)
+		{
+			logger.warn("Failed transforming chunk of {} rows. Chunk rolled back.", chunk.size(), ex);
+			return new ChunkOutcome(chunk.size(), ImmutableList.of(), ex);
+		}
+	}
+
+	private static ChunkOutcome getOutcome(final Future<ChunkOutcome> future)
+	{
+		try
+		{
+			return future.get();
+		}
+		catch (final InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+			throw AdempiereException.wrapIfNeeded(ex);
+		}
+		catch (final ExecutionException ex)
+		{
+			throw AdempiereException.wrapIfNeeded(ex.getCause());
+		}
+	}
+
+	@VisibleForTesting
+	static <T> List<List<T>> splitInChunks(
+			@NonNull final List<T> rows,
+			@NonNull final Function<T, Object> groupingKeyFunction,
+			final int chunkSize)
+	{
+		final Map<Object, List<T>> rowsByGroupingKey = new LinkedHashMap<>();
+		for (final T row : rows)
+		{
+			rowsByGroupingKey.computeIfAbsent(groupingKeyFunction.apply(row), key -> new ArrayList<>()).add(row);
+		}
+
+		final List<List<T>> chunks = new ArrayList<>();
+		List<T> currentChunk = new ArrayList<>();
+		for (final List<T> group : rowsByGroupingKey.values())
+		{
+			if (!currentChunk.isEmpty() && currentChunk.size() + group.size() > chunkSize)
+			{
+				chunks.add(currentChunk);
+				currentChunk = new ArrayList<>();
+			}
+			currentChunk.addAll(group);
+		}
+		if (!currentChunk.isEmpty())
+		{
+			chunks.add(currentChunk);
+		}
+
+		return chunks;
+	}
+
+	@VisibleForTesting
+	static WebuiHUTransformCommandResult mergeResults(@NonNull final Collection<WebuiHUTransformCommandResult> results)
+	{
+		final WebuiHUTransformCommandResult.WebuiHUTransformCommandResultBuilder merged = WebuiHUTransformCommandResult.builder();
+		boolean fullViewInvalidation = false;
+		for (final WebuiHUTransformCommandResult result : results)
+		{
+			merged.huIdsToAddToView(result.getHuIdsToAddToView())
+					.huIdsToRemoveFromView(result.getHuIdsToRemoveFromView())
+					.huIdsChanged(result.getHuIdsChanged())
+					.huIdsCreated(result.getHuIdsCreated());
+			fullViewInvalidation = fullViewInvalidation || result.isFullViewInvalidation();
+		}
+
+		return merged.fullViewInvalidation(fullViewInvalidation).build();
+	}
+
+	@lombok.Value
+	private static class ChunkOutcome
+	{
+		int rowsCount;
+		List<WebuiHUTransformCommandResult> results;
+		@Nullable
+		Throwable error;
+	}
+
+	private final class ProgressPublisher
+	{
+		private final String websocketEndpoint;
+		private final String transformId = UUID.randomUUID().toString();
+		private final int rowsCount;
+		private final int chunksCount;
+
+		private int rowsProcessed = 0;
+		private int rowsFailed = 0;
+		private int chunksProcessed = 0;
+		private String lastErrorMessage = null;
+
+		private ProgressPublisher(
+				@Nullable final String websocketEndpoint,
+				final int rowsCount,
+				final int chunksCount)
+		{
+			this.websocketEndpoint = websocketEndpoint;
+			this.rowsCount = rowsCount;
+			this.chunksCount = chunksCount;
+		}
+
+		public synchronized void chunkDone(final ChunkOutcome outcome)
+		{
+			chunksProcessed++;
+			rowsProcessed += outcome.getRowsCount();
+			if (outcome.getError() != null)
+			{
+				rowsFailed += outcome.getRowsCount();
+				lastErrorMessage = AdempiereException.extractMessage(outcome.getError());
+			}
+
+			publish();
+		}
+
+		public synchronized void publish()
+		{
+			publish(JSONHUTransformProgress.Status.RUNNING);
+		}
+
+		public synchronized void publishDone()
+		{
+			publish(rowsFailed > 0 ? JSONHUTransformProgress.Status.DONE_WITH_ERRORS : JSONHUTransformProgress.Status.DONE);
+		}
+
+		private void publish(final JSONHUTransformProgress.Status status)
+		{
+			if (websocketEndpoint == null)
+			{
+				return;
+			}
+
+			final JSONHUTransformProgress event = JSONHUTransformProgress.builder()
+					.transformId(transformId)
+					.status(status)
+					.rowsCount(rowsCount)
+					.rowsProcessed(rowsProcessed)
+					.rowsFailed(rowsFailed)
+					.chunksCount(chunksCount)
+					.chunksProcessed(chunksProcessed)
+					.errorMessage(lastErrorMessage)
+					.websocketEndpoint(websocketEndpoint)
+					.build();
+			try
+			{
+				websocketSender.convertAndSend(websocketEndpoint, event);
+			}
+			catch (final Exception ex)
+			{
+				logger.warn("Failed publishing {}. Ignored.", event, ex);
+			}
+		}
+	}
+}
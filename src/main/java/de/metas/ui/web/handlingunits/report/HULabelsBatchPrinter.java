@@ -0,0 +1,237 @@
+package de.metas.ui.web.handlingunits.report;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+import javax.annotation.PreDestroy;
+
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.util.concurrent.CustomizableThreadFactory;
+import org.adempiere.util.lang.IAutoCloseable;
+import org.compiere.util.Env;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import de.metas.handlingunits.report.HUReportExecutor;
+import de.metas.handlingunits.report.HUToReport;
+import de.metas.logging.LogManager;
+import de.metas.process.AdProcessId;
+import de.metas.ui.web.handlingunits.json.JSONHULabelsPrintStatus;
+import de.metas.ui.web.websocket.WebSocketConfig;
+import de.metas.ui.web.websocket.WebsocketSender;
+import de.metas.user.UserId;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Singular;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Prints the labels of many HUs in the background.
+ * <p>
+ * Instead of running the label report once per HU, all labels are rendered into one document (or a few, see {@code maxLabelsPerDocument}).
+ * The jobs are executed by a bounded pool and their status is pushed on the owner's HU labels websocket topic.
+ */
+@Component
+public class HULabelsBatchPrinter
+{
+	private static final Logger logger = LogManager.getLogger(HULabelsBatchPrinter.class);
+
+	/** Renders and prints the labels of given HUs as one document */
+	@FunctionalInterface
+	public interface LabelsDocumentPrinter
+	{
+		void print(AdProcessId labelProcessId, List<HUToReport> hus, int copies);
+	}
+
+	@lombok.Value
+	@Builder
+	public static class HULabelsPrintRequest
+	{
+		@NonNull
+		AdProcessId labelProcessId;
+
+		@Singular("hu")
+		ImmutableList<HUToReport> hus;
+
+		int copies;
+
+		@NonNull
+		UserId ownerUserId;
+	}
+
+	private final WebsocketSender websocketSender;
+	private final LabelsDocumentPrinter labelsDocumentPrinter;
+	private final int maxLabelsPerDocument;
+
+	private final ThreadPoolExecutor executor;
+
+	@Autowired
+	public HULabelsBatchPrinter(
+			@NonNull final WebsocketSender websocketSender,
+			@Value("${metasfresh.webui.handlingunits.labels.printThreads:2}") final int printThreads,
+			@Value("${metasfresh.webui.handlingunits.labels.queueCapacity:50}") final int queueCapacity,
+			@Value("${metasfresh.webui.handlingunits.labels.maxLabelsPerDocument:500}") final int maxLabelsPerDocument)
+	{
+		this(websocketSender,
+				(labelProcessId, hus, copies) -> HUReportExecutor.newInstance(Env.getCtx())
+						.numberOfCopies(copies)
+						.executeNow(labelProcessId, hus),
+				printThreads,
+				queueCapacity,
+				maxLabelsPerDocument);
+	}
+
+	@VisibleForTesting
+	HULabelsBatchPrinter(
+			@NonNull final WebsocketSender websocketSender,
+			@NonNull final LabelsDocumentPrinter labelsDocumentPrinter,
+			final int printThreads,
+			final int queueCapacity,
+			final int maxLabelsPerDocument)
+	{
+		this.websocketSender = websocketSender;
+		this.labelsDocumentPrinter = labelsDocumentPrinter;
+		this.maxLabelsPerDocument = Math.max(maxLabelsPerDocument, 1);
+
+		final int threads = Math.max(printThreads, 1);
+		executor = new ThreadPoolExecutor(
+				threads,
+				threads,
+				1, TimeUnit.MINUTES,
+				new ArrayBlockingQueue<>(Math.max(queueCapacity, 1)),
+				CustomizableThreadFactory.builder()
+						.setThreadNamePrefix(getClass().getName())
+						.setDaemon(true)
+						.build());
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	@PreDestroy
+	@VisibleForTesting
+	void shutdown()
+	{
+		executor.shutdownNow();
+	}
+
+	/**
+	 * @return the queued status; the next ones are pushed on the owner's HU labels websocket topic
+	 */
+	public JSONHULabelsPrintStatus enqueue(@NonNull final HULabelsPrintRequest request)
+	{
+		if (request.getHus().isEmpty())
+		{
+			throw new AdempiereException("@NoSelection@");
+		}
+		if (request.getCopies() <= 0)
+		{
+			throw new AdempiereException("@Copies@ > 0");
+		}
+
+		final String jobId = UUID.randomUUID().toString();
+		final Properties ctx = Env.copyCtx(Env.getCtx());
+
+		final JSONHULabelsPrintStatus queuedStatus = publishStatus(jobId, request, JSONHULabelsPrintStatus.Status.QUEUED, 0, null);
+		try
+		{
+			executor.execute(() -> {
+				try (final IAutoCloseable c = Env.switchContext(ctx))
+				{
+					print(jobId, request);
+				}
+			});
+		}
+		catch (final RejectedExecutionException ex)
+		{
+			publishStatus(jobId, request, JSONHULabelsPrintStatus.Status.FAILED, 0, "Too many labels are printed right now");
+			throw new AdempiereException("Too many labels are printed right now. Please try again later.", ex);
+		}
+
+		return queuedStatus;
+	}
+
+	private void print(final String jobId, final HULabelsPrintRequest request)
+	{
+		final Stopwatch stopwatch = Stopwatch.createStarted();
+		int labelsPrinted = 0;
+		publishStatus(jobId, request, JSONHULabelsPrintStatus.Status.PRINTING, labelsPrinted, null);
+		try
+		{
+			for (final List<HUToReport> hus : Lists.partition(request.getHus(), maxLabelsPerDocument))
+			{
+				labelsDocumentPrinter.print(request.getLabelProcessId(), hus, request.getCopies());
+
+				labelsPrinted += hus.size();
+				publishStatus(jobId, request, JSONHULabelsPrintStatus.Status.PRINTING, labelsPrinted, null);
+			}
+
+			publishStatus(jobId, request, JSONHULabelsPrintStatus.Status.DONE, labelsPrinted, null);
+			logger.info("Printed {} HU labels in {} (jobId={})", labelsPrinted, stopwatch, jobId);
+		}
+		catch (final Throwable ex)
+		{
+			logger.warn("Failed printing HU labels for {} after {} labels (jobId={})", request, labelsPrinted, jobId, ex);
+			publishStatus(jobId, request, JSONHULabelsPrintStatus.Status.FAILED, labelsPrinted, AdempiereException.extractMessage(ex));
+		}
+	}
+
+	private JSONHULabelsPrintStatus publishStatus(
+			final String jobId,
+			final HULabelsPrintRequest request,
+			final JSONHULabelsPrintStatus.Status status,
+			final int labelsPrinted,
+			@Nullable final String errorMessage)
+	{
+		final JSONHULabelsPrintStatus event = JSONHULabelsPrintStatus.builder()
+				.jobId(jobId)
+				.status(status)
+				.labelsCount(request.getHus().size())
+				.labelsPrinted(labelsPrinted)
+				.errorMessage(errorMessage)
+				.websocketEndpoint(WebSocketConfig.buildHULabelsTopicName(request.getOwnerUserId()))
+				.build();
+		try
+		{
+			websocketSender.convertAndSend(event.getWebsocketEndpoint(), event);
+		}
+		catch (final Exception ex)
+		{
+			logger.warn("Failed publishing {}. Ignored.", event, ex);
+		}
+
+		return event;
+	}
+}
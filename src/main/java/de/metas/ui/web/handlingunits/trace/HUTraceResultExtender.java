@@ -1,7 +1,6 @@
 package de.metas.ui.web.handlingunits.trace;
 
 import de.metas.handlingunits.trace.HUTraceEventQuery;
-import de.metas.handlingunits.trace.HUTraceRepository;
 import de.metas.process.PInstanceId;
 import de.metas.ui.web.document.filter.DocumentFilter;
 import de.metas.ui.web.document.filter.sql.SqlDocumentFilterConverter;
@@ -36,21 +35,21 @@ final class HUTraceResultExtender implements SqlDocumentFilterConverter
 {
 	private static final String WHERE_IN_T_SELECTION = "(M_HU_Trace_ID IN (select T_Selection_ID from T_Selection where AD_PInstance_ID=%s))";
 
-	public static HUTraceResultExtender createForRepositoryAndconverter(
-			@NonNull final HUTraceRepository huTraceRepository,
+	public static HUTraceResultExtender createForSelectionsCacheAndConverter(
+			@NonNull final HUTraceSelectionsCache selectionsCache,
 			@NonNull final SqlDocumentFilterConverter converter)
 	{
-		return new HUTraceResultExtender(huTraceRepository, converter);
+		return new HUTraceResultExtender(selectionsCache, converter);
 	}
 
-	private final HUTraceRepository huTraceRepository;
+	private final HUTraceSelectionsCache selectionsCache;
 	private final SqlDocumentFilterConverter converter;
 
 	private HUTraceResultExtender(
-			@NonNull final HUTraceRepository huTraceRepository,
+			@NonNull final HUTraceSelectionsCache selectionsCache,
 			@NonNull final SqlDocumentFilterConverter converter)
 	{
-		this.huTraceRepository = huTraceRepository;
+		this.selectionsCache = selectionsCache;
 		this.converter = converter;
 	}
 
@@ -74,7 +73,7 @@ final class HUTraceResultExtender implements SqlDocumentFilterConverter
 		else
 		{
 			final HUTraceEventQuery huTraceQuery = HuTraceQueryCreator.createTraceQueryFromDocumentFilter(filter);
-			final PInstanceId selectionId = huTraceRepository.queryToSelection(huTraceQuery);
+			final PInstanceId selectionId = selectionsCache.getSelectionId(huTraceQuery);
 
 			final String sqlPlaceHolder = sqlParamsOut.placeholder(selectionId);
 			return String.format(WHERE_IN_T_SELECTION, sqlPlaceHolder);
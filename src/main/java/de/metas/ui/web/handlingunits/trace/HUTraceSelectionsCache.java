@@ -0,0 +1,144 @@
+package de.metas.ui.web.handlingunits.trace;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.service.ISysConfigBL;
+import org.compiere.util.DB;
+import org.slf4j.Logger;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Stopwatch;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+
+import de.metas.handlingunits.trace.HUTraceEventQuery;
+import de.metas.handlingunits.trace.HUTraceRepository;
+import de.metas.logging.LogManager;
+import de.metas.process.PInstanceId;
+import de.metas.util.Services;
+import lombok.NonNull;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Caches the selection of the (recursive) HU trace per trace query, so the same trace is not computed again when the view is re-queried or another user opens it with the same filter.
+ * <p>
+ * The selections expire shortly after they were created, so new {@code M_HU_Trace} records are considered soon.
+ * They are not reset on each new {@code M_HU_Trace} record, because those are created all the time, and it's not known which traces a new record would change.
+ * <p>
+ * When a selection is evicted or expired, its {@code T_Selection} rows are deleted.
+ * That's fine for the views which were already created with it, because they have their own copy of the selected rows.
+ */
+final class HUTraceSelectionsCache
+{
+	private static final Logger logger = LogManager.getLogger(HUTraceSelectionsCache.class);
+
+	private static final String SYSCONFIG_CacheSize = "webui.HUTrace.SelectionsCache.Size";
+	private static final int DEFAULT_CacheSize = 100;
+	private static final String SYSCONFIG_ExpireSeconds = "webui.HUTrace.SelectionsCache.ExpireSeconds";
+	private static final int DEFAULT_ExpireSeconds = 60;
+
+	private final HUTraceRepository huTraceRepository;
+	private final Consumer<PInstanceId> selectionDeleter;
+
+	private final Cache<HUTraceEventQuery, PInstanceId> selectionIdsByQuery;
+
+	HUTraceSelectionsCache(@NonNull final HUTraceRepository huTraceRepository)
+	{
+		this(huTraceRepository,
+				Services.get(ISysConfigBL.class).getIntValue(SYSCONFIG_CacheSize, DEFAULT_CacheSize),
+				Duration.ofSeconds(Services.get(ISysConfigBL.class).getIntValue(SYSCONFIG_ExpireSeconds, DEFAULT_ExpireSeconds)),
+				Ticker.systemTicker(),
+				HUTraceSelectionsCache::deleteSelection);
+	}
+
+	@VisibleForTesting
+	HUTraceSelectionsCache(
+			@NonNull final HUTraceRepository huTraceRepository,
+			final int cacheSize,
+			@NonNull final Duration expireAfterWrite,
+			@NonNull final Ticker ticker,
+			@NonNull final Consumer<PInstanceId> selectionDeleter)
+	{
+		this.huTraceRepository = huTraceRepository;
+		this.selectionDeleter = selectionDeleter;
+
+		selectionIdsByQuery = CacheBuilder.newBuilder()
+				.maximumSize(Math.max(cacheSize, 1))
+				.expireAfterWrite(Math.max(expireAfterWrite.toMillis(), 0), TimeUnit.MILLISECONDS)
+				.ticker(ticker)
+				.removalListener(this::onSelectionRemoved)
+				.build();
+	}
+
+	public PInstanceId getSelectionId(@NonNull final HUTraceEventQuery huTraceQuery)
+	{
+		try
+		{
+			return selectionIdsByQuery.get(huTraceQuery, () -> querySelection(huTraceQuery));
+		}
+		catch (final ExecutionException ex)
+		{
+			throw AdempiereException.wrapIfNeeded(ex.getCause());
+		}
+	}
+
+	private PInstanceId querySelection(@NonNull final HUTraceEventQuery huTraceQuery)
+	{
+		final Stopwatch stopwatch = Stopwatch.createStarted();
+		final PInstanceId selectionId = huTraceRepository.queryToSelection(huTraceQuery);
+		logger.debug("Created HU trace selection {} in {} for {}", selectionId, stopwatch, huTraceQuery);
+		return selectionId;
+	}
+
+	private void onSelectionRemoved(final RemovalNotification<HUTraceEventQuery, PInstanceId> notification)
+	{
+		final PInstanceId selectionId = notification.getValue();
+		if (selectionId == null)
+		{
+			return;
+		}
+
+		try
+		{
+			selectionDeleter.accept(selectionId);
+			logger.debug("Deleted HU trace selection {} ({})", selectionId, notification.getCause());
+		}
+		catch (final Exception ex)
+		{
+			logger.warn("Failed deleting HU trace selection {}. Ignored.", selectionId, ex);
+		}
+	}
+
+	private static void deleteSelection(final PInstanceId selectionId)
+	{
+		DB.deleteT_Selection(selectionId, ITrx.TRXNAME_None);
+	}
+}
@@ -40,11 +40,11 @@ import lombok.NonNull;
 @Component
 public class HUTraceSqlConverterDecorator implements SqlDocumentFilterConverterDecorator
 {
-	private final HUTraceRepository huTraceRepository;
+	private final HUTraceSelectionsCache selectionsCache;
 
 	public HUTraceSqlConverterDecorator(final HUTraceRepository huTRaceRepository)
 	{
-		this.huTraceRepository = huTRaceRepository;
+		this.selectionsCache = new HUTraceSelectionsCache(huTRaceRepository);
 	}
 
 	@Override
@@ -55,6 +55,6 @@ public class HUTraceSqlConverterDecorator implements SqlDocumentFilterConverterD
 
 	public SqlDocumentFilterConverter decorate(@NonNull final SqlDocumentFilterConverter converter)
 	{
-		return HUTraceResultExtender.createForRepositoryAndconverter(huTraceRepository, converter);
+		return HUTraceResultExtender.createForSelectionsCacheAndConverter(selectionsCache, converter);
 	}
 }
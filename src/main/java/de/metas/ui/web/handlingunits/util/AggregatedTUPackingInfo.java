@@ -4,6 +4,8 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.List;
 
+import javax.annotation.Nullable;
+
 import org.compiere.model.I_C_UOM;
 import org.slf4j.Logger;
 
@@ -18,6 +20,7 @@ import de.metas.handlingunits.model.I_M_HU_Item;
 import de.metas.handlingunits.model.I_M_HU_PI;
 import de.metas.handlingunits.storage.IHUProductStorage;
 import de.metas.logging.LogManager;
+import de.metas.quantity.Quantity;
 import de.metas.util.Services;
 
 /*
@@ -47,19 +50,19 @@ class AggregatedTUPackingInfo implements IHUPackingInfo
 	private static final Logger logger = LogManager.getLogger(AggregatedTUPackingInfo.class);
 
 	private final I_M_HU aggregatedTU;
-	private final Supplier<IHUProductStorage> huProductStorageSupplier;
+	private final Supplier<Quantity> singleProductQtySupplier;
 
 	public AggregatedTUPackingInfo(final I_M_HU aggregatedTU)
 	{
 		this.aggregatedTU = aggregatedTU;
-		huProductStorageSupplier = Suppliers.memoize(() -> {
+		singleProductQtySupplier = Suppliers.memoize(() -> {
 			final List<IHUProductStorage> productStorages = Services.get(IHandlingUnitsBL.class)
 					.getStorageFactory()
 					.getStorage(aggregatedTU)
 					.getProductStorages();
 			if (productStorages.size() == 1)
 			{
-				return productStorages.get(0);
+				return productStorages.get(0).getQty();
 			}
 			else
 			{
@@ -68,15 +71,24 @@ class AggregatedTUPackingInfo implements IHUPackingInfo
 		});
 	}
 
+	/**
+	 * @param singleProductQty the qty of the aggregated TU's single product (if any), in case it was already loaded
+	 */
+	public AggregatedTUPackingInfo(final I_M_HU aggregatedTU, @Nullable final Quantity singleProductQty)
+	{
+		this.aggregatedTU = aggregatedTU;
+		singleProductQtySupplier = () -> singleProductQty;
+	}
+
 	@Override
 	public String toString()
 	{
 		return MoreObjects.toStringHelper(this).addValue(aggregatedTU).toString();
 	}
 
-	private IHUProductStorage getHUProductStorage()
+	private Quantity getSingleProductQty()
 	{
-		return huProductStorageSupplier.get();
+		return singleProductQtySupplier.get();
 	}
 
 	@Override
@@ -126,8 +138,8 @@ class AggregatedTUPackingInfo implements IHUPackingInfo
 	@Override
 	public BigDecimal getQtyCUsPerTU()
 	{
-		final IHUProductStorage huProductStorage = getHUProductStorage();
-		if (huProductStorage == null)
+		final Quantity singleProductQty = getSingleProductQty();
+		if (singleProductQty == null)
 		{
 			return null;
 		}
@@ -138,7 +150,7 @@ class AggregatedTUPackingInfo implements IHUPackingInfo
 			return null;
 		}
 
-		final BigDecimal qtyCUTotal = huProductStorage.getQty().toBigDecimal();
+		final BigDecimal qtyCUTotal = singleProductQty.toBigDecimal();
 
 		final BigDecimal qtyCUsPerTU = qtyCUTotal.divide(qtyTUsPerLU, 0, RoundingMode.HALF_UP);
 		return qtyCUsPerTU;
@@ -147,13 +159,13 @@ class AggregatedTUPackingInfo implements IHUPackingInfo
 	@Override
 	public I_C_UOM getQtyCUsPerTU_UOM()
 	{
-		final IHUProductStorage huProductStorage = getHUProductStorage();
-		if (huProductStorage == null)
+		final Quantity singleProductQty = getSingleProductQty();
+		if (singleProductQty == null)
 		{
 			return null;
 		}
 
-		return huProductStorage.getC_UOM();
+		return singleProductQty.getUOM();
 	}
 
 }
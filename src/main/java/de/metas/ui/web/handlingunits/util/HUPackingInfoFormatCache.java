@@ -0,0 +1,138 @@
+package de.metas.ui.web.handlingunits.util;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.compiere.model.I_C_UOM;
+import org.slf4j.Logger;
+
+import com.google.common.collect.ImmutableMap;
+
+import de.metas.cache.CCache;
+import de.metas.cache.CCache.CacheMapType;
+import de.metas.handlingunits.model.I_M_HU_PI;
+import de.metas.handlingunits.model.I_M_HU_PI_Item;
+import de.metas.handlingunits.model.I_M_HU_PI_Version;
+import de.metas.logging.LogManager;
+import de.metas.ui.web.cache.HeapBudgetCacheSize;
+import lombok.NonNull;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Formatted HU packing infos (as shown in the HU editor grid), by {@link HUPackingInfoKey}.
+ * <p>
+ * Thousands of identical TUs share a handful of keys, so the PI lookups and formatting are done once per key instead of once per HU.
+ * The cache is reset when packing instructions or UOMs are changed.
+ */
+public final class HUPackingInfoFormatCache
+{
+	private static final Logger logger = LogManager.getLogger(HUPackingInfoFormatCache.class);
+
+	private static final HeapBudgetCacheSize CACHESIZE = HeapBudgetCacheSize.builder()
+			.sysConfigName("webui.HUPackingInfoFormatCache.CacheSize")
+			.estimatedEntrySizeBytes(512) // key and the formatted string
+			.heapPercent(1)
+			.minSize(500)
+			.maxSize(20000)
+			.build();
+
+	/** Packing infos by key; a HU without packing info is cached as empty string */
+	private static final CCache<HUPackingInfoKey, String> packingInfosByKey = CCache.<HUPackingInfoKey, String> builder()
+			.cacheName(I_M_HU_PI.Table_Name + "#FormattedPackingInfo#by#Key")
+			.tableName(I_M_HU_PI.Table_Name)
+			.additionalTableNameToResetFor(I_M_HU_PI_Version.Table_Name)
+			.additionalTableNameToResetFor(I_M_HU_PI_Item.Table_Name)
+			.additionalTableNameToResetFor(I_C_UOM.Table_Name)
+			.cacheMapType(CacheMapType.LRU)
+			.initialCapacity(CACHESIZE.get())
+			.build();
+
+	private HUPackingInfoFormatCache()
+	{
+	}
+
+	/**
+	 * @param formatter formats the packing info of a HU having the given key; it is called only for the keys which are not already cached
+	 * @return packing infos by key; keys for which the formatter failed are missing
+	 */
+	public static Map<HUPackingInfoKey, String> getAllOrFormat(
+			@NonNull final Collection<HUPackingInfoKey> keys,
+			@NonNull final Function<HUPackingInfoKey, String> formatter)
+	{
+		if (keys.isEmpty())
+		{
+			return ImmutableMap.of();
+		}
+
+		final Map<HUPackingInfoKey, String> packingInfos = new HashMap<>(keys.size());
+		final Set<HUPackingInfoKey> keysToFormat = new HashSet<>();
+		for (final HUPackingInfoKey key : keys)
+		{
+			final String packingInfo = packingInfosByKey.get(key);
+			if (packingInfo != null)
+			{
+				packingInfos.put(key, packingInfo);
+			}
+			else
+			{
+				keysToFormat.add(key);
+			}
+		}
+
+		if (!keysToFormat.isEmpty())
+		{
+			final Map<HUPackingInfoKey, String> formattedPackingInfos = formatAll(keysToFormat, formatter);
+			formattedPackingInfos.forEach(packingInfosByKey::put);
+			packingInfos.putAll(formattedPackingInfos);
+		}
+
+		return packingInfos;
+	}
+
+	private static Map<HUPackingInfoKey, String> formatAll(
+			final Collection<HUPackingInfoKey> keys,
+			final Function<HUPackingInfoKey, String> formatter)
+	{
+		final ImmutableMap.Builder<HUPackingInfoKey, String> packingInfos = ImmutableMap.builder();
+		for (final HUPackingInfoKey key : keys)
+		{
+			try
+			{
+				final String packingInfo = formatter.apply(key);
+				packingInfos.put(key, packingInfo != null ? packingInfo : "");
+			}
+			catch (final Exception ex)
+			{
+				// don't cache it; the caller will deal with it
+				logger.warn("Failed formatting packing info for {}", key, ex);
+			}
+		}
+
+		return packingInfos.build();
+	}
+}
@@ -0,0 +1,81 @@
+package de.metas.ui.web.handlingunits.util;
+
+import java.math.BigDecimal;
+
+import javax.annotation.Nullable;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Everything a HU's formatted packing info depends on. HUs with the same key have the same packing info, so it can be formatted once for all of them.
+ *
+ * @see HUPackingInfoFormatCache
+ */
+@Value
+public class HUPackingInfoKey
+{
+	String huUnitType;
+	boolean aggregatedTU;
+	int piVersionId;
+
+	/** Parent's PI item, which gives the effective PI and the TUs per LU of an aggregated TU */
+	int parentPIItemId;
+	BigDecimal qtyTUsPerLU;
+
+	BigDecimal qtyCU;
+	int uomId;
+
+	String adLanguage;
+
+	@Builder
+	private HUPackingInfoKey(
+			@NonNull final String huUnitType,
+			final boolean aggregatedTU,
+			final int piVersionId,
+			final int parentPIItemId,
+			@Nullable final BigDecimal qtyTUsPerLU,
+			@Nullable final BigDecimal qtyCU,
+			final int uomId,
+			@NonNull final String adLanguage)
+	{
+		this.huUnitType = huUnitType;
+		this.aggregatedTU = aggregatedTU;
+		this.piVersionId = piVersionId;
+		this.parentPIItemId = parentPIItemId > 0 ? parentPIItemId : -1;
+		this.qtyTUsPerLU = normalizeQty(qtyTUsPerLU);
+		this.qtyCU = normalizeQty(qtyCU);
+		this.uomId = uomId > 0 ? uomId : -1;
+		this.adLanguage = adLanguage;
+	}
+
+	/** Makes 10 and 10.000 equal keys */
+	@Nullable
+	private static BigDecimal normalizeQty(@Nullable final BigDecimal qty)
+	{
+		return qty != null ? qty.stripTrailingZeros() : null;
+	}
+}
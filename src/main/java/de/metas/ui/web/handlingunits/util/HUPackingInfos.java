@@ -1,12 +1,16 @@
 package de.metas.ui.web.handlingunits.util;
 
+import javax.annotation.Nullable;
+
 import de.metas.handlingunits.IHandlingUnitsBL;
 import de.metas.handlingunits.model.I_M_HU;
 import de.metas.handlingunits.model.I_M_HU_LUTU_Configuration;
 import de.metas.handlingunits.model.X_M_HU_PI_Version;
 import de.metas.handlingunits.storage.IHUProductStorage;
+import de.metas.quantity.Quantity;
 import de.metas.util.Check;
 import de.metas.util.Services;
+import lombok.NonNull;
 
 /*
  * #%L
@@ -70,6 +74,41 @@ public final class HUPackingInfos
 				+ "\n HU: " + hu);
 	}
 
+	/**
+	 * Same as {@link #of(I_M_HU)}, but uses the already loaded HU data instead of loading it again.
+	 *
+	 * @param huUnitType the HU's unit type (see {@link IHandlingUnitsBL#getHU_UnitType(I_M_HU)})
+	 * @param aggregatedTU true if the HU is an aggregated TU (see {@link IHandlingUnitsBL#isAggregateHU(I_M_HU)})
+	 * @param singleProductQty the qty of the HU's single product, or null if the HU has no or more than one product
+	 */
+	public static final IHUPackingInfo of(
+			@NonNull final I_M_HU hu,
+			@NonNull final String huUnitType,
+			final boolean aggregatedTU,
+			@Nullable final Quantity singleProductQty)
+	{
+		if (aggregatedTU)
+		{
+			return new AggregatedTUPackingInfo(hu, singleProductQty);
+		}
+
+		if (X_M_HU_PI_Version.HU_UNITTYPE_LoadLogistiqueUnit.equals(huUnitType))
+		{
+			return new LUPIPackingInfo(Services.get(IHandlingUnitsBL.class).getPI(hu));
+		}
+		else if (X_M_HU_PI_Version.HU_UNITTYPE_TransportUnit.equals(huUnitType))
+		{
+			return new TUPackingInfo(hu, singleProductQty);
+		}
+		else if (X_M_HU_PI_Version.HU_UNITTYPE_VirtualPI.equals(huUnitType))
+		{
+			return new VHUPackingInfo(hu);
+		}
+
+		throw new IllegalArgumentException("HU type not supported: " + huUnitType
+				+ "\n HU: " + hu);
+	}
+
 	public IHUPackingInfo of(final IHUProductStorage huProductStorage)
 	{
 		return new VHUPackingInfo(huProductStorage);
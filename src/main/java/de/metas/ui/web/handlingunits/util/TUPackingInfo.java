@@ -3,6 +3,8 @@ package de.metas.ui.web.handlingunits.util;
 import java.math.BigDecimal;
 import java.util.List;
 
+import javax.annotation.Nullable;
+
 import org.compiere.model.I_C_UOM;
 
 import com.google.common.base.MoreObjects;
@@ -13,6 +15,7 @@ import de.metas.handlingunits.IHandlingUnitsBL;
 import de.metas.handlingunits.model.I_M_HU;
 import de.metas.handlingunits.model.I_M_HU_PI;
 import de.metas.handlingunits.storage.IHUProductStorage;
+import de.metas.quantity.Quantity;
 import de.metas.util.Services;
 import lombok.NonNull;
 
@@ -41,20 +44,20 @@ import lombok.NonNull;
 class TUPackingInfo implements IHUPackingInfo
 {
 	private final I_M_HU tuHU;
-	private final Supplier<IHUProductStorage> huProductStorageSupplier;
+	private final Supplier<Quantity> singleProductQtySupplier;
 
 	TUPackingInfo(@NonNull final I_M_HU tuHU)
 	{
 		this.tuHU = tuHU;
 
-		huProductStorageSupplier = Suppliers.memoize(() -> {
+		singleProductQtySupplier = Suppliers.memoize(() -> {
 			final List<IHUProductStorage> productStorages = Services.get(IHandlingUnitsBL.class)
 					.getStorageFactory()
 					.getStorage(tuHU)
 					.getProductStorages();
 			if (productStorages.size() == 1)
 			{
-				return productStorages.get(0);
+				return productStorages.get(0).getQty();
 			}
 			else
 			{
@@ -63,15 +66,24 @@ class TUPackingInfo implements IHUPackingInfo
 		});
 	}
 
+	/**
+	 * @param singleProductQty the qty of the TU's single product (if any), in case it was already loaded
+	 */
+	TUPackingInfo(@NonNull final I_M_HU tuHU, @Nullable final Quantity singleProductQty)
+	{
+		this.tuHU = tuHU;
+		singleProductQtySupplier = () -> singleProductQty;
+	}
+
 	@Override
 	public String toString()
 	{
 		return MoreObjects.toStringHelper(this).addValue(tuHU).toString();
 	}
 
-	private IHUProductStorage getHUProductStorage()
+	private Quantity getSingleProductQty()
 	{
-		return huProductStorageSupplier.get();
+		return singleProductQtySupplier.get();
 	}
 
 	@Override
@@ -107,15 +119,15 @@ class TUPackingInfo implements IHUPackingInfo
 	@Override
 	public BigDecimal getQtyCUsPerTU()
 	{
-		final IHUProductStorage huProductStorage = getHUProductStorage();
-		return huProductStorage == null ? null : huProductStorage.getQty().toBigDecimal();
+		final Quantity singleProductQty = getSingleProductQty();
+		return singleProductQty == null ? null : singleProductQty.toBigDecimal();
 	}
 
 	@Override
 	public I_C_UOM getQtyCUsPerTU_UOM()
 	{
-		final IHUProductStorage huProductStorage = getHUProductStorage();
-		return huProductStorage == null ? null : huProductStorage.getC_UOM();
+		final Quantity singleProductQty = getSingleProductQty();
+		return singleProductQty == null ? null : singleProductQty.getUOM();
 	}
 
 }
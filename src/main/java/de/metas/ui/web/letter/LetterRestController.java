@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.UnaryOperator;
 
 import org.adempiere.ad.trx.api.ITrxManager;
@@ -33,15 +34,13 @@ import de.metas.bpartner.BPartnerLocationId;
 import de.metas.document.IDocumentLocationBL;
 import de.metas.document.model.impl.PlainDocumentLocation;
 import de.metas.i18n.IMsgBL;
-import de.metas.letter.BoilerPlateId;
-import de.metas.letters.api.ITextTemplateBL;
-import de.metas.letters.model.Letter;
 import de.metas.letters.model.Letters;
 import de.metas.letters.model.MADBoilerPlate;
 import de.metas.letters.model.MADBoilerPlate.BoilerPlateContext;
 import de.metas.ui.web.config.WebConfig;
 import de.metas.ui.web.letter.WebuiLetter.WebuiLetterBuilder;
 import de.metas.ui.web.letter.json.JSONLetter;
+import de.metas.ui.web.letter.json.JSONLetterRenderStatus;
 import de.metas.ui.web.letter.json.JSONLetterRequest;
 import de.metas.ui.web.session.UserSession;
 import de.metas.ui.web.window.datatypes.DocumentPath;
@@ -94,6 +93,9 @@ public class LetterRestController
 	@Autowired
 	private DocumentCollection documentCollection;
 
+	@Autowired
+	private WebuiLetterPDFRenderer pdfRenderer;
+
 	private static final String PATCH_FIELD_Message = "message";
 	private static final String PATCH_FIELD_TemplateId = "templateId";
 	private static final Set<String> PATCH_FIELD_ALL = ImmutableSet.of(PATCH_FIELD_Message, PATCH_FIELD_TemplateId);
@@ -170,9 +172,13 @@ public class LetterRestController
 		return JSONLetter.of(letter);
 	}
 
-	private ResponseEntity<byte[]> createPDFResponseEntry(final byte[] pdfData)
+	private static String getPDFFilename()
+	{
+		return Services.get(IMsgBL.class).getMsg(Env.getCtx(), Letters.MSG_Letter);
+	}
+
+	private static ResponseEntity<byte[]> createPDFResponseEntry(final String pdfFilename, final byte[] pdfData)
 	{
-		final String pdfFilename = Services.get(IMsgBL.class).getMsg(Env.getCtx(), Letters.MSG_Letter);
 		final HttpHeaders headers = new HttpHeaders();
 		headers.setContentType(MediaType.APPLICATION_PDF);
 		headers.set(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + pdfFilename + "\"");
@@ -183,7 +189,7 @@ public class LetterRestController
 
 	@GetMapping("/{letterId}/printPreview")
 	@ApiOperation("Returns letter's printable version (e.g. PDF)")
-	public ResponseEntity<byte[]> getLetterPrintPreview(@PathVariable("letterId") final String letterId)
+	public CompletableFuture<ResponseEntity<byte[]>> getLetterPrintPreview(@PathVariable("letterId") final String letterId)
 	{
 		userSession.assertLoggedIn();
 
@@ -193,9 +199,23 @@ public class LetterRestController
 		assertReadable(letter);
 
 		//
-		// Create and return the printable letter
-		final byte[] pdfData = createPDFData(letter);
-		return createPDFResponseEntry(pdfData);
+		// Render the printable letter in background and return it when ready.
+		// NOTE: the request thread is released meanwhile.
+		final String pdfFilename = getPDFFilename();
+		return pdfRenderer.render(letter, userSession.getAD_Language())
+				.thenApply(pdfData -> createPDFResponseEntry(pdfFilename, pdfData));
+	}
+
+	@PostMapping("/{letterId}/printPreview/render")
+	@ApiOperation("Starts rendering letter's printable version in background. The rendering status is pushed on the returned websocket endpoint.")
+	public JSONLetterRenderStatus renderLetterPrintPreview(@PathVariable("letterId") final String letterId)
+	{
+		userSession.assertLoggedIn();
+
+		final WebuiLetter letter = lettersRepo.getLetter(letterId);
+		assertReadable(letter);
+
+		return pdfRenderer.startRendering(letter, userSession.getAD_Language());
 	}
 
 	@PostMapping("/{letterId}/complete")
@@ -213,7 +233,7 @@ public class LetterRestController
 
 		//
 		// Return the printable letter
-		return createPDFResponseEntry(result.getLetter().getTemporaryPDFData());
+		return createPDFResponseEntry(getPDFFilename(), result.getLetter().getTemporaryPDFData());
 	}
 
 	private final WebuiLetter complete0(final WebuiLetter letter)
@@ -222,7 +242,7 @@ public class LetterRestController
 
 		//
 		// Create the printable letter
-		final byte[] pdfData = createPDFData(letter);
+		final byte[] pdfData = pdfRenderer.renderNow(letter, userSession.getAD_Language());
 
 		final File pdfFile = createFile(pdfData);
 		//
@@ -239,22 +259,6 @@ public class LetterRestController
 				.build();
 	}
 
-	private byte[] createPDFData(final WebuiLetter letter)
-	{
-		final Letter request = Letter.builder()
-				.adLanguage(userSession.getAD_Language())
-				.boilerPlateId(BoilerPlateId.ofRepoIdOrNull(letter.getTextTemplateId()))
-				.subject(letter.getSubject())
-				.body(letter.getContent())
-				.adOrgId(letter.getAdOrgId())
-				.bpartnerId(BPartnerId.ofRepoId(letter.getBpartnerId()))
-				.bpartnerLocationId(BPartnerLocationId.ofRepoId(BPartnerId.ofRepoId(letter.getBpartnerId()), letter.getBpartnerLocationId()))
-				.address(letter.getBpartnerAddress())
-				.userId(UserId.ofRepoIdOrNull(letter.getBpartnerContactId()))
-				.build();
-		return Services.get(ITextTemplateBL.class).createPDF(request);
-	}
-
 	private static File createFile(final byte[] pdfData)
 	{
 		final String pdfFilenamePrefix = Services.get(IMsgBL.class).getMsg(Env.getCtx(), Letters.MSG_Letter);
@@ -0,0 +1,433 @@
+package de.metas.ui.web.letter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import javax.annotation.Nullable;
+import javax.annotation.PreDestroy;
+
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.util.concurrent.CustomizableThreadFactory;
+import org.adempiere.util.lang.IAutoCloseable;
+import org.compiere.util.Env;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import de.metas.bpartner.BPartnerId;
+import de.metas.bpartner.BPartnerLocationId;
+import de.metas.letter.BoilerPlateId;
+import de.metas.letters.api.ITextTemplateBL;
+import de.metas.letters.model.Letter;
+import de.metas.logging.LogManager;
+import de.metas.ui.web.letter.json.JSONLetterRenderStatus;
+import de.metas.ui.web.websocket.WebSocketConfig;
+import de.metas.ui.web.websocket.WebsocketSender;
+import de.metas.user.UserId;
+import de.metas.util.Services;
+import lombok.NonNull;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Renders the printable version (PDF) of {@link WebuiLetter}s on a bounded background executor.
+ * <p>
+ * The rendered PDFs are cached for a short time by a hash of the letter's content, so previewing the same letter again is free.
+ * The PDF which is archived when the letter is completed is always rendered from current data.
+ * Concurrent requests for the same content are sharing the same rendering.
+ * Each status change is pushed once per letter on the owner's {@link WebSocketConfig#buildLetterTopicName(UserId) letter topic}.
+ */
+@Component
+public class WebuiLetterPDFRenderer
+{
+	private static final Logger logger = LogManager.getLogger(WebuiLetterPDFRenderer.class);
+
+	private final WebsocketSender websocketSender;
+	private final Function<Letter, byte[]> pdfRenderer;
+
+	private final ThreadPoolExecutor executor;
+	private final Cache<String, byte[]> pdfByContentHash;
+	private final ConcurrentHashMap<String, Rendering> renderingsByContentHash = new ConcurrentHashMap<>();
+
+	@Autowired
+	public WebuiLetterPDFRenderer(
+			@NonNull final WebsocketSender websocketSender,
+			@Value("${metasfresh.webui.letter.pdf.renderThreads:2}") final int renderThreads,
+			@Value("${metasfresh.webui.letter.pdf.queueCapacity:50}") final int queueCapacity,
+			@Value("${metasfresh.webui.letter.pdf.cacheMaxSizeMB:64}") final int cacheMaxSizeMB)
+	{
+		this(websocketSender,
+				letter -> Services.get(ITextTemplateBL.class).createPDF(letter),
+				renderThreads,
+				queueCapacity,
+				cacheMaxSizeMB);
+	}
+
+	@VisibleForTesting
+	WebuiLetterPDFRenderer(
+			@NonNull final WebsocketSender websocketSender,
+			@NonNull final Function<Letter, byte[]> pdfRenderer,
+			final int renderThreads,
+			final int queueCapacity,
+			final int cacheMaxSizeMB)
+	{
+		this.websocketSender = websocketSender;
+		this.pdfRenderer = pdfRenderer;
+
+		final int threads = Math.max(renderThreads, 1);
+		executor = new ThreadPoolExecutor(
+				threads,
+				threads,
+				1, TimeUnit.MINUTES,
+				new ArrayBlockingQueue<>(Math.max(queueCapacity, 1)),
+				CustomizableThreadFactory.builder()
+						.setThreadNamePrefix(getClass().getName())
+						.setDaemon(true)
+						.build());
+		executor.allowCoreThreadTimeOut(true);
+
+		pdfByContentHash = CacheBuilder.newBuilder()
+				.maximumWeight(Math.max(cacheMaxSizeMB, 1) * 1024L * 1024L)
+				.<String, byte[]> weigher((contentHash, pdfData) -> pdfData.length)
+				.expireAfterWrite(10, TimeUnit.MINUTES) // the boilerplate and business partner changes are not part of the content hash, so don't show outdated previews for too long
+				.build();
+	}
+
+	@PreDestroy
+	@VisibleForTesting
+	void shutdown()
+	{
+		executor.shutdownNow();
+	}
+
+	/**
+	 * @return the rendered PDF, which is completed right away if the same content was already rendered
+	 */
+	public CompletableFuture<byte[]> render(@NonNull final WebuiLetter letter, @NonNull final String adLanguage)
+	{
+		return render(letter, adLanguage, computeContentHash(letter, adLanguage));
+	}
+
+	private CompletableFuture<byte[]> render(
+			@NonNull final WebuiLetter letter,
+			@NonNull final String adLanguage,
+			@NonNull final String contentHash)
+	{
+		final byte[] cachedPDFData = pdfByContentHash.getIfPresent(contentHash);
+		if (cachedPDFData != null)
+		{
+			publishStatus(letter, contentHash, JSONLetterRenderStatus.Status.DONE, null);
+			return CompletableFuture.completedFuture(cachedPDFData);
+		}
+
+		final Rendering newRendering = new Rendering(letter);
+		final Rendering existingRendering = renderingsByContentHash.putIfAbsent(contentHash, newRendering);
+		if (existingRendering == null)
+		{
+			publishStatus(letter, contentHash, JSONLetterRenderStatus.Status.QUEUED, null);
+			submit(letter, adLanguage, contentHash, newRendering);
+			return newRendering.getFuture();
+		}
+
+		//
+		// Same content is already rendered, for this or for another letter.
+		// The status of each letter is published once, when the rendering is completed.
+		final Rendering.AddLetterResult addLetterResult = existingRendering.addLetter(letter);
+		if (addLetterResult == Rendering.AddLetterResult.ADDED)
+		{
+			publishStatus(letter, contentHash, JSONLetterRenderStatus.Status.RENDERING, null);
+		}
+		else if (addLetterResult == Rendering.AddLetterResult.RENDERING_COMPLETED)
+		{
+			existingRendering.getFuture().whenComplete((pdfData, ex) -> publishCompletedStatus(letter, contentHash, ex));
+		}
+
+		return existingRendering.getFuture();
+	}
+
+	/**
+	 * Starts rendering in background, unless it's already cached.
+	 *
+	 * @return current status; the next changes are pushed via websocket
+	 */
+	public JSONLetterRenderStatus startRendering(@NonNull final WebuiLetter letter, @NonNull final String adLanguage)
+	{
+		final String contentHash = computeContentHash(letter, adLanguage);
+		final CompletableFuture<byte[]> rendering = render(letter, adLanguage, contentHash);
+		if (!rendering.isDone())
+		{
+			return createStatus(letter, contentHash, JSONLetterRenderStatus.Status.QUEUED, null);
+		}
+		else if (rendering.isCompletedExceptionally())
+		{
+			return createStatus(letter, contentHash, JSONLetterRenderStatus.Status.FAILED, extractErrorMessage(rendering));
+		}
+		else
+		{
+			return createStatus(letter, contentHash, JSONLetterRenderStatus.Status.DONE, null);
+		}
+	}
+
+	/**
+	 * Renders the PDF on the current thread, always from current data (i.e. not from cache), because it's going to be archived.
+	 * <p>
+	 * The content hash does not cover the boilerplate template and the business partner data which are used for rendering,
+	 * so a cached PDF might be outdated.
+	 */
+	public byte[] renderNow(@NonNull final WebuiLetter letter, @NonNull final String adLanguage)
+	{
+		final byte[] pdfData = pdfRenderer.apply(toLetter(letter, adLanguage));
+		pdfByContentHash.put(computeContentHash(letter, adLanguage), pdfData);
+		return pdfData;
+	}
+
+	private void submit(
+			final WebuiLetter letter,
+			final String adLanguage,
+			final String contentHash,
+			final Rendering rendering)
+	{
+		final Letter request = toLetter(letter, adLanguage);
+		final Properties ctx = Env.copyCtx(Env.getCtx());
+
+		try
+		{
+			executor.execute(() -> {
+				rendering.getLetters().forEach(renderedLetter -> publishStatus(renderedLetter, contentHash, JSONLetterRenderStatus.Status.RENDERING, null));
+				try (final IAutoCloseable c = Env.switchContext(ctx))
+				{
+					final byte[] pdfData = pdfRenderer.apply(request);
+					pdfByContentHash.put(contentHash, pdfData);
+					complete(contentHash, rendering, pdfData, null);
+				}
+				catch (final Throwable ex)
+				{
+					logger.warn("Failed rendering {}", letter, ex);
+					complete(contentHash, rendering, null, ex);
+				}
+			});
+		}
+		catch (final RejectedExecutionException ex)
+		{
+			complete(contentHash, rendering, null, new AdempiereException("Too many letters are rendered right now. Please try again later.", ex));
+		}
+	}
+
+	private void complete(
+			@NonNull final String contentHash,
+			@NonNull final Rendering rendering,
+			@Nullable final byte[] pdfData,
+			@Nullable final Throwable ex)
+	{
+		renderingsByContentHash.remove(contentHash, rendering);
+
+		rendering.markCompleted().forEach(letter -> publishCompletedStatus(letter, contentHash, ex));
+
+		if (ex == null)
+		{
+			rendering.getFuture().complete(pdfData);
+		}
+		else
+		{
+			rendering.getFuture().completeExceptionally(ex);
+		}
+	}
+
+	private void publishCompletedStatus(
+			@NonNull final WebuiLetter letter,
+			@NonNull final String contentHash,
+			@Nullable final Throwable ex)
+	{
+		if (ex != null)
+		{
+			publishStatus(letter, contentHash, JSONLetterRenderStatus.Status.FAILED, AdempiereException.extractMessage(ex));
+		}
+		else
+		{
+			publishStatus(letter, contentHash, JSONLetterRenderStatus.Status.DONE, null);
+		}
+	}
+
+	private static String extractErrorMessage(final CompletableFuture<byte[]> completedRendering)
+	{
+		final Throwable ex = completedRendering.handle((pdfData, renderingEx) -> renderingEx).join();
+		return AdempiereException.extractMessage(ex);
+	}
+
+	/**
+	 * A rendering in progress and the letters waiting for it.
+	 */
+	private static final class Rendering
+	{
+		private final CompletableFuture<byte[]> future = new CompletableFuture<>();
+		private final LinkedHashMap<String, WebuiLetter> lettersById = new LinkedHashMap<>();
+		private boolean completed = false;
+
+		private Rendering(@NonNull final WebuiLetter letter)
+		{
+			lettersById.put(letter.getLetterId(), letter);
+		}
+
+		public CompletableFuture<byte[]> getFuture()
+		{
+			return future;
+		}
+
+		private enum AddLetterResult
+		{
+			ADDED,
+			/** the letter will be notified when the rendering is completed */
+			ALREADY_WAITING,
+			/** the letter was not waiting for this rendering, which is completed (or about to be completed) */
+			RENDERING_COMPLETED
+		}
+
+		public synchronized AddLetterResult addLetter(@NonNull final WebuiLetter letter)
+		{
+			if (lettersById.containsKey(letter.getLetterId()))
+			{
+				return AddLetterResult.ALREADY_WAITING;
+			}
+			else if (completed)
+			{
+				return AddLetterResult.RENDERING_COMPLETED;
+			}
+			else
+			{
+				lettersById.put(letter.getLetterId(), letter);
+				return AddLetterResult.ADDED;
+			}
+		}
+
+		public synchronized List<WebuiLetter> getLetters()
+		{
+			return ImmutableList.copyOf(lettersById.values());
+		}
+
+		/**
+		 * @return the letters to be notified
+		 */
+		public synchronized List<WebuiLetter> markCompleted()
+		{
+			completed = true;
+			return ImmutableList.copyOf(lettersById.values());
+		}
+	}
+
+	private static Letter toLetter(final WebuiLetter letter, final String adLanguage)
+	{
+		return Letter.builder()
+				.adLanguage(adLanguage)
+				.boilerPlateId(BoilerPlateId.ofRepoIdOrNull(letter.getTextTemplateId()))
+				.subject(letter.getSubject())
+				.body(letter.getContent())
+				.adOrgId(letter.getAdOrgId())
+				.bpartnerId(BPartnerId.ofRepoId(letter.getBpartnerId()))
+				.bpartnerLocationId(BPartnerLocationId.ofRepoId(BPartnerId.ofRepoId(letter.getBpartnerId()), letter.getBpartnerLocationId()))
+				.address(letter.getBpartnerAddress())
+				.userId(UserId.ofRepoIdOrNull(letter.getBpartnerContactId()))
+				.build();
+	}
+
+	/**
+	 * @return hash of everything which is rendered
+	 */
+	@VisibleForTesting
+	static String computeContentHash(@NonNull final WebuiLetter letter, @NonNull final String adLanguage)
+	{
+		final Hasher hasher = Hashing.sha256().newHasher();
+		putString(hasher, adLanguage);
+		hasher.putInt(letter.getTextTemplateId());
+		putString(hasher, letter.getSubject());
+		putString(hasher, letter.getContent());
+		hasher.putInt(letter.getAdOrgId());
+		hasher.putInt(letter.getBpartnerId());
+		hasher.putInt(letter.getBpartnerLocationId());
+		putString(hasher, letter.getBpartnerAddress());
+		hasher.putInt(letter.getBpartnerContactId());
+		return hasher.hash().toString();
+	}
+
+	private static void putString(final Hasher hasher, @Nullable final String string)
+	{
+		if (string == null)
+		{
+			hasher.putInt(-1);
+		}
+		else
+		{
+			// NOTE: also putting the length, so the strings boundaries are part of the hash
+			hasher.putInt(string.length());
+			hasher.putString(string, StandardCharsets.UTF_8);
+		}
+	}
+
+	private static JSONLetterRenderStatus createStatus(
+			final WebuiLetter letter,
+			final String contentHash,
+			final JSONLetterRenderStatus.Status status,
+			@Nullable final String errorMessage)
+	{
+		return JSONLetterRenderStatus.builder()
+				.letterId(letter.getLetterId())
+				.contentHash(contentHash)
+				.status(status)
+				.errorMessage(errorMessage)
+				.websocketEndpoint(WebSocketConfig.buildLetterTopicName(letter.getOwnerUserId()))
+				.build();
+	}
+
+	private void publishStatus(
+			final WebuiLetter letter,
+			final String contentHash,
+			final JSONLetterRenderStatus.Status status,
+			@Nullable final String errorMessage)
+	{
+		final JSONLetterRenderStatus event = createStatus(letter, contentHash, status, errorMessage);
+		try
+		{
+			websocketSender.convertAndSend(event.getWebsocketEndpoint(), event);
+		}
+		catch (final Exception ex)
+		{
+			logger.warn("Failed publishing {}. Ignored.", event, ex);
+		}
+	}
+}
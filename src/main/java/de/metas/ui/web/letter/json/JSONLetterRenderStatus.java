@@ -0,0 +1,79 @@
+package de.metas.ui.web.letter.json;
+
+import javax.annotation.Nullable;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Rendering status of a letter's printable version, pushed on the owner's letter websocket topic on each change.
+ */
+@JsonAutoDetect(fieldVisibility = Visibility.ANY, getterVisibility = Visibility.NONE, isGetterVisibility = Visibility.NONE, setterVisibility = Visibility.NONE)
+@Value
+public class JSONLetterRenderStatus
+{
+	public enum Status
+	{
+		QUEUED, RENDERING, DONE, FAILED
+	}
+
+	@JsonProperty("letterId")
+	String letterId;
+
+	/** Hash of the rendered content; same hash means the same printable version */
+	@JsonProperty("contentHash")
+	String contentHash;
+
+	@JsonProperty("status")
+	Status status;
+
+	@JsonProperty("errorMessage")
+	@JsonInclude(JsonInclude.Include.NON_EMPTY)
+	String errorMessage;
+
+	@JsonProperty("websocketEndpoint")
+	String websocketEndpoint;
+
+	@Builder
+	private JSONLetterRenderStatus(
+			@NonNull final String letterId,
+			@NonNull final String contentHash,
+			@NonNull final Status status,
+			@Nullable final String errorMessage,
+			@NonNull final String websocketEndpoint)
+	{
+		this.letterId = letterId;
+		this.contentHash = contentHash;
+		this.status = status;
+		this.errorMessage = errorMessage;
+		this.websocketEndpoint = websocketEndpoint;
+	}
+}
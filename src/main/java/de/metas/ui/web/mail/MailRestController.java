@@ -11,7 +11,7 @@ import java.util.stream.Stream;
 import org.adempiere.ad.trx.api.ITrx;
 import org.adempiere.exceptions.AdempiereException;
 import org.adempiere.exceptions.FillMandatoryException;
-import org.adempiere.service.IClientDAO;
+import org.adempiere.util.lang.Mutable;
 import org.compiere.model.I_AD_User;
 import org.compiere.util.Env;
 import org.slf4j.Logger;
@@ -31,23 +31,20 @@ import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 
-import de.metas.email.EMail;
 import de.metas.email.EMailAddress;
-import de.metas.email.EMailAttachment;
-import de.metas.email.EMailCustomType;
-import de.metas.email.EMailSentStatus;
-import de.metas.email.MailService;
-import de.metas.email.mailboxes.ClientEMailConfig;
-import de.metas.email.mailboxes.UserEMailConfig;
 import de.metas.letters.model.MADBoilerPlate;
 import de.metas.letters.model.MADBoilerPlate.BoilerPlateContext;
 import de.metas.logging.LogManager;
+import de.metas.notification.INotificationBL;
+import de.metas.notification.UserNotificationRequest;
 import de.metas.printing.esb.base.util.Check;
 import de.metas.ui.web.config.WebConfig;
 import de.metas.ui.web.mail.WebuiEmail.WebuiEmailBuilder;
+import de.metas.ui.web.mail.WebuiEmailSendQueue.WebuiEmailSendFinishedEvent;
 import de.metas.ui.web.mail.WebuiMailRepository.WebuiEmailRemovedEvent;
 import de.metas.ui.web.mail.json.JSONEmail;
 import de.metas.ui.web.mail.json.JSONEmailRequest;
+import de.metas.ui.web.mail.json.JSONEmailSendStatus;
 import de.metas.ui.web.session.UserSession;
 import de.metas.ui.web.window.datatypes.DocumentPath;
 import de.metas.ui.web.window.datatypes.LookupValue;
@@ -98,9 +95,9 @@ public class MailRestController
 
 	public static final String ENDPOINT = WebConfig.ENDPOINT_ROOT + "/mail";
 
-	private final IClientDAO clientsRepo = Services.get(IClientDAO.class);
 	private final IUserBL usersService = Services.get(IUserBL.class);
 	private final IUserDAO userDAO = Services.get(IUserDAO.class);
+	private final INotificationBL notificationBL = Services.get(INotificationBL.class);
 	@Autowired
 	private UserSession userSession;
 	@Autowired
@@ -108,7 +105,7 @@ public class MailRestController
 	@Autowired
 	private WebuiMailAttachmentsRepository mailAttachmentsRepo;
 	@Autowired
-	private MailService mailService;
+	private WebuiEmailSendQueue sendQueue;
 	@Autowired
 	private DocumentCollection documentCollection;
 
@@ -141,6 +138,11 @@ public class MailRestController
 			throw new AdempiereException("Cannot change an email which was already sent")
 					.setParameter("emailId", email.getEmailId());
 		}
+		if (email.isQueued())
+		{
+			throw new AdempiereException("Cannot change an email which is currently being sent")
+					.setParameter("emailId", email.getEmailId());
+		}
 	}
 
 	@PostMapping()
@@ -188,84 +190,107 @@ public class MailRestController
 	}
 
 	@PostMapping("/{emailId}/send")
-	@ApiOperation("Sends the email")
-	public void sendEmail(@PathVariable("emailId") final String emailId)
+	@ApiOperation("Queues the email to be sent. The send status is pushed on the returned websocket endpoint. The email is removed after it was sent.")
+	public JSONEmailSendStatus sendEmail(@PathVariable("emailId") final String emailId)
 	{
 		userSession.assertLoggedIn();
 
-		changeEmail(emailId, emailOld -> sendEmail(emailOld));
-		mailRepo.removeEmailById(emailId);
+		// NOTE: we keep the email (read-only) until it was sent, so that if sending finally fails, the user can see why and send it again
+		final Mutable<JSONEmailSendStatus> sendStatus = new Mutable<>();
+		changeEmail(emailId, emailOld -> {
+			final WebuiEmailSendRequest sendRequest = toSendRequest(emailOld);
+			sendStatus.setValue(sendQueue.enqueue(sendRequest));
+			return emailOld.toBuilder()
+					.sendRequestId(sendRequest.getRequestId())
+					.sendErrorMsg(null)
+					.build();
+		});
+
+		return sendStatus.getValue();
 	}
 
-	private WebuiEmail sendEmail(final WebuiEmail webuiEmail)
+	@EventListener
+	public void onEmailSendFinished(final WebuiEmailSendFinishedEvent event)
 	{
-		final String emailId = webuiEmail.getEmailId();
+		logger.debug("Got event: {}", event);
+		final WebuiEmailSendRequest request = event.getRequest();
+		final String emailId = request.getEmailId();
 
-		//
-		// Create the email object
-		final ClientEMailConfig tenantEmailConfig = clientsRepo.getEMailConfigById(userSession.getClientId());
-		final EMailCustomType mailCustomType = null;
-		
-		final UserId fromUserId = webuiEmail.getFrom().getIdAs(UserId::ofRepoId);
-		final UserEMailConfig userEmailConfig = usersService.getEmailConfigById(fromUserId);
-		
-		final List<EMailAddress> toList = extractEMailAddreses(webuiEmail.getTo()).collect(ImmutableList.toImmutableList());
-		if (toList.isEmpty())
+		final boolean emailUpdated = event.isSent()
+				? mailRepo.removeEmailIfQueued(emailId, request.getRequestId())
+				: mailRepo.markEmailSendFailed(emailId, request.getRequestId(), request.getLastErrorMsg());
+		if (emailUpdated)
 		{
-			throw new FillMandatoryException("To");
+			return;
 		}
-		final EMailAddress to = toList.get(0);
-		final String subject = webuiEmail.getSubject();
-		final String message = webuiEmail.getMessage();
-		final boolean html = false;
-		final EMail email = mailService.createEMail(
-				tenantEmailConfig, 
-				mailCustomType, 
-				userEmailConfig, 
-				to, 
-				subject, 
-				message, 
-				html);
-		toList.stream().skip(1).forEach(email::addTo);
-
-		webuiEmail.getAttachments()
-				.stream()
-				.map(webuiAttachment -> {
-					final byte[] content = mailAttachmentsRepo.getAttachmentAsByteArray(emailId, webuiAttachment);
-					return EMailAttachment.of(webuiAttachment.getDisplayName(), content);
-				})
-				.forEach(email::addAttachment);
 
-		//
-		// Actually send the email
-		final EMailSentStatus sentStatus = email.send();
-		if (!sentStatus.isSentOK())
+		// The email is no longer around (e.g. the server was restarted while the email was queued),
+		// so we have to delete its attachments and, if it failed, tell the user in some other way.
+		request.getAttachments().forEach(attachment -> mailAttachmentsRepo.deleteAttachment(emailId, attachment.getAttachmentId()));
+		if (!event.isSent())
 		{
-			throw new AdempiereException("Failed sending the email: " + sentStatus.getSentMsg());
+			notificationBL.send(UserNotificationRequest.builder()
+					.recipientUserId(UserId.ofRepoId(request.getOwnerUserId()))
+					.important(true)
+					.subjectPlain(request.getSubject())
+					.contentPlain("Failed sending the email: " + request.getLastErrorMsg())
+					.build());
 		}
+	}
 
-		//
-		// Delete temporary attachments
-		mailAttachmentsRepo.deleteAttachments(emailId, webuiEmail.getAttachments());
+	private WebuiEmailSendRequest toSendRequest(final WebuiEmail webuiEmail)
+	{
+		final String emailId = webuiEmail.getEmailId();
+
+		final List<String> toList = extractEMailAddreses(webuiEmail.getTo()).collect(ImmutableList.toImmutableList());
+		if (toList.isEmpty())
+		{
+			throw new FillMandatoryException("To");
+		}
+
+		final UserId fromUserId = webuiEmail.getFrom().getIdAs(UserId::ofRepoId);
 
-		// Mark the webui email as sent
-		return webuiEmail.toBuilder().sent(true).build();
+		// NOTE: only referencing the attachments; they are deleted when the email is removed, which happens after it was sent
+		final List<WebuiEmailSendRequest.Attachment> attachments = webuiEmail.getAttachments()
+				.stream()
+				.map(webuiAttachment -> WebuiEmailSendRequest.Attachment.builder()
+						.attachmentId(webuiAttachment.getIdAsString())
+						.filename(webuiAttachment.getDisplayName())
+						.build())
+				.collect(ImmutableList.toImmutableList());
+
+		return WebuiEmailSendRequest.builder()
+				.requestId(WebuiEmailSendQueue.newRequestId())
+				.emailId(emailId)
+				.ownerUserId(webuiEmail.getOwnerUserId().getRepoId())
+				.clientId(userSession.getClientId().getRepoId())
+				.fromUserId(fromUserId.getRepoId())
+				.to(toList)
+				.subject(webuiEmail.getSubject())
+				.message(webuiEmail.getMessage())
+				.attachments(attachments)
+				.build();
 	}
 
-	private final Stream<EMailAddress> extractEMailAddreses(final LookupValuesList users)
+	private final Stream<String> extractEMailAddreses(final LookupValuesList users)
 	{
 
 		return users.stream()
 				.map(userLookupValue -> extractEMailAddress(userLookupValue));
 	}
 
-	private EMailAddress extractEMailAddress(final LookupValue userLookupValue)
+	/**
+	 * @return validated email address
+	 */
+	private String extractEMailAddress(final LookupValue userLookupValue)
 	{
 		final UserId adUserId = userLookupValue.getIdAs(UserId::ofRepoIdOrNull);
 		if (adUserId == null)
 		{
 			// consider the email as the DisplayName
-			return EMailAddress.ofString(userLookupValue.getDisplayName());
+			final String email = userLookupValue.getDisplayName();
+			EMailAddress.ofString(email); // validate
+			return email;
 		}
 		else
 		{
@@ -275,7 +300,8 @@ public class MailRestController
 			{
 				throw new AdempiereException("User " + adUser.getName() + " does not have email");
 			}
-			return EMailAddress.ofString(email);
+			EMailAddress.ofString(email); // validate
+			return email;
 		}
 	}
 
@@ -377,6 +403,11 @@ public class MailRestController
 	{
 		logger.debug("Got event: {}", event);
 		final WebuiEmail email = event.getEmail();
+		if (email.isQueued())
+		{
+			// the attachments are still needed; they will be deleted when the email was sent or finally failed
+			return;
+		}
 		mailAttachmentsRepo.deleteAttachments(email.getEmailId(), email.getAttachments());
 	}
 
@@ -0,0 +1,95 @@
+package de.metas.ui.web.mail;
+
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.service.ClientId;
+import org.adempiere.service.IClientDAO;
+import org.springframework.stereotype.Component;
+
+import de.metas.email.EMail;
+import de.metas.email.EMailAddress;
+import de.metas.email.EMailAttachment;
+import de.metas.email.EMailCustomType;
+import de.metas.email.EMailSentStatus;
+import de.metas.email.MailService;
+import de.metas.email.mailboxes.ClientEMailConfig;
+import de.metas.email.mailboxes.UserEMailConfig;
+import de.metas.user.UserId;
+import de.metas.user.api.IUserBL;
+import de.metas.util.Services;
+import lombok.NonNull;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Sends emails using the configured mailboxes, via {@link MailService}.
+ * The attachments content is read from {@link WebuiMailAttachmentsRepository} only when sending.
+ */
+@Component
+public class MailServiceWebuiEmailTransport implements WebuiEmailTransport
+{
+	private final IClientDAO clientsRepo = Services.get(IClientDAO.class);
+	private final IUserBL usersService = Services.get(IUserBL.class);
+	private final MailService mailService;
+	private final WebuiMailAttachmentsRepository mailAttachmentsRepo;
+
+	public MailServiceWebuiEmailTransport(
+			@NonNull final MailService mailService,
+			@NonNull final WebuiMailAttachmentsRepository mailAttachmentsRepo)
+	{
+		this.mailService = mailService;
+		this.mailAttachmentsRepo = mailAttachmentsRepo;
+	}
+
+	@Override
+	public void send(@NonNull final WebuiEmailSendRequest request)
+	{
+		final ClientEMailConfig tenantEmailConfig = clientsRepo.getEMailConfigById(ClientId.ofRepoId(request.getClientId()));
+		final EMailCustomType mailCustomType = null;
+		final UserEMailConfig userEmailConfig = usersService.getEmailConfigById(UserId.ofRepoId(request.getFromUserId()));
+
+		final EMailAddress to = EMailAddress.ofString(request.getTo().get(0));
+		final boolean html = false;
+		final EMail email = mailService.createEMail(
+				tenantEmailConfig,
+				mailCustomType,
+				userEmailConfig,
+				to,
+				request.getSubject(),
+				request.getMessage(),
+				html);
+		request.getTo().stream().skip(1).map(EMailAddress::ofString).forEach(email::addTo);
+
+		request.getAttachments()
+				.stream()
+				.map(attachment -> EMailAttachment.of(
+						attachment.getFilename(),
+						mailAttachmentsRepo.getAttachmentAsByteArray(request.getEmailId(), attachment.getAttachmentId())))
+				.forEach(email::addAttachment);
+
+		final EMailSentStatus sentStatus = email.send();
+		if (!sentStatus.isSentOK())
+		{
+			throw new AdempiereException("Failed sending the email: " + sentStatus.getSentMsg());
+		}
+	}
+}
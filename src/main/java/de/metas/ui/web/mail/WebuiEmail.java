@@ -48,6 +48,15 @@ public class WebuiEmail
 	private final LookupValuesList attachments = LookupValuesList.EMPTY;
 
 	private final boolean sent;
+	/** set while the email is waiting in {@link WebuiEmailSendQueue} to be sent */
+	private final String sendRequestId;
+	/** why the last send finally failed */
+	private final String sendErrorMsg;
 
 	private final DocumentPath contextDocumentPath;
+
+	public boolean isQueued()
+	{
+		return sendRequestId != null;
+	}
 }
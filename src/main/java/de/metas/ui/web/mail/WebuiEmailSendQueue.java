@@ -0,0 +1,390 @@
+package de.metas.ui.web.mail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.util.concurrent.CustomizableThreadFactory;
+import org.adempiere.util.lang.IAutoCloseable;
+import org.compiere.util.Env;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.annotations.VisibleForTesting;
+
+import de.metas.JsonObjectMapperHolder;
+import de.metas.logging.LogManager;
+import de.metas.ui.web.mail.json.JSONEmailSendStatus;
+import de.metas.ui.web.session.WebRestApiContextProvider;
+import de.metas.ui.web.websocket.WebSocketConfig;
+import de.metas.ui.web.websocket.WebsocketSender;
+import de.metas.user.UserId;
+import de.metas.util.Check;
+import lombok.NonNull;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Sends emails asynchronously.
+ * <p>
+ * Each enqueued email is first written to a local directory and then sent by a bounded pool of workers, so the request threads are not waiting for slow SMTP servers
+ * and the pending emails are not lost on restart.
+ * Failed attempts are retried with exponential backoff.
+ * <p>
+ * When the email was sent or the last attempt failed, the request is deleted and a {@link WebuiEmailSendFinishedEvent} is published,
+ * so the draft can be removed or the failure can be reported to the user.
+ * Only the files which cannot be read at all are moved to the <code>failed</code> subdirectory; they are deleted after {@link #FAILED_FILES_RETENTION}.
+ * <p>
+ * The emails are sent in the context of the user who enqueued them. After a restart, that context is restored from the persisted request.
+ * <p>
+ * Each status change is pushed on the owner's {@link WebSocketConfig#buildMailTopicName(UserId) mail topic}.
+ */
+@Component
+public class WebuiEmailSendQueue
+{
+	private static final Logger logger = LogManager.getLogger(WebuiEmailSendQueue.class);
+
+	private static final String FILE_EXTENSION = ".json";
+	private static final String DEFAULT_DIRECTORY_NAME = ".metasfresh/webui-mail-queue";
+	private static final Duration FAILED_FILES_RETENTION = Duration.ofDays(7);
+
+	private final WebuiEmailTransport transport;
+	private final WebsocketSender websocketSender;
+	private final ApplicationEventPublisher eventPublisher;
+	private final ObjectMapper jsonObjectMapper = JsonObjectMapperHolder.newJsonObjectMapper();
+
+	private final File directory;
+	private final File failedDirectory;
+	private final int maxAttempts;
+	private final Duration retryInitialDelay;
+	private final Duration retryMaxDelay;
+	private final ScheduledExecutorService executor;
+
+	public WebuiEmailSendQueue(
+			@NonNull final WebuiEmailTransport transport,
+			@NonNull final WebsocketSender websocketSender,
+			@NonNull final ApplicationEventPublisher eventPublisher,
+			@Value("${metasfresh.webui.mail.sendQueue.directory:}") final String directoryPath,
+			@Value("${metasfresh.webui.mail.sendQueue.workers:2}") final int workers,
+			@Value("${metasfresh.webui.mail.sendQueue.maxAttempts:5}") final int maxAttempts,
+			@Value("${metasfresh.webui.mail.sendQueue.retryInitialDelayMillis:10000}") final long retryInitialDelayMillis,
+			@Value("${metasfresh.webui.mail.sendQueue.retryMaxDelayMillis:600000}") final long retryMaxDelayMillis)
+	{
+		Check.assumeGreaterThanZero(maxAttempts, "maxAttempts");
+
+		this.transport = transport;
+		this.websocketSender = websocketSender;
+		this.eventPublisher = eventPublisher;
+
+		// NOTE: not using the temp directory by default, because it might be cleaned up on restart and the pending emails would be lost
+		directory = !Check.isEmpty(directoryPath, true)
+				? new File(directoryPath.trim())
+				: new File(System.getProperty("user.home"), DEFAULT_DIRECTORY_NAME);
+		failedDirectory = new File(directory, "failed");
+		this.maxAttempts = maxAttempts;
+		retryInitialDelay = Duration.ofMillis(Math.max(retryInitialDelayMillis, 0));
+		retryMaxDelay = Duration.ofMillis(Math.max(retryMaxDelayMillis, retryInitialDelayMillis));
+
+		executor = Executors.newScheduledThreadPool(Math.max(workers, 1), CustomizableThreadFactory.builder()
+				.setThreadNamePrefix(getClass().getName())
+				.setDaemon(true)
+				.build());
+	}
+
+	@PostConstruct
+	@VisibleForTesting
+	void resumePendingEmails()
+	{
+		deleteExpiredFailedFilesNoFail();
+
+		final File[] files = directory.listFiles((dir, name) -> name.endsWith(FILE_EXTENSION));
+		if (files == null || files.length == 0)
+		{
+			return;
+		}
+
+		logger.info("Resuming {} pending emails from {}", files.length, directory);
+		for (final File file : files)
+		{
+			try
+			{
+				final WebuiEmailSendRequest request = jsonObjectMapper.readValue(file, WebuiEmailSendRequest.class);
+				final Properties ctx = createContext(request);
+				executor.execute(() -> trySend(request, ctx));
+			}
+			catch (final Exception ex)
+			{
+				logger.warn("Failed reading pending email from {}. Moving it to {}", file, failedDirectory, ex);
+				moveToFailedDirectoryNoFail(file);
+			}
+		}
+	}
+
+	@PreDestroy
+	@VisibleForTesting
+	void shutdown()
+	{
+		// NOTE: the pending emails are kept in our directory, so they will be resumed on next start
+		executor.shutdownNow();
+	}
+
+	public static String newRequestId()
+	{
+		return UUID.randomUUID().toString();
+	}
+
+	/**
+	 * Persists the request and schedules it to be sent as soon as possible.
+	 */
+	public JSONEmailSendStatus enqueue(@NonNull final WebuiEmailSendRequest request)
+	{
+		final Properties ctx = Env.copyCtx(Env.getCtx());
+		final WebuiEmailSendRequest requestWithContext = request.toBuilder()
+				.orgId(Env.getAD_Org_ID(ctx))
+				.roleId(Env.getAD_Role_ID(ctx))
+				.adLanguage(Env.getAD_Language(ctx))
+				.build();
+		writeToFile(requestWithContext);
+
+		final JSONEmailSendStatus status = publishStatus(requestWithContext, JSONEmailSendStatus.Status.QUEUED, null);
+		executor.execute(() -> trySend(requestWithContext, ctx));
+		return status;
+	}
+
+	/**
+	 * @return the context of the user who enqueued the request
+	 */
+	@VisibleForTesting
+	static Properties createContext(final WebuiEmailSendRequest request)
+	{
+		final Properties ctx = new Properties();
+		Env.setContext(ctx, WebRestApiContextProvider.CTXNAME_IsWebUI, true);
+		Env.setContext(ctx, Env.CTXNAME_AD_Client_ID, request.getClientId());
+		Env.setContext(ctx, Env.CTXNAME_AD_Org_ID, request.getOrgId());
+		Env.setContext(ctx, Env.CTXNAME_AD_Role_ID, request.getRoleId());
+		Env.setContext(ctx, Env.CTXNAME_AD_User_ID, request.getOwnerUserId());
+		if (request.getAdLanguage() != null)
+		{
+			Env.setContext(ctx, Env.CTXNAME_AD_Language, request.getAdLanguage());
+		}
+		return ctx;
+	}
+
+	private void trySend(final WebuiEmailSendRequest request, final Properties ctx)
+	{
+		try (final IAutoCloseable c = Env.switchContext(ctx))
+		{
+			transport.send(request);
+		}
+		catch (final Exception ex)
+		{
+			onSendFailed(request, ctx, ex);
+			return;
+		}
+
+		deleteFileNoFail(request);
+		publishStatus(request, JSONEmailSendStatus.Status.SENT, null);
+		publishSendFinishedNoFail(WebuiEmailSendFinishedEvent.sent(request));
+		logger.debug("Sent {}", request);
+	}
+
+	private void onSendFailed(final WebuiEmailSendRequest request, final Properties ctx, final Exception ex)
+	{
+		final String errorMsg = AdempiereException.extractMessage(ex);
+		final WebuiEmailSendRequest failedRequest = request.withFailedAttempt(errorMsg);
+
+		if (failedRequest.getAttempts() >= maxAttempts)
+		{
+			logger.warn("Failed sending {}. Giving up after {} attempts.", failedRequest, failedRequest.getAttempts(), ex);
+			publishStatus(failedRequest, JSONEmailSendStatus.Status.FAILED, null);
+			publishSendFinishedNoFail(WebuiEmailSendFinishedEvent.failed(failedRequest));
+			deleteFileNoFail(failedRequest);
+		}
+		else
+		{
+			final Duration delay = computeRetryDelay(failedRequest.getAttempts());
+			logger.info("Failed sending {}. Retrying in {}", failedRequest, delay, ex);
+			writeToFile(failedRequest);
+			executor.schedule(() -> trySend(failedRequest, ctx), delay.toMillis(), TimeUnit.MILLISECONDS);
+			publishStatus(failedRequest, JSONEmailSendStatus.Status.RETRYING, Instant.now().plus(delay));
+		}
+	}
+
+	/**
+	 * @return the delay before next attempt: the initial delay, doubled after each failed attempt, but not more than the max delay
+	 */
+	@VisibleForTesting
+	Duration computeRetryDelay(final int failedAttempts)
+	{
+		final int exponent = Math.min(Math.max(failedAttempts - 1, 0), 30);
+		final long delayMillis = retryInitialDelay.toMillis() << exponent;
+		if (delayMillis < 0 || delayMillis > retryMaxDelay.toMillis())
+		{
+			return retryMaxDelay;
+		}
+		return Duration.ofMillis(delayMillis);
+	}
+
+	private JSONEmailSendStatus publishStatus(
+			final WebuiEmailSendRequest request,
+			final JSONEmailSendStatus.Status status,
+			@Nullable final Instant nextAttemptTimestamp)
+	{
+		final String websocketEndpoint = WebSocketConfig.buildMailTopicName(UserId.ofRepoId(request.getOwnerUserId()));
+		final JSONEmailSendStatus event = JSONEmailSendStatus.builder()
+				.emailId(request.getEmailId())
+				.requestId(request.getRequestId())
+				.status(status)
+				.attempts(request.getAttempts())
+				.nextAttemptTimestamp(nextAttemptTimestamp)
+				.errorMessage(status == JSONEmailSendStatus.Status.RETRYING || status == JSONEmailSendStatus.Status.FAILED ? request.getLastErrorMsg() : null)
+				.websocketEndpoint(websocketEndpoint)
+				.build();
+
+		try
+		{
+			websocketSender.convertAndSend(websocketEndpoint, event);
+		}
+		catch (final Exception ex)
+		{
+			logger.warn("Failed publishing {}. Ignored.", event, ex);
+		}
+
+		return event;
+	}
+
+	private void publishSendFinishedNoFail(final WebuiEmailSendFinishedEvent event)
+	{
+		try
+		{
+			eventPublisher.publishEvent(event);
+		}
+		catch (final Exception ex)
+		{
+			logger.warn("Failed publishing {}. Ignored.", event, ex);
+		}
+	}
+
+	private File getFile(final WebuiEmailSendRequest request)
+	{
+		return new File(directory, request.getRequestId() + FILE_EXTENSION);
+	}
+
+	private void writeToFile(final WebuiEmailSendRequest request)
+	{
+		final File file = getFile(request);
+		try
+		{
+			Files.createDirectories(directory.toPath());
+
+			final File tempFile = new File(directory, request.getRequestId() + ".tmp");
+			jsonObjectMapper.writeValue(tempFile, request);
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (final IOException ex)
+		{
+			throw new AdempiereException("Failed writing the email to " + file, ex);
+		}
+	}
+
+	private void deleteFileNoFail(final WebuiEmailSendRequest request)
+	{
+		final File file = getFile(request);
+		try
+		{
+			Files.deleteIfExists(file.toPath());
+		}
+		catch (final IOException ex)
+		{
+			logger.warn("Failed deleting {}. The email might be sent again on next start.", file, ex);
+		}
+	}
+
+	private void moveToFailedDirectoryNoFail(final File file)
+	{
+		try
+		{
+			Files.createDirectories(failedDirectory.toPath());
+			Files.move(file.toPath(), new File(failedDirectory, file.getName()).toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (final IOException ex)
+		{
+			logger.warn("Failed moving {} to {}", file, failedDirectory, ex);
+		}
+	}
+
+	private void deleteExpiredFailedFilesNoFail()
+	{
+		final File[] files = failedDirectory.listFiles();
+		if (files == null)
+		{
+			return;
+		}
+
+		final long expiredBeforeMillis = System.currentTimeMillis() - FAILED_FILES_RETENTION.toMillis();
+		for (final File file : files)
+		{
+			if (file.lastModified() < expiredBeforeMillis && !file.delete())
+			{
+				logger.warn("Failed deleting expired {}", file);
+			}
+		}
+	}
+
+	/**
+	 * Published when an email was sent or when the last attempt to send it failed.
+	 */
+	@lombok.Value
+	public static class WebuiEmailSendFinishedEvent
+	{
+		public static WebuiEmailSendFinishedEvent sent(@NonNull final WebuiEmailSendRequest request)
+		{
+			return new WebuiEmailSendFinishedEvent(request, true);
+		}
+
+		public static WebuiEmailSendFinishedEvent failed(@NonNull final WebuiEmailSendRequest request)
+		{
+			return new WebuiEmailSendFinishedEvent(request, false);
+		}
+
+		@NonNull
+		WebuiEmailSendRequest request;
+		boolean sent;
+	}
+}
@@ -0,0 +1,150 @@
+package de.metas.ui.web.mail;
+
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
+
+import de.metas.util.Check;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Singular;
+import lombok.Value;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Everything needed to send an email, so it can be persisted by {@link WebuiEmailSendQueue} and sent later.
+ * <p>
+ * The attachments are only referenced. Their content stays in {@link WebuiMailAttachmentsRepository} until the email was sent or finally failed.
+ */
+@JsonAutoDetect(fieldVisibility = Visibility.ANY, getterVisibility = Visibility.NONE, isGetterVisibility = Visibility.NONE, setterVisibility = Visibility.NONE)
+@Value
+public class WebuiEmailSendRequest
+{
+	@JsonProperty("requestId")
+	String requestId;
+	@JsonProperty("emailId")
+	String emailId;
+	@JsonProperty("ownerUserId")
+	int ownerUserId;
+
+	@JsonProperty("clientId")
+	int clientId;
+	/** organization of the user who sent the email; needed to restore the context when the email is sent after a restart */
+	@JsonProperty("orgId")
+	int orgId;
+	/** role of the user who sent the email; needed to restore the context when the email is sent after a restart */
+	@JsonProperty("roleId")
+	int roleId;
+	@JsonProperty("adLanguage")
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	String adLanguage;
+
+	@JsonProperty("fromUserId")
+	int fromUserId;
+	@JsonProperty("to")
+	List<String> to;
+	@JsonProperty("subject")
+	String subject;
+	@JsonProperty("message")
+	String message;
+	@JsonProperty("attachments")
+	List<Attachment> attachments;
+
+	@JsonProperty("attempts")
+	int attempts;
+	@JsonProperty("lastErrorMsg")
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	String lastErrorMsg;
+
+	@Builder(toBuilder = true)
+	@JsonCreator
+	private WebuiEmailSendRequest(
+			@JsonProperty("requestId") @NonNull final String requestId,
+			@JsonProperty("emailId") @NonNull final String emailId,
+			@JsonProperty("ownerUserId") final int ownerUserId,
+			@JsonProperty("clientId") final int clientId,
+			@JsonProperty("orgId") final int orgId,
+			@JsonProperty("roleId") final int roleId,
+			@JsonProperty("adLanguage") @Nullable final String adLanguage,
+			@JsonProperty("fromUserId") final int fromUserId,
+			@JsonProperty("to") @Singular("to") final List<String> to,
+			@JsonProperty("subject") final String subject,
+			@JsonProperty("message") final String message,
+			@JsonProperty("attachments") @Singular final List<Attachment> attachments,
+			@JsonProperty("attempts") final int attempts,
+			@JsonProperty("lastErrorMsg") @Nullable final String lastErrorMsg)
+	{
+		Check.assumeNotEmpty(to, "to is not empty");
+
+		this.requestId = requestId;
+		this.emailId = emailId;
+		this.ownerUserId = ownerUserId;
+		this.clientId = clientId;
+		this.orgId = orgId;
+		this.roleId = roleId;
+		this.adLanguage = adLanguage;
+		this.fromUserId = fromUserId;
+		this.to = ImmutableList.copyOf(to);
+		this.subject = subject;
+		this.message = message;
+		this.attachments = attachments != null ? ImmutableList.copyOf(attachments) : ImmutableList.of();
+		this.attempts = attempts;
+		this.lastErrorMsg = lastErrorMsg;
+	}
+
+	public WebuiEmailSendRequest withFailedAttempt(@NonNull final String errorMsg)
+	{
+		return toBuilder()
+				.attempts(attempts + 1)
+				.lastErrorMsg(errorMsg)
+				.build();
+	}
+
+	@JsonAutoDetect(fieldVisibility = Visibility.ANY, getterVisibility = Visibility.NONE, isGetterVisibility = Visibility.NONE, setterVisibility = Visibility.NONE)
+	@Value
+	public static class Attachment
+	{
+		@JsonProperty("attachmentId")
+		String attachmentId;
+		@JsonProperty("filename")
+		String filename;
+
+		@Builder
+		@JsonCreator
+		private Attachment(
+				@JsonProperty("attachmentId") @NonNull final String attachmentId,
+				@JsonProperty("filename") @NonNull final String filename)
+		{
+			this.attachmentId = attachmentId;
+			this.filename = filename;
+		}
+	}
+}
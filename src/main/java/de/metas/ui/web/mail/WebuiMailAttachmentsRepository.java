@@ -153,7 +153,18 @@ public class WebuiMailAttachmentsRepository implements InitializingBean
 
 	public byte[] getAttachmentAsByteArray(@NonNull final String emailId, @NonNull final LookupValue attachment)
 	{
-		final File attachmentFile = getAttachmentFile(emailId, attachment.getIdAsString());
+		return getAttachmentAsByteArray(emailId, attachment.getIdAsString());
+	}
+
+	public byte[] getAttachmentAsByteArray(@NonNull final String emailId, @NonNull final String attachmentId)
+	{
+		final File attachmentFile = getAttachmentFile(emailId, attachmentId);
+		if (!attachmentFile.exists())
+		{
+			throw new AdempiereException("Attachment file is missing")
+					.setParameter("emailId", emailId)
+					.setParameter("attachmentFile", attachmentFile);
+		}
 		return Util.readBytes(attachmentFile);
 	}
 
@@ -164,8 +175,11 @@ public class WebuiMailAttachmentsRepository implements InitializingBean
 
 	public void deleteAttachment(@NonNull final String emailId, @NonNull final LookupValue attachment)
 	{
-		final String attachmentId = attachment.getIdAsString();
+		deleteAttachment(emailId, attachment.getIdAsString());
+	}
 
+	public void deleteAttachment(@NonNull final String emailId, @NonNull final String attachmentId)
+	{
 		final File attachmentFile = getAttachmentFile(emailId, attachmentId);
 		if (!attachmentFile.exists())
 		{
@@ -2,6 +2,7 @@ package de.metas.ui.web.mail;
 
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 import java.util.function.UnaryOperator;
 
 import org.compiere.util.DisplayType;
@@ -123,6 +124,41 @@ public class WebuiMailRepository
 		emailsById.invalidate(emailId);
 	}
 
+	/**
+	 * Removes the email if it is still queued by the given send request.
+	 *
+	 * @return true if the email was removed; false if the email is no longer around (e.g. the server was restarted meanwhile)
+	 */
+	public boolean removeEmailIfQueued(@NonNull final String emailId, @NonNull final String sendRequestId)
+	{
+		final WebuiEmailEntry emailEntry = emailsById.getIfPresent(emailId);
+		if (emailEntry == null || !sendRequestId.equals(emailEntry.getEmail().getSendRequestId()))
+		{
+			return false;
+		}
+
+		emailsById.invalidate(emailId);
+		return true;
+	}
+
+	/**
+	 * Makes the email editable again and keeps the error on it, so the user can see it, fix the email and send it again.
+	 *
+	 * @return true if the email was updated; false if the email is no longer around (e.g. the server was restarted meanwhile)
+	 */
+	public boolean markEmailSendFailed(@NonNull final String emailId, @NonNull final String sendRequestId, final String errorMsg)
+	{
+		final WebuiEmailEntry emailEntry = emailsById.getIfPresent(emailId);
+		if (emailEntry == null)
+		{
+			return false;
+		}
+
+		return emailEntry.computeIf(
+				email -> sendRequestId.equals(email.getSendRequestId()),
+				email -> email.toBuilder().sendRequestId(null).sendErrorMsg(errorMsg).build());
+	}
+
 	/**
 	 * Called when the email was removed from our internal cache.
 	 *
@@ -174,6 +210,17 @@ public class WebuiMailRepository
 			email = emailNew;
 			return WebuiEmailChangeResult.builder().email(emailNew).originalEmail(emailOld).build();
 		}
+
+		public synchronized boolean computeIf(final Predicate<WebuiEmail> condition, final UnaryOperator<WebuiEmail> modifier)
+		{
+			if (!condition.test(email))
+			{
+				return false;
+			}
+
+			compute(modifier);
+			return true;
+		}
 	}
 
 	@Value
@@ -4,6 +4,7 @@ import java.util.List;
 
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.google.common.collect.ImmutableList;
 
 import de.metas.ui.web.mail.WebuiEmail;
@@ -48,6 +49,10 @@ public class JSONEmail
 	private final String subject;
 	private final String message;
 	private final List<JSONLookupValue> attachments;
+	/** true while the email is being sent; it cannot be changed meanwhile */
+	private final boolean queued;
+	@JsonInclude(JsonInclude.Include.NON_EMPTY)
+	private final String sendErrorMsg;
 
 	private JSONEmail(@NonNull final WebuiEmail email, @NonNull final String adLanguage)
 	{
@@ -63,5 +68,7 @@ public class JSONEmail
 				.stream()
 				.map(lookupValue -> JSONLookupValue.ofLookupValue(lookupValue, adLanguage))
 				.collect(ImmutableList.toImmutableList());
+		queued = email.isQueued();
+		sendErrorMsg = email.getSendErrorMsg();
 	}
 }
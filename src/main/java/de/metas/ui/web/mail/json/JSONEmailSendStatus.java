@@ -0,0 +1,93 @@
+package de.metas.ui.web.mail.json;
+
+import java.time.Instant;
+
+import javax.annotation.Nullable;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import de.metas.ui.web.window.datatypes.json.DateTimeConverters;
+import de.metas.util.time.SystemTime;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Send status of an email, returned when the email is queued and then pushed on the owner's mail websocket topic on each change.
+ */
+@JsonAutoDetect(fieldVisibility = Visibility.ANY, getterVisibility = Visibility.NONE, isGetterVisibility = Visibility.NONE, setterVisibility = Visibility.NONE)
+@Value
+public class JSONEmailSendStatus
+{
+	public enum Status
+	{
+		QUEUED, RETRYING, SENT, FAILED
+	}
+
+	@JsonProperty("emailId")
+	String emailId;
+
+	@JsonProperty("requestId")
+	String requestId;
+
+	@JsonProperty("status")
+	Status status;
+
+	@JsonProperty("attempts")
+	int attempts;
+
+	@JsonProperty("nextAttemptTimestamp")
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	String nextAttemptTimestamp;
+
+	@JsonProperty("errorMessage")
+	@JsonInclude(JsonInclude.Include.NON_EMPTY)
+	String errorMessage;
+
+	@JsonProperty("websocketEndpoint")
+	String websocketEndpoint;
+
+	@Builder
+	private JSONEmailSendStatus(
+			@NonNull final String emailId,
+			@NonNull final String requestId,
+			@NonNull final Status status,
+			final int attempts,
+			@Nullable final Instant nextAttemptTimestamp,
+			@Nullable final String errorMessage,
+			@NonNull final String websocketEndpoint)
+	{
+		this.emailId = emailId;
+		this.requestId = requestId;
+		this.status = status;
+		this.attempts = attempts;
+		this.nextAttemptTimestamp = nextAttemptTimestamp != null ? DateTimeConverters.toJson(nextAttemptTimestamp, SystemTime.zoneId()) : null;
+		this.errorMessage = errorMessage;
+		this.websocketEndpoint = websocketEndpoint;
+	}
+}
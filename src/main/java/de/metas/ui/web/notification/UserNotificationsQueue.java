@@ -54,6 +54,7 @@ public class UserNotificationsQueue
 	private final Set<String> activeSessions = ConcurrentHashMap.newKeySet();
 
 	private final INotificationRepository notificationsRepo;
+	private final UserNotificationsUnreadCounters unreadCounters;
 
 	private final WebsocketSender websocketSender;
 	private final String websocketEndpoint;
@@ -63,11 +64,13 @@ public class UserNotificationsQueue
 			@NonNull final UserId userId,
 			@NonNull final JSONOptions jsonOptions,
 			@NonNull final INotificationRepository notificationsRepo,
+			@NonNull final UserNotificationsUnreadCounters unreadCounters,
 			@NonNull final WebsocketSender websocketSender)
 	{
 		this.userId = userId;
 		this.jsonOptions = jsonOptions;
 		this.notificationsRepo = notificationsRepo;
+		this.unreadCounters = unreadCounters;
 
 		this.websocketSender = websocketSender;
 		websocketEndpoint = WebSocketConfig.buildNotificationsTopicName(userId);
@@ -110,11 +113,12 @@ public class UserNotificationsQueue
 		{
 			totalCount = notifications.size();
 			unreadCount = (int)notifications.stream().filter(UserNotification::isNotRead).count();
+			unreadCounters.setUnreadCount(userId, unreadCount); // we have it fresh from database, so use it
 		}
 		else
 		{
 			totalCount = notificationsRepo.getTotalCountByUserId(userId);
-			unreadCount = notificationsRepo.getUnreadCountByUserId(userId);
+			unreadCount = getUnreadCount();
 		}
 
 		return UserNotificationsList.of(notifications, totalCount, unreadCount);
@@ -143,13 +147,22 @@ public class UserNotificationsQueue
 		final UserId adUserId = getUserId();
 		Check.assume(notification.getRecipientUserId() == adUserId.getRepoId(), "notification's recipient user ID shall be {}: {}", adUserId, notification);
 
+		if (notification.isNotRead())
+		{
+			unreadCounters.incrementUnreadCount(adUserId);
+		}
+
 		final JSONNotification jsonNotification = JSONNotification.of(notification, jsonOptions);
 		fireEventOnWebsocket(JSONNotificationEvent.eventNew(jsonNotification, getUnreadCount()));
 	}
 
 	public void markAsRead(final String notificationId)
 	{
-		notificationsRepo.markAsReadById(Integer.parseInt(notificationId));
+		final boolean markedAsRead = notificationsRepo.markAsReadById(Integer.parseInt(notificationId));
+		if (markedAsRead) // i.e. it was not already read
+		{
+			unreadCounters.decrementUnreadCount(getUserId());
+		}
 		fireEventOnWebsocket(JSONNotificationEvent.eventRead(notificationId, getUnreadCount()));
 	}
 
@@ -157,12 +170,13 @@ public class UserNotificationsQueue
 	{
 		logger.trace("Marking all notifications as read (if any) for {}...", this);
 		notificationsRepo.markAllAsReadByUserId(getUserId());
+		unreadCounters.setUnreadCount(getUserId(), 0);
 		fireEventOnWebsocket(JSONNotificationEvent.eventReadAll());
 	}
 
 	public int getUnreadCount()
 	{
-		return notificationsRepo.getUnreadCountByUserId(getUserId());
+		return unreadCounters.getUnreadCount(getUserId());
 	}
 
 	public void setLanguage(@NonNull final String adLanguage)
@@ -173,12 +187,14 @@ public class UserNotificationsQueue
 	public void delete(final String notificationId)
 	{
 		notificationsRepo.deleteById(Integer.parseInt(notificationId));
+		unreadCounters.invalidate(getUserId()); // we don't know if it was read or not
 		fireEventOnWebsocket(JSONNotificationEvent.eventDeleted(notificationId, getUnreadCount()));
 	}
 
 	public void deleteAll()
 	{
 		notificationsRepo.deleteAllByUserId(getUserId());
+		unreadCounters.setUnreadCount(getUserId(), 0);
 		fireEventOnWebsocket(JSONNotificationEvent.eventDeletedAll());
 	}
 
@@ -1,10 +1,18 @@
 package de.metas.ui.web.notification;
 
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.adempiere.util.concurrent.CustomizableThreadFactory;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
@@ -53,10 +61,57 @@ public class UserNotificationsService
 	@Autowired
 	private WebsocketSender websocketSender;
 
+	@Value("${metasfresh.webui.notifications.unreadCount.reconcileIntervalMinutes:10}")
+	private int unreadCountReconcileIntervalMinutes;
+
 	private final ConcurrentHashMap<UserId, UserNotificationsQueue> adUserId2notifications = new ConcurrentHashMap<>();
+	private final UserNotificationsUnreadCounters unreadCounters = new UserNotificationsUnreadCounters(userId -> Services.get(INotificationRepository.class).getUnreadCountByUserId(userId));
+	private ScheduledExecutorService unreadCountersReconcileExecutor;
 
 	private final AtomicBoolean subscribedToEventBus = new AtomicBoolean(false);
 
+	@PostConstruct
+	private void startUnreadCountersReconcile()
+	{
+		if (unreadCountReconcileIntervalMinutes <= 0)
+		{
+			logger.info("Unread notification counters reconcile is disabled");
+			return;
+		}
+
+		unreadCountersReconcileExecutor = Executors.newSingleThreadScheduledExecutor(CustomizableThreadFactory.builder()
+				.setThreadNamePrefix(UserNotificationsUnreadCounters.class.getName())
+				.setDaemon(true)
+				.build());
+		unreadCountersReconcileExecutor.scheduleWithFixedDelay(
+				this::reconcileUnreadCountersNoFail,
+				unreadCountReconcileIntervalMinutes,
+				unreadCountReconcileIntervalMinutes,
+				TimeUnit.MINUTES);
+	}
+
+	@PreDestroy
+	private void stopUnreadCountersReconcile()
+	{
+		if (unreadCountersReconcileExecutor != null)
+		{
+			unreadCountersReconcileExecutor.shutdownNow();
+		}
+	}
+
+	private void reconcileUnreadCountersNoFail()
+	{
+		try
+		{
+			final int correctedCount = unreadCounters.reconcile();
+			logger.debug("Reconciled unread notification counters: {} corrected", correctedCount);
+		}
+		catch (final Exception ex)
+		{
+			logger.warn("Failed reconciling unread notification counters. Ignored.", ex);
+		}
+	}
+
 	@EventListener
 	private void onUserLanguageChanged(final LanguagedChangedEvent event)
 	{
@@ -88,6 +143,7 @@ public class UserNotificationsService
 				.userId(adUserId)
 				.jsonOptions(jsonOptions)
 				.notificationsRepo(Services.get(INotificationRepository.class))
+				.unreadCounters(unreadCounters)
 				.websocketSender(websocketSender)
 				.build());
 
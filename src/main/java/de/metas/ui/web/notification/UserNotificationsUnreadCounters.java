@@ -0,0 +1,121 @@
+package de.metas.ui.web.notification;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
+
+import de.metas.user.UserId;
+import lombok.NonNull;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * In-memory unread notifications counters, one per user.
+ * <p>
+ * A counter is loaded from database on first request and then updated incrementally, so asking for the unread count does not hit the database in steady state.
+ * Because changes done by other nodes are not seen, {@link #reconcile()} shall be called periodically.
+ */
+final class UserNotificationsUnreadCounters
+{
+	private static final int UNKNOWN = -1;
+
+	private final ToIntFunction<UserId> unreadCountLoader;
+	private final ConcurrentHashMap<UserId, AtomicInteger> counters = new ConcurrentHashMap<>();
+
+	UserNotificationsUnreadCounters(@NonNull final ToIntFunction<UserId> unreadCountLoader)
+	{
+		this.unreadCountLoader = unreadCountLoader;
+	}
+
+	private AtomicInteger getCounter(@NonNull final UserId userId)
+	{
+		return counters.computeIfAbsent(userId, k -> new AtomicInteger(UNKNOWN));
+	}
+
+	public int getUnreadCount(@NonNull final UserId userId)
+	{
+		final AtomicInteger counter = getCounter(userId);
+		final int count = counter.get();
+		if (count != UNKNOWN)
+		{
+			return count;
+		}
+
+		// NOTE: increments which are happening while loading are lost, but that's fixed by next reconcile
+		final int loadedCount = unreadCountLoader.applyAsInt(userId);
+		counter.compareAndSet(UNKNOWN, loadedCount);
+		return loadedCount;
+	}
+
+	public void incrementUnreadCount(@NonNull final UserId userId)
+	{
+		getCounter(userId).updateAndGet(count -> count != UNKNOWN ? count + 1 : UNKNOWN);
+	}
+
+	public void decrementUnreadCount(@NonNull final UserId userId)
+	{
+		getCounter(userId).updateAndGet(count -> count != UNKNOWN ? Math.max(count - 1, 0) : UNKNOWN);
+	}
+
+	public void setUnreadCount(@NonNull final UserId userId, final int unreadCount)
+	{
+		getCounter(userId).set(Math.max(unreadCount, 0));
+	}
+
+	/**
+	 * Forgets the counter, so it will be loaded from database on next request.
+	 */
+	public void invalidate(@NonNull final UserId userId)
+	{
+		getCounter(userId).set(UNKNOWN);
+	}
+
+	/**
+	 * Reloads all loaded counters from database.
+	 * Counters which are changed meanwhile are skipped, they will be checked on next reconcile.
+	 *
+	 * @return how many counters were corrected
+	 */
+	public int reconcile()
+	{
+		int correctedCount = 0;
+		for (final Map.Entry<UserId, AtomicInteger> entry : counters.entrySet())
+		{
+			final AtomicInteger counter = entry.getValue();
+			final int count = counter.get();
+			if (count == UNKNOWN)
+			{
+				continue;
+			}
+
+			final int loadedCount = unreadCountLoader.applyAsInt(entry.getKey());
+			if (loadedCount != count && counter.compareAndSet(count, loadedCount))
+			{
+				correctedCount++;
+			}
+		}
+
+		return correctedCount;
+	}
+}
@@ -0,0 +1,101 @@
+package de.metas.ui.web.pattribute;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+
+import javax.annotation.Nullable;
+
+import org.adempiere.mm.attributes.AttributeId;
+import org.compiere.model.I_M_AttributeInstance;
+
+import de.metas.ui.web.window.datatypes.LookupValue.StringLookupValue;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Immutable snapshot of an {@link I_M_AttributeInstance}'s values, so it can be cached and shared.
+ */
+@Value
+@Builder
+class ASIAttributeInstance
+{
+	/**
+	 * @param valueName name of the record's M_AttributeValue (if any) or null if not known
+	 */
+	public static ASIAttributeInstance of(
+			@NonNull final I_M_AttributeInstance record,
+			@Nullable final String valueName)
+	{
+		final Timestamp valueDate = record.getValueDate();
+		return builder()
+				.attributeId(AttributeId.ofRepoId(record.getM_Attribute_ID()))
+				.value(record.getValue())
+				.valueName(valueName)
+				.valueNumber(record.getValueNumber())
+				.valueDate(valueDate != null ? valueDate.toInstant() : null)
+				.build();
+	}
+
+	@NonNull
+	AttributeId attributeId;
+
+	@Nullable
+	String value;
+
+	/** name of the list value, if the attribute is a list attribute */
+	@Nullable
+	String valueName;
+
+	@Nullable
+	BigDecimal valueNumber;
+
+	@Nullable
+	Instant valueDate;
+
+	/**
+	 * @return the list value as lookup value if it's name is known, else the value (i.e. the key), which will be resolved by the field's lookup
+	 */
+	@Nullable
+	public Object getListValue()
+	{
+		if (value == null)
+		{
+			return null;
+		}
+
+		return valueName != null
+				? StringLookupValue.of(value, valueName)
+				: value;
+	}
+
+	/** @return a new timestamp instance on each call, so the caller can't alter this snapshot */
+	@Nullable
+	public Timestamp getValueDateAsTimestamp()
+	{
+		return valueDate != null ? Timestamp.from(valueDate) : null;
+	}
+}
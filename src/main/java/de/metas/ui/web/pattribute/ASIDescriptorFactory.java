@@ -159,7 +159,7 @@ public class ASIDescriptorFactory
 
 		final Class<?> valueClass;
 		final DocumentFieldWidgetType widgetType;
-		final Function<I_M_AttributeInstance, Object> readMethod;
+		final Function<ASIAttributeInstance, Object> readMethod;
 		final BiConsumer<I_M_AttributeInstance, IDocumentFieldView> writeMethod;
 		LookupDescriptor lookupDescriptor = null;
 
@@ -167,14 +167,14 @@ public class ASIDescriptorFactory
 		{
 			valueClass = java.util.Date.class;
 			widgetType = DocumentFieldWidgetType.LocalDate;
-			readMethod = I_M_AttributeInstance::getValueDate;
+			readMethod = ASIAttributeInstance::getValueDateAsTimestamp;
 			writeMethod = (aiRecord, field) -> aiRecord.setValueDate(TimeUtil.asTimestamp(field.getValueAs(java.util.Date.class)));
 		}
 		else if (X_M_Attribute.ATTRIBUTEVALUETYPE_List.equals(attributeValueType))
 		{
 			valueClass = StringLookupValue.class;
 			widgetType = DocumentFieldWidgetType.List;
-			readMethod = I_M_AttributeInstance::getValue;
+			readMethod = ASIAttributeInstance::getListValue; // the value names were bulk loaded together with the attribute instances
 			writeMethod = ASIAttributeFieldBinding::writeValueFromLookup;
 
 			lookupDescriptor = getLookupDescriptor(attribute);
@@ -193,7 +193,7 @@ public class ASIDescriptorFactory
 			{
 				valueClass = BigDecimal.class;
 				widgetType = DocumentFieldWidgetType.Number;
-				readMethod = I_M_AttributeInstance::getValueNumber;
+				readMethod = ASIAttributeInstance::getValueNumber;
 				writeMethod = (aiRecord, field) -> aiRecord.setValueNumber(field.getValueAs(BigDecimal.class));
 			}
 		}
@@ -201,7 +201,7 @@ public class ASIDescriptorFactory
 		{
 			valueClass = String.class;
 			widgetType = DocumentFieldWidgetType.Text;
-			readMethod = I_M_AttributeInstance::getValue;
+			readMethod = ASIAttributeInstance::getValue;
 			writeMethod = (aiRecord, field) -> aiRecord.setValue(field.getValueAs(String.class));
 		}
 		else
@@ -293,13 +293,13 @@ public class ASIDescriptorFactory
 		private final int attributeId;
 		private final String attributeName;
 		private final boolean mandatory;
-		private final Function<I_M_AttributeInstance, Object> readMethod;
+		private final Function<ASIAttributeInstance, Object> readMethod;
 		private final BiConsumer<I_M_AttributeInstance, IDocumentFieldView> writeMethod;
 
 		private ASIAttributeFieldBinding( //
 				final int attributeId, final String attributeName //
 				, final boolean mandatory //
-				, final Function<I_M_AttributeInstance, Object> readMethod //
+				, final Function<ASIAttributeInstance, Object> readMethod //
 				, final BiConsumer<I_M_AttributeInstance, IDocumentFieldView> writeMethod //
 		)
 		{
@@ -330,7 +330,7 @@ public class ASIDescriptorFactory
 			return mandatory;
 		}
 
-		public Object readValue(final I_M_AttributeInstance ai)
+		Object readValue(final ASIAttributeInstance ai)
 		{
 			return readMethod.apply(ai);
 		}
@@ -1,23 +1,37 @@
 package de.metas.ui.web.pattribute;
 
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
+import org.adempiere.ad.dao.IQueryBL;
 import org.adempiere.ad.trx.api.ITrxManager;
 import org.adempiere.mm.attributes.AttributeSetInstanceId;
 import org.adempiere.mm.attributes.api.IAttributeDAO;
 import org.adempiere.util.lang.IAutoCloseable;
 import org.compiere.model.I_M_Attribute;
 import org.compiere.model.I_M_AttributeInstance;
+import org.compiere.model.I_M_AttributeValue;
 import org.slf4j.Logger;
 import org.springframework.stereotype.Repository;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Multimaps;
 
 import de.metas.cache.CCache;
+import de.metas.cache.CCache.CacheMapType;
+import de.metas.cache.CCache.CCacheStats;
 import de.metas.logging.LogManager;
+import de.metas.ui.web.cache.HeapBudgetCacheSize;
 import de.metas.ui.web.exceptions.EntityNotFoundException;
 import de.metas.ui.web.pattribute.ASIDescriptorFactory.ASIAttributeFieldBinding;
 import de.metas.ui.web.window.datatypes.DocumentId;
@@ -60,10 +74,37 @@ public class ASIRepository
 	private static final Logger logger = LogManager.getLogger(ASIRepository.class);
 	private final ITrxManager trxManager = Services.get(ITrxManager.class);
 	private final IAttributeDAO attributesRepo = Services.get(IAttributeDAO.class);
+
+	private final IQueryBL queryBL = Services.get(IQueryBL.class);
 	private final ASIDescriptorFactory descriptorsFactory;
 
+	private static final HeapBudgetCacheSize CACHESIZE_ASIDocuments = HeapBudgetCacheSize.builder()
+			.sysConfigName("webui.ASIRepository.ASIDocuments.CacheSize")
+			.estimatedEntrySizeBytes(8 * 1024) // one ASI document, including its fields
+			.heapPercent(1)
+			.minSize(500)
+			.maxSize(10000)
+			.build();
+
+	private static final HeapBudgetCacheSize CACHESIZE_AttributeInstances = HeapBudgetCacheSize.builder()
+			.sysConfigName("webui.ASIRepository.AttributeInstances.CacheSize")
+			.estimatedEntrySizeBytes(4 * 1024) // the attribute instances of one ASI
+			.heapPercent(1)
+			.minSize(1000)
+			.maxSize(50000)
+			.build();
+
 	private final Supplier<DocumentId> nextASIDocId = DocumentId.supplier("N", 1);
-	private final CCache<DocumentId, ASIDocument> id2asiDoc = CCache.newLRUCache("ASIDocuments", 500, 0);
+	private final CCache<DocumentId, ASIDocument> id2asiDoc = CCache.newLRUCache("ASIDocuments", CACHESIZE_ASIDocuments.get(), 0);
+
+	/** Attribute instances by ASI, as immutable snapshots because they are shared */
+	private final CCache<AttributeSetInstanceId, ImmutableList<ASIAttributeInstance>> attributeInstancesByAsiId = CCache.<AttributeSetInstanceId, ImmutableList<ASIAttributeInstance>> builder()
+			.cacheName(I_M_AttributeInstance.Table_Name + "#by#" + I_M_AttributeInstance.COLUMNNAME_M_AttributeSetInstance_ID)
+			.tableName(I_M_AttributeInstance.Table_Name)
+			.additionalTableNameToResetFor(I_M_AttributeValue.Table_Name) // the list value names
+			.cacheMapType(CacheMapType.LRU)
+			.initialCapacity(CACHESIZE_AttributeInstances.get())
+			.build();
 
 	public ASIRepository(
 			@NonNull final ASIDescriptorFactory descriptorsFactory)
@@ -148,9 +189,9 @@ public class ASIRepository
 		}
 
 		final HashMap<String, Object> valuesMap = new HashMap<>();
-		for (final I_M_AttributeInstance fromAI : attributesRepo.retrieveAttributeInstances(asiId))
+		for (final ASIAttributeInstance fromAI : getAttributeInstances(asiId))
 		{
-			final I_M_Attribute attribute = attributesRepo.getAttributeById(fromAI.getM_Attribute_ID());
+			final I_M_Attribute attribute = attributesRepo.getAttributeById(fromAI.getAttributeId().getRepoId());
 			final String fieldName = attribute.getValue();
 			final DocumentFieldDescriptor fieldDescriptor = descriptor.getFieldOrNull(fieldName);
 
@@ -172,6 +213,101 @@ public class ASIRepository
 		return valuesMap;
 	}
 
+	@VisibleForTesting
+	ImmutableList<ASIAttributeInstance> getAttributeInstances(@NonNull final AttributeSetInstanceId asiId)
+	{
+		return attributeInstancesByAsiId.getOrLoad(asiId, () -> toASIAttributeInstances(attributesRepo.retrieveAttributeInstances(asiId)));
+	}
+
+	private ImmutableList<ASIAttributeInstance> toASIAttributeInstances(@NonNull final List<I_M_AttributeInstance> records)
+	{
+		return toASIAttributeInstances(records, retrieveAttributeValueNames(records));
+	}
+
+	private static ImmutableList<ASIAttributeInstance> toASIAttributeInstances(
+			@NonNull final List<I_M_AttributeInstance> records,
+			@NonNull final ImmutableMap<Integer, String> valueNamesById)
+	{
+		return records.stream()
+				.map(record -> ASIAttributeInstance.of(record, valueNamesById.get(record.getM_AttributeValue_ID())))
+				.collect(ImmutableList.toImmutableList());
+	}
+
+	/**
+	 * @return names of the list values referenced by given records, loaded using one single query
+	 */
+	private ImmutableMap<Integer, String> retrieveAttributeValueNames(@NonNull final List<I_M_AttributeInstance> records)
+	{
+		final ImmutableSet<Integer> attributeValueIds = records.stream()
+				.map(I_M_AttributeInstance::getM_AttributeValue_ID)
+				.filter(attributeValueId -> attributeValueId > 0)
+				.collect(ImmutableSet.toImmutableSet());
+		if (attributeValueIds.isEmpty())
+		{
+			return ImmutableMap.of();
+		}
+
+		return queryBL.createQueryBuilderOutOfTrx(I_M_AttributeValue.class)
+				.addInArrayFilter(I_M_AttributeValue.COLUMNNAME_M_AttributeValue_ID, attributeValueIds)
+				.create()
+				.stream()
+				.filter(attributeValue -> attributeValue.getName() != null)
+				.collect(ImmutableMap.toImmutableMap(I_M_AttributeValue::getM_AttributeValue_ID, I_M_AttributeValue::getName));
+	}
+
+	/**
+	 * Loads the attribute instances of all given ASIs which are not already cached, using one single query (and one more for the names of their list values).
+	 * <p>
+	 * Call it before loading the ASI documents of many rows (e.g. when loading a view), in order to avoid one query per ASI.
+	 */
+	public void warmUpAttributeInstances(@NonNull final Collection<AttributeSetInstanceId> asiIds)
+	{
+		final Set<AttributeSetInstanceId> asiIdsToLoad = new HashSet<>();
+		for (final AttributeSetInstanceId asiId : asiIds)
+		{
+			if (asiId.isRegular() && attributeInstancesByAsiId.get(asiId) == null)
+			{
+				asiIdsToLoad.add(asiId);
+			}
+		}
+		if (asiIdsToLoad.isEmpty())
+		{
+			return;
+		}
+
+		final List<I_M_AttributeInstance> records = queryBL
+				.createQueryBuilderOutOfTrx(I_M_AttributeInstance.class)
+				.addInArrayFilter(I_M_AttributeInstance.COLUMNNAME_M_AttributeSetInstance_ID, extractRepoIds(asiIdsToLoad))
+				.addOnlyActiveRecordsFilter()
+				.orderBy(I_M_AttributeInstance.COLUMNNAME_M_AttributeSetInstance_ID)
+				.orderBy(I_M_AttributeInstance.COLUMNNAME_M_Attribute_ID)
+				.create()
+				.list();
+		final ImmutableListMultimap<AttributeSetInstanceId, I_M_AttributeInstance> recordsByAsiId = Multimaps.index(
+				records,
+				record -> AttributeSetInstanceId.ofRepoId(record.getM_AttributeSetInstance_ID()));
+		final ImmutableMap<Integer, String> valueNamesById = retrieveAttributeValueNames(records);
+
+		// NOTE: also the ASIs without any attribute instance are cached, so we won't query them again
+		for (final AttributeSetInstanceId asiId : asiIdsToLoad)
+		{
+			attributeInstancesByAsiId.put(asiId, toASIAttributeInstances(recordsByAsiId.get(asiId), valueNamesById));
+		}
+		logger.trace("Loaded attribute instances for {} ASIs using one query", asiIdsToLoad.size());
+	}
+
+	private static ImmutableSet<Integer> extractRepoIds(final Collection<AttributeSetInstanceId> asiIds)
+	{
+		return asiIds.stream()
+				.map(AttributeSetInstanceId::getRepoId)
+				.collect(ImmutableSet.toImmutableSet());
+	}
+
+	public ImmutableList<CCacheStats> getCacheStats()
+	{
+		return ImmutableList.of(id2asiDoc.stats(), attributeInstancesByAsiId.stats());
+	}
+
 	private ASIDocument getASIDocumentNoLock(final DocumentId asiDocId)
 	{
 		final ASIDocument asiDoc = id2asiDoc.get(asiDocId);
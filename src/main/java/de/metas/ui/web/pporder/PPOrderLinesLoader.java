@@ -7,6 +7,7 @@ import java.util.function.Function;
 
 import javax.annotation.Nullable;
 
+import org.adempiere.mm.attributes.AttributeSetInstanceId;
 import org.adempiere.model.InterfaceWrapperHelper;
 import org.adempiere.warehouse.WarehouseId;
 import org.compiere.model.I_C_DocType;
@@ -125,6 +126,9 @@ class PPOrderLinesLoader
 		final ListMultimap<Integer, I_PP_Order_Qty> ppOrderQtysByBOMLineId = ppOrderQtyDAO.streamOrderQtys(ppOrderId)
 				.collect(GuavaCollectors.toImmutableListMultimap(ppOrderQty -> CoalesceUtil.firstGreaterThanZero(ppOrderQty.getPP_Order_BOMLine_ID(), mainProductBOMLineId)));
 
+		final List<I_PP_Order_BOMLine> ppOrderBOMLines = ppOrderBOMDAO.retrieveOrderBOMLines(ppOrderId, I_PP_Order_BOMLine.class);
+		warmUpASIs(ppOrder, ppOrderBOMLines);
+
 		final ImmutableList.Builder<PPOrderLineRow> records = ImmutableList.builder();
 
 		// Main product
@@ -132,7 +136,7 @@ class PPOrderLinesLoader
 		records.add(rowForMainProduct);
 
 		// BOM lines
-		final List<PPOrderLineRow> bomLineRows = createRowsForBomLines(ppOrder, ppOrderQtysByBOMLineId);
+		final List<PPOrderLineRow> bomLineRows = createRowsForBomLines(ppOrder, ppOrderBOMLines, ppOrderQtysByBOMLineId);
 		records.addAll(bomLineRows);
 
 		// Source HUs
@@ -151,8 +155,28 @@ class PPOrderLinesLoader
 		return readonly;
 	}
 
+	/**
+	 * Loads the attribute instances of all ASIs which will be displayed, using one query instead of one query per row.
+	 */
+	private void warmUpASIs(
+			@NonNull final I_PP_Order ppOrder,
+			@NonNull final List<I_PP_Order_BOMLine> ppOrderBOMLines)
+	{
+		if (asiAttributesProvider == null)
+		{
+			return;
+		}
+
+		final ImmutableSet.Builder<AttributeSetInstanceId> asiIds = ImmutableSet.builder();
+		asiIds.add(AttributeSetInstanceId.ofRepoIdOrNone(ppOrder.getM_AttributeSetInstance_ID()));
+		ppOrderBOMLines.forEach(ppOrderBOMLine -> asiIds.add(AttributeSetInstanceId.ofRepoIdOrNone(ppOrderBOMLine.getM_AttributeSetInstance_ID())));
+
+		asiAttributesProvider.warmUp(asiIds.build());
+	}
+
 	private List<PPOrderLineRow> createRowsForBomLines(
 			@NonNull final I_PP_Order ppOrder,
+			@NonNull final List<I_PP_Order_BOMLine> ppOrderBOMLines,
 			@NonNull final ListMultimap<Integer, I_PP_Order_Qty> ppOrderQtysByBOMLineId)
 	{
 		final Comparator<PPOrderLineRow> ppOrderBomLineRowSorter = //
@@ -165,8 +189,7 @@ class PPOrderLinesLoader
 						isReadOnly(ppOrder),
 						ppOrderQtysByBOMLineId.get(ppOrderBOMLine.getPP_Order_BOMLine_ID()));
 
-		final PPOrderId ppOrderId = PPOrderId.ofRepoId(ppOrder.getPP_Order_ID());
-		final ImmutableList<PPOrderLineRow> bomLineRows = ppOrderBOMDAO.retrieveOrderBOMLines(ppOrderId, I_PP_Order_BOMLine.class)
+		final ImmutableList<PPOrderLineRow> bomLineRows = ppOrderBOMLines
 				.stream()
 				.map(ppOrderBomLineRowCreator)
 				.sorted(ppOrderBomLineRowSorter)
@@ -1,5 +1,6 @@
 package de.metas.ui.web.view;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -68,6 +69,14 @@ public class ASIViewRowAttributesProvider implements IViewRowAttributesProvider
 		return new ASIViewRowAttributes(asiDoc, asiLayout);
 	}
 
+	/**
+	 * Bulk loads the attribute instances of given ASIs, so the rows attributes, which are created lazily, won't need one query per ASI.
+	 */
+	public void warmUp(@NonNull final Collection<AttributeSetInstanceId> asiIds)
+	{
+		asiRepository.warmUpAttributeInstances(asiIds);
+	}
+
 	@Override
 	public void invalidateAll()
 	{
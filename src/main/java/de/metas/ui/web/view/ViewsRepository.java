@@ -13,6 +13,7 @@ import org.adempiere.ad.trx.api.ITrx;
 import org.adempiere.exceptions.AdempiereException;
 import org.adempiere.util.lang.IAutoCloseable;
 import org.adempiere.util.lang.MutableInt;
+import org.adempiere.util.lang.impl.TableRecordReference;
 import org.adempiere.util.lang.impl.TableRecordReferenceSet;
 import org.compiere.Adempiere;
 import org.compiere.util.DB;
@@ -22,12 +23,15 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Repository;
 
+import com.google.common.base.Splitter;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Streams;
 
 import de.metas.logging.LogManager;
+import de.metas.ui.web.cluster.WebuiClusterEvent;
+import de.metas.ui.web.cluster.WebuiClusterEventBus;
 import de.metas.ui.web.base.model.I_T_WEBUI_ViewSelection;
 import de.metas.ui.web.base.model.I_T_WEBUI_ViewSelectionLine;
 import de.metas.ui.web.exceptions.EntityNotFoundException;
@@ -77,6 +81,10 @@ public class ViewsRepository implements IViewsRepository
 	@Autowired
 	private MenuTreeRepository menuTreeRepo;
 
+	@Autowired
+	private WebuiClusterEventBus clusterEventBus;
+	private static final String CLUSTER_EVENT_TYPE_RecordsChanged = "viewRecordsChanged";
+
 	@Value("${metasfresh.webui.view.truncateOnStartUp:true}")
 	private boolean truncateSelectionOnStartUp;
 
@@ -103,6 +111,16 @@ public class ViewsRepository implements IViewsRepository
 	}
 
 	@PostConstruct
+	private void postConstruct()
+	{
+		truncateTempTablesIfAllowed();
+		clusterEventBus.subscribe(CLUSTER_EVENT_TYPE_RecordsChanged, this::onClusterRecordsChanged);
+	}
+
+	/**
+	 * NOTE: when running more than one webui node against the same database, <code>metasfresh.webui.view.truncateOnStartUp</code> shall be set to <code>false</code>,
+	 * else a restarting node would drop the selections of the views which are hosted by the other nodes.
+	 */
 	private void truncateTempTablesIfAllowed()
 	{
 		if (truncateSelectionOnStartUp)
@@ -398,6 +416,42 @@ public class ViewsRepository implements IViewsRepository
 			return;
 		}
 
+		notifyLocalViews(recordRefs);
+		publishToCluster(recordRefs);
+	}
+
+	private void publishToCluster(@NonNull final TableRecordReferenceSet recordRefs)
+	{
+		if (!clusterEventBus.isEnabled())
+		{
+			return;
+		}
+
+		final ImmutableList.Builder<WebuiClusterEvent> events = ImmutableList.builder();
+		for (final TableRecordReference recordRef : recordRefs)
+		{
+			events.add(WebuiClusterEvent.of(CLUSTER_EVENT_TYPE_RecordsChanged, recordRef.getTableName() + "/" + recordRef.getRecord_ID()));
+		}
+		clusterEventBus.publishAll(events.build());
+	}
+
+	/**
+	 * Notifies the views of this node about records which were changed on another node.
+	 */
+	private void onClusterRecordsChanged(@NonNull final List<WebuiClusterEvent> events)
+	{
+		final ImmutableList.Builder<TableRecordReference> recordRefs = ImmutableList.builder();
+		for (final WebuiClusterEvent event : events)
+		{
+			final List<String> parts = Splitter.on('/').splitToList(event.getKey());
+			recordRefs.add(TableRecordReference.of(parts.get(0), Integer.parseInt(parts.get(1))));
+		}
+
+		notifyLocalViews(TableRecordReferenceSet.of(recordRefs.build()));
+	}
+
+	private void notifyLocalViews(@NonNull final TableRecordReferenceSet recordRefs)
+	{
 		try (final IAutoCloseable c = ViewChangesCollector.currentOrNewThreadLocalCollector())
 		{
 			final MutableInt notifiedCount = MutableInt.zero();
@@ -264,6 +264,7 @@ public class ViewChangesCollector implements IAutoCloseable
 			logger.trace("Flushing {} to websocket", this);
 			changesList.stream()
 					.filter(ViewChanges::hasChanges)
+					.filter(changes -> !websocketSender.suppressIfNotSubscribed(buildWebsocketEndpoint(changes.getViewId().getViewId())))
 					.map(JSONViewChanges::of)
 					.forEach(this::sendToWebsocket);
 		}
@@ -293,7 +294,7 @@ public class ViewChangesCollector implements IAutoCloseable
 
 	private void sendToWebsocket(final JSONViewChanges jsonChangeEvent)
 	{
-		final String endpoint = WebSocketConfig.buildViewNotificationsTopicName(jsonChangeEvent.getViewId());
+		final String endpoint = buildWebsocketEndpoint(jsonChangeEvent.getViewId());
 		try
 		{
 			websocketSender.convertAndSend(endpoint, jsonChangeEvent);
@@ -304,4 +305,9 @@ public class ViewChangesCollector implements IAutoCloseable
 			logger.warn("Failed sending to websocket {}: {}", endpoint, jsonChangeEvent, ex);
 		}
 	}
+
+	private static String buildWebsocketEndpoint(final String viewId)
+	{
+		return WebSocketConfig.buildViewNotificationsTopicName(viewId);
+	}
 }
@@ -3,8 +3,11 @@ package de.metas.ui.web.websocket;
 import java.util.List;
 import java.util.Map;
 
+import javax.annotation.Nullable;
+
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationListener;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpStatus;
@@ -34,6 +37,7 @@ import de.metas.logging.LogManager;
 import de.metas.ui.web.session.UserSession;
 import de.metas.ui.web.window.datatypes.DocumentId;
 import de.metas.ui.web.window.datatypes.WindowId;
+import de.metas.ui.web.window.events.DocumentWebsocketPublisher;
 import de.metas.user.UserId;
 import de.metas.util.Check;
 import lombok.NonNull;
@@ -71,10 +75,22 @@ public class WebSocketConfig extends AbstractWebSocketMessageBrokerConfigurer
 	private static final String TOPIC_Notifications = "/notifications";
 	private static final String TOPIC_View = "/view";
 	private static final String TOPIC_Document = "/document";
-	private static final String TOPIC_Board = "/board";
+	public static final String TOPIC_Board = "/board";
+	private static final String TOPIC_Mail = "/mail";
+	private static final String TOPIC_Letter = "/letter";
+	private static final String TOPIC_HULabels = "/huLabels";
 	public static final String TOPIC_Dashboard = "/dashboard";
 	public static final String TOPIC_Devices = "/devices";
 
+	@Autowired
+	private WebsocketMetrics websocketMetrics;
+
+	@Value("${metasfresh.webui.websocket.outbound.threads:0}")
+	private int outboundThreads;
+
+	@Value("${metasfresh.webui.websocket.outbound.maxQueueSizePerSession:1000}")
+	private int outboundMaxQueueSizePerSession;
+
 	public static final String buildUserSessionTopicName(@NonNull final UserId adUserId)
 	{
 		return TOPIC_UserSession + "/" + adUserId.getRepoId();
@@ -91,17 +107,42 @@ public class WebSocketConfig extends AbstractWebSocketMessageBrokerConfigurer
 		return TOPIC_View + "/" + viewId;
 	}
 
+	public static final String buildHUTransformTopicName(final String viewId)
+	{
+		return buildViewNotificationsTopicName(viewId) + "/huTransform";
+	}
+
 	public static final String buildDocumentTopicName(@NonNull final WindowId windowId, @NonNull final DocumentId documentId)
 	{
 		return TOPIC_Document + "/" + windowId.toJson() + "/" + documentId.toJson();
 	}
 
+	public static boolean isDocumentTopicName(@Nullable final String topicName)
+	{
+		return topicName != null && topicName.startsWith(TOPIC_Document + "/");
+	}
+
 	public static final String buildBoardTopicName(final int boardId)
 	{
 		Preconditions.checkArgument(boardId > 0);
 		return TOPIC_Board + "/" + boardId;
 	}
 
+	public static final String buildMailTopicName(@NonNull final UserId adUserId)
+	{
+		return TOPIC_Mail + "/" + adUserId.getRepoId();
+	}
+
+	public static final String buildLetterTopicName(@NonNull final UserId adUserId)
+	{
+		return TOPIC_Letter + "/" + adUserId.getRepoId();
+	}
+
+	public static final String buildHULabelsTopicName(@NonNull final UserId adUserId)
+	{
+		return TOPIC_HULabels + "/" + adUserId.getRepoId();
+	}
+
 	@Override
 	public void registerStompEndpoints(final StompEndpointRegistry registry)
 	{
@@ -124,6 +165,9 @@ public class WebSocketConfig extends AbstractWebSocketMessageBrokerConfigurer
 				TOPIC_View,
 				TOPIC_Document,
 				TOPIC_Board,
+				TOPIC_Mail,
+				TOPIC_Letter,
+				TOPIC_HULabels,
 				TOPIC_Dashboard,
 				TOPIC_Devices);
 
@@ -135,13 +179,19 @@ public class WebSocketConfig extends AbstractWebSocketMessageBrokerConfigurer
 	public void configureClientOutboundChannel(final ChannelRegistration registration)
 	{
 		//
-		// IMPORTANT: make sure we are using only one thread for sending outbound messages.
-		// If not, it might be that the messages will not be sent in the right order,
+		// IMPORTANT: the outbound messages of a websocket session have to be sent in the right order,
 		// and that's important for things like WS notifications API.
 		// ( thanks to http://stackoverflow.com/questions/29689838/sockjs-receive-stomp-messages-from-spring-websocket-out-of-order )
-		registration.taskExecutor()
-				.corePoolSize(1)
-				.maxPoolSize(1);
+		// We don't need a global order though, so we are using an executor which keeps the order per session but sends the messages of different sessions in parallel.
+		final int threads = outboundThreads > 0 ? outboundThreads : Runtime.getRuntime().availableProcessors();
+		// NOTE: the executor will be registered as "clientOutboundChannelExecutor" bean
+		final WebsocketOutboundTaskExecutor executor = WebsocketOutboundTaskExecutor.builder()
+				.maxQueueSizePerSession(outboundMaxQueueSizePerSession)
+				.metrics(websocketMetrics)
+				.build();
+		registration.taskExecutor(executor)
+				.corePoolSize(threads)
+				.maxPoolSize(threads);
 	}
 
 	@Override
@@ -171,6 +221,11 @@ public class WebSocketConfig extends AbstractWebSocketMessageBrokerConfigurer
 		return extractSimpHeaderAsString(event, "simpSessionId");
 	}
 
+	private static final String extractSimpSubscriptionId(final AbstractSubProtocolEvent event)
+	{
+		return extractSimpHeaderAsString(event, "simpSubscriptionId");
+	}
+
 	private static final String extractSimpHeaderAsString(final AbstractSubProtocolEvent event, final String name)
 	{
 		final Object simpDestinationObj = event.getMessage().getHeaders().get(name);
@@ -241,15 +296,40 @@ public class WebSocketConfig extends AbstractWebSocketMessageBrokerConfigurer
 	{
 		@Autowired
 		private WebSocketProducersRegistry websocketProducersRegistry;
+		@Autowired
+		private WebsocketSubscriptionsExecutor subscriptionsExecutor;
+		@Autowired
+		private WebsocketActiveSubscriptionsIndex activeSubscriptions;
+		@Autowired
+		private DocumentWebsocketPublisher documentWebsocketPublisher;
 
 		@Override
 		public void onApplicationEvent(final SessionSubscribeEvent event)
 		{
 			final String simpSessionId = extractSimpSessionId(event);
+			final String simpSubscriptionId = extractSimpSubscriptionId(event);
 			final String simpDestination = extractSimpDestination(event);
-			websocketProducersRegistry.onTopicSubscribed(simpSessionId, simpDestination);
+			if (simpSessionId == null || simpDestination == null)
+			{
+				return;
+			}
+
+			activeSubscriptions.addSubscription(simpSessionId, simpSubscriptionId, simpDestination);
+
+			// the document events are deltas against what was sent before, so the new subscriber needs that first
+			if (simpSubscriptionId != null && isDocumentTopicName(simpDestination))
+			{
+				documentWebsocketPublisher.onDocumentTopicSubscribed(simpDestination, simpSessionId, simpSubscriptionId);
+			}
+
+			// NOTE: we are called on the websocket container thread which is handling the client's messages, so we are not doing the actual work here
+			final boolean accepted = subscriptionsExecutor.submitSubscribe(
+					simpSessionId,
+					simpSubscriptionId,
+					simpDestination,
+					() -> websocketProducersRegistry.onTopicSubscribed(simpSessionId, simpDestination));
 
-			logger.debug("Subscribed to simpDestination={} [ simpSessionId={} ]", simpDestination, simpSessionId);
+			logger.debug("Subscribed to simpDestination={} [ simpSessionId={}, accepted={} ]", simpDestination, simpSessionId, accepted);
 		}
 	}
 
@@ -258,13 +338,25 @@ public class WebSocketConfig extends AbstractWebSocketMessageBrokerConfigurer
 	{
 		@Autowired
 		private WebSocketProducersRegistry websocketProducersRegistry;
+		@Autowired
+		private WebsocketSubscriptionsExecutor subscriptionsExecutor;
+		@Autowired
+		private WebsocketActiveSubscriptionsIndex activeSubscriptions;
 
 		@Override
 		public void onApplicationEvent(final SessionUnsubscribeEvent event)
 		{
 			final String simpSessionId = extractSimpSessionId(event);
 			final String simpDestination = extractSimpDestination(event);
-			websocketProducersRegistry.onTopicUnsubscribed(simpSessionId, simpDestination);
+			if (simpSessionId == null)
+			{
+				return;
+			}
+
+			final String simpSubscriptionId = extractSimpSubscriptionId(event);
+			activeSubscriptions.removeSubscription(simpSessionId, simpSubscriptionId);
+
+			subscriptionsExecutor.submitUnsubscribe(simpSessionId, simpSubscriptionId, () -> websocketProducersRegistry.onTopicUnsubscribed(simpSessionId, simpDestination));
 
 			logger.debug("Unsubscribed from simpDestination={} [ simpSessionId={} ]", simpDestination != null ? simpDestination : "<null>", simpSessionId);
 		}
@@ -275,12 +367,17 @@ public class WebSocketConfig extends AbstractWebSocketMessageBrokerConfigurer
 	{
 		@Autowired
 		private WebSocketProducersRegistry websocketProducersRegistry;
+		@Autowired
+		private WebsocketSubscriptionsExecutor subscriptionsExecutor;
+		@Autowired
+		private WebsocketActiveSubscriptionsIndex activeSubscriptions;
 
 		@Override
 		public void onApplicationEvent(final SessionDisconnectEvent event)
 		{
 			final String sessionId = event.getSessionId();
-			websocketProducersRegistry.onSessionDisconnect(sessionId);
+			activeSubscriptions.removeSession(sessionId);
+			subscriptionsExecutor.submitUnsubscribe(sessionId, null, () -> websocketProducersRegistry.onSessionDisconnect(sessionId));
 		}
 	}
 }
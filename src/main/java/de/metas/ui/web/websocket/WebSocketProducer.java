@@ -1,5 +1,10 @@
 package de.metas.ui.web.websocket;
 
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import org.adempiere.util.lang.IAutoCloseable;
+
 import de.metas.ui.web.window.datatypes.json.JSONOptions;
 
 /*
@@ -37,7 +42,26 @@ public interface WebSocketProducer
 	/**
 	 * Produce a new event.
 	 * 
-	 * @return event (JSON friendly)
+	 * @return event (JSON friendly) or <code>null</code> if there is nothing new to be sent
 	 */
 	Object produceEvent(JSONOptions jsonOpts);
-}
\ No newline at end of file
+
+	/**
+	 * Starts pushing events when they happen, instead of being polled periodically.
+	 * 
+	 * @param eventsSink where the pushed events (JSON friendly) shall be sent
+	 * @return the push subscription (to be closed when nobody is listening anymore) or empty if this producer does not support pushing and shall be polled
+	 */
+	default Optional<IAutoCloseable> startPushing(final Consumer<Object> eventsSink)
+	{
+		return Optional.empty();
+	}
+
+	/**
+	 * Called when a new websocket session subscribed to this producer's topic.
+	 * Producers which are not sending unchanged events shall make sure the next produced event is sent anyways, so the new subscriber gets the current state.
+	 */
+	default void onNewSubscription()
+	{
+	}
+}
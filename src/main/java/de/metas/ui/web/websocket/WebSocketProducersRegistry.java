@@ -1,20 +1,28 @@
 package de.metas.ui.web.websocket;
 
 import java.util.HashSet;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.adempiere.util.concurrent.CustomizableThreadFactory;
+import org.adempiere.util.lang.IAutoCloseable;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.BeanFactoryUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Component;
 
@@ -23,6 +31,7 @@ import com.google.common.base.MoreObjects;
 import de.metas.logging.LogManager;
 import de.metas.ui.web.window.datatypes.json.JSONOptions;
 import de.metas.util.Check;
+import lombok.Builder;
 import lombok.NonNull;
 
 /*
@@ -53,7 +62,9 @@ import lombok.NonNull;
  * This component is responsible for:
  * <ul>
  * <li>automatically registering all {@link WebSocketProducerFactory} implementations which were found in spring context
- * <li>as soon as there is a subscriber for a websocket topic it will create/start a {@link WebSocketProducer} and it will call it on a given rate.
+ * <li>as soon as there is a subscriber for a websocket topic it will create/start a {@link WebSocketProducer} and it will call it on a given rate
+ * (or, if the producer supports it, let it push the events when they happen).
+ * A producer which is taking longer than the configured timeout is cancelled, and it's not delaying the other producers.
  * </ul>
  *
  * @author metas-dev <dev@metasfresh.com>
@@ -64,24 +75,65 @@ public final class WebSocketProducersRegistry
 {
 	private static final Logger logger = LogManager.getLogger(WebSocketProducersRegistry.class);
 
-	private final ScheduledExecutorService scheduler;
+	private ScheduledExecutorService scheduler;
+	private ExecutorService producersExecutor;
 	@Autowired
 	private WebsocketSender websocketSender;
 	@Autowired
 	private ApplicationContext context;
 
+	@Value("${metasfresh.webui.websocket.producers.schedulerThreads:2}")
+	private int schedulerThreads;
+
+	@Value("${metasfresh.webui.websocket.producers.threads:10}")
+	private int producerThreads;
+
+	@Value("${metasfresh.webui.websocket.producers.pollingPeriodMillis:1000}")
+	private long pollingPeriodMillis;
+
+	@Value("${metasfresh.webui.websocket.producers.timeoutMillis:5000}")
+	private long producerTimeoutMillis;
+
 	private final ConcurrentHashMap<String, WebSocketProducerFactory> _producerFactoriesByTopicNamePrefix = new ConcurrentHashMap<>();
 	private final ConcurrentHashMap<String, WebSocketProducerInstance> _producersByTopicName = new ConcurrentHashMap<>();
 
-	public WebSocketProducersRegistry()
+	@PostConstruct
+	private void init()
+	{
+		createExecutors();
+		registerProducerFactoriesFromContext();
+	}
+
+	private void createExecutors()
 	{
-		scheduler = Executors.newSingleThreadScheduledExecutor(CustomizableThreadFactory.builder()
-				.setThreadNamePrefix(getClass().getName())
+		// the scheduler is only triggering the producers, the (potentially slow) producers are executed by producersExecutor,
+		// so a slow producer (e.g. a device which is not responding) is not delaying the others.
+		scheduler = Executors.newScheduledThreadPool(Math.max(schedulerThreads, 1), CustomizableThreadFactory.builder()
+				.setThreadNamePrefix(getClass().getName() + "-scheduler")
 				.setDaemon(true)
 				.build());
+		// bounded, because a producer which is not responding to the interruption keeps its thread
+		final int producerThreadsEffective = Math.max(producerThreads, 1);
+		final ThreadPoolExecutor producersExecutor = new ThreadPoolExecutor(
+				producerThreadsEffective,
+				producerThreadsEffective,
+				1, TimeUnit.MINUTES,
+				new LinkedBlockingQueue<>(),
+				CustomizableThreadFactory.builder()
+						.setThreadNamePrefix(getClass().getName() + "-producer")
+						.setDaemon(true)
+						.build());
+		producersExecutor.allowCoreThreadTimeOut(true);
+		this.producersExecutor = producersExecutor;
+	}
+
+	@PreDestroy
+	private void shutdownExecutors()
+	{
+		scheduler.shutdownNow();
+		producersExecutor.shutdownNow();
 	}
 
-	@PostConstruct
 	private void registerProducerFactoriesFromContext()
 	{
 		BeanFactoryUtils.beansOfTypeIncludingAncestors(context, WebSocketProducerFactory.class)
@@ -147,7 +199,15 @@ public final class WebSocketProducersRegistry
 
 		return _producersByTopicName.computeIfAbsent(topicName, k -> {
 			final WebSocketProducer producer = producerFactory.createProducer(topicName);
-			return new WebSocketProducerInstance(topicName, producer, scheduler, websocketSender);
+			return WebSocketProducerInstance.builder()
+					.topicName(topicName)
+					.producer(producer)
+					.scheduler(scheduler)
+					.producersExecutor(producersExecutor)
+					.pollingPeriodMillis(pollingPeriodMillis)
+					.timeoutMillis(producerTimeoutMillis)
+					.websocketSender(websocketSender)
+					.build();
 		});
 	}
 
@@ -202,20 +262,36 @@ public final class WebSocketProducersRegistry
 		private final String topicName;
 		private final WebSocketProducer producer;
 		private final ScheduledExecutorService scheduler;
+		private final ExecutorService producersExecutor;
+		private final long pollingPeriodMillis;
+		private final long timeoutMillis;
 		private final WebsocketSender websocketSender;
 
 		private final Set<String> subscribedSessionIds = new HashSet<>();
 		private ScheduledFuture<?> scheduledFuture;
+		private IAutoCloseable pushSubscription;
+
+		private Future<?> runningFuture;
+		private long runningSinceMillis;
+		/** true while the producer is actually executing, i.e. also after its future was cancelled but the producer did not stop yet */
+		private volatile boolean executing = false;
 
+		@Builder
 		private WebSocketProducerInstance(
 				@NonNull final String topicName,
 				@NonNull final WebSocketProducer producer,
 				@NonNull final ScheduledExecutorService scheduler,
+				@NonNull final ExecutorService producersExecutor,
+				final long pollingPeriodMillis,
+				final long timeoutMillis,
 				@NonNull final WebsocketSender websocketSender)
 		{
 			this.topicName = topicName;
 			this.producer = producer;
 			this.scheduler = scheduler;
+			this.producersExecutor = producersExecutor;
+			this.pollingPeriodMillis = pollingPeriodMillis > 0 ? pollingPeriodMillis : 1000;
+			this.timeoutMillis = timeoutMillis > 0 ? timeoutMillis : 5000;
 			this.websocketSender = websocketSender;
 		}
 
@@ -232,27 +308,39 @@ public final class WebSocketProducersRegistry
 		{
 			Check.assumeNotEmpty(sessionId, "sessionId is not empty");
 			subscribedSessionIds.add(sessionId);
-			if (subscribedSessionIds.isEmpty())
-			{
-				// shall not happen
-				return;
-			}
 
 			logger.trace("{}: session {} subscribed", this, sessionId);
+			producer.onNewSubscription();
 
 			//
-			// Check if the producer was already scheduled
+			// Check if the producer was already started
+			if (pushSubscription != null)
+			{
+				// make sure the new subscriber gets the current state
+				produceAsync();
+				return;
+			}
 			if (scheduledFuture != null)
 			{
 				return;
 			}
 
+			//
+			// Start pushing, if the producer supports it
+			final Optional<IAutoCloseable> pushSubscription = producer.startPushing(this::publish);
+			if (pushSubscription.isPresent())
+			{
+				this.pushSubscription = pushSubscription.get();
+				produceAsync();
+				logger.trace("{}: start pushing", this);
+				return;
+			}
+
 			//
 			// Schedule producer
 			final long initialDelayMillis = 1000;
-			final long periodMillis = 1000;
-			scheduledFuture = scheduler.scheduleAtFixedRate(this::executeAndPublish, initialDelayMillis, periodMillis, TimeUnit.MILLISECONDS);
-			logger.trace("{}: start producing using initialDelayMillis={}, periodMillis={}", this, initialDelayMillis, periodMillis);
+			scheduledFuture = scheduler.scheduleAtFixedRate(this::produceAsync, initialDelayMillis, pollingPeriodMillis, TimeUnit.MILLISECONDS);
+			logger.trace("{}: start producing using initialDelayMillis={}, periodMillis={}", this, initialDelayMillis, pollingPeriodMillis);
 		}
 
 		public synchronized void unsubscribe(final String sessionId)
@@ -266,38 +354,89 @@ public final class WebSocketProducersRegistry
 			{
 				return;
 			}
-			if (scheduledFuture == null)
+
+			if (pushSubscription != null)
 			{
-				return;
+				try
+				{
+					pushSubscription.close();
+				}
+				catch (final Exception ex)
+				{
+					logger.warn("{}: Failed stopping push subscription: {}. Ignored and considering it as stopped", this, pushSubscription, ex);
+				}
+				pushSubscription = null;
+				logger.debug("{} stopped pushing", this);
 			}
 
-			try
+			if (scheduledFuture != null)
 			{
-				scheduledFuture.cancel(true);
+				try
+				{
+					scheduledFuture.cancel(true);
+				}
+				catch (final Exception ex)
+				{
+					logger.warn("{}: Failed stopping scheduled future: {}. Ignored and considering it as stopped", this, scheduledFuture, ex);
+				}
+				scheduledFuture = null;
+				logger.debug("{} stopped", this);
 			}
-			catch (final Exception ex)
+		}
+
+		/**
+		 * Executes the producer asynchronously, unless the previous execution is still running.
+		 * If the running producer exceeded the timeout, it's cancelled, but it's executed again only after it actually stopped.
+		 */
+		private synchronized void produceAsync()
+		{
+			final boolean previousRunning = runningFuture != null && !runningFuture.isDone();
+			if (previousRunning || executing)
 			{
-				logger.warn("{}: Failed stopping scheduled future: {}. Ignored and considering it as stopped", this, scheduledFuture, ex);
+				final long runningMillis = System.currentTimeMillis() - runningSinceMillis;
+				if (previousRunning && runningMillis >= timeoutMillis)
+				{
+					logger.warn("{}: producer timed out after {}ms. Cancelling it.", this, runningMillis);
+					runningFuture.cancel(true);
+				}
+
+				logger.trace("{}: skip producing because previous execution is still running since {}ms", this, runningMillis);
+				return;
 			}
-			scheduledFuture = null;
 
-			logger.debug("{} stopped", this);
+			runningSinceMillis = System.currentTimeMillis();
+			runningFuture = producersExecutor.submit(this::executeAndPublish);
 		}
 
 		private void executeAndPublish()
 		{
+			executing = true;
 			try
 			{
 				final JSONOptions jsonOpts = JSONOptions.newInstance();
 				final Object event = producer.produceEvent(jsonOpts);
-				websocketSender.convertAndSend(topicName, event);
+				if (event == null)
+				{
+					logger.trace("{}: nothing new to be sent", this);
+					return;
+				}
 
-				logger.trace("Event sent to {}: {}", topicName, event);
+				publish(event);
 			}
 			catch (final Exception ex)
 			{
 				logger.warn("Failed producing event for {}. Ignored.", this, ex);
 			}
+			finally
+			{
+				executing = false;
+			}
+		}
+
+		private void publish(final Object event)
+		{
+			websocketSender.convertAndSend(topicName, event);
+			logger.trace("Event sent to {}: {}", topicName, event);
 		}
 	}
 }
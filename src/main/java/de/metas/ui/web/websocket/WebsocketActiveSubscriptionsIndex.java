@@ -0,0 +1,159 @@
+package de.metas.ui.web.websocket;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+
+import org.springframework.stereotype.Component;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Keeps track of the live STOMP subscriptions of this node, per destination.
+ * <p>
+ * It's fed by the subscribe, unsubscribe and disconnect listeners (see {@link WebSocketConfig}) and it's used to skip building and sending events for destinations nobody is listening to.
+ */
+@Component
+public class WebsocketActiveSubscriptionsIndex
+{
+	/** Updated only while holding this object's lock, but it can be read without locking */
+	private final ConcurrentHashMap<String, Set<SubscriptionKey>> subscriptionsByDestination = new ConcurrentHashMap<>();
+	private final Map<SubscriptionKey, String> destinationsBySubscription = new HashMap<>();
+	private final Map<String, Set<SubscriptionKey>> subscriptionsBySessionId = new HashMap<>();
+
+	public WebsocketActiveSubscriptionsIndex(@NonNull final WebsocketMetrics metrics)
+	{
+		metrics.setSubscriptionsStatsSupplier(this::getStats);
+	}
+
+	public boolean hasSubscriptions(@NonNull final String destination)
+	{
+		return subscriptionsByDestination.containsKey(destination);
+	}
+
+	public synchronized void addSubscription(
+			@NonNull final String sessionId,
+			@Nullable final String subscriptionId,
+			@NonNull final String destination)
+	{
+		final SubscriptionKey key = SubscriptionKey.of(sessionId, subscriptionId != null ? subscriptionId : destination);
+
+		final String previousDestination = destinationsBySubscription.put(key, destination);
+		if (previousDestination != null && !previousDestination.equals(destination))
+		{
+			removeFromDestination(previousDestination, key);
+		}
+
+		subscriptionsByDestination.computeIfAbsent(destination, k -> new HashSet<>()).add(key);
+		subscriptionsBySessionId.computeIfAbsent(sessionId, k -> new HashSet<>()).add(key);
+	}
+
+	public synchronized void removeSubscription(
+			@NonNull final String sessionId,
+			@Nullable final String subscriptionId)
+	{
+		if (subscriptionId == null)
+		{
+			removeSession(sessionId);
+			return;
+		}
+
+		final SubscriptionKey key = SubscriptionKey.of(sessionId, subscriptionId);
+		final String destination = destinationsBySubscription.remove(key);
+		if (destination != null)
+		{
+			removeFromDestination(destination, key);
+		}
+
+		final Set<SubscriptionKey> sessionSubscriptions = subscriptionsBySessionId.get(sessionId);
+		if (sessionSubscriptions != null)
+		{
+			sessionSubscriptions.remove(key);
+			if (sessionSubscriptions.isEmpty())
+			{
+				subscriptionsBySessionId.remove(sessionId);
+			}
+		}
+	}
+
+	public synchronized void removeSession(@NonNull final String sessionId)
+	{
+		final Set<SubscriptionKey> sessionSubscriptions = subscriptionsBySessionId.remove(sessionId);
+		if (sessionSubscriptions == null)
+		{
+			return;
+		}
+
+		for (final SubscriptionKey key : sessionSubscriptions)
+		{
+			final String destination = destinationsBySubscription.remove(key);
+			if (destination != null)
+			{
+				removeFromDestination(destination, key);
+			}
+		}
+	}
+
+	private void removeFromDestination(final String destination, final SubscriptionKey key)
+	{
+		subscriptionsByDestination.computeIfPresent(destination, (k, subscriptions) -> {
+			subscriptions.remove(key);
+			return subscriptions.isEmpty() ? null : subscriptions;
+		});
+	}
+
+	public synchronized Stats getStats()
+	{
+		return Stats.builder()
+				.destinationsCount(subscriptionsByDestination.size())
+				.subscriptionsCount(destinationsBySubscription.size())
+				.sessionsCount(subscriptionsBySessionId.size())
+				.build();
+	}
+
+	@Value
+	@Builder
+	public static class Stats
+	{
+		int destinationsCount;
+		int subscriptionsCount;
+		int sessionsCount;
+	}
+
+	@Value(staticConstructor = "of")
+	private static class SubscriptionKey
+	{
+		@NonNull
+		String sessionId;
+		@NonNull
+		String subscriptionId;
+	}
+}
@@ -0,0 +1,116 @@
+package de.metas.ui.web.websocket;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+
+import de.metas.JsonObjectMapperHolder;
+import de.metas.logging.LogManager;
+import de.metas.ui.web.cluster.WebuiClusterEvent;
+import de.metas.ui.web.cluster.WebuiClusterEventBus;
+import lombok.NonNull;
+import lombok.ToString;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Forwards the websocket events of some topics to the other webui nodes, so the clients connected to those nodes are getting them too.
+ * <p>
+ * Only the topics which are not derived from document or view invalidations shall be forwarded.
+ * The document and view topics are computed by each node on its own, when the invalidation events are received (see {@link WebuiClusterEventBus}).
+ */
+@ToString(of = "destinationPrefixes")
+final class WebsocketClusterForwarder
+{
+	private static final Logger logger = LogManager.getLogger(WebsocketClusterForwarder.class);
+
+	private static final String CLUSTER_EVENT_TYPE = "websocket";
+
+	private final WebuiClusterEventBus clusterEventBus;
+	private final SimpMessagingTemplate websocketMessagingTemplate;
+	private final ImmutableList<String> destinationPrefixes;
+	private final ObjectMapper jsonObjectMapper = JsonObjectMapperHolder.newJsonObjectMapper();
+
+	WebsocketClusterForwarder(
+			@NonNull final WebuiClusterEventBus clusterEventBus,
+			@NonNull final SimpMessagingTemplate websocketMessagingTemplate,
+			@NonNull final String destinationPrefixes)
+	{
+		this.clusterEventBus = clusterEventBus;
+		this.websocketMessagingTemplate = websocketMessagingTemplate;
+		this.destinationPrefixes = ImmutableList.copyOf(Splitter.on(',').trimResults().omitEmptyStrings().split(destinationPrefixes));
+
+		clusterEventBus.subscribe(CLUSTER_EVENT_TYPE, this::onClusterEvents);
+	}
+
+	public void forwardIfApplies(@NonNull final String destination, @NonNull final Object payload)
+	{
+		if (!clusterEventBus.isEnabled() || !isForwarded(destination))
+		{
+			return;
+		}
+
+		try
+		{
+			clusterEventBus.publish(WebuiClusterEvent.of(CLUSTER_EVENT_TYPE, destination, jsonObjectMapper.writeValueAsString(payload)));
+		}
+		catch (final JsonProcessingException ex)
+		{
+			logger.warn("Failed forwarding event to other nodes. destination={}, payload={}", destination, payload, ex);
+		}
+	}
+
+	private boolean isForwarded(final String destination)
+	{
+		return destinationPrefixes.stream().anyMatch(destination::startsWith);
+	}
+
+	/**
+	 * Sends the events received from the other nodes directly to our clients, i.e. without forwarding them again.
+	 */
+	private void onClusterEvents(@NonNull final List<WebuiClusterEvent> events)
+	{
+		for (final WebuiClusterEvent event : events)
+		{
+			final String payload = event.getPayload();
+			if (payload == null)
+			{
+				continue;
+			}
+
+			websocketMessagingTemplate.send(event.getKey(), MessageBuilder.withPayload(payload.getBytes(StandardCharsets.UTF_8))
+					.setHeader(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON)
+					.build());
+		}
+	}
+}
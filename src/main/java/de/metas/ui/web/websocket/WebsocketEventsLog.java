@@ -1,10 +1,10 @@
 package de.metas.ui.web.websocket;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.slf4j.Logger;
 
@@ -39,8 +39,7 @@ public final class WebsocketEventsLog
 	private static final Logger logger = LogManager.getLogger(WebsocketEventsLog.class);
 
 	private final AtomicBoolean logEventsEnabled = new AtomicBoolean(false);
-	private final AtomicInteger logEventsMaxSize = new AtomicInteger(500);
-	private final List<WebsocketEventLogRecord> loggedEvents = new LinkedList<>();
+	private volatile RingBuffer loggedEvents = new RingBuffer(500);
 
 	public void logEvent(final String destination, final Object event)
 	{
@@ -49,17 +48,8 @@ public final class WebsocketEventsLog
 			return;
 		}
 
-		synchronized (loggedEvents)
-		{
-			logger.info("{}: {}", destination, event);
-
-			loggedEvents.add(new WebsocketEventLogRecord(destination, event));
-			final int maxSize = logEventsMaxSize.get();
-			while (loggedEvents.size() > maxSize)
-			{
-				loggedEvents.remove(0);
-			}
-		}
+		logger.debug("{}: {}", destination, event);
+		loggedEvents.add(new WebsocketEventLogRecord(destination, event));
 	}
 
 	public void setLogEventsEnabled(final boolean enabled)
@@ -71,16 +61,20 @@ public final class WebsocketEventsLog
 	public void setLogEventsMaxSize(final int logEventsMaxSizeNew)
 	{
 		Preconditions.checkArgument(logEventsMaxSizeNew > 0, "logEventsMaxSize > 0");
-		final int logEventsMaxSizeOld = logEventsMaxSize.getAndSet(logEventsMaxSizeNew);
+		final int logEventsMaxSizeOld = loggedEvents.capacity();
+		if (logEventsMaxSizeOld == logEventsMaxSizeNew)
+		{
+			return;
+		}
+
+		// NOTE: the already logged events are discarded
+		loggedEvents = new RingBuffer(logEventsMaxSizeNew);
 		logger.info("Changed logEventsMaxSize from {} to {}", logEventsMaxSizeOld, logEventsMaxSizeNew);
 	}
 
 	public List<WebsocketEventLogRecord> getLoggedEvents()
 	{
-		synchronized (loggedEvents)
-		{
-			return new ArrayList<>(loggedEvents);
-		}
+		return loggedEvents.toList();
 	}
 
 	public List<WebsocketEventLogRecord> getLoggedEvents(final String destinationFilter)
@@ -90,4 +84,76 @@ public final class WebsocketEventsLog
 				.filter(websocketEvent -> websocketEvent.isDestinationMatching(destinationFilter))
 				.collect(ImmutableList.toImmutableList());
 	}
+
+	/**
+	 * Fixed size, lock-free ring buffer. When full, the oldest records are overwritten.
+	 * <p>
+	 * Each slot remembers the sequence number of its record, so a reader which is racing with the writers
+	 * skips the slots which were not written yet or which were already overwritten, instead of returning them out of order.
+	 */
+	private static final class RingBuffer
+	{
+		private final AtomicReferenceArray<Slot> slots;
+		private final AtomicLong nextSeqNo = new AtomicLong(0);
+
+		private RingBuffer(final int capacity)
+		{
+			slots = new AtomicReferenceArray<>(capacity);
+		}
+
+		public int capacity()
+		{
+			return slots.length();
+		}
+
+		public void add(final WebsocketEventLogRecord record)
+		{
+			final long seqNo = nextSeqNo.getAndIncrement();
+			final int index = (int)(seqNo % slots.length());
+
+			// a slower writer shall not overwrite a newer record which was written in meantime
+			Slot slot = slots.get(index);
+			while (slot == null || slot.seqNo < seqNo)
+			{
+				if (slots.compareAndSet(index, slot, new Slot(seqNo, record)))
+				{
+					return;
+				}
+				slot = slots.get(index);
+			}
+		}
+
+		/**
+		 * @return logged records, oldest first
+		 */
+		public List<WebsocketEventLogRecord> toList()
+		{
+			final int capacity = slots.length();
+			final long lastSeqNo = nextSeqNo.get();
+			final long firstSeqNo = Math.max(lastSeqNo - capacity, 0);
+
+			final List<WebsocketEventLogRecord> result = new ArrayList<>((int)(lastSeqNo - firstSeqNo));
+			for (long seqNo = firstSeqNo; seqNo < lastSeqNo; seqNo++)
+			{
+				final Slot slot = slots.get((int)(seqNo % capacity));
+				if (slot != null && slot.seqNo == seqNo) // else it's just about to be written or it was already overwritten
+				{
+					result.add(slot.record);
+				}
+			}
+			return result;
+		}
+	}
+
+	private static final class Slot
+	{
+		private final long seqNo;
+		private final WebsocketEventLogRecord record;
+
+		private Slot(final long seqNo, final WebsocketEventLogRecord record)
+		{
+			this.seqNo = seqNo;
+			this.record = record;
+		}
+	}
 }
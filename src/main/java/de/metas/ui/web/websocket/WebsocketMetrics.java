@@ -0,0 +1,290 @@
+package de.metas.ui.web.websocket;
+
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import javax.annotation.Nullable;
+
+import org.springframework.stereotype.Component;
+
+import com.google.common.collect.ImmutableList;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Lock-free websocket outbound metrics: per destination events count and rate, payload bytes and the time from commit (i.e. when the event was released to be sent) until it was sent.
+ * <p>
+ * To keep the number of tracked destinations bounded, destinations are grouped by their first path segment (e.g. all "/view/..." destinations are tracked as "/view").
+ */
+@Component
+public class WebsocketMetrics
+{
+	/** Message header which contains the timestamp (millis) when the event was released to be sent (e.g. the transaction was committed) */
+	public static final String HEADER_CommitTimestampMillis = "metasfresh-commitTimestampMillis";
+
+	private static final long[] LATENCY_MILLIS_BUCKETS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000 };
+	private static final long[] PAYLOAD_BYTES_BUCKETS = { 128, 256, 512, 1024, 2 * 1024, 4 * 1024, 8 * 1024, 16 * 1024, 64 * 1024, 256 * 1024, 1024 * 1024 };
+
+	private final ConcurrentHashMap<String, DestinationMetrics> metricsByDestination = new ConcurrentHashMap<>();
+	private volatile long startMillis = System.currentTimeMillis();
+
+	private volatile Supplier<WebsocketOutboundTaskExecutor.Stats> outboundStatsSupplier;
+	private volatile Supplier<WebsocketActiveSubscriptionsIndex.Stats> subscriptionsStatsSupplier;
+
+	void setOutboundStatsSupplier(@NonNull final Supplier<WebsocketOutboundTaskExecutor.Stats> outboundStatsSupplier)
+	{
+		this.outboundStatsSupplier = outboundStatsSupplier;
+	}
+
+	void setSubscriptionsStatsSupplier(@NonNull final Supplier<WebsocketActiveSubscriptionsIndex.Stats> subscriptionsStatsSupplier)
+	{
+		this.subscriptionsStatsSupplier = subscriptionsStatsSupplier;
+	}
+
+	/**
+	 * Records a sent message.
+	 *
+	 * @param commitTimestampMillis when the message was released to be sent; if not greater than zero the latency is not recorded
+	 */
+	public void recordSent(@Nullable final String destination, final long payloadBytes, final long commitTimestampMillis)
+	{
+		final DestinationMetrics metrics = metricsByDestination.computeIfAbsent(extractDestinationGroup(destination), DestinationMetrics::new);
+		metrics.eventsCount.increment();
+		if (payloadBytes >= 0)
+		{
+			metrics.payloadBytes.record(payloadBytes);
+		}
+		if (commitTimestampMillis > 0)
+		{
+			metrics.commitToSendMillis.record(Math.max(System.currentTimeMillis() - commitTimestampMillis, 0));
+		}
+	}
+
+	/**
+	 * Records an event which was not built or not sent because nobody was subscribed to its destination.
+	 */
+	public void recordSuppressed(@Nullable final String destination)
+	{
+		metricsByDestination.computeIfAbsent(extractDestinationGroup(destination), DestinationMetrics::new).suppressedEventsCount.increment();
+	}
+
+	static String extractDestinationGroup(@Nullable final String destination)
+	{
+		if (destination == null || destination.isEmpty())
+		{
+			return "-";
+		}
+
+		final int idx = destination.indexOf('/', 1);
+		return idx > 0 ? destination.substring(0, idx) : destination;
+	}
+
+	public void reset()
+	{
+		metricsByDestination.clear();
+		startMillis = System.currentTimeMillis();
+	}
+
+	public Snapshot snapshot()
+	{
+		final long durationMillis = Math.max(System.currentTimeMillis() - startMillis, 1);
+		final Supplier<WebsocketOutboundTaskExecutor.Stats> outboundStatsSupplier = this.outboundStatsSupplier;
+		final Supplier<WebsocketActiveSubscriptionsIndex.Stats> subscriptionsStatsSupplier = this.subscriptionsStatsSupplier;
+
+		return Snapshot.builder()
+				.durationMillis(durationMillis)
+				.destinations(metricsByDestination.values()
+						.stream()
+						.map(metrics -> metrics.snapshot(durationMillis))
+						.sorted(Comparator.comparing(DestinationSnapshot::getDestination))
+						.collect(ImmutableList.toImmutableList()))
+				.outbound(outboundStatsSupplier != null ? outboundStatsSupplier.get() : null)
+				.subscriptions(subscriptionsStatsSupplier != null ? subscriptionsStatsSupplier.get() : null)
+				.build();
+	}
+
+	@Value
+	@Builder
+	public static class Snapshot
+	{
+		long durationMillis;
+		@NonNull
+		ImmutableList<DestinationSnapshot> destinations;
+		@Nullable
+		WebsocketOutboundTaskExecutor.Stats outbound;
+		@Nullable
+		WebsocketActiveSubscriptionsIndex.Stats subscriptions;
+	}
+
+	@Value
+	@Builder
+	public static class DestinationSnapshot
+	{
+		@NonNull
+		String destination;
+		long eventsCount;
+		double eventsPerSecond;
+		/** events which were not built or not sent because nobody was subscribed */
+		long suppressedEventsCount;
+		@NonNull
+		HistogramSnapshot payloadBytes;
+		@NonNull
+		HistogramSnapshot commitToSendMillis;
+	}
+
+	@Value
+	@Builder
+	public static class HistogramSnapshot
+	{
+		long count;
+		long sum;
+		long max;
+		long avg;
+		/** upper bound of the bucket which contains the 50th percentile */
+		long p50;
+		/** upper bound of the bucket which contains the 95th percentile */
+		long p95;
+		/** upper bound of the bucket which contains the 99th percentile */
+		long p99;
+	}
+
+	private static final class DestinationMetrics
+	{
+		private final String destination;
+		private final LongAdder eventsCount = new LongAdder();
+		private final LongAdder suppressedEventsCount = new LongAdder();
+		private final Histogram payloadBytes = new Histogram(PAYLOAD_BYTES_BUCKETS);
+		private final Histogram commitToSendMillis = new Histogram(LATENCY_MILLIS_BUCKETS);
+
+		private DestinationMetrics(@NonNull final String destination)
+		{
+			this.destination = destination;
+		}
+
+		public DestinationSnapshot snapshot(final long durationMillis)
+		{
+			final long eventsCount = this.eventsCount.sum();
+			return DestinationSnapshot.builder()
+					.destination(destination)
+					.eventsCount(eventsCount)
+					.eventsPerSecond(eventsCount * 1000.0 / durationMillis)
+					.suppressedEventsCount(suppressedEventsCount.sum())
+					.payloadBytes(payloadBytes.snapshot())
+					.commitToSendMillis(commitToSendMillis.snapshot())
+					.build();
+		}
+	}
+
+	/**
+	 * Lock-free histogram with fixed buckets.
+	 */
+	static final class Histogram
+	{
+		private final long[] bucketUpperBounds;
+		/** one counter for each bucket, plus one for the values greater than the last bucket's upper bound */
+		private final LongAdder[] bucketCounts;
+		private final LongAdder count = new LongAdder();
+		private final LongAdder sum = new LongAdder();
+		private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+		Histogram(@NonNull final long[] bucketUpperBounds)
+		{
+			this.bucketUpperBounds = bucketUpperBounds;
+			this.bucketCounts = new LongAdder[bucketUpperBounds.length + 1];
+			for (int i = 0; i < bucketCounts.length; i++)
+			{
+				bucketCounts[i] = new LongAdder();
+			}
+		}
+
+		public void record(final long value)
+		{
+			bucketCounts[bucketIndex(value)].increment();
+			count.increment();
+			sum.add(value);
+			max.accumulate(value);
+		}
+
+		private int bucketIndex(final long value)
+		{
+			for (int i = 0; i < bucketUpperBounds.length; i++)
+			{
+				if (value <= bucketUpperBounds[i])
+				{
+					return i;
+				}
+			}
+			return bucketUpperBounds.length;
+		}
+
+		public HistogramSnapshot snapshot()
+		{
+			final long[] counts = new long[bucketCounts.length];
+			long total = 0;
+			for (int i = 0; i < counts.length; i++)
+			{
+				counts[i] = bucketCounts[i].sum();
+				total += counts[i];
+			}
+
+			final long max = this.max.get();
+			final long sum = this.sum.sum();
+			return HistogramSnapshot.builder()
+					.count(total)
+					.sum(sum)
+					.max(max)
+					.avg(total > 0 ? sum / total : 0)
+					.p50(percentile(counts, total, 50, max))
+					.p95(percentile(counts, total, 95, max))
+					.p99(percentile(counts, total, 99, max))
+					.build();
+		}
+
+		private long percentile(final long[] counts, final long total, final int percent, final long max)
+		{
+			if (total <= 0)
+			{
+				return 0;
+			}
+
+			final long rank = (total * percent + 99) / 100; // ceil
+			long cumulated = 0;
+			for (int i = 0; i < counts.length; i++)
+			{
+				cumulated += counts[i];
+				if (cumulated >= rank)
+				{
+					return i < bucketUpperBounds.length ? Math.min(bucketUpperBounds[i], max) : max;
+				}
+			}
+			return max;
+		}
+	}
+}
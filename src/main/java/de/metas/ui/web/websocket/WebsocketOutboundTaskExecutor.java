@@ -0,0 +1,407 @@
+package de.metas.ui.web.websocket;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import de.metas.logging.LogManager;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Executor for the STOMP client outbound channel which keeps the messages ordered per websocket session, but not globally.
+ * <p>
+ * Each session has its own bounded queue. The queues of different sessions are drained in parallel using the underlying thread pool,
+ * while the messages of one session are always sent one after the other, in the order they were enqueued.
+ * <p>
+ * When a session's queue is full, the session is considered a slow consumer and it's disconnected: it's queued messages are discarded and a STOMP ERROR frame is sent,
+ * after which the session is closed. Messages are never dropped while the session stays connected, because the client could not detect the gap
+ * (e.g. in the sequenced document deltas). When the client reconnects and subscribes again, it gets the full states.
+ * <p>
+ * Messages which are identical (same subscription, destination and payload) to the last queued message of the same session are merged into it.
+ * Only MESSAGE frames are merged, never receipts or errors.
+ */
+public class WebsocketOutboundTaskExecutor extends ThreadPoolTaskExecutor
+{
+	private static final long serialVersionUID = 2733914573937478411L;
+
+	private static final Logger logger = LogManager.getLogger(WebsocketOutboundTaskExecutor.class);
+
+	/** key used for messages which have no session (shall not happen, but we don't want to lose them) */
+	private static final String NO_SESSION_KEY = "-";
+
+	/** how many messages of a session are sent before giving the thread to other sessions */
+	private static final int DRAIN_BATCH_SIZE = 50;
+
+	private static final String SLOW_CONSUMER_ERROR_MESSAGE = "Slow consumer: too many pending messages";
+
+	private final int maxQueueSizePerSession;
+	private final WebsocketMetrics metrics;
+
+	private final ConcurrentHashMap<String, SessionQueue> queuesBySessionId = new ConcurrentHashMap<>();
+	private final AtomicLong disconnectedSessionsCount = new AtomicLong();
+	private final AtomicLong discardedCount = new AtomicLong();
+	private final AtomicLong mergedCount = new AtomicLong();
+
+	@Builder
+	private WebsocketOutboundTaskExecutor(
+			final int maxQueueSizePerSession,
+			@Nullable final WebsocketMetrics metrics)
+	{
+		this.maxQueueSizePerSession = maxQueueSizePerSession > 0 ? maxQueueSizePerSession : 1000;
+		this.metrics = metrics;
+		if (metrics != null)
+		{
+			metrics.setOutboundStatsSupplier(this::getStats);
+		}
+
+		setThreadNamePrefix("websocket-outbound-");
+	}
+
+	@Override
+	public void execute(@NonNull final Runnable task)
+	{
+		final String sessionId = extractSessionIdOrNull(task);
+		enqueue(sessionId != null ? sessionId : NO_SESSION_KEY, task);
+	}
+
+	/**
+	 * Runs given task on the outbound threads, in order with the messages of given session.
+	 * <p>
+	 * Use it for the work which is preparing the messages of one session (e.g. building a full state for a new subscriber),
+	 * so it's not done on the thread which is handling the client's messages.
+	 */
+	public void executeForSession(@NonNull final String sessionId, @NonNull final Runnable task)
+	{
+		enqueue(sessionId, task);
+	}
+
+	private void enqueue(final String key, final Runnable task)
+	{
+		while (true)
+		{
+			final SessionQueue queue = queuesBySessionId.computeIfAbsent(key, SessionQueue::new);
+			final EnqueueResult result = queue.enqueue(task);
+			if (result == EnqueueResult.QUEUE_RETIRED)
+			{
+				// the queue was just removed because it was drained; retry with a fresh one
+				continue;
+			}
+
+			if (result == EnqueueResult.SCHEDULE_DRAIN)
+			{
+				super.execute(() -> drain(queue));
+			}
+			return;
+		}
+	}
+
+	@Override
+	public void execute(final Runnable task, final long startTimeout)
+	{
+		execute(task);
+	}
+
+	private void drain(final SessionQueue queue)
+	{
+		for (int i = 0; i < DRAIN_BATCH_SIZE; i++)
+		{
+			final Runnable task = queue.pollOrRetire(queuesBySessionId);
+			if (task == null)
+			{
+				return;
+			}
+
+			try
+			{
+				task.run();
+				recordSent(task);
+			}
+			catch (final Throwable ex)
+			{
+				logger.warn("Failed sending message for session {}. Ignored.", queue.getSessionId(), ex);
+			}
+		}
+
+		// let the other sessions' messages be sent too; we will continue later
+		super.execute(() -> drain(queue));
+	}
+
+	private void recordSent(final Runnable task)
+	{
+		if (metrics == null)
+		{
+			return;
+		}
+
+		final Message<?> message = extractMessageOrNull(task);
+		if (message == null)
+		{
+			return;
+		}
+
+		final Object payload = message.getPayload();
+		final long payloadBytes = payload instanceof byte[] ? ((byte[])payload).length : -1;
+
+		final Object commitTimestampObj = message.getHeaders().get(WebsocketMetrics.HEADER_CommitTimestampMillis);
+		final long commitTimestampMillis = commitTimestampObj instanceof Long ? (Long)commitTimestampObj : -1;
+
+		metrics.recordSent(SimpMessageHeaderAccessor.getDestination(message.getHeaders()), payloadBytes, commitTimestampMillis);
+	}
+
+	@Nullable
+	private static String extractSessionIdOrNull(final Runnable task)
+	{
+		final Message<?> message = extractMessageOrNull(task);
+		return message != null ? SimpMessageHeaderAccessor.getSessionId(message.getHeaders()) : null;
+	}
+
+	@Nullable
+	private static Message<?> extractMessageOrNull(final Runnable task)
+	{
+		return task instanceof MessageHandlingRunnable ? ((MessageHandlingRunnable)task).getMessage() : null;
+	}
+
+	private static boolean isSameMessage(@Nullable final Message<?> message1, @Nullable final Message<?> message2)
+	{
+		if (message1 == null || message2 == null)
+		{
+			return false;
+		}
+
+		// merge only MESSAGE frames; receipts, errors etc must always be sent
+		if (SimpMessageHeaderAccessor.getMessageType(message1.getHeaders()) != SimpMessageType.MESSAGE
+				|| SimpMessageHeaderAccessor.getMessageType(message2.getHeaders()) != SimpMessageType.MESSAGE)
+		{
+			return false;
+		}
+
+		// each subscription has to get it's own frame, even if the destination is the same
+		final String subscriptionId1 = SimpMessageHeaderAccessor.getSubscriptionId(message1.getHeaders());
+		final String subscriptionId2 = SimpMessageHeaderAccessor.getSubscriptionId(message2.getHeaders());
+		if (subscriptionId1 == null || !Objects.equals(subscriptionId1, subscriptionId2))
+		{
+			return false;
+		}
+
+		final String destination1 = SimpMessageHeaderAccessor.getDestination(message1.getHeaders());
+		final String destination2 = SimpMessageHeaderAccessor.getDestination(message2.getHeaders());
+		if (destination1 == null || !Objects.equals(destination1, destination2))
+		{
+			return false;
+		}
+
+		final Object payload1 = message1.getPayload();
+		final Object payload2 = message2.getPayload();
+		if (payload1 instanceof byte[] && payload2 instanceof byte[])
+		{
+			return Arrays.equals((byte[])payload1, (byte[])payload2);
+		}
+		else
+		{
+			return Objects.equals(payload1, payload2);
+		}
+	}
+
+	public Stats getStats()
+	{
+		int sessionsCount = 0;
+		int queuedMessagesCount = 0;
+		int maxQueuedMessagesPerSession = 0;
+		for (final SessionQueue queue : queuesBySessionId.values())
+		{
+			final int size = queue.size();
+			sessionsCount++;
+			queuedMessagesCount += size;
+			maxQueuedMessagesPerSession = Math.max(maxQueuedMessagesPerSession, size);
+		}
+
+		return Stats.builder()
+				.sessionsCount(sessionsCount)
+				.queuedMessagesCount(queuedMessagesCount)
+				.maxQueuedMessagesPerSession(maxQueuedMessagesPerSession)
+				.disconnectedSessionsCount(disconnectedSessionsCount.get())
+				.discardedMessagesCount(discardedCount.get())
+				.mergedMessagesCount(mergedCount.get())
+				.build();
+	}
+
+	@Value
+	@Builder
+	public static class Stats
+	{
+		int sessionsCount;
+		int queuedMessagesCount;
+		int maxQueuedMessagesPerSession;
+		/** sessions which were disconnected because they were too slow */
+		long disconnectedSessionsCount;
+		/** messages which were not sent because their session was disconnected */
+		long discardedMessagesCount;
+		long mergedMessagesCount;
+	}
+
+	private enum EnqueueResult
+	{
+		QUEUED, SCHEDULE_DRAIN, QUEUE_RETIRED
+	}
+
+	private final class SessionQueue
+	{
+		private final String sessionId;
+		private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+		private boolean drainScheduled = false;
+		private boolean retired = false;
+		/** true if the session is about to be disconnected, so no more messages are accepted */
+		private boolean disconnecting = false;
+
+		private SessionQueue(@NonNull final String sessionId)
+		{
+			this.sessionId = sessionId;
+		}
+
+		public String getSessionId()
+		{
+			return sessionId;
+		}
+
+		public synchronized int size()
+		{
+			return tasks.size();
+		}
+
+		public synchronized EnqueueResult enqueue(final Runnable task)
+		{
+			if (retired)
+			{
+				return EnqueueResult.QUEUE_RETIRED;
+			}
+
+			if (disconnecting)
+			{
+				discardedCount.incrementAndGet();
+				return EnqueueResult.QUEUED;
+			}
+
+			if (!tasks.isEmpty() && isSameMessage(extractMessageOrNull(tasks.peekLast()), extractMessageOrNull(task)))
+			{
+				mergedCount.incrementAndGet();
+				return EnqueueResult.QUEUED;
+			}
+
+			if (tasks.size() >= maxQueueSizePerSession)
+			{
+				disconnect(task);
+			}
+			else
+			{
+				tasks.addLast(task);
+			}
+
+			if (drainScheduled)
+			{
+				return EnqueueResult.QUEUED;
+			}
+			else
+			{
+				drainScheduled = true;
+				return EnqueueResult.SCHEDULE_DRAIN;
+			}
+		}
+
+		/**
+		 * Discards all queued messages and enqueues an ERROR frame instead, which makes the STOMP handler close the session.
+		 */
+		private void disconnect(final Runnable overflowingTask)
+		{
+			disconnecting = true;
+			disconnectedSessionsCount.incrementAndGet();
+			discardedCount.addAndGet(tasks.size() + 1);
+
+			logger.warn("Slow websocket consumer detected: session {} has {} queued messages. Disconnecting it.", sessionId, tasks.size());
+			tasks.clear();
+
+			final MessageHandler handler = overflowingTask instanceof MessageHandlingRunnable ? ((MessageHandlingRunnable)overflowingTask).getMessageHandler() : null;
+			if (handler != null && !NO_SESSION_KEY.equals(sessionId))
+			{
+				tasks.addLast(new ErrorFrameTask(handler, createSlowConsumerErrorMessage(sessionId)));
+			}
+		}
+
+		/**
+		 * @return next task or null if there are no more tasks, in which case this queue is retired and removed from given map
+		 */
+		@Nullable
+		public synchronized Runnable pollOrRetire(final ConcurrentHashMap<String, SessionQueue> queuesBySessionId)
+		{
+			final Runnable task = tasks.pollFirst();
+			if (task == null)
+			{
+				drainScheduled = false;
+				retired = true;
+				queuesBySessionId.remove(sessionId, this);
+			}
+			return task;
+		}
+	}
+
+	private static Message<byte[]> createSlowConsumerErrorMessage(@NonNull final String sessionId)
+	{
+		final StompHeaderAccessor headers = StompHeaderAccessor.create(StompCommand.ERROR);
+		headers.setMessage(SLOW_CONSUMER_ERROR_MESSAGE);
+		headers.setSessionId(sessionId);
+		return MessageBuilder.createMessage(new byte[0], headers.getMessageHeaders());
+	}
+
+	@Value
+	private static class ErrorFrameTask implements MessageHandlingRunnable
+	{
+		@NonNull
+		MessageHandler messageHandler;
+		@NonNull
+		Message<byte[]> message;
+
+		@Override
+		public void run()
+		{
+			messageHandler.handleMessage(message);
+		}
+	}
+}
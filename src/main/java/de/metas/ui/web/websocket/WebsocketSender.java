@@ -3,6 +3,8 @@ package de.metas.ui.web.websocket;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Predicate;
 
 import org.adempiere.ad.trx.api.ITrx;
 import org.adempiere.ad.trx.api.ITrxListenerManager.TrxEventTiming;
@@ -10,12 +12,20 @@ import org.adempiere.ad.trx.api.ITrxManager;
 import org.adempiere.ad.trx.api.OnTrxMissingPolicy;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
 import org.springframework.stereotype.Component;
 
 import de.metas.logging.LogManager;
+import de.metas.ui.web.cluster.WebuiClusterEventBus;
 import de.metas.util.Services;
 import lombok.NonNull;
 
@@ -56,16 +66,36 @@ public class WebsocketSender implements InitializingBean
 	private static final transient Logger logger = LogManager.getLogger(WebsocketSender.class);
 
 	private final SimpMessagingTemplate websocketMessagingTemplate;
+	private final MessageChannel clientOutboundChannel;
+	private final WebsocketActiveSubscriptionsIndex activeSubscriptions;
+	private final WebsocketMetrics metrics;
 	private final WebsocketEventsLog eventsLog = new WebsocketEventsLog();
+	private final WebsocketClusterForwarder clusterForwarder;
 	private final WebsocketEventsQueue autoflushQueue;
 
 	@Value("${metasfresh.webui.websocket.logEventsEnabled:false}")
 	private boolean logEventsEnabledDefault;
 
-	public WebsocketSender(final SimpMessagingTemplate websocketMessagingTemplate)
+	@Value("${metasfresh.webui.websocket.suppressEventsWithoutSubscribers:true}")
+	private boolean suppressEventsWithoutSubscribers;
+
+	/**
+	 * @param clusterForwardedTopicPrefixes comma separated topic prefixes which are forwarded to the other webui nodes
+	 */
+	public WebsocketSender(
+			final SimpMessagingTemplate websocketMessagingTemplate,
+			@Qualifier("clientOutboundChannel") final MessageChannel clientOutboundChannel,
+			@NonNull final WebsocketActiveSubscriptionsIndex activeSubscriptions,
+			@NonNull final WebsocketMetrics metrics,
+			@NonNull final WebuiClusterEventBus clusterEventBus,
+			@Value("${metasfresh.webui.cluster.websocket.forwardedTopicPrefixes:" + WebSocketConfig.TOPIC_Board + "}") final String clusterForwardedTopicPrefixes)
 	{
 		this.websocketMessagingTemplate = websocketMessagingTemplate;
-		autoflushQueue = new WebsocketEventsQueue("AUTOFLUSH", websocketMessagingTemplate, eventsLog, /* autoflush */true);
+		this.clientOutboundChannel = clientOutboundChannel;
+		this.activeSubscriptions = activeSubscriptions;
+		this.metrics = metrics;
+		clusterForwarder = new WebsocketClusterForwarder(clusterEventBus, websocketMessagingTemplate, clusterForwardedTopicPrefixes);
+		autoflushQueue = new WebsocketEventsQueue("AUTOFLUSH", websocketMessagingTemplate, eventsLog, clusterForwarder, this::suppressIfNotSubscribed, /* autoflush */true);
 	}
 
 	@Override
@@ -89,11 +119,95 @@ public class WebsocketSender implements InitializingBean
 		getQueue().enqueueObject(destination, event);
 	}
 
+	/**
+	 * Sends given event right away, even if there is a running transaction.
+	 * <p>
+	 * To be used by callers which are already deferring their events until after commit
+	 * and which need the events to be handed over to the broker in the same order as they are calling this method.
+	 */
+	public void convertAndSendNow(@NonNull final WebsocketEndpointAware event)
+	{
+		autoflushQueue.enqueueObject(event.getWebsocketEndpoint(), event);
+	}
+
 	public void sendMessage(final String destination, final Message<?> message)
 	{
 		getQueue().enqueueMessage(destination, message);
 	}
 
+	/**
+	 * Sends given event only to the given subscription of given websocket session.
+	 * <p>
+	 * The broker is bypassed, because it would send the event to all subscribers of the event's destination.
+	 * The event is sent right away, even if there is a running transaction.
+	 */
+	public void convertAndSendToSubscriber(
+			@NonNull final String sessionId,
+			@NonNull final String subscriptionId,
+			@NonNull final WebsocketEndpointAware event)
+	{
+		final SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+		headers.setSessionId(sessionId);
+		headers.setSubscriptionId(subscriptionId);
+		headers.setDestination(event.getWebsocketEndpoint());
+		headers.setLeaveMutable(true);
+
+		final Message<?> message = websocketMessagingTemplate.getMessageConverter().toMessage(event, headers.getMessageHeaders());
+		if (message == null)
+		{
+			logger.warn("Cannot convert {} to a websocket message. Not sent to sessionId={}", event, sessionId);
+			return;
+		}
+
+		clientOutboundChannel.send(message);
+	}
+
+	/**
+	 * Runs given task on the outbound channel's threads, in order with the other messages of given session.
+	 * <p>
+	 * Use it to prepare the messages for one session (see {@link #convertAndSendToSubscriber(String, String, WebsocketEndpointAware)})
+	 * when the caller is the thread which is handling the client's messages.
+	 */
+	public void executeForSession(@NonNull final String sessionId, @NonNull final Runnable task)
+	{
+		final Executor executor = clientOutboundChannel instanceof ExecutorSubscribableChannel
+				? ((ExecutorSubscribableChannel)clientOutboundChannel).getExecutor()
+				: null;
+
+		if (executor instanceof WebsocketOutboundTaskExecutor)
+		{
+			((WebsocketOutboundTaskExecutor)executor).executeForSession(sessionId, task);
+		}
+		else if (executor != null)
+		{
+			executor.execute(task);
+		}
+		else
+		{
+			task.run();
+		}
+	}
+
+	/**
+	 * Checks if somebody is subscribed to given destination on this node.
+	 * If not, the event is counted as suppressed and the caller shall not build nor send it.
+	 * <p>
+	 * Call it before building expensive events, to avoid building them for nobody.
+	 *
+	 * @return true if the event shall be suppressed
+	 */
+	public boolean suppressIfNotSubscribed(@NonNull final String destination)
+	{
+		if (!suppressEventsWithoutSubscribers || activeSubscriptions.hasSubscriptions(destination))
+		{
+			return false;
+		}
+
+		metrics.recordSuppressed(destination);
+		logger.trace("Suppressed event for {} because there are no subscribers", destination);
+		return true;
+	}
+
 	private WebsocketEventsQueue getQueue()
 	{
 		final ITrxManager trxManager = Services.get(ITrxManager.class);
@@ -116,7 +230,7 @@ public class WebsocketSender implements InitializingBean
 	{
 		final String name = trx.getTrxName();
 		final boolean autoflush = false;
-		final WebsocketEventsQueue queue = new WebsocketEventsQueue(name, websocketMessagingTemplate, eventsLog, autoflush);
+		final WebsocketEventsQueue queue = new WebsocketEventsQueue(name, websocketMessagingTemplate, eventsLog, clusterForwarder, this::suppressIfNotSubscribed, autoflush);
 
 		// Bind
 		trx.getTrxListenerManager()
@@ -156,6 +270,8 @@ public class WebsocketSender implements InitializingBean
 		private final String name;
 		private final SimpMessagingTemplate websocketMessagingTemplate;
 		private final WebsocketEventsLog eventsLog;
+		private final WebsocketClusterForwarder clusterForwarder;
+		private final Predicate<String> suppressIfNotSubscribed;
 		private final boolean autoflush;
 		private final List<WebsocketEvent> events = new ArrayList<>();
 
@@ -163,11 +279,15 @@ public class WebsocketSender implements InitializingBean
 				@NonNull final String name,
 				@NonNull final SimpMessagingTemplate websocketMessagingTemplate,
 				@NonNull final WebsocketEventsLog eventsLog,
+				@NonNull final WebsocketClusterForwarder clusterForwarder,
+				@NonNull final Predicate<String> suppressIfNotSubscribed,
 				final boolean autoflush)
 		{
 			this.name = name;
 			this.websocketMessagingTemplate = websocketMessagingTemplate;
 			this.eventsLog = eventsLog;
+			this.clusterForwarder = clusterForwarder;
+			this.suppressIfNotSubscribed = suppressIfNotSubscribed;
 			this.autoflush = autoflush;
 		}
 
@@ -176,7 +296,7 @@ public class WebsocketSender implements InitializingBean
 			final boolean converted = false;
 			if (autoflush)
 			{
-				sendEvent(destination, payload, converted);
+				sendEvent(destination, payload, converted, System.currentTimeMillis());
 			}
 			else
 			{
@@ -193,7 +313,7 @@ public class WebsocketSender implements InitializingBean
 			final boolean converted = true;
 			if (autoflush)
 			{
-				sendEvent(destination, message, converted);
+				sendEvent(destination, message, converted, System.currentTimeMillis());
 			}
 			else
 			{
@@ -218,31 +338,63 @@ public class WebsocketSender implements InitializingBean
 			final List<WebsocketEvent> eventsToSend = new ArrayList<>(events);
 			events.clear();
 
-			eventsToSend.forEach(this::sendEvent);
+			final long commitTimestampMillis = System.currentTimeMillis();
+			eventsToSend.forEach(event -> sendEvent(event, commitTimestampMillis));
 		}
 
-		private void sendEvent(final WebsocketEvent event)
+		private void sendEvent(final WebsocketEvent event, final long commitTimestampMillis)
 		{
 			final String destination = event.getDestination();
 			final Object payload = event.getPayload();
 			final boolean converted = event.isConverted();
-			sendEvent(destination, payload, converted);
+			sendEvent(destination, payload, converted, commitTimestampMillis);
 		}
 
-		private void sendEvent(final String destination, final Object payload, final boolean converted)
+		private void sendEvent(final String destination, final Object payload, final boolean converted, final long commitTimestampMillis)
 		{
+			if (!converted)
+			{
+				// NOTE: forward even if nobody is subscribed here, because there might be subscribers on the other nodes
+				clusterForwarder.forwardIfApplies(destination, payload);
+			}
+
+			// NOTE: checking at send time and not at enqueue time, because in the meantime somebody might subscribe
+			if (suppressIfNotSubscribed.test(destination))
+			{
+				return;
+			}
+
 			logger.debug("[name={}] Sending to destination={}: payload={}", name, destination, payload);
 
 			if (converted)
 			{
 				final Message<?> message = (Message<?>)payload;
-				websocketMessagingTemplate.send(destination, message);
+				websocketMessagingTemplate.send(destination, withCommitTimestamp(message, commitTimestampMillis));
 			}
 			else
 			{
-				websocketMessagingTemplate.convertAndSend(destination, payload);
+				websocketMessagingTemplate.convertAndSend(destination, payload, message -> withCommitTimestamp(message, commitTimestampMillis));
 				eventsLog.logEvent(destination, payload);
 			}
 		}
+
+		/**
+		 * Sets the {@link WebsocketMetrics#HEADER_CommitTimestampMillis} header, so we can measure how long it took until the message was actually sent.
+		 */
+		private static Message<?> withCommitTimestamp(final Message<?> message, final long commitTimestampMillis)
+		{
+			final MessageHeaderAccessor headerAccessor = MessageHeaderAccessor.getAccessor(message, MessageHeaderAccessor.class);
+			if (headerAccessor != null && headerAccessor.isMutable())
+			{
+				headerAccessor.setHeader(WebsocketMetrics.HEADER_CommitTimestampMillis, commitTimestampMillis);
+				return message;
+			}
+			else
+			{
+				return MessageBuilder.fromMessage(message)
+						.setHeader(WebsocketMetrics.HEADER_CommitTimestampMillis, commitTimestampMillis)
+						.build();
+			}
+		}
 	}
 }
@@ -0,0 +1,272 @@
+package de.metas.ui.web.websocket;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+import javax.annotation.PreDestroy;
+
+import org.adempiere.util.concurrent.CustomizableThreadFactory;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import de.metas.logging.LogManager;
+import de.metas.util.Check;
+import lombok.Builder;
+import lombok.NonNull;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Executes the websocket subscription handling (e.g. starting the topic producers) out of the threads which are publishing the session events
+ * (i.e. the websocket container threads which are handling the client messages).
+ * <p>
+ * The tasks of one session are executed in the order they were submitted, on the same lane. The tasks of different sessions are executed in parallel.
+ * <p>
+ * Admission control: at most {@link #maxPendingSubscriptions} subscriptions are waiting to be handled.
+ * Subscriptions over that limit are deferred on the server side: they are submitted again after a jittered delay, so the subscriptions are not all coming back at once.
+ * The client keeps its (broker) subscription and gets the events as soon as the deferred subscription was handled.
+ * A deferred subscription is dropped if the client unsubscribes or disconnects meanwhile.
+ * Unsubscribe and disconnect tasks are always accepted because they are cheap and they are releasing resources.
+ */
+@Component
+public class WebsocketSubscriptionsExecutor
+{
+	private static final Logger logger = LogManager.getLogger(WebsocketSubscriptionsExecutor.class);
+
+	private final ExecutorService[] lanes;
+	private final ScheduledExecutorService deferredSubscriptionsScheduler;
+	private final int maxPendingSubscriptions;
+	private final long deferBaseDelayMillis;
+	private final long deferMaxJitterMillis;
+
+	private final AtomicInteger pendingSubscriptions = new AtomicInteger();
+	private final ConcurrentHashMap<DeferredSubscriptionKey, ScheduledFuture<?>> deferredSubscriptions = new ConcurrentHashMap<>();
+	private final AtomicLong acceptedSubscriptions = new AtomicLong();
+	private final AtomicLong deferredSubscriptionsCount = new AtomicLong();
+
+	@Autowired
+	@Builder
+	@VisibleForTesting
+	WebsocketSubscriptionsExecutor(
+			@Value("${metasfresh.webui.websocket.subscriptions.threads:4}") final int threads,
+			@Value("${metasfresh.webui.websocket.subscriptions.maxPending:200}") final int maxPendingSubscriptions,
+			@Value("${metasfresh.webui.websocket.subscriptions.deferBaseDelayMillis:1000}") final long deferBaseDelayMillis,
+			@Value("${metasfresh.webui.websocket.subscriptions.deferMaxJitterMillis:5000}") final long deferMaxJitterMillis)
+	{
+		Check.assumeGreaterThanZero(maxPendingSubscriptions, "maxPendingSubscriptions");
+
+		this.maxPendingSubscriptions = maxPendingSubscriptions;
+		this.deferBaseDelayMillis = Math.max(deferBaseDelayMillis, 0);
+		this.deferMaxJitterMillis = Math.max(deferMaxJitterMillis, 0);
+
+		lanes = new ExecutorService[Math.max(threads, 1)];
+		for (int i = 0; i < lanes.length; i++)
+		{
+			lanes[i] = Executors.newSingleThreadExecutor(CustomizableThreadFactory.builder()
+					.setThreadNamePrefix(getClass().getName() + "-" + i)
+					.setDaemon(true)
+					.build());
+		}
+
+		deferredSubscriptionsScheduler = Executors.newSingleThreadScheduledExecutor(CustomizableThreadFactory.builder()
+				.setThreadNamePrefix(getClass().getName() + "-deferred")
+				.setDaemon(true)
+				.build());
+	}
+
+	@PreDestroy
+	@VisibleForTesting
+	void shutdown()
+	{
+		deferredSubscriptionsScheduler.shutdownNow();
+		for (final ExecutorService lane : lanes)
+		{
+			lane.shutdownNow();
+		}
+	}
+
+	/**
+	 * @return true if the subscription was accepted, false if it was deferred because too many subscriptions are pending
+	 */
+	public boolean submitSubscribe(
+			@NonNull final String sessionId,
+			@Nullable final String subscriptionId,
+			@NonNull final String destination,
+			@NonNull final Runnable task)
+	{
+		final int pending = pendingSubscriptions.incrementAndGet();
+		if (pending > maxPendingSubscriptions)
+		{
+			pendingSubscriptions.decrementAndGet();
+			deferSubscribe(sessionId, subscriptionId, destination, task);
+			return false;
+		}
+
+		acceptedSubscriptions.incrementAndGet();
+		getLane(sessionId).execute(() -> {
+			try
+			{
+				task.run();
+			}
+			catch (final Exception ex)
+			{
+				logger.warn("Failed handling subscription of session {} to {}. Ignored.", sessionId, destination, ex);
+			}
+			finally
+			{
+				pendingSubscriptions.decrementAndGet();
+			}
+		});
+		return true;
+	}
+
+	private void deferSubscribe(
+			@NonNull final String sessionId,
+			@Nullable final String subscriptionId,
+			@NonNull final String destination,
+			@NonNull final Runnable task)
+	{
+		deferredSubscriptionsCount.incrementAndGet();
+
+		final DeferredSubscriptionKey key = new DeferredSubscriptionKey(sessionId, subscriptionId != null ? subscriptionId : destination);
+		final long delayMillis = computeDeferDelayMillis();
+		logger.debug("Too many pending subscriptions. Deferring subscription {} to {} by {}ms", key, destination, delayMillis);
+
+		deferredSubscriptions.compute(key, (k, previousFuture) -> {
+			if (previousFuture != null)
+			{
+				previousFuture.cancel(false);
+			}
+
+			return deferredSubscriptionsScheduler.schedule(
+					() -> {
+						// if it's not there anymore, the client unsubscribed meanwhile
+						if (deferredSubscriptions.remove(key) != null)
+						{
+							submitSubscribe(sessionId, subscriptionId, destination, task);
+						}
+					},
+					delayMillis,
+					TimeUnit.MILLISECONDS);
+		});
+	}
+
+	/**
+	 * @param subscriptionId the subscription to be removed or <code>null</code> if the whole session is closed
+	 */
+	public void submitUnsubscribe(
+			@NonNull final String sessionId,
+			@Nullable final String subscriptionId,
+			@NonNull final Runnable task)
+	{
+		cancelDeferredSubscriptions(sessionId, subscriptionId);
+
+		getLane(sessionId).execute(() -> {
+			try
+			{
+				task.run();
+			}
+			catch (final Exception ex)
+			{
+				logger.warn("Failed handling unsubscribe of session {}. Ignored.", sessionId, ex);
+			}
+		});
+	}
+
+	private void cancelDeferredSubscriptions(@NonNull final String sessionId, @Nullable final String subscriptionId)
+	{
+		deferredSubscriptions.keySet()
+				.stream()
+				.filter(key -> key.isMatching(sessionId, subscriptionId))
+				.forEach(key -> {
+					final ScheduledFuture<?> future = deferredSubscriptions.remove(key);
+					if (future != null)
+					{
+						future.cancel(false);
+						logger.debug("Dropped deferred subscription {}", key);
+					}
+				});
+	}
+
+	private ExecutorService getLane(final String sessionId)
+	{
+		return lanes[Math.floorMod(sessionId.hashCode(), lanes.length)];
+	}
+
+	@VisibleForTesting
+	long computeDeferDelayMillis()
+	{
+		final long jitter = deferMaxJitterMillis > 0 ? ThreadLocalRandom.current().nextLong(deferMaxJitterMillis + 1) : 0;
+		return deferBaseDelayMillis + jitter;
+	}
+
+	public Stats getStats()
+	{
+		return Stats.builder()
+				.pendingSubscriptions(pendingSubscriptions.get())
+				.maxPendingSubscriptions(maxPendingSubscriptions)
+				.waitingDeferredSubscriptions(deferredSubscriptions.size())
+				.acceptedSubscriptions(acceptedSubscriptions.get())
+				.deferredSubscriptions(deferredSubscriptionsCount.get())
+				.build();
+	}
+
+	@lombok.Value
+	@Builder
+	public static class Stats
+	{
+		int pendingSubscriptions;
+		int maxPendingSubscriptions;
+		int waitingDeferredSubscriptions;
+		long acceptedSubscriptions;
+		long deferredSubscriptions;
+	}
+
+	@lombok.Value
+	private static class DeferredSubscriptionKey
+	{
+		@NonNull
+		String sessionId;
+		/** subscription ID or, if not available, the destination */
+		@NonNull
+		String subscriptionId;
+
+		public boolean isMatching(@NonNull final String sessionId, @Nullable final String subscriptionId)
+		{
+			return this.sessionId.equals(sessionId)
+					&& (subscriptionId == null || this.subscriptionId.equals(subscriptionId));
+		}
+	}
+}
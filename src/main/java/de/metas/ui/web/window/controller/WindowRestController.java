@@ -67,6 +67,7 @@ import de.metas.ui.web.window.descriptor.DocumentFieldDescriptor;
 import de.metas.ui.web.window.descriptor.DocumentFieldWidgetType;
 import de.metas.ui.web.window.descriptor.factory.NewRecordDescriptorsProvider;
 import de.metas.ui.web.window.events.DocumentWebsocketPublisher;
+import de.metas.ui.web.window.events.JSONDocumentChangedWebSocketEvent;
 import de.metas.ui.web.window.model.Document;
 import de.metas.ui.web.window.model.DocumentChangeLogService;
 import de.metas.ui.web.window.model.DocumentCollection;
@@ -386,6 +387,20 @@ public class WindowRestController
 		return JSONDocument.ofDocument(documentCopy, jsonOpts);
 	}
 
+	/**
+	 * Returns the full state websocket event of document's topic.
+	 * To be called by the frontend when it detected a gap in the document's websocket events sequence numbers.
+	 */
+	@PostMapping("/{windowId}/{documentId}/websocketResync")
+	public JSONDocumentChangedWebSocketEvent resyncWebsocket(
+			@PathVariable("windowId") final String windowIdStr,
+			@PathVariable("documentId") final String documentIdStr)
+	{
+		userSession.assertLoggedIn();
+
+		return websocketPublisher.resync(WindowId.fromJson(windowIdStr), DocumentId.of(documentIdStr));
+	}
+
 	@DeleteMapping("/{windowId}/{documentId}")
 	public List<JSONDocument> deleteRootDocument(
 			@PathVariable("windowId") final String windowIdStr //
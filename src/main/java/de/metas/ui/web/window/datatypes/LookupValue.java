@@ -285,6 +285,31 @@ public abstract class LookupValue
 		return Objects.hashCode(id);
 	}
 
+	/**
+	 * Unlike {@link #equals(Object)}, which considers only the ID, this method compares all fields.
+	 *
+	 * @return true if given lookup value is interchangeable with this one
+	 */
+	public boolean isIdenticalTo(@Nullable final LookupValue other)
+	{
+		if (this == other)
+		{
+			return true;
+		}
+		if (other == null)
+		{
+			return false;
+		}
+
+		return getClass().equals(other.getClass())
+				&& DataTypes.equals(id, other.id)
+				&& Objects.equals(displayName, other.displayName)
+				&& Objects.equals(description, other.description)
+				&& Objects.equals(active, other.active)
+				&& Objects.equals(additionalAttributes, other.additionalAttributes)
+				&& Objects.equals(validationInformation, other.validationInformation);
+	}
+
 	public String getDisplayName()
 	{
 		return displayName.getDefaultValue();
@@ -1,6 +1,7 @@
 package de.metas.ui.web.window.datatypes.json;
 
 import java.util.HashSet;
+import java.util.Objects;
 import java.util.Set;
 
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
@@ -151,6 +152,66 @@ public final class JSONIncludedTabInfo
 		}
 	}
 
+	public boolean isEmpty()
+	{
+		return !isStale()
+				&& staleRowIds.isEmpty()
+				&& allowCreateNew == null
+				&& allowDelete == null;
+	}
+
+	/**
+	 * Drops the stale row IDs if the whole tab is stale anyways.
+	 */
+	public void compact()
+	{
+		if (isStale())
+		{
+			staleRowIds.clear();
+		}
+	}
+
+	/**
+	 * Removes the stale markers (i.e. stale flag and stale row IDs), e.g. because the whole document is stale anyways.
+	 */
+	public void removeStaleMarkers()
+	{
+		stale = null;
+		staleRowIds.clear();
+	}
+
+	/**
+	 * Removes the <code>allowCreateNew</code> and <code>allowDelete</code> flags which are the same as in given previously sent info.
+	 */
+	public void removeFlagsUnchangedFrom(@NonNull final JSONIncludedTabInfo previous)
+	{
+		if (allowCreateNew != null
+				&& Objects.equals(allowCreateNew, previous.allowCreateNew)
+				&& Objects.equals(allowCreateNewReason, previous.allowCreateNewReason))
+		{
+			allowCreateNew = null;
+			allowCreateNewReason = null;
+		}
+
+		if (allowDelete != null
+				&& Objects.equals(allowDelete, previous.allowDelete)
+				&& Objects.equals(allowDeleteReason, previous.allowDeleteReason))
+		{
+			allowDelete = null;
+			allowDeleteReason = null;
+		}
+	}
+
+	/**
+	 * @return a copy which contains only the <code>allowCreateNew</code> and <code>allowDelete</code> flags
+	 */
+	public JSONIncludedTabInfo copyFlagsOnly()
+	{
+		final JSONIncludedTabInfo flags = new JSONIncludedTabInfo(tabId);
+		flags.mergeFlagsFrom(this);
+		return flags;
+	}
+
 	public void mergeFrom(JSONIncludedTabInfo from)
 	{
 		if (from.stale != null)
@@ -160,6 +221,11 @@ public final class JSONIncludedTabInfo
 
 		staleRowIds.addAll(from.staleRowIds);
 
+		mergeFlagsFrom(from);
+	}
+
+	public void mergeFlagsFrom(@NonNull final JSONIncludedTabInfo from)
+	{
 		if (from.allowCreateNew != null)
 		{
 			allowCreateNew = from.allowCreateNew;
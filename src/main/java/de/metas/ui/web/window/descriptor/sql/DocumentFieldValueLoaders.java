@@ -14,6 +14,8 @@ import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.ZonedDateTime;
 
+import javax.annotation.Nullable;
+
 import org.compiere.util.DisplayType;
 import org.compiere.util.SecureEngine;
 import org.compiere.util.TimeUtil;
@@ -29,6 +31,7 @@ import de.metas.ui.web.window.datatypes.LookupValuesList;
 import de.metas.ui.web.window.datatypes.Password;
 import de.metas.ui.web.window.descriptor.LookupDescriptor;
 import de.metas.ui.web.window.model.lookup.LabelsLookup;
+import de.metas.ui.web.window.model.lookup.LookupValueInternPool;
 import de.metas.util.Check;
 import de.metas.util.IColorRepository;
 import de.metas.util.MFColor;
@@ -446,7 +449,7 @@ public final class DocumentFieldValueLoaders
 				final ResultSet rs,
 				final boolean isDisplayColumnAvailable,
 				final String adLanguage,
-				final LookupDescriptor lookupDescriptor_NOTUSED) throws SQLException
+				final LookupDescriptor lookupDescriptor) throws SQLException
 		{
 			final int id = rs.getInt(sqlColumnName);
 			if (rs.wasNull())
@@ -461,11 +464,12 @@ public final class DocumentFieldValueLoaders
 						sqlDisplayColumnName,
 						adLanguage);
 
-				return IntegerLookupValue.builder()
+				final IntegerLookupValue lookupValue = IntegerLookupValue.builder()
 						.id(id)
 						.displayName(result.getDisplayName())
 						.description(result.getDescription())
 						.build();
+				return LookupValueInternPool.instance.intern(extractInternPoolName(sqlColumnName, lookupDescriptor), adLanguage, lookupValue);
 			}
 			else
 			{
@@ -488,7 +492,7 @@ public final class DocumentFieldValueLoaders
 				@NonNull final ResultSet rs,
 				final boolean isDisplayColumnAvailable,
 				final String adLanguage,
-				final LookupDescriptor lookupDescriptor_NOTUSED) throws SQLException
+				final LookupDescriptor lookupDescriptor) throws SQLException
 		{
 			final String key = rs.getString(sqlColumnName);
 			if (rs.wasNull())
@@ -503,11 +507,12 @@ public final class DocumentFieldValueLoaders
 						sqlDisplayColumnName,
 						adLanguage);
 
-				return StringLookupValue.builder()
+				final StringLookupValue lookupValue = StringLookupValue.builder()
 						.id(key)
 						.displayName(result.getDisplayName())
 						.description(result.getDescription())
 						.build();
+				return LookupValueInternPool.instance.intern(extractInternPoolName(sqlColumnName, lookupDescriptor), adLanguage, lookupValue);
 			}
 			else
 			{
@@ -516,6 +521,15 @@ public final class DocumentFieldValueLoaders
 		}
 	}
 
+	private static String extractInternPoolName(@NonNull final String sqlColumnName, @Nullable final LookupDescriptor lookupDescriptor)
+	{
+		// NOTE: the lookup table name is the best choice because it's shared by all columns pointing to the same table
+		// (e.g. C_BPartner_ID, Bill_BPartner_ID etc), but if it's not known, the column name is also a safe choice.
+		return lookupDescriptor != null
+				? lookupDescriptor.getTableName().orElse(sqlColumnName)
+				: sqlColumnName;
+	}
+
 	private static DisplayNameAndDescription extractDisplayNameAndDescription(
 			@NonNull final ResultSet rs,
 			final String sqlDisplayColumnName,
@@ -11,6 +11,7 @@ import org.adempiere.exceptions.AdempiereException;
 import org.adempiere.util.lang.IAutoCloseable;
 import org.springframework.stereotype.Component;
 
+import de.metas.ui.web.cache.HeapBudgetCacheSize;
 import de.metas.ui.web.websocket.WebsocketSender;
 import de.metas.ui.web.window.datatypes.DocumentId;
 import de.metas.ui.web.window.datatypes.DocumentIdsSelection;
@@ -53,7 +54,17 @@ public class DocumentWebsocketPublisher
 {
 	private final ThreadLocal<JSONDocumentChangedWebSocketEventCollector> THREAD_LOCAL_COLLECTOR = new ThreadLocal<>();
 
+	private static final HeapBudgetCacheSize CACHESIZE_TopicStates = HeapBudgetCacheSize.builder()
+			.sysConfigName("webui.DocumentWebsocketPublisher.TopicStates.CacheSize")
+			.estimatedEntrySizeBytes(1024) // the last sent flags of a document's tabs
+			.heapPercent(1)
+			.minSize(1000)
+			.maxSize(100000)
+			.build();
+	private static final long TOPIC_STATES_EXPIRE_AFTER_ACCESS_MINUTES = 60;
+
 	private final WebsocketSender websocketSender;
+	private final DocumentWebsocketTopicStates topicStates = new DocumentWebsocketTopicStates(CACHESIZE_TopicStates.get(), TOPIC_STATES_EXPIRE_AFTER_ACCESS_MINUTES);
 
 	public DocumentWebsocketPublisher(@NonNull final WebsocketSender websocketSender)
 	{
@@ -82,7 +93,7 @@ public class DocumentWebsocketPublisher
 				collector = trx.getPropertyAndProcessAfterCommit(
 						JSONDocumentChangedWebSocketEventCollector.class.getName(),
 						() -> JSONDocumentChangedWebSocketEventCollector.newInstance(),
-						c -> sendAllAndClear(c, websocketSender));
+						this::sendAllAndClear);
 				autoflush = false;
 			}
 			else
@@ -100,14 +111,50 @@ public class DocumentWebsocketPublisher
 		// Autoflush if needed
 		if (autoflush)
 		{
-			sendAllAndClear(collector, websocketSender);
+			sendAllAndClear(collector);
 		}
 	}
 
-	private static void sendAllAndClear(final JSONDocumentChangedWebSocketEventCollector collector, final WebsocketSender websocketSender)
+	private void sendAllAndClear(final JSONDocumentChangedWebSocketEventCollector collector)
 	{
 		final List<JSONDocumentChangedWebSocketEvent> events = collector.getEventsAndClear();
-		websocketSender.convertAndSend(events);
+		for (final JSONDocumentChangedWebSocketEvent event : events)
+		{
+			if (websocketSender.suppressIfNotSubscribed(event.getWebsocketEndpoint()))
+			{
+				// nobody is listening, so forget what was sent; the next subscriber will get a full state first
+				topicStates.forget(event.getWebsocketEndpoint());
+				continue;
+			}
+
+			// NOTE: we are already after commit, so the event is sent right away, while holding the topic's lock, to keep the sequence numbers in order
+			topicStates.sendDelta(event, websocketSender::convertAndSendNow);
+		}
+	}
+
+	/**
+	 * Sends to a client which just subscribed to a document topic what was already sent on that topic, so it can apply the following deltas.
+	 * <p>
+	 * The full state is built and sent later, on the outbound threads, because we are called on the thread which is handling the client's messages.
+	 * So the client might get some deltas before the full state. The full state supersedes them, because it has the topic's latest sequence number.
+	 */
+	public void onDocumentTopicSubscribed(@NonNull final String topic, @NonNull final String sessionId, @NonNull final String subscriptionId)
+	{
+		websocketSender.executeForSession(
+				sessionId,
+				() -> topicStates.sendFullState(topic, event -> websocketSender.convertAndSendToSubscriber(sessionId, subscriptionId, event)));
+	}
+
+	/**
+	 * Builds a full state event for given root document, telling the caller to reload the whole document.
+	 * <p>
+	 * To be called by the clients which detected a gap in the events sequence numbers. The event is returned only to the caller and not sent to the other subscribers.
+	 */
+	public JSONDocumentChangedWebSocketEvent resync(@NonNull final WindowId windowId, @NonNull final DocumentId documentId)
+	{
+		final JSONDocumentChangedWebSocketEvent event = topicStates.getFullState(windowId, documentId);
+		event.setStale();
+		return event;
 	}
 
 	public void staleRootDocument(final WindowId windowId, final DocumentId documentId)
@@ -189,7 +236,7 @@ public class DocumentWebsocketPublisher
 			public void close()
 			{
 				THREAD_LOCAL_COLLECTOR.set(null);
-				sendAllAndClear(collector, websocketSender);
+				sendAllAndClear(collector);
 			}
 		};
 	}
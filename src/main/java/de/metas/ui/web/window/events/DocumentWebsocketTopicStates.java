@@ -0,0 +1,225 @@
+package de.metas.ui.web.window.events;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.adempiere.exceptions.AdempiereException;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import de.metas.ui.web.websocket.WebSocketConfig;
+import de.metas.ui.web.window.datatypes.DocumentId;
+import de.metas.ui.web.window.datatypes.WindowId;
+import de.metas.ui.web.window.datatypes.json.JSONIncludedTabInfo;
+import lombok.NonNull;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Remembers, for each document topic, what was already sent to the subscribers, so only the changes are sent next time.
+ * <p>
+ * Each sent event gets the next sequence number of its topic.
+ * Preparing and sending an event happens while holding the topic's lock, so the subscribers receive the events in sequence number order.
+ * Because of this, the sender has to send the event right away (i.e. hand it over to the broker), and not defer it (e.g. until a transaction is committed).
+ * <p>
+ * The events are telling only which tabs/rows are stale and the tabs' <code>allowCreateNew</code>/<code>allowDelete</code> flags (the document itself is fetched by the client using the REST API).
+ * So a delta contains only the flags which changed since they were last sent, and, if the whole document is stale, no tab/row stale markers because they are implied.
+ * If the state of a topic was evicted, the next event is flagged as full state, so the clients won't consider the sequence number restart as a gap.
+ * <p>
+ * The deltas are relative to what was sent on the topic, so a client which joins later (or which missed some events) first needs the accumulated state,
+ * see {@link #getFullState(String)}. That one is sent only to the client which needs it, without assigning a new sequence number.
+ */
+final class DocumentWebsocketTopicStates
+{
+	private final Cache<String, TopicState> statesByTopic;
+
+	DocumentWebsocketTopicStates(final int maxSize, final long expireAfterAccessMinutes)
+	{
+		statesByTopic = CacheBuilder.newBuilder()
+				.maximumSize(maxSize)
+				.expireAfterAccess(expireAfterAccessMinutes, TimeUnit.MINUTES)
+				.build();
+	}
+
+	/**
+	 * Converts given event to a delta against what was already sent on its topic and, if there is something left to tell, assigns the next sequence number and sends it.
+	 *
+	 * @return true if the event was sent
+	 */
+	boolean sendDelta(@NonNull final JSONDocumentChangedWebSocketEvent event, @NonNull final Consumer<JSONDocumentChangedWebSocketEvent> sender)
+	{
+		final TopicState state = getState(event);
+		synchronized (state)
+		{
+			state.toDelta(event);
+			if (event.isEmpty())
+			{
+				return false;
+			}
+
+			state.assignSeqNo(event);
+			sender.accept(event);
+			return true;
+		}
+	}
+
+	/**
+	 * Sends to one subscriber everything which was sent so far on given topic, flagged as full state and having the topic's current sequence number,
+	 * so the following events on the topic are deltas against it.
+	 * <p>
+	 * Nothing is sent if there is no state for given topic, because in that case the next event on the topic will be a full state anyways.
+	 *
+	 * @param subscriberSender sends the event only to the subscriber which needs it
+	 * @return true if the event was sent
+	 */
+	boolean sendFullState(@NonNull final String topic, @NonNull final Consumer<JSONDocumentChangedWebSocketEvent> subscriberSender)
+	{
+		final TopicState state = statesByTopic.getIfPresent(topic);
+		if (state == null)
+		{
+			return false;
+		}
+
+		synchronized (state)
+		{
+			subscriberSender.accept(state.toFullState());
+			return true;
+		}
+	}
+
+	/**
+	 * @return everything which was sent so far on given document's topic, flagged as full state and having the topic's current sequence number.
+	 */
+	JSONDocumentChangedWebSocketEvent getFullState(@NonNull final WindowId windowId, @NonNull final DocumentId documentId)
+	{
+		final TopicState state = statesByTopic.getIfPresent(WebSocketConfig.buildDocumentTopicName(windowId, documentId));
+		if (state == null)
+		{
+			// the next event on the topic will be a full state
+			final JSONDocumentChangedWebSocketEvent event = JSONDocumentChangedWebSocketEvent.rootDocument(windowId, documentId);
+			event.setSeqNo(0);
+			event.setFullState();
+			return event;
+		}
+
+		synchronized (state)
+		{
+			return state.toFullState();
+		}
+	}
+
+	/**
+	 * Forgets what was sent on given topic, so the next event sent on it will be a full state.
+	 */
+	void forget(@NonNull final String topic)
+	{
+		statesByTopic.invalidate(topic);
+	}
+
+	private TopicState getState(final JSONDocumentChangedWebSocketEvent event)
+	{
+		try
+		{
+			return statesByTopic.get(event.getWebsocketEndpoint(), () -> new TopicState(event.getWindowId(), event.getDocumentId()));
+		}
+		catch (final ExecutionException ex)
+		{
+			throw AdempiereException.wrapIfNeeded(ex);
+		}
+	}
+
+	long size()
+	{
+		return statesByTopic.size();
+	}
+
+	private static final class TopicState
+	{
+		private final WindowId windowId;
+		private final DocumentId documentId;
+		private long lastSeqNo = 0;
+		private boolean fullStateSent = false;
+		private final Map<String, JSONIncludedTabInfo> lastSentFlagsByTabId = new HashMap<>();
+
+		TopicState(@NonNull final WindowId windowId, @NonNull final DocumentId documentId)
+		{
+			this.windowId = windowId;
+			this.documentId = documentId;
+		}
+
+		void toDelta(final JSONDocumentChangedWebSocketEvent event)
+		{
+			final boolean documentStale = event.isStale();
+			for (final JSONIncludedTabInfo tabInfo : event.getIncludedTabInfos())
+			{
+				if (documentStale)
+				{
+					tabInfo.removeStaleMarkers();
+				}
+				else
+				{
+					tabInfo.compact();
+				}
+
+				final String tabId = tabInfo.getTabId().toJson();
+				final JSONIncludedTabInfo lastSentFlags = lastSentFlagsByTabId.get(tabId);
+				if (lastSentFlags == null)
+				{
+					lastSentFlagsByTabId.put(tabId, tabInfo.copyFlagsOnly());
+				}
+				else
+				{
+					tabInfo.removeFlagsUnchangedFrom(lastSentFlags);
+					lastSentFlags.mergeFlagsFrom(tabInfo);
+				}
+			}
+
+			event.removeEmptyIncludedTabInfos();
+		}
+
+		void assignSeqNo(final JSONDocumentChangedWebSocketEvent event)
+		{
+			lastSeqNo++;
+			event.setSeqNo(lastSeqNo);
+
+			if (!fullStateSent)
+			{
+				event.setFullState();
+				fullStateSent = true;
+			}
+		}
+
+		JSONDocumentChangedWebSocketEvent toFullState()
+		{
+			final JSONDocumentChangedWebSocketEvent event = JSONDocumentChangedWebSocketEvent.rootDocument(windowId, documentId);
+			lastSentFlagsByTabId.values().forEach(event::addIncludedTabInfo);
+			event.setSeqNo(lastSeqNo);
+			event.setFullState();
+			return event;
+		}
+	}
+}
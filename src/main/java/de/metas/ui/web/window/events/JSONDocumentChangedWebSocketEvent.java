@@ -14,6 +14,7 @@ import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
 
 import de.metas.ui.web.websocket.WebSocketConfig;
 import de.metas.ui.web.websocket.WebsocketEndpointAware;
@@ -61,7 +62,7 @@ import lombok.ToString;
 @JsonAutoDetect(fieldVisibility = Visibility.ANY, getterVisibility = Visibility.NONE, isGetterVisibility = Visibility.NONE, setterVisibility = Visibility.NONE)
 @ToString
 @EqualsAndHashCode
-final class JSONDocumentChangedWebSocketEvent implements WebsocketEndpointAware
+public final class JSONDocumentChangedWebSocketEvent implements WebsocketEndpointAware
 {
 	public static JSONDocumentChangedWebSocketEvent rootDocument(final WindowId windowId, final DocumentId documentId)
 	{
@@ -98,6 +99,22 @@ final class JSONDocumentChangedWebSocketEvent implements WebsocketEndpointAware
 	@JsonInclude(JsonInclude.Include.NON_NULL)
 	private Boolean stale;
 
+	/**
+	 * Sequence number of this event in the document's topic, incremented by one for each sent event.
+	 * A client which detects a gap shall request a full resync.
+	 */
+	@JsonProperty("seqNo")
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private Long seqNo;
+
+	/**
+	 * If true, the client shall not check this event's <code>seqNo</code> for gaps but take it as the new starting point.
+	 * Such events are sent to new subscribers, on resync and when the server has no state for the topic, so all following events are deltas against it.
+	 */
+	@JsonProperty("fullState")
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private Boolean fullState;
+
 	/** {@link JSONIncludedTabInfo}s indexed by tabId */
 	@JsonProperty("includedTabsInfo")
 	@JsonInclude(JsonInclude.Include.NON_EMPTY)
@@ -129,6 +146,8 @@ final class JSONDocumentChangedWebSocketEvent implements WebsocketEndpointAware
 		timestamp = from.timestamp;
 
 		stale = from.stale;
+		seqNo = from.seqNo;
+		fullState = from.fullState;
 
 		if (from.includedTabsInfoByTabId != null)
 		{
@@ -142,11 +161,57 @@ final class JSONDocumentChangedWebSocketEvent implements WebsocketEndpointAware
 		return new JSONDocumentChangedWebSocketEvent(this);
 	}
 
+	WindowId getWindowId()
+	{
+		return windowId;
+	}
+
+	DocumentId getDocumentId()
+	{
+		return documentId;
+	}
+
 	void setStale()
 	{
 		stale = Boolean.TRUE;
 	}
 
+	boolean isStale()
+	{
+		return stale != null && stale.booleanValue();
+	}
+
+	void setSeqNo(final long seqNo)
+	{
+		this.seqNo = seqNo;
+	}
+
+	void setFullState()
+	{
+		fullState = Boolean.TRUE;
+	}
+
+	/**
+	 * @return true if this event would tell nothing to the client
+	 */
+	boolean isEmpty()
+	{
+		return !isStale() && (includedTabsInfoByTabId == null || includedTabsInfoByTabId.isEmpty());
+	}
+
+	Collection<JSONIncludedTabInfo> getIncludedTabInfos()
+	{
+		return includedTabsInfoByTabId != null ? includedTabsInfoByTabId.values() : ImmutableList.of();
+	}
+
+	void removeEmptyIncludedTabInfos()
+	{
+		if (includedTabsInfoByTabId != null)
+		{
+			includedTabsInfoByTabId.values().removeIf(JSONIncludedTabInfo::isEmpty);
+		}
+	}
+
 	private Map<String, JSONIncludedTabInfo> getIncludedTabsInfo()
 	{
 		if (includedTabsInfoByTabId == null)
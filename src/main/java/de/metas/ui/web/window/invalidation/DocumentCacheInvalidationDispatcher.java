@@ -1,5 +1,6 @@
 package de.metas.ui.web.window.invalidation;
 
+import java.util.List;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 
@@ -15,11 +16,16 @@ import org.slf4j.Logger;
 import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Component;
 
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+
 import de.metas.cache.CacheMgt;
 import de.metas.cache.ICacheResetListener;
 import de.metas.cache.model.CacheInvalidateMultiRequest;
 import de.metas.cache.model.CacheInvalidateRequest;
 import de.metas.logging.LogManager;
+import de.metas.ui.web.cluster.WebuiClusterEvent;
+import de.metas.ui.web.cluster.WebuiClusterEventBus;
 import de.metas.ui.web.view.IViewsRepository;
 import de.metas.ui.web.window.model.DocumentCollection;
 import de.metas.util.Services;
@@ -49,6 +55,8 @@ import lombok.NonNull;
 
 /**
  * This component listens to all cache invalidation events (see {@link CacheMgt}) and invalidates the right documents or included documents from {@link DocumentCollection}.
+ * <p>
+ * The invalidated documents are also published to the other webui nodes (see {@link WebuiClusterEventBus}), which are invalidating their own copies.
  *
  * @author metas-dev <dev@metasfresh.com>
  *
@@ -59,14 +67,20 @@ public class DocumentCacheInvalidationDispatcher implements ICacheResetListener
 	private static final Logger logger = LogManager.getLogger(DocumentCacheInvalidationDispatcher.class);
 	private final DocumentCollection documents;
 	private final IViewsRepository viewsRepository;
+	private final WebuiClusterEventBus clusterEventBus;
 	private final Executor async;
 
+	private static final String CLUSTER_EVENT_TYPE = "documentInvalidation";
+	private static final String CLUSTER_EVENT_ALL_RECORDS = "*";
+
 	public DocumentCacheInvalidationDispatcher(
 			@NonNull final DocumentCollection documents,
-			@NonNull final IViewsRepository viewsRepository)
+			@NonNull final IViewsRepository viewsRepository,
+			@NonNull final WebuiClusterEventBus clusterEventBus)
 	{
 		this.documents = documents;
 		this.viewsRepository = viewsRepository;
+		this.clusterEventBus = clusterEventBus;
 		async = createAsyncExecutor();
 	}
 
@@ -82,6 +96,7 @@ public class DocumentCacheInvalidationDispatcher implements ICacheResetListener
 	private void postConstruct()
 	{
 		CacheMgt.get().addCacheResetListener(this);
+		clusterEventBus.subscribe(CLUSTER_EVENT_TYPE, this::onClusterEvents);
 	}
 
 	@Override
@@ -127,6 +142,82 @@ public class DocumentCacheInvalidationDispatcher implements ICacheResetListener
 		//
 		final TableRecordReferenceSet rootRecords = documentsToInvalidate.getRootRecords();
 		viewsRepository.notifyRecordsChanged(rootRecords);
+
+		//
+		publishToCluster(documentsToInvalidate);
+	}
+
+	private void publishToCluster(@NonNull final DocumentToInvalidateMap documentsToInvalidate)
+	{
+		if (!clusterEventBus.isEnabled())
+		{
+			return;
+		}
+
+		final ImmutableList.Builder<WebuiClusterEvent> events = ImmutableList.builder();
+		for (final DocumentToInvalidate documentToInvalidate : documentsToInvalidate.toCollection())
+		{
+			final String key = documentToInvalidate.getTableName() + "/" + documentToInvalidate.getDocumentId().toInt();
+			if (documentToInvalidate.isInvalidateDocument())
+			{
+				events.add(WebuiClusterEvent.of(CLUSTER_EVENT_TYPE, key));
+			}
+
+			for (final IncludedDocumentToInvalidate includedDocument : documentToInvalidate.getIncludedDocuments())
+			{
+				if (includedDocument.isInvalidateAll())
+				{
+					events.add(WebuiClusterEvent.of(CLUSTER_EVENT_TYPE, key, includedDocument.getTableName() + "/" + CLUSTER_EVENT_ALL_RECORDS));
+				}
+				else
+				{
+					includedDocument.getRecordIds()
+							.forEach(recordId -> events.add(WebuiClusterEvent.of(CLUSTER_EVENT_TYPE, key, includedDocument.getTableName() + "/" + recordId)));
+				}
+			}
+		}
+
+		clusterEventBus.publishAll(events.build());
+	}
+
+	/**
+	 * Invalidates the documents which were invalidated on another node.
+	 * <p>
+	 * NOTE: the views are not notified here because the other node is publishing its own view events (see {@link IViewsRepository#notifyRecordsChanged(TableRecordReferenceSet)}).
+	 */
+	private void onClusterEvents(@NonNull final List<WebuiClusterEvent> events)
+	{
+		final DocumentToInvalidateMap documentsToInvalidate = new DocumentToInvalidateMap();
+		for (final WebuiClusterEvent event : events)
+		{
+			final List<String> rootParts = Splitter.on('/').splitToList(event.getKey());
+			final TableRecordReference rootDocumentRef = TableRecordReference.of(rootParts.get(0), Integer.parseInt(rootParts.get(1)));
+			final DocumentToInvalidate documentToInvalidate = documentsToInvalidate.getDocumentToInvalidate(rootDocumentRef);
+
+			final String payload = event.getPayload();
+			if (payload == null)
+			{
+				documentToInvalidate.invalidateDocument();
+				continue;
+			}
+
+			final List<String> includedParts = Splitter.on('/').splitToList(payload);
+			final String includedTableName = includedParts.get(0);
+			if (CLUSTER_EVENT_ALL_RECORDS.equals(includedParts.get(1)))
+			{
+				documentToInvalidate.invalidateAllIncludedDocuments(includedTableName);
+			}
+			else
+			{
+				documentToInvalidate.addIncludedDocument(includedTableName, Integer.parseInt(includedParts.get(1)));
+			}
+		}
+
+		logger.trace("Invalidating documents from cluster: {}", documentsToInvalidate);
+		try (final IAutoCloseable c = documents.getWebsocketPublisher().temporaryCollectOnThisThread())
+		{
+			documentsToInvalidate.toCollection().forEach(documents::invalidate);
+		}
 	}
 
 	private final class CacheInvalidateMultiRequestsCollector
@@ -2,6 +2,8 @@ package de.metas.ui.web.window.invalidation;
 
 import java.util.HashSet;
 
+import com.google.common.collect.ImmutableSet;
+
 import de.metas.ui.web.window.datatypes.DocumentIdsSelection;
 import lombok.Getter;
 import lombok.NonNull;
@@ -63,6 +65,16 @@ public final class IncludedDocumentToInvalidate
 		}
 	}
 
+	public boolean isInvalidateAll()
+	{
+		return invalidateAll;
+	}
+
+	public ImmutableSet<Integer> getRecordIds()
+	{
+		return ImmutableSet.copyOf(recordIds);
+	}
+
 	public DocumentIdsSelection toDocumentIdsSelection()
 	{
 		return invalidateAll
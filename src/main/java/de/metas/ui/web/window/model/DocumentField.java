@@ -29,6 +29,7 @@ import de.metas.ui.web.window.exceptions.DocumentFieldNotLookupException;
 import de.metas.ui.web.window.model.Document.CopyMode;
 import de.metas.ui.web.window.model.lookup.DocumentZoomIntoInfo;
 import de.metas.ui.web.window.model.lookup.LookupDataSource;
+import de.metas.ui.web.window.model.lookup.warmup.LookupWarmUpRecorder;
 import de.metas.util.NumberUtils;
 import lombok.NonNull;
 
@@ -416,6 +417,14 @@ import lombok.NonNull;
 		final Evaluatee ctx = getDocument().asEvaluatee();
 		final LookupValuesList values = lookupDataSource.findEntities(ctx);
 		lookupValuesStaled = false;
+
+		descriptor.getLookupDescriptor().ifPresent(lookupDescriptor -> LookupWarmUpRecorder.instance.recordDocumentFieldLookupUsage(
+				getDocument().getEntityDescriptor(),
+				getFieldName(),
+				lookupDescriptor,
+				lookupDataSource,
+				ctx));
+
 		return values == null ? LookupValuesList.EMPTY : values;
 	}
 
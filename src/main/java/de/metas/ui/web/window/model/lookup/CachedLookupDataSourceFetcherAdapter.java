@@ -2,17 +2,21 @@ package de.metas.ui.web.window.model.lookup;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import com.google.common.base.MoreObjects;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 
 import de.metas.cache.CCache;
 import de.metas.cache.CCache.CCacheStats;
+import de.metas.ui.web.cache.HeapBudgetCacheSize;
 import de.metas.ui.web.window.datatypes.LookupValue;
 import de.metas.ui.web.window.datatypes.LookupValuesList;
 import de.metas.ui.web.window.datatypes.WindowId;
 import de.metas.ui.web.window.model.lookup.LookupDataSourceContext.Builder;
 import de.metas.util.Check;
+import lombok.NonNull;
 
 /*
  * #%L
@@ -38,42 +42,91 @@ import de.metas.util.Check;
 
 /**
  * Wraps a given {@link LookupDataSourceFetcher} and cached its retriving methods.
+ * <p>
+ * The caches are keyed by the canonical {@link LookupCacheKey} (i.e. only the parameters the lookup depends on are considered),
+ * so contexts which differ only by unrelated parameters are sharing the same cache entry.
  *
  * @author metas-dev <dev@metasfresh.com>
  *
  */
 public final class CachedLookupDataSourceFetcherAdapter implements LookupDataSourceFetcher
 {
-	public static final CachedLookupDataSourceFetcherAdapter of(final LookupDataSourceFetcher delegate)
+	/**
+	 * @param dependsOnFieldNames document fields the lookup depends on; together with delegate's {@link LookupDataSourceFetcher#getCacheKeyParameterNames()} they define the cache key
+	 */
+	public static final CachedLookupDataSourceFetcherAdapter of(
+			final LookupDataSourceFetcher delegate,
+			@NonNull final Set<String> dependsOnFieldNames)
 	{
 		if (delegate instanceof CachedLookupDataSourceFetcherAdapter)
 		{
 			return (CachedLookupDataSourceFetcherAdapter)delegate;
 		}
-		return new CachedLookupDataSourceFetcherAdapter(delegate);
+		return new CachedLookupDataSourceFetcherAdapter(delegate, dependsOnFieldNames);
 	}
 
 	private static final String NAME = "PerPartition";
 
+	/** each lookup has its own caches */
+	static final int EXPECTED_LOOKUPS_COUNT = 200;
+
+	private static final HeapBudgetCacheSize CACHESIZE_retrieveEntities = HeapBudgetCacheSize.builder()
+			.sysConfigName("webui.lookups.PerPartition.retrieveEntities.CacheSize")
+			.estimatedEntrySizeBytes(2 * 1024) // a page of lookup values; the values themselves are mostly shared (see LookupValueInternPool)
+			.heapPercent(2)
+			.expectedCachesCount(EXPECTED_LOOKUPS_COUNT)
+			.minSize(300)
+			.maxSize(5000)
+			.build();
+
+	private static final HeapBudgetCacheSize CACHESIZE_retrieveLookupValueById = HeapBudgetCacheSize.builder()
+			.sysConfigName("webui.lookups.PerPartition.retrieveLookupValueById.CacheSize")
+			.estimatedEntrySizeBytes(512) // one lookup value
+			.heapPercent(1)
+			.expectedCachesCount(EXPECTED_LOOKUPS_COUNT)
+			.minSize(500)
+			.maxSize(5000)
+			.build();
+
 	private final LookupDataSourceFetcher delegate;
 	private final String cachePrefix;
+	private final ImmutableSet<String> cacheKeyParameterNames;
 
-	private final transient CCache<LookupDataSourceContext, LookupValuesList> cache_retrieveEntities;
-	private final transient CCache<LookupDataSourceContext, LookupValue> cache_retrieveLookupValueById;
+	private final transient CCache<LookupCacheKey, LookupValuesList> cache_retrieveEntities;
+	private final transient LookupCacheHitStats.Counter stats_retrieveEntities;
+	private final transient CCache<LookupCacheKey, LookupValue> cache_retrieveLookupValueById;
+	private final transient LookupCacheHitStats.Counter stats_retrieveLookupValueById;
 
-	private CachedLookupDataSourceFetcherAdapter(final LookupDataSourceFetcher delegate)
+	private CachedLookupDataSourceFetcherAdapter(
+			final LookupDataSourceFetcher delegate,
+			final Set<String> dependsOnFieldNames)
 	{
-		super();
 		Check.assumeNotNull(delegate, "Parameter delegate is not null");
 		this.delegate = delegate;
 
 		cachePrefix = delegate.getCachePrefix();
 		Check.assumeNotEmpty(cachePrefix, "cachePrefix is not empty");
-		final int maxSize = 100;
+
+		// NOTE: if the delegate does not know which context variables it's using, we have to consider all of them
+		cacheKeyParameterNames = delegate.getCacheKeyParameterNames()
+				.map(delegateParameterNames -> ImmutableSet.<String> builder()
+						.addAll(delegateParameterNames)
+						.addAll(dependsOnFieldNames)
+						.build())
+				.orElse(null);
+
 		final int expireAfterMinutes = 60 * 2;
+
 		// NOTE: it's very important to have the lookupTableName as cache name prefix because we want the cache invalidation to happen for this table
-		cache_retrieveEntities = CCache.newLRUCache(cachePrefix + "#" + NAME + "#retrieveEntities", maxSize, expireAfterMinutes);
-		cache_retrieveLookupValueById = CCache.newLRUCache(cachePrefix + "#" + NAME + "#retrieveLookupValueById", maxSize, expireAfterMinutes);
+		final String cacheName_retrieveEntities = cachePrefix + "#" + NAME + "#retrieveEntities";
+		final int maxSize_retrieveEntities = CACHESIZE_retrieveEntities.get();
+		cache_retrieveEntities = CCache.newLRUCache(cacheName_retrieveEntities, maxSize_retrieveEntities, expireAfterMinutes);
+		stats_retrieveEntities = new LookupCacheHitStats.Counter(cacheName_retrieveEntities, maxSize_retrieveEntities);
+
+		final String cacheName_retrieveLookupValueById = cachePrefix + "#" + NAME + "#retrieveLookupValueById";
+		final int maxSize_retrieveLookupValueById = CACHESIZE_retrieveLookupValueById.get();
+		cache_retrieveLookupValueById = CCache.newLRUCache(cacheName_retrieveLookupValueById, maxSize_retrieveLookupValueById, expireAfterMinutes);
+		stats_retrieveLookupValueById = new LookupCacheHitStats.Counter(cacheName_retrieveLookupValueById, maxSize_retrieveLookupValueById);
 	}
 
 	@Override
@@ -119,6 +172,22 @@ public final class CachedLookupDataSourceFetcherAdapter implements LookupDataSou
 				.build();
 	}
 
+	@Override
+	public List<LookupCacheHitStats> getCacheHitStats()
+	{
+		return ImmutableList.<LookupCacheHitStats> builder()
+				.add(stats_retrieveEntities.snapshot())
+				.add(stats_retrieveLookupValueById.snapshot())
+				.addAll(delegate.getCacheHitStats())
+				.build();
+	}
+
+	@Override
+	public Optional<ImmutableSet<String>> getCacheKeyParameterNames()
+	{
+		return Optional.ofNullable(cacheKeyParameterNames);
+	}
+
 	@Override
 	public boolean isNumericKey()
 	{
@@ -134,7 +203,11 @@ public final class CachedLookupDataSourceFetcherAdapter implements LookupDataSou
 	@Override
 	public LookupValue retrieveLookupValueById(final LookupDataSourceContext evalCtx)
 	{
-		return cache_retrieveLookupValueById.getOrLoad(evalCtx, () -> delegate.retrieveLookupValueById(evalCtx));
+		stats_retrieveLookupValueById.recordRequest();
+		return cache_retrieveLookupValueById.getOrLoad(toCacheKey(evalCtx), () -> {
+			stats_retrieveLookupValueById.recordMiss();
+			return delegate.retrieveLookupValueById(evalCtx);
+		});
 	}
 
 	@Override
@@ -146,7 +219,16 @@ public final class CachedLookupDataSourceFetcherAdapter implements LookupDataSou
 	@Override
 	public LookupValuesList retrieveEntities(final LookupDataSourceContext evalCtx)
 	{
-		return cache_retrieveEntities.getOrLoad(evalCtx, delegate::retrieveEntities);
+		stats_retrieveEntities.recordRequest();
+		return cache_retrieveEntities.getOrLoad(toCacheKey(evalCtx), () -> {
+			stats_retrieveEntities.recordMiss();
+			return delegate.retrieveEntities(evalCtx);
+		});
+	}
+
+	private LookupCacheKey toCacheKey(final LookupDataSourceContext evalCtx)
+	{
+		return evalCtx.toCacheKey(cacheKeyParameterNames);
 	}
 
 	@Override
@@ -10,10 +10,12 @@ import org.compiere.util.Evaluatees;
 
 import com.google.common.base.MoreObjects;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 
 import de.metas.cache.CCache;
 import de.metas.cache.CCache.CCacheStats;
 import de.metas.cache.CCache.CacheMapType;
+import de.metas.ui.web.cache.HeapBudgetCacheSize;
 import de.metas.ui.web.window.datatypes.LookupValue;
 import de.metas.ui.web.window.datatypes.LookupValuesList;
 import de.metas.ui.web.window.datatypes.WindowId;
@@ -51,9 +53,19 @@ class FullyCachedLookupDataSource implements LookupDataSource
 
 	private static final String NAME = "OnePartition";
 
+	private static final HeapBudgetCacheSize CACHESIZE_LookupByPartition = HeapBudgetCacheSize.builder()
+			.sysConfigName("webui.lookups.OnePartition.CacheSize")
+			.estimatedEntrySizeBytes(64 * 1024) // all lookup values of one partition
+			.heapPercent(1)
+			.expectedCachesCount(CachedLookupDataSourceFetcherAdapter.EXPECTED_LOOKUPS_COUNT)
+			.minSize(10)
+			.maxSize(500)
+			.build();
+
 	private final LookupDataSourceFetcher fetcher;
 
-	private final transient CCache<LookupDataSourceContext, LookupValuesList> cacheByPartition;
+	private final transient CCache<LookupCacheKey, LookupValuesList> cacheByPartition;
+	private final transient LookupCacheHitStats.Counter cacheByPartitionStats;
 
 	private FullyCachedLookupDataSource(@NonNull final LookupDataSourceFetcher fetcher)
 	{
@@ -61,15 +73,17 @@ class FullyCachedLookupDataSource implements LookupDataSource
 
 		final String cachePrefix = fetcher.getCachePrefix();
 		Check.assumeNotEmpty(cachePrefix, "cachePrefix is not empty");
-		final int maxSize = 100;
+		final int maxSize = CACHESIZE_LookupByPartition.get();
 		final int expireAfterMinutes = 60 * 2;
-		cacheByPartition = CCache.<LookupDataSourceContext, LookupValuesList> builder()
-				.cacheName(cachePrefix + "#" + NAME + "#LookupByPartition")
+		final String cacheName = cachePrefix + "#" + NAME + "#LookupByPartition";
+		cacheByPartition = CCache.<LookupCacheKey, LookupValuesList> builder()
+				.cacheName(cacheName)
 				.cacheMapType(CacheMapType.LRU)
 				.initialCapacity(maxSize)
 				.expireMinutes(expireAfterMinutes)
 				.additionalTableNameToResetFor(I_AD_SysConfig.Table_Name) // when the AvailableToPromiseRepository's SysConfig changes, we need to reset the cache. The same might apply to other cases.
 				.build();
+		cacheByPartitionStats = new LookupCacheHitStats.Counter(cacheName, maxSize);
 	}
 
 	@Override
@@ -80,14 +94,29 @@ class FullyCachedLookupDataSource implements LookupDataSource
 				.toString();
 	}
 
-	private LookupValuesList getLookupValuesList(final Evaluatee parentEvaluatee)
+	private LookupDataSourceContext newContextForFetchingPartition(final Evaluatee parentEvaluatee)
 	{
-		final LookupDataSourceContext evalCtx = fetcher.newContextForFetchingList()
+		return fetcher.newContextForFetchingList()
 				.setParentEvaluatee(parentEvaluatee)
 				.putFilter(LookupDataSourceContext.FILTER_Any, FIRST_ROW, Integer.MAX_VALUE)
 				.build();
+	}
+
+	private LookupValuesList getLookupValuesList(final Evaluatee parentEvaluatee)
+	{
+		final LookupDataSourceContext evalCtx = newContextForFetchingPartition(parentEvaluatee);
+
+		cacheByPartitionStats.recordRequest();
+		return cacheByPartition.getOrLoad(evalCtx.toCacheKey(fetcher.getCacheKeyParameterNames().orElse(null)), () -> {
+			cacheByPartitionStats.recordMiss();
+			return fetcher.retrieveEntities(evalCtx);
+		});
+	}
 
-		return cacheByPartition.getOrLoad(evalCtx, fetcher::retrieveEntities);
+	@Override
+	public ImmutableMap<String, String> getCacheKeyContextParameters(final Evaluatee ctx)
+	{
+		return newContextForFetchingPartition(ctx).toCacheKeyContextParameters(fetcher.getCacheKeyParameterNames().orElse(null));
 	}
 
 	@Override
@@ -148,6 +177,12 @@ class FullyCachedLookupDataSource implements LookupDataSource
 		return ImmutableList.of(cacheByPartition.stats());
 	}
 
+	@Override
+	public List<LookupCacheHitStats> getCacheHitStats()
+	{
+		return ImmutableList.of(cacheByPartitionStats.snapshot());
+	}
+
 	@Override
 	public void cacheInvalidate()
 	{
@@ -1,18 +1,23 @@
 package de.metas.ui.web.window.model.lookup;
 
+import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import org.adempiere.ad.service.impl.LookupDAO.SQLNamePairIterator;
 import org.adempiere.ad.trx.api.ITrx;
 import org.adempiere.ad.validationRule.INamePairPredicate;
+import org.compiere.util.CtxName;
+import org.compiere.util.CtxNames;
 import org.compiere.util.DB;
 import org.slf4j.Logger;
 
 import com.google.common.base.MoreObjects;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 
 import de.metas.cache.CCache.CCacheStats;
 import de.metas.i18n.ITranslatableString;
@@ -61,6 +66,7 @@ public class GenericSqlLookupDataSourceFetcher implements LookupDataSourceFetche
 	}
 
 	private static final Logger logger = LogManager.getLogger(GenericSqlLookupDataSourceFetcher.class);
+	private final LookupValueInternPool lookupValueInternPool = LookupValueInternPool.instance;
 
 	private final @NonNull String lookupTableName;
 	private final @NonNull Optional<String> lookupTableNameAsOptional;
@@ -72,6 +78,7 @@ public class GenericSqlLookupDataSourceFetcher implements LookupDataSourceFetche
 	private final INamePairPredicate postQueryPredicate;
 
 	private final boolean isTranslatable;
+	private final ImmutableSet<String> cacheKeyParameterNames;
 
 	private final Optional<WindowId> zoomIntoWindowId;
 
@@ -88,6 +95,13 @@ public class GenericSqlLookupDataSourceFetcher implements LookupDataSourceFetche
 		postQueryPredicate = sqlLookupDescriptor.getPostQueryPredicate();
 
 		isTranslatable = sqlForFetchingLookupByIdExpression.requiresParameter(LookupDataSourceContext.PARAM_AD_Language.getName());
+		cacheKeyParameterNames = Stream.of(
+				sqlForFetchingExpression.getParameters(),
+				sqlForFetchingLookupByIdExpression.getParameters(),
+				postQueryPredicate != null ? CtxNames.parseAll(postQueryPredicate.getParameters()) : ImmutableSet.<CtxName> of())
+				.flatMap(Collection::stream)
+				.map(CtxName::getName)
+				.collect(ImmutableSet.toImmutableSet());
 
 		zoomIntoWindowId = lookupDescriptor.getZoomIntoWindowId();
 	}
@@ -139,6 +153,12 @@ public class GenericSqlLookupDataSourceFetcher implements LookupDataSourceFetche
 		return ImmutableList.of();
 	}
 
+	@Override
+	public Optional<ImmutableSet<String>> getCacheKeyParameterNames()
+	{
+		return Optional.of(cacheKeyParameterNames);
+	}
+
 	@Override
 	public final LookupDataSourceContext.Builder newContextForFetchingById(final Object id)
 	{
@@ -187,6 +207,7 @@ public class GenericSqlLookupDataSourceFetcher implements LookupDataSourceFetche
 					.stream()
 					.filter(evalCtx::acceptItem)
 					.map(namePair -> LookupValue.fromNamePair(namePair, adLanguage))
+					.map(lookupValue -> lookupValueInternPool.intern(lookupTableName, adLanguage, lookupValue))
 					.collect(LookupValuesList.collect(debugProperties));
 
 			logger.trace("Returning values={} (executed sql: {})", values, sqlForFetching);
@@ -229,10 +250,11 @@ public class GenericSqlLookupDataSourceFetcher implements LookupDataSourceFetche
 			descriptionTrl = TranslatableStrings.anyLanguage(description);
 		}
 
+		final LookupValue lookupValue;
 		if (id instanceof Integer)
 		{
 			final Integer idInt = (Integer)id;
-			return IntegerLookupValue.builder()
+			lookupValue = IntegerLookupValue.builder()
 					.id(idInt)
 					.displayName(displayNameTrl)
 					.description(descriptionTrl)
@@ -242,12 +264,14 @@ public class GenericSqlLookupDataSourceFetcher implements LookupDataSourceFetche
 		else
 		{
 			final String idString = id.toString();
-			return StringLookupValue.builder()
+			lookupValue = StringLookupValue.builder()
 					.id(idString)
 					.displayName(displayNameTrl)
 					.description(descriptionTrl)
 					.active(active)
 					.build();
 		}
+
+		return lookupValueInternPool.intern(lookupTableName, isTranslatable ? evalCtx.getAD_Language() : null, lookupValue);
 	}
 }
@@ -0,0 +1,93 @@
+package de.metas.ui.web.window.model.lookup;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Hit/miss snapshot of a lookup cache.
+ */
+@Value
+@Builder
+public class LookupCacheHitStats
+{
+	@NonNull
+	String cacheName;
+	int maxSize;
+	long hits;
+	long misses;
+
+	public long getRequests()
+	{
+		return hits + misses;
+	}
+
+	public int getHitRatePercent()
+	{
+		final long requests = getRequests();
+		return requests > 0 ? (int)(hits * 100 / requests) : 0;
+	}
+
+	/**
+	 * Mutable, thread-safe hit/miss counter.
+	 */
+	static final class Counter
+	{
+		private final String cacheName;
+		private final int maxSize;
+		private final AtomicLong requests = new AtomicLong();
+		private final AtomicLong misses = new AtomicLong();
+
+		Counter(@NonNull final String cacheName, final int maxSize)
+		{
+			this.cacheName = cacheName;
+			this.maxSize = maxSize;
+		}
+
+		void recordRequest()
+		{
+			requests.incrementAndGet();
+		}
+
+		void recordMiss()
+		{
+			misses.incrementAndGet();
+		}
+
+		LookupCacheHitStats snapshot()
+		{
+			final long misses = this.misses.get();
+			final long hits = Math.max(requests.get() - misses, 0);
+			return LookupCacheHitStats.builder()
+					.cacheName(cacheName)
+					.maxSize(maxSize)
+					.hits(hits)
+					.misses(misses)
+					.build();
+		}
+	}
+}
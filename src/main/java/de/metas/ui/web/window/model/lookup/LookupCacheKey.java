@@ -0,0 +1,60 @@
+package de.metas.ui.web.window.model.lookup;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import org.adempiere.ad.validationRule.INamePairPredicate;
+
+import com.google.common.collect.ImmutableMap;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Canonical cache key of a {@link LookupDataSourceContext}.
+ * <p>
+ * It contains only the parameters the lookup actually depends on and their values are rendered the same way as they are rendered when the lookup SQL is evaluated,
+ * so two contexts which would produce the same SQL are producing the same key.
+ *
+ * @see LookupDataSourceContext#toCacheKey(java.util.Set)
+ */
+@Immutable
+@Value
+@Builder
+public class LookupCacheKey
+{
+	@Nullable
+	String lookupTableName;
+
+	@NonNull
+	ImmutableMap<String, String> parameters;
+
+	@Nullable
+	Object idToFilter;
+
+	@Nullable
+	INamePairPredicate postQueryPredicate;
+}
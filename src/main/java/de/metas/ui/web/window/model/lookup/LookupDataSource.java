@@ -1,5 +1,7 @@
 package de.metas.ui.web.window.model.lookup;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import de.metas.cache.CCache.CCacheStats;
 import de.metas.ui.web.window.datatypes.LookupValue;
 import de.metas.ui.web.window.datatypes.LookupValuesList;
@@ -57,6 +59,15 @@ public interface LookupDataSource extends LookupValueByIdSupplier
 		return findEntities(ctx, Integer.MAX_VALUE);
 	}
 
+	/**
+	 * @return the context parameters which are defining the cache key of {@link #findEntities(Evaluatee)}, rendered as strings; empty if this data source is not cached.
+	 *         Passing them back as evaluatee is hitting the same cache entry.
+	 */
+	default ImmutableMap<String, String> getCacheKeyContextParameters(final Evaluatee ctx)
+	{
+		return ImmutableMap.of();
+	}
+
 	@Override
 	LookupValue findById(Object id);
 
@@ -82,6 +93,11 @@ public interface LookupDataSource extends LookupValueByIdSupplier
 
 	List<CCacheStats> getCacheStats();
 
+	default List<LookupCacheHitStats> getCacheHitStats()
+	{
+		return ImmutableList.of();
+	}
+
 	DocumentZoomIntoInfo getDocumentZoomInto(final int id);
 
 	/**
@@ -6,6 +6,7 @@ import java.util.Optional;
 import org.compiere.util.Evaluatee;
 
 import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableMap;
 
 import de.metas.cache.CCache.CCacheStats;
 import de.metas.ui.web.window.datatypes.LookupValue;
@@ -91,14 +92,31 @@ final class LookupDataSourceAdapter implements LookupDataSource
 			filterEffective = filter.trim();
 		}
 
-		final LookupDataSourceContext evalCtx = fetcher.newContextForFetchingList()
+		final LookupDataSourceContext evalCtx = newContextForFetchingList(ctx, filterEffective, firstRow, pageLength);
+
+		final LookupValuesList lookupValuesList = fetcher.retrieveEntities(evalCtx);
+		return lookupValuesList;
+	}
+
+	private LookupDataSourceContext newContextForFetchingList(final Evaluatee ctx, final String filter, final int firstRow, final int pageLength)
+	{
+		return fetcher.newContextForFetchingList()
 				.setParentEvaluatee(ctx)
-				.putFilter(filterEffective, firstRow, pageLength)
+				.putFilter(filter, firstRow, pageLength)
 				.requiresFilterAndLimit() // make sure the filter, limit and offset will be kept on build
 				.build();
+	}
 
-		final LookupValuesList lookupValuesList = fetcher.retrieveEntities(evalCtx);
-		return lookupValuesList;
+	@Override
+	public ImmutableMap<String, String> getCacheKeyContextParameters(final Evaluatee ctx)
+	{
+		if (!fetcher.isCached())
+		{
+			return ImmutableMap.of();
+		}
+
+		final LookupDataSourceContext evalCtx = newContextForFetchingList(ctx, LookupDataSourceContext.FILTER_Any, FIRST_ROW, Integer.MAX_VALUE);
+		return evalCtx.toCacheKeyContextParameters(fetcher.getCacheKeyParameterNames().orElse(null));
 	}
 
 	@Override
@@ -140,6 +158,12 @@ final class LookupDataSourceAdapter implements LookupDataSource
 		return fetcher.getCacheStats();
 	}
 	
+	@Override
+	public List<LookupCacheHitStats> getCacheHitStats()
+	{
+		return fetcher.getCacheHitStats();
+	}
+
 	@Override
 	public void cacheInvalidate()
 	{
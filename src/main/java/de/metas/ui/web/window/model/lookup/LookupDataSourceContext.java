@@ -8,6 +8,7 @@ import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
@@ -27,6 +28,7 @@ import org.compiere.util.TimeUtil;
 import org.slf4j.Logger;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 
 import de.metas.logging.LogManager;
 import de.metas.security.UserRolePermissionsKey;
@@ -98,6 +100,16 @@ public final class LookupDataSourceContext implements Evaluatee2, IValidationCon
 	public static final CtxName PARAM_ViewId = CtxNames.parse("ViewId");
 	public static final CtxName PARAM_ViewSize = CtxNames.parse("ViewSize");
 
+	/** Parameters which are set by the framework and which are always relevant for the lookup result */
+	private static final ImmutableSet<String> STANDARD_PARAMETER_NAMES = ImmutableSet.of(
+			PARAM_AD_Language.getName(),
+			PARAM_UserRolePermissionsKey.getName(),
+			PARAM_Filter.getName(),
+			PARAM_FilterSql.getName(),
+			SqlForFetchingLookups.PARAM_Limit.getName(),
+			SqlForFetchingLookups.PARAM_Offset.getName(),
+			SqlForFetchingLookupById.SQL_PARAM_ShowInactive.getName());
+
 	private final String lookupTableName;
 	private final ImmutableMap<String, Object> parameterValues;
 	private final Object idToFilter;
@@ -330,6 +342,56 @@ public final class LookupDataSourceContext implements Evaluatee2, IValidationCon
 		return idToFilter != null ? idToFilter.toString() : null;
 	}
 
+	/**
+	 * @param relevantParameterNames parameters the lookup depends on (beside the standard ones like filter, limit, offset, language etc); if <code>null</code> all parameters are considered relevant
+	 * @return canonical cache key
+	 */
+	public LookupCacheKey toCacheKey(@Nullable final Set<String> relevantParameterNames)
+	{
+		final ImmutableMap.Builder<String, String> parametersCanonical = ImmutableMap.builder();
+		for (final String parameterName : parameterValues.keySet())
+		{
+			if (relevantParameterNames != null
+					&& !relevantParameterNames.contains(parameterName)
+					&& !STANDARD_PARAMETER_NAMES.contains(parameterName))
+			{
+				continue;
+			}
+
+			// NOTE: we are using the string representation because that's how the value is rendered when the SQL is evaluated.
+			// e.g. a LookupValue is rendered as it's ID, a date is rendered in JDBC format, no matter which date/time class.
+			final String valueStr = get_ValueAsString(parameterName);
+			if (valueStr == null)
+			{
+				continue;
+			}
+			parametersCanonical.put(parameterName, valueStr);
+		}
+
+		return LookupCacheKey.builder()
+				.lookupTableName(lookupTableName)
+				.parameters(parametersCanonical.build())
+				.idToFilter(idToFilter)
+				.postQueryPredicate(postQueryPredicate)
+				.build();
+	}
+
+	/**
+	 * @return the parameters of {@link #toCacheKey(Set)}, without the standard ones (filter, limit, offset, language etc) which are set again on each request.
+	 *         Used as parent evaluatee, they produce the same cache key again.
+	 */
+	public ImmutableMap<String, String> toCacheKeyContextParameters(@Nullable final Set<String> relevantParameterNames)
+	{
+		final ImmutableMap.Builder<String, String> contextParameters = ImmutableMap.builder();
+		toCacheKey(relevantParameterNames).getParameters().forEach((parameterName, valueStr) -> {
+			if (!STANDARD_PARAMETER_NAMES.contains(parameterName))
+			{
+				contextParameters.put(parameterName, valueStr);
+			}
+		});
+		return contextParameters.build();
+	}
+
 	public ViewId getViewId()
 	{
 		final ViewId viewId = get_ValueAsObject(PARAM_ViewId.getName());
@@ -132,7 +132,7 @@ public final class LookupDataSourceFactory
 		}
 		else
 		{
-			final CachedLookupDataSourceFetcherAdapter cachedFetcher = CachedLookupDataSourceFetcherAdapter.of(fetcher);
+			final CachedLookupDataSourceFetcherAdapter cachedFetcher = CachedLookupDataSourceFetcherAdapter.of(fetcher, lookupDescriptor.getDependsOnFieldNames());
 			lookupDataSource = LookupDataSourceAdapter.of(cachedFetcher);
 		}
 
@@ -171,6 +171,17 @@ public final class LookupDataSourceFactory
 				.collect(GuavaCollectors.toImmutableList());
 	}
 
+	public List<LookupCacheHitStats> getCacheHitStats()
+	{
+		return lookupDataSourcesCache
+				.values()
+				.stream()
+				.flatMap(dataSource -> dataSource.getCacheHitStats().stream())
+				.distinct()
+				.sorted(Comparator.comparing(LookupCacheHitStats::getHitRatePercent))
+				.collect(GuavaCollectors.toImmutableList());
+	}
+
 	@ToString(exclude = "lookupDataSources")
 	private static final class CacheInvalidationGroup
 	{
@@ -4,6 +4,7 @@ import java.util.List;
 import java.util.Optional;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 
 import de.metas.cache.CCache.CCacheStats;
 import de.metas.ui.web.window.datatypes.LookupValue;
@@ -58,6 +59,9 @@ public interface LookupDataSourceFetcher
 	/** @return cache prefix; relevant only if {@link #isCached()} returns <code>false</code> */
 	String getCachePrefix();
 	default List<CCacheStats> getCacheStats() { return ImmutableList.of(); }
+	default List<LookupCacheHitStats> getCacheHitStats() { return ImmutableList.of(); }
+	/** @return the context parameter names which are relevant for caching or empty if all parameters shall be considered relevant */
+	default Optional<ImmutableSet<String>> getCacheKeyParameterNames() { return Optional.empty(); }
 	//@formatter:on
 
 	/** @return tableName if available */
@@ -0,0 +1,170 @@
+package de.metas.ui.web.window.model.lookup;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.MapMaker;
+
+import de.metas.i18n.ITranslatableString;
+import de.metas.ui.web.window.datatypes.LookupValue;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Pool of canonical {@link LookupValue} instances.
+ * <p>
+ * Thousands of view rows and document fields are usually pointing to the same few BPartners, products, UOMs etc.
+ * Instead of keeping one {@link LookupValue} instance (with it's own display name) for each of them, row loaders and lookup fetchers are calling {@link #intern(String, String, LookupValue)}
+ * which returns a shared instance if an identical one (see {@link LookupValue#isIdenticalTo(LookupValue)}) is already known.
+ * <p>
+ * The pool is keyed by (lookup table, id, language) and it's holding the values weakly, so it never prevents a lookup value from being garbage collected.
+ * <p>
+ * The memory saved is estimated from the content of each value which was not kept because a shared instance was returned instead (see {@link #estimateRetainedSizeBytes(LookupValue)}).
+ */
+public final class LookupValueInternPool
+{
+	public static final transient LookupValueInternPool instance = new LookupValueInternPool();
+
+	private final ConcurrentMap<PoolKey, LookupValue> pool = new MapMaker()
+			.weakValues()
+			.makeMap();
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong estimatedBytesSaved = new AtomicLong();
+
+	@VisibleForTesting
+	LookupValueInternPool()
+	{
+	}
+
+	/**
+	 * @param lookupTableName lookup table name or any other string which identifies the ID space of given value (e.g. the column name)
+	 * @param adLanguage language in which the value was rendered or null if the value is not language dependent (i.e. it's display name was built using {@code TranslatableStrings.anyLanguage})
+	 * @return canonical instance, identical to given value
+	 */
+	public <T extends LookupValue> T intern(
+			@Nullable final String lookupTableName,
+			@Nullable final String adLanguage,
+			@Nullable final T value)
+	{
+		if (value == null || lookupTableName == null)
+		{
+			return value;
+		}
+
+		final PoolKey key = new PoolKey(lookupTableName, value.getId(), adLanguage);
+		final LookupValue existingValue = pool.get(key);
+		if (existingValue != null && existingValue.isIdenticalTo(value))
+		{
+			hits.incrementAndGet();
+			estimatedBytesSaved.addAndGet(estimateRetainedSizeBytes(value));
+
+			@SuppressWarnings("unchecked")
+			final T existingValueCasted = (T)existingValue;
+			return existingValueCasted;
+		}
+
+		// NOTE: if there was an existing value but not identical (e.g. the record was renamed), we are replacing it
+		pool.put(key, value);
+		misses.incrementAndGet();
+		return value;
+	}
+
+	/**
+	 * Shallow estimation of the heap retained by given value alone: the value object, it's ID and the translatable display name and description, including their strings.
+	 * The additional attributes and the validation information are not considered, so it's rather a lower bound.
+	 */
+	@VisibleForTesting
+	static long estimateRetainedSizeBytes(@NonNull final LookupValue value)
+	{
+		final int objectHeaderBytes = 16;
+		final int stringOverheadBytes = 40; // String object and it's backing array
+
+		final Object id = value.getId();
+		final long idBytes = id instanceof String
+				? stringOverheadBytes + ((String)id).length()
+				: objectHeaderBytes; // boxed Integer
+
+		return objectHeaderBytes + 32 // lookup value object with it's fields
+				+ idBytes
+				+ estimateRetainedSizeBytes(value.getDisplayNameTrl(), objectHeaderBytes, stringOverheadBytes)
+				+ estimateRetainedSizeBytes(value.getDescriptionTrl(), objectHeaderBytes, stringOverheadBytes);
+	}
+
+	private static long estimateRetainedSizeBytes(
+			@Nullable final ITranslatableString trl,
+			final int objectHeaderBytes,
+			final int stringOverheadBytes)
+	{
+		if (trl == null)
+		{
+			return 0;
+		}
+
+		final String defaultValue = trl.getDefaultValue();
+		return objectHeaderBytes + 16 // translatable string object with it's fields
+				+ (defaultValue != null ? stringOverheadBytes + defaultValue.length() : 0);
+	}
+
+	public Stats getStats()
+	{
+		return Stats.builder()
+				.size(pool.size())
+				.hits(hits.get())
+				.misses(misses.get())
+				.estimatedBytesSaved(estimatedBytesSaved.get())
+				.build();
+	}
+
+	@Value
+	private static class PoolKey
+	{
+		@NonNull
+		String lookupTableName;
+		@NonNull
+		Object id;
+		@Nullable
+		String adLanguage;
+	}
+
+	@Value
+	@Builder
+	public static class Stats
+	{
+		/** number of canonical instances currently in the pool (including the ones which were garbage collected but not yet purged) */
+		int size;
+		/** how many times a shared instance was returned instead of the given one */
+		long hits;
+		/** how many times the given instance became the canonical one */
+		long misses;
+		/** estimated heap which was saved by returning shared instances (see {@link LookupValueInternPool#estimateRetainedSizeBytes(LookupValue)}) */
+		long estimatedBytesSaved;
+	}
+}
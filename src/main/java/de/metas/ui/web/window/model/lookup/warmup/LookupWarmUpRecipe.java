@@ -0,0 +1,99 @@
+package de.metas.ui.web.window.model.lookup.warmup;
+
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableMap;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Describes how to re-create and re-execute a lookup which was used by a document field, so it can be replayed after startup.
+ */
+@JsonAutoDetect(fieldVisibility = Visibility.ANY, getterVisibility = Visibility.NONE, isGetterVisibility = Visibility.NONE, setterVisibility = Visibility.NONE)
+@Value
+public class LookupWarmUpRecipe
+{
+	@JsonProperty("windowId")
+	String windowId;
+
+	@JsonProperty("detailId")
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	String detailId;
+
+	@JsonProperty("fieldName")
+	String fieldName;
+
+	@JsonProperty("adLanguage")
+	String adLanguage;
+
+	@JsonProperty("adClientId")
+	int adClientId;
+
+	@JsonProperty("adOrgId")
+	int adOrgId;
+
+	@JsonProperty("adRoleId")
+	int adRoleId;
+
+	@JsonProperty("adUserId")
+	int adUserId;
+
+	@JsonProperty("parameters")
+	@JsonInclude(JsonInclude.Include.NON_EMPTY)
+	ImmutableMap<String, String> parameters;
+
+	@Builder
+	@JsonCreator
+	private LookupWarmUpRecipe(
+			@JsonProperty("windowId") @NonNull final String windowId,
+			@JsonProperty("detailId") @Nullable final String detailId,
+			@JsonProperty("fieldName") @NonNull final String fieldName,
+			@JsonProperty("adLanguage") @NonNull final String adLanguage,
+			@JsonProperty("adClientId") final int adClientId,
+			@JsonProperty("adOrgId") final int adOrgId,
+			@JsonProperty("adRoleId") final int adRoleId,
+			@JsonProperty("adUserId") final int adUserId,
+			@JsonProperty("parameters") @Nullable final Map<String, String> parameters)
+	{
+		this.windowId = windowId;
+		this.detailId = detailId;
+		this.fieldName = fieldName;
+		this.adLanguage = adLanguage;
+		this.adClientId = adClientId;
+		this.adOrgId = adOrgId;
+		this.adRoleId = adRoleId;
+		this.adUserId = adUserId;
+		this.parameters = parameters != null ? ImmutableMap.copyOf(parameters) : ImmutableMap.of();
+	}
+}
@@ -0,0 +1,161 @@
+package de.metas.ui.web.window.model.lookup.warmup;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.compiere.util.Env;
+import org.compiere.util.Evaluatee;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+
+import de.metas.ui.web.window.datatypes.DocumentType;
+import de.metas.ui.web.window.descriptor.DetailId;
+import de.metas.ui.web.window.descriptor.DocumentEntityDescriptor;
+import de.metas.ui.web.window.descriptor.LookupDescriptor;
+import de.metas.ui.web.window.model.lookup.LookupDataSource;
+import lombok.NonNull;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Records which document field lookups are used, and how often, so they can be replayed by {@link LookupWarmUpService} after the next startup.
+ * <p>
+ * Recording builds the lookup's cache key parameters once more (in memory, no database access), so the replay hits the very same cache entry as the recorded request.
+ * The number of distinct recipes is bounded.
+ */
+public final class LookupWarmUpRecorder
+{
+	public static final transient LookupWarmUpRecorder instance = new LookupWarmUpRecorder();
+
+	private final ConcurrentHashMap<LookupWarmUpRecipe, AtomicLong> usageCountsByRecipe = new ConcurrentHashMap<>();
+	private volatile boolean enabled = false;
+	private volatile int maxRecipes = 1000;
+
+	@VisibleForTesting
+	LookupWarmUpRecorder()
+	{
+	}
+
+	void setEnabled(final boolean enabled)
+	{
+		this.enabled = enabled;
+	}
+
+	void setMaxRecipes(final int maxRecipes)
+	{
+		this.maxRecipes = maxRecipes;
+	}
+
+	public void recordDocumentFieldLookupUsage(
+			@NonNull final DocumentEntityDescriptor entityDescriptor,
+			@NonNull final String fieldName,
+			@NonNull final LookupDescriptor lookupDescriptor,
+			@NonNull final LookupDataSource lookupDataSource,
+			@NonNull final Evaluatee documentEvaluatee)
+	{
+		if (!enabled)
+		{
+			return;
+		}
+		if (entityDescriptor.getDocumentType() != DocumentType.Window)
+		{
+			return;
+		}
+		if (lookupDescriptor.isHighVolume())
+		{
+			// high volume lookups are never fully loaded, so there is nothing to warm up
+			return;
+		}
+
+		final LookupWarmUpRecipe recipe = createRecipe(entityDescriptor, fieldName, lookupDataSource.getCacheKeyContextParameters(documentEvaluatee));
+
+		AtomicLong usageCount = usageCountsByRecipe.get(recipe);
+		if (usageCount == null)
+		{
+			if (usageCountsByRecipe.size() >= maxRecipes)
+			{
+				return;
+			}
+			usageCount = usageCountsByRecipe.computeIfAbsent(recipe, k -> new AtomicLong());
+		}
+		usageCount.incrementAndGet();
+	}
+
+	private static LookupWarmUpRecipe createRecipe(
+			final DocumentEntityDescriptor entityDescriptor,
+			final String fieldName,
+			final Map<String, String> parameters)
+	{
+		final Properties ctx = Env.getCtx();
+		return LookupWarmUpRecipe.builder()
+				.windowId(entityDescriptor.getWindowId().toJson())
+				.detailId(DetailId.toJson(entityDescriptor.getDetailId()))
+				.fieldName(fieldName)
+				.adLanguage(Env.getAD_Language(ctx))
+				.adClientId(Env.getAD_Client_ID(ctx))
+				.adOrgId(Env.getAD_Org_ID(ctx))
+				.adRoleId(Env.getAD_Role_ID(ctx))
+				.adUserId(Env.getAD_User_ID(ctx))
+				.parameters(parameters)
+				.build();
+	}
+
+	/**
+	 * @return recorded recipes, most used first
+	 */
+	public List<LookupWarmUpRecipe> getMostUsedRecipes(final int limit)
+	{
+		return usageCountsByRecipe.entrySet()
+				.stream()
+				.sorted(Comparator.<Map.Entry<LookupWarmUpRecipe, AtomicLong>> comparingLong(entry -> entry.getValue().get()).reversed())
+				.limit(limit)
+				.map(Map.Entry::getKey)
+				.collect(ImmutableList.toImmutableList());
+	}
+
+	/**
+	 * Seeds the usage counters from a previously persisted list of recipes, so the ranking survives restarts.
+	 *
+	 * @param recipes recipes, most used first
+	 */
+	void seed(@NonNull final List<LookupWarmUpRecipe> recipes)
+	{
+		final int count = recipes.size();
+		for (int i = 0; i < count; i++)
+		{
+			final long usageCount = count - i;
+			usageCountsByRecipe.computeIfAbsent(recipes.get(i), k -> new AtomicLong())
+					.accumulateAndGet(usageCount, Math::max);
+		}
+	}
+
+	public int size()
+	{
+		return usageCountsByRecipe.size();
+	}
+}
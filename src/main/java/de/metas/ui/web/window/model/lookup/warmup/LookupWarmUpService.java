@@ -0,0 +1,357 @@
+package de.metas.ui.web.window.model.lookup.warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+import org.adempiere.util.concurrent.CustomizableThreadFactory;
+import org.adempiere.util.lang.IAutoCloseable;
+import org.compiere.util.Env;
+import org.compiere.util.Evaluatees;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+
+import de.metas.JsonObjectMapperHolder;
+import de.metas.logging.LogManager;
+import de.metas.ui.web.session.WebRestApiContextProvider;
+import de.metas.ui.web.window.datatypes.WindowId;
+import de.metas.ui.web.window.descriptor.DetailId;
+import de.metas.ui.web.window.descriptor.DocumentEntityDescriptor;
+import de.metas.ui.web.window.descriptor.DocumentFieldDescriptor;
+import de.metas.ui.web.window.descriptor.factory.DocumentDescriptorFactory;
+import de.metas.ui.web.window.model.lookup.LookupDataSource;
+import de.metas.util.Check;
+import lombok.NonNull;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Warms up the lookup caches after startup by replaying the most used document field lookups, as recorded by {@link LookupWarmUpRecorder} during the previous run.
+ * <p>
+ * The recorded lookups are periodically written to a local file. After the application is ready, they are replayed on a background thread,
+ * until all of them were replayed or the time or the memory budget is exceeded.
+ */
+@Component
+public class LookupWarmUpService
+{
+	private static final Logger logger = LogManager.getLogger(LookupWarmUpService.class);
+
+	private static final String PROPERTY_File = "metasfresh.webui.lookups.warmUp.file";
+
+	private final DocumentDescriptorFactory documentDescriptorFactory;
+	private final LookupWarmUpRecorder recorder = LookupWarmUpRecorder.instance;
+	private final ObjectMapper jsonObjectMapper = JsonObjectMapperHolder.newJsonObjectMapper();
+	private final ScheduledExecutorService executor;
+
+	@Value("${metasfresh.webui.lookups.warmUp.enabled:true}")
+	private boolean enabled;
+	@Value("${" + PROPERTY_File + ":}")
+	private String filePath;
+	@Value("${metasfresh.webui.lookups.warmUp.maxRecipes:1000}")
+	private int maxRecipes;
+	@Value("${metasfresh.webui.lookups.warmUp.saveIntervalMinutes:10}")
+	private int saveIntervalMinutes;
+	@Value("${metasfresh.webui.lookups.warmUp.maxDurationSeconds:300}")
+	private int maxDurationSeconds;
+	@Value("${metasfresh.webui.lookups.warmUp.maxHeapUsagePercent:70}")
+	private int maxHeapUsagePercent;
+
+	private File _file; // lazy
+	private volatile LookupWarmUpStatus status = LookupWarmUpStatus.NOT_STARTED;
+
+	public LookupWarmUpService(@NonNull final DocumentDescriptorFactory documentDescriptorFactory)
+	{
+		this.documentDescriptorFactory = documentDescriptorFactory;
+
+		executor = Executors.newSingleThreadScheduledExecutor(CustomizableThreadFactory.builder()
+				.setThreadNamePrefix(getClass().getName())
+				.setDaemon(true)
+				.build());
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	private void onApplicationReady()
+	{
+		if (!enabled)
+		{
+			status = LookupWarmUpStatus.DISABLED;
+			logger.info("Lookup cache warm-up is disabled");
+			return;
+		}
+
+		recorder.setMaxRecipes(maxRecipes);
+		recorder.setEnabled(true);
+
+		// NOTE: all tasks are executed on the same thread, so replaying and saving never overlap
+		executor.execute(this::loadAndReplay);
+		executor.scheduleWithFixedDelay(this::saveNoFail, saveIntervalMinutes, saveIntervalMinutes, TimeUnit.MINUTES);
+	}
+
+	@PreDestroy
+	private void onShutdown()
+	{
+		executor.shutdownNow();
+		if (enabled)
+		{
+			saveNoFail();
+		}
+	}
+
+	public LookupWarmUpStatus getStatus()
+	{
+		return status;
+	}
+
+	private File getFile()
+	{
+		File file = _file;
+		if (file == null)
+		{
+			if (Check.isEmpty(filePath, true))
+			{
+				logger.info("Using default lookup warm-up file. To configure it, please set '{}' property.", PROPERTY_File);
+				final String tmpdir = System.getProperty("java.io.tmpdir");
+				file = new File(tmpdir, "metasfresh-webui/lookups_warmup.json");
+			}
+			else
+			{
+				file = new File(filePath.trim());
+			}
+			_file = file;
+		}
+		return file;
+	}
+
+	private void saveNoFail()
+	{
+		try
+		{
+			save();
+		}
+		catch (final Exception ex)
+		{
+			logger.warn("Failed saving lookup warm-up recipes to {}. Ignored.", getFile(), ex);
+		}
+	}
+
+	private void save() throws IOException
+	{
+		final List<LookupWarmUpRecipe> recipes = recorder.getMostUsedRecipes(maxRecipes);
+		if (recipes.isEmpty())
+		{
+			return;
+		}
+
+		final File file = getFile();
+		final File dir = file.getParentFile();
+		if (dir != null && !dir.exists() && !dir.mkdirs())
+		{
+			throw new IOException("Cannot create " + dir);
+		}
+
+		// write to a temporary file first, so a crash in the middle never leaves a corrupt file behind
+		final File tempFile = new File(file.getPath() + ".tmp");
+		jsonObjectMapper.writeValue(tempFile, recipes);
+		Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		logger.debug("Saved {} lookup warm-up recipes to {}", recipes.size(), file);
+	}
+
+	private List<LookupWarmUpRecipe> load()
+	{
+		final File file = getFile();
+		if (!file.exists())
+		{
+			return ImmutableList.of();
+		}
+
+		try
+		{
+			final List<LookupWarmUpRecipe> recipes = jsonObjectMapper.readValue(file, new TypeReference<List<LookupWarmUpRecipe>>()
+			{
+			});
+			return recipes != null ? recipes : ImmutableList.of();
+		}
+		catch (final Exception ex)
+		{
+			logger.warn("Failed loading lookup warm-up recipes from {}. Ignored.", file, ex);
+			return ImmutableList.of();
+		}
+	}
+
+	private void loadAndReplay()
+	{
+		final List<LookupWarmUpRecipe> recipes = load();
+		recorder.seed(recipes);
+
+		final Stopwatch stopwatch = Stopwatch.createStarted();
+		final int recipesTotal = recipes.size();
+		logger.info("Lookup cache warm-up: replaying {} recipes (time budget: {}s, max heap usage: {}%)", recipesTotal, maxDurationSeconds, maxHeapUsagePercent);
+
+		LookupWarmUpStatus currentStatus = LookupWarmUpStatus.builder()
+				.state(LookupWarmUpStatus.State.RUNNING)
+				.recipesTotal(recipesTotal)
+				.build();
+		status = currentStatus;
+
+		int done = 0;
+		int skipped = 0;
+		int failed = 0;
+		LookupWarmUpStatus.State finalState = LookupWarmUpStatus.State.COMPLETED;
+		for (final LookupWarmUpRecipe recipe : recipes)
+		{
+			if (stopwatch.elapsed(TimeUnit.SECONDS) >= maxDurationSeconds)
+			{
+				finalState = LookupWarmUpStatus.State.TIME_BUDGET_EXCEEDED;
+				break;
+			}
+			if (getUsedHeapPercent() >= maxHeapUsagePercent)
+			{
+				finalState = LookupWarmUpStatus.State.MEMORY_BUDGET_EXCEEDED;
+				break;
+			}
+
+			try
+			{
+				if (replay(recipe))
+				{
+					done++;
+				}
+				else
+				{
+					skipped++;
+				}
+			}
+			catch (final Exception ex)
+			{
+				failed++;
+				logger.debug("Failed replaying {}. Skipped.", recipe, ex);
+			}
+
+			currentStatus = currentStatus.toBuilder()
+					.recipesDone(done)
+					.recipesSkipped(skipped)
+					.recipesFailed(failed)
+					.durationMillis(stopwatch.elapsed(TimeUnit.MILLISECONDS))
+					.build();
+			status = currentStatus;
+
+			if ((done + skipped + failed) % 100 == 0)
+			{
+				logger.info("Lookup cache warm-up: {}% done ({})", currentStatus.getProgressPercent(), currentStatus);
+			}
+		}
+
+		status = currentStatus.toBuilder()
+				.state(finalState)
+				.durationMillis(stopwatch.elapsed(TimeUnit.MILLISECONDS))
+				.build();
+		logger.info("Lookup cache warm-up finished: {}", status);
+	}
+
+	/**
+	 * @return true if the lookup was replayed, false if it's no longer available
+	 */
+	private boolean replay(@NonNull final LookupWarmUpRecipe recipe)
+	{
+		final LookupDataSource lookupDataSource = getLookupDataSourceOrNull(recipe);
+		if (lookupDataSource == null)
+		{
+			return false;
+		}
+
+		replay(lookupDataSource, recipe);
+		return true;
+	}
+
+	@VisibleForTesting
+	static void replay(@NonNull final LookupDataSource lookupDataSource, @NonNull final LookupWarmUpRecipe recipe)
+	{
+		try (final IAutoCloseable c = Env.switchContext(createContext(recipe)))
+		{
+			// NOTE: the recorded parameters are the ones of the lookup's cache key (see LookupDataSource.getCacheKeyContextParameters),
+			// so calling the same method as DocumentField.getLookupValues() loads the same cache entry
+			lookupDataSource.findEntities(Evaluatees.ofMap(recipe.getParameters()));
+		}
+	}
+
+	private LookupDataSource getLookupDataSourceOrNull(final LookupWarmUpRecipe recipe)
+	{
+		final WindowId windowId = WindowId.fromJson(recipe.getWindowId());
+		if (!documentDescriptorFactory.isWindowIdSupported(windowId))
+		{
+			return null;
+		}
+
+		DocumentEntityDescriptor entityDescriptor = documentDescriptorFactory.getDocumentEntityDescriptor(windowId);
+		final DetailId detailId = DetailId.fromJson(recipe.getDetailId());
+		if (detailId != null)
+		{
+			entityDescriptor = entityDescriptor.getIncludedEntityByDetailId(detailId);
+		}
+
+		final DocumentFieldDescriptor fieldDescriptor = entityDescriptor.getFieldOrNull(recipe.getFieldName());
+		if (fieldDescriptor == null)
+		{
+			return null;
+		}
+
+		return fieldDescriptor.createLookupDataSource().orElse(null);
+	}
+
+	private static Properties createContext(final LookupWarmUpRecipe recipe)
+	{
+		final Properties ctx = new Properties();
+		Env.setContext(ctx, WebRestApiContextProvider.CTXNAME_IsWebUI, true);
+		Env.setContext(ctx, Env.CTXNAME_AD_Language, recipe.getAdLanguage());
+		Env.setContext(ctx, Env.CTXNAME_AD_Client_ID, recipe.getAdClientId());
+		Env.setContext(ctx, Env.CTXNAME_AD_Org_ID, recipe.getAdOrgId());
+		Env.setContext(ctx, Env.CTXNAME_AD_Role_ID, recipe.getAdRoleId());
+		Env.setContext(ctx, Env.CTXNAME_AD_User_ID, recipe.getAdUserId());
+		return ctx;
+	}
+
+	private static int getUsedHeapPercent()
+	{
+		final Runtime runtime = Runtime.getRuntime();
+		final long usedBytes = runtime.totalMemory() - runtime.freeMemory();
+		return (int)(usedBytes * 100 / runtime.maxMemory());
+	}
+}
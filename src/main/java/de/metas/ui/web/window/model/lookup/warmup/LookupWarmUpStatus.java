@@ -0,0 +1,58 @@
+package de.metas.ui.web.window.model.lookup.warmup;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+@Value
+@Builder(toBuilder = true)
+public class LookupWarmUpStatus
+{
+	public enum State
+	{
+		NOT_STARTED, RUNNING, COMPLETED, TIME_BUDGET_EXCEEDED, MEMORY_BUDGET_EXCEEDED, DISABLED
+	}
+
+	public static final LookupWarmUpStatus NOT_STARTED = builder().state(State.NOT_STARTED).build();
+	public static final LookupWarmUpStatus DISABLED = builder().state(State.DISABLED).build();
+
+	@NonNull
+	State state;
+
+	int recipesTotal;
+	int recipesDone;
+	int recipesSkipped;
+	int recipesFailed;
+	long durationMillis;
+
+	public int getProgressPercent()
+	{
+		if (recipesTotal <= 0)
+		{
+			return state == State.NOT_STARTED ? 0 : 100;
+		}
+		return (recipesDone + recipesSkipped + recipesFailed) * 100 / recipesTotal;
+	}
+}
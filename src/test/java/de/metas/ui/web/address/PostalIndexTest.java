@@ -0,0 +1,101 @@
+package de.metas.ui.web.address;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class PostalIndexTest
+{
+	private static PostalIndex.Entry entry(final int postalId, final String postal, final String city)
+	{
+		return PostalIndex.Entry.builder()
+				.postalId(postalId)
+				.postal(postal)
+				.city(city)
+				.countryId(101)
+				.build();
+	}
+
+	/** in database order, i.e. ORDER BY City, Postal, C_Postal_ID */
+	private final PostalIndex index = PostalIndex.of(ImmutableList.of(
+			entry(2, "15230", "Frankfurt (Oder)"),
+			entry(1, "60311", "Frankfurt am Main"),
+			entry(5, "60313", "Frankfurt am Main"),
+			entry(3, "50667", "Köln"),
+			entry(6, "SW1A 1AA", "London"),
+			entry(4, "80331", "München")));
+
+	private static List<Integer> ids(final List<PostalIndex.Entry> entries)
+	{
+		return entries.stream().map(PostalIndex.Entry::getPostalId).collect(ImmutableList.toImmutableList());
+	}
+
+	@Test
+	public void postal()
+	{
+		assertThat(ids(index.findContaining("603", 0, 100))).containsExactly(1, 5);
+		assertThat(ids(index.findContaining("sw1a1", 0, 100))).containsExactly(6);
+		assertThat(ids(index.findContaining("0331", 0, 100))).containsExactly(4);
+	}
+
+	@Test
+	public void city_isCaseAndAccentInsensitive()
+	{
+		assertThat(ids(index.findContaining("KOLN", 0, 100))).containsExactly(3);
+		assertThat(ids(index.findContaining("munch", 0, 100))).containsExactly(4);
+	}
+
+	@Test
+	public void city_matchesAnySubstring()
+	{
+		assertThat(ids(index.findContaining("main", 0, 100))).containsExactly(1, 5);
+		assertThat(ids(index.findContaining("furt", 0, 100))).containsExactly(2, 1, 5);
+		assertThat(ids(index.findContaining("ondo", 0, 100))).containsExactly(6);
+	}
+
+	@Test
+	public void keepsTheGivenOrder()
+	{
+		assertThat(ids(index.getAll(0, 100))).containsExactly(2, 1, 5, 3, 6, 4);
+	}
+
+	@Test
+	public void offsetAndLimit()
+	{
+		assertThat(ids(index.findContaining("frankfurt", 1, 1))).containsExactly(1);
+		assertThat(ids(index.getAll(4, 100))).containsExactly(6, 4);
+	}
+
+	@Test
+	public void noMatch()
+	{
+		assertThat(index.findContaining("xyz", 0, 100)).isEmpty();
+		assertThat(index.findContaining("  ", 0, 100)).isEmpty();
+	}
+}
@@ -0,0 +1,84 @@
+package de.metas.ui.web.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class HeapBudgetCacheSizeTest
+{
+	private static final long MAX_HEAP = 1000L * 1024 * 1024;
+
+	private static HeapBudgetCacheSize.HeapBudgetCacheSizeBuilder newBudget()
+	{
+		return HeapBudgetCacheSize.builder()
+				.sysConfigName("test.CacheSize")
+				.estimatedEntrySizeBytes(1024)
+				.heapPercent(2)
+				.minSize(10)
+				.maxSize(1_000_000);
+	}
+
+	@Test
+	public void sizeOfOneCache()
+	{
+		final HeapBudgetCacheSize budget = newBudget().build();
+		assertThat(budget.computeForMaxHeap(MAX_HEAP, 20)).isEqualTo(20480);
+	}
+
+	@Test
+	public void budgetIsSplitBetweenTheExpectedCaches()
+	{
+		final HeapBudgetCacheSize budget = newBudget().expectedCachesCount(4).build();
+		assertThat(budget.computeForMaxHeap(MAX_HEAP, 20)).isEqualTo(5120);
+	}
+
+	@Test
+	public void scaledByTheConfiguredTotalBudget()
+	{
+		final HeapBudgetCacheSize budget = newBudget().build();
+		assertThat(budget.computeForMaxHeap(MAX_HEAP, 10)).isEqualTo(10240);
+		assertThat(budget.computeForMaxHeap(MAX_HEAP, 40)).isEqualTo(40960);
+	}
+
+	@Test
+	public void notAffectedByOtherBudgets()
+	{
+		final HeapBudgetCacheSize budget = newBudget().build();
+		final int sizeBefore = budget.computeForMaxHeap(MAX_HEAP, 20);
+
+		newBudget().heapPercent(50).build();
+		newBudget().heapPercent(50).build();
+
+		assertThat(budget.computeForMaxHeap(MAX_HEAP, 20)).isEqualTo(sizeBefore);
+	}
+
+	@Test
+	public void minAndMaxSize()
+	{
+		assertThat(newBudget().minSize(50000).build().computeForMaxHeap(MAX_HEAP, 20)).isEqualTo(50000);
+		assertThat(newBudget().maxSize(100).build().computeForMaxHeap(MAX_HEAP, 20)).isEqualTo(100);
+		assertThat(newBudget().build().computeForMaxHeap(MAX_HEAP, 0)).isEqualTo(10);
+	}
+}
@@ -0,0 +1,146 @@
+package de.metas.ui.web.cluster;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class SocketWebuiClusterTransportTest
+{
+	@Test
+	public void batchIsSentToPeer() throws Exception
+	{
+		final SocketWebuiClusterTransport receiver = new SocketWebuiClusterTransport(0, null);
+		final BlockingQueue<WebuiClusterEventBatch> receivedBatches = new LinkedBlockingQueue<>();
+		receiver.start(receivedBatches::add);
+
+		final SocketWebuiClusterTransport sender = new SocketWebuiClusterTransport(0, "localhost:" + receiver.getLocalPort());
+		sender.start(batch -> {});
+
+		try
+		{
+			final WebuiClusterEventBatch batch1 = new WebuiClusterEventBatch("node1", ImmutableList.of(
+					WebuiClusterEvent.of("documentInvalidation", "C_Order/1"),
+					WebuiClusterEvent.of("documentInvalidation", "C_Order/1", "C_OrderLine/*")));
+			final WebuiClusterEventBatch batch2 = new WebuiClusterEventBatch("node1", ImmutableList.of(
+					WebuiClusterEvent.of("websocket", "/board/1", "{\"cardId\":2}")));
+			sender.send(batch1);
+			sender.send(batch2);
+
+			assertThat(receivedBatches.poll(5, TimeUnit.SECONDS)).isEqualTo(batch1);
+			assertThat(receivedBatches.poll(5, TimeUnit.SECONDS)).isEqualTo(batch2);
+		}
+		finally
+		{
+			sender.stop();
+			receiver.stop();
+		}
+	}
+
+	@Test
+	public void unreachablePeerIsSkipped() throws Exception
+	{
+		final SocketWebuiClusterTransport reachable = new SocketWebuiClusterTransport(0, null);
+		final BlockingQueue<WebuiClusterEventBatch> receivedBatches = new LinkedBlockingQueue<>();
+		reachable.start(receivedBatches::add);
+
+		final SocketWebuiClusterTransport down = new SocketWebuiClusterTransport(0, null);
+		down.start(batch -> {});
+		final int downPort = down.getLocalPort();
+		down.stop();
+
+		final SocketWebuiClusterTransport sender = new SocketWebuiClusterTransport(0, "localhost:" + downPort + ", localhost:" + reachable.getLocalPort());
+		sender.start(batch -> {});
+
+		try
+		{
+			final WebuiClusterEventBatch batch = new WebuiClusterEventBatch("node1", ImmutableList.of(WebuiClusterEvent.of("test", "C_Order/1")));
+			sender.send(batch);
+
+			assertThat(receivedBatches.poll(5, TimeUnit.SECONDS)).isEqualTo(batch);
+		}
+		finally
+		{
+			sender.stop();
+			reachable.stop();
+		}
+	}
+
+	@Test
+	public void sendDoesNotBlockOnStalledPeer() throws Exception
+	{
+		// a peer which accepts the connection but never reads
+		try (final ServerSocket stalledPeer = new ServerSocket(0, 50, InetAddress.getLoopbackAddress()))
+		{
+			final SocketWebuiClusterTransport sender = SocketWebuiClusterTransport.builder()
+					.peers("localhost:" + stalledPeer.getLocalPort())
+					.writeTimeoutMillis(200)
+					.peerQueueCapacity(2)
+					.build();
+			sender.start(batch -> {});
+
+			try
+			{
+				final String bigPayload = Strings.repeat("x", 256 * 1024);
+				final WebuiClusterEventBatch batch = new WebuiClusterEventBatch("node1", ImmutableList.of(WebuiClusterEvent.of("test", "C_Order/1", bigPayload)));
+
+				final long startMillis = System.currentTimeMillis();
+				for (int i = 0; i < 50; i++)
+				{
+					sender.send(batch);
+				}
+				assertThat(System.currentTimeMillis() - startMillis).isLessThan(2000);
+			}
+			finally
+			{
+				sender.stop();
+			}
+		}
+	}
+
+	@Test
+	public void tooLongLineIsSkipped() throws Exception
+	{
+		final byte[] input = "short\nthis line is too long\nok\nincomplete".getBytes(StandardCharsets.UTF_8);
+		try (final SocketWebuiClusterTransport.BoundedLineReader reader = new SocketWebuiClusterTransport.BoundedLineReader(new ByteArrayInputStream(input), 10))
+		{
+			assertThat(reader.readLine()).isEqualTo("short");
+			assertThatThrownBy(reader::readLine).isInstanceOf(SocketWebuiClusterTransport.LineTooLongException.class);
+			assertThat(reader.readLine()).isEqualTo("ok");
+			assertThat(reader.readLine()).isNull();
+		}
+	}
+}
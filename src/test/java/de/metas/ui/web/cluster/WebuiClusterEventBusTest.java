@@ -0,0 +1,164 @@
+package de.metas.ui.web.cluster;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class WebuiClusterEventBusTest
+{
+	/** big enough to never flush automatically, so the tests are deciding when to flush */
+	private static final long BATCH_DELAY_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+	private WebuiClusterEventBus node1;
+	private WebuiClusterEventBus node2;
+	private BlockingQueue<List<WebuiClusterEvent>> receivedByNode1;
+	private BlockingQueue<List<WebuiClusterEvent>> receivedByNode2;
+
+	@BeforeEach
+	public void init()
+	{
+		final LoopbackWebuiClusterTransport.Hub hub = new LoopbackWebuiClusterTransport.Hub();
+		node1 = new WebuiClusterEventBus(new LoopbackWebuiClusterTransport(hub), BATCH_DELAY_MILLIS, 100, 1000);
+		node2 = new WebuiClusterEventBus(new LoopbackWebuiClusterTransport(hub), BATCH_DELAY_MILLIS, 100, 1000);
+
+		receivedByNode1 = new LinkedBlockingQueue<>();
+		receivedByNode2 = new LinkedBlockingQueue<>();
+		node1.subscribe("test", receivedByNode1::add);
+		node2.subscribe("test", receivedByNode2::add);
+
+		node1.start();
+		node2.start();
+	}
+
+	@AfterEach
+	public void close()
+	{
+		node1.stop();
+		node2.stop();
+	}
+
+	@Test
+	public void eventsAreBatchedAndDeduplicated() throws Exception
+	{
+		node1.publish(WebuiClusterEvent.of("test", "C_Order/1"));
+		node1.publish(WebuiClusterEvent.of("test", "C_Order/2"));
+		node1.publish(WebuiClusterEvent.of("test", "C_Order/1"));
+		node1.flushNow();
+
+		assertThat(receivedByNode2.poll(5, TimeUnit.SECONDS))
+				.containsExactly(
+						WebuiClusterEvent.of("test", "C_Order/1"),
+						WebuiClusterEvent.of("test", "C_Order/2"));
+
+		final WebuiClusterEventBusStats stats = node1.getStats();
+		assertThat(stats.getPublishedEvents()).isEqualTo(3);
+		assertThat(stats.getDuplicateEvents()).isEqualTo(1);
+		assertThat(stats.getSentBatches()).isEqualTo(1);
+		assertThat(node2.getStats().getReceivedEvents()).isEqualTo(2);
+	}
+
+	@Test
+	public void nodeDoesNotReceiveItsOwnEvents() throws Exception
+	{
+		node1.publish(WebuiClusterEvent.of("test", "C_Order/1"));
+		node1.flushNow();
+
+		assertThat(receivedByNode2.poll(5, TimeUnit.SECONDS)).hasSize(1);
+		assertThat(receivedByNode1.poll(100, TimeUnit.MILLISECONDS)).isNull();
+	}
+
+	@Test
+	public void eventsAreDispatchedByType() throws Exception
+	{
+		final BlockingQueue<List<WebuiClusterEvent>> otherTypeReceived = new LinkedBlockingQueue<>();
+		node2.subscribe("otherType", otherTypeReceived::add);
+
+		node1.publishAll(ImmutableList.of(
+				WebuiClusterEvent.of("test", "C_Order/1"),
+				WebuiClusterEvent.of("otherType", "C_Invoice/1", "payload")));
+		node1.flushNow();
+
+		assertThat(receivedByNode2.poll(5, TimeUnit.SECONDS)).containsExactly(WebuiClusterEvent.of("test", "C_Order/1"));
+		assertThat(otherTypeReceived.poll(5, TimeUnit.SECONDS)).containsExactly(WebuiClusterEvent.of("otherType", "C_Invoice/1", "payload"));
+	}
+
+	@Test
+	public void fullBatchIsSentWithoutWaitingForTheDelay() throws Exception
+	{
+		final ImmutableList.Builder<WebuiClusterEvent> events = ImmutableList.builder();
+		for (int i = 1; i <= 100; i++)
+		{
+			events.add(WebuiClusterEvent.of("test", "C_Order/" + i));
+		}
+		node1.publishAll(events.build());
+
+		assertThat(receivedByNode2.poll(5, TimeUnit.SECONDS)).hasSize(100);
+	}
+
+	@Test
+	public void eventsAreDroppedWhenTooManyArePending() throws Exception
+	{
+		final WebuiClusterEventBus smallBus = new WebuiClusterEventBus(new LoopbackWebuiClusterTransport(new LoopbackWebuiClusterTransport.Hub()), BATCH_DELAY_MILLIS, 100, 2);
+		smallBus.start();
+		try
+		{
+			smallBus.publish(WebuiClusterEvent.of("test", "C_Order/1"));
+			smallBus.publish(WebuiClusterEvent.of("test", "C_Order/2"));
+			smallBus.publish(WebuiClusterEvent.of("test", "C_Order/3"));
+			smallBus.publish(WebuiClusterEvent.of("test", "C_Order/1"));
+
+			final WebuiClusterEventBusStats stats = smallBus.getStats();
+			assertThat(stats.getPendingEvents()).isEqualTo(2);
+			assertThat(stats.getDroppedEvents()).isEqualTo(1);
+			assertThat(stats.getDuplicateEvents()).isEqualTo(1);
+		}
+		finally
+		{
+			smallBus.stop();
+		}
+	}
+
+	@Test
+	public void disabledBusIsNotCollectingEvents()
+	{
+		final WebuiClusterEventBus disabledBus = new WebuiClusterEventBus(null, BATCH_DELAY_MILLIS, 100, 1000);
+		disabledBus.start();
+
+		disabledBus.publish(WebuiClusterEvent.of("test", "C_Order/1"));
+
+		assertThat(disabledBus.isEnabled()).isFalse();
+		assertThat(disabledBus.getStats().getPublishedEvents()).isEqualTo(0);
+		assertThat(disabledBus.getStats().getPendingEvents()).isEqualTo(0);
+	}
+}
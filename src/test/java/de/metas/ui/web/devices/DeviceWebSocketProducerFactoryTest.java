@@ -0,0 +1,107 @@
+package de.metas.ui.web.devices;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.adempiere.util.lang.IAutoCloseable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import de.metas.ui.web.websocket.WebSocketProducer;
+import de.metas.ui.web.window.datatypes.json.JSONOptions;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class DeviceWebSocketProducerFactoryTest
+{
+	private static final String DEVICE_ID = "scale1";
+
+	private SimulatedDeviceValueSource scale;
+	private WebSocketProducer producer;
+	private final JSONOptions jsonOpts = JSONOptions.ofAdLanguage("en_US");
+
+	@BeforeEach
+	public void beforeEach()
+	{
+		scale = SimulatedDeviceValueSource.builder()
+				.deviceId(DEVICE_ID)
+				.initialValue(new BigDecimal("1.5"))
+				.build();
+
+		final DeviceValueSourceProvider simulatedDevices = deviceId -> DEVICE_ID.equals(deviceId) ? scale : null;
+		final DeviceWebSocketProducerFactory factory = new DeviceWebSocketProducerFactory(Optional.of(ImmutableList.of(simulatedDevices)));
+		producer = factory.createProducer(DeviceWebSocketProducerFactory.buildDeviceTopicName(DEVICE_ID));
+	}
+
+	@Test
+	public void polling_unchangedValuesAreNotSentAgain()
+	{
+		final JSONDeviceValueChangedEvent event = (JSONDeviceValueChangedEvent)producer.produceEvent(jsonOpts);
+		assertThat(event.getDeviceId()).isEqualTo(DEVICE_ID);
+		assertThat(event.getValue()).isEqualTo("1.5");
+
+		assertThat(producer.produceEvent(jsonOpts)).isNull();
+
+		scale.setValue(new BigDecimal("2"));
+		assertThat(((JSONDeviceValueChangedEvent)producer.produceEvent(jsonOpts)).getValue()).isEqualTo("2");
+		assertThat(producer.produceEvent(jsonOpts)).isNull();
+	}
+
+	@Test
+	public void newSubscription_currentValueIsSentAgain()
+	{
+		assertThat(producer.produceEvent(jsonOpts)).isNotNull();
+		assertThat(producer.produceEvent(jsonOpts)).isNull();
+
+		producer.onNewSubscription();
+		assertThat(producer.produceEvent(jsonOpts)).isNotNull();
+	}
+
+	@Test
+	public void push_onlyChangesArePushed() throws Exception
+	{
+		final List<Object> pushedEvents = new ArrayList<>();
+		final IAutoCloseable subscription = producer.startPushing(pushedEvents::add).get();
+		assertThat(scale.getListenersCount()).isEqualTo(1);
+
+		// initial value
+		assertThat(producer.produceEvent(jsonOpts)).isNotNull();
+
+		scale.setValue(new BigDecimal("1.5")); // same value
+		assertThat(pushedEvents).isEmpty();
+
+		scale.setValue(new BigDecimal("3"));
+		scale.setValue(new BigDecimal("3"));
+		assertThat(pushedEvents).hasSize(1);
+		assertThat(((JSONDeviceValueChangedEvent)pushedEvents.get(0)).getValue()).isEqualTo("3");
+
+		subscription.close();
+		assertThat(scale.getListenersCount()).isEqualTo(0);
+	}
+}
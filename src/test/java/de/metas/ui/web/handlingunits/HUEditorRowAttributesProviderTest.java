@@ -0,0 +1,192 @@
+package de.metas.ui.web.handlingunits;
+
+import static org.adempiere.model.InterfaceWrapperHelper.newInstance;
+import static org.adempiere.model.InterfaceWrapperHelper.saveRecord;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.adempiere.ad.dao.IQueryBL;
+import org.adempiere.mm.attributes.api.AttributeConstants;
+import org.adempiere.test.AdempiereTestHelper;
+import org.compiere.model.I_M_Attribute;
+import org.compiere.model.X_M_Attribute;
+import org.compiere.util.TimeUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import de.metas.cache.CacheMgt;
+import de.metas.handlingunits.HuId;
+import de.metas.handlingunits.model.I_M_HU;
+import de.metas.handlingunits.model.I_M_HU_Attribute;
+import de.metas.util.Services;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class HUEditorRowAttributesProviderTest
+{
+	private AtomicInteger queriesCount;
+	private I_M_Attribute bestBeforeDateAttribute;
+
+	@BeforeEach
+	public void beforeEach()
+	{
+		AdempiereTestHelper.get().init();
+		CacheMgt.get().reset(I_M_HU_Attribute.Table_Name); // the attribute values cache is shared by all providers
+
+		queriesCount = new AtomicInteger();
+		final IQueryBL queryBL = Services.get(IQueryBL.class);
+		Services.registerService(IQueryBL.class, (IQueryBL)Proxy.newProxyInstance(
+				IQueryBL.class.getClassLoader(),
+				new Class<?>[] { IQueryBL.class },
+				(proxy, method, args) -> {
+					if (method.getName().startsWith("createQueryBuilder"))
+					{
+						queriesCount.incrementAndGet();
+					}
+
+					try
+					{
+						return method.invoke(queryBL, args);
+					}
+					catch (final InvocationTargetException ex)
+					{
+						throw ex.getCause();
+					}
+				}));
+
+		bestBeforeDateAttribute = newInstance(I_M_Attribute.class);
+		bestBeforeDateAttribute.setValue(AttributeConstants.ATTR_BestBeforeDate);
+		bestBeforeDateAttribute.setName(AttributeConstants.ATTR_BestBeforeDate);
+		bestBeforeDateAttribute.setAttributeValueType(X_M_Attribute.ATTRIBUTEVALUETYPE_Date);
+		saveRecord(bestBeforeDateAttribute);
+	}
+
+	private HuId createHU(final LocalDate bestBeforeDate)
+	{
+		final I_M_HU hu = newInstance(I_M_HU.class);
+		saveRecord(hu);
+
+		if (bestBeforeDate != null)
+		{
+			final I_M_HU_Attribute huAttribute = newInstance(I_M_HU_Attribute.class);
+			huAttribute.setM_HU_ID(hu.getM_HU_ID());
+			huAttribute.setM_Attribute_ID(bestBeforeDateAttribute.getM_Attribute_ID());
+			huAttribute.setValueDate(TimeUtil.asTimestamp(bestBeforeDate));
+			huAttribute.setIsActive(true);
+			saveRecord(huAttribute);
+		}
+
+		return HuId.ofRepoId(hu.getM_HU_ID());
+	}
+
+	@Test
+	public void warmUp_loadsAllHUsWithOneQuery()
+	{
+		final HuId huId1 = createHU(LocalDate.parse("2020-03-01"));
+		final HuId huId2 = createHU(LocalDate.parse("2020-03-02"));
+		final HuId huId3 = createHU(null);
+
+		final HUEditorRowAttributesProvider provider = HUEditorRowAttributesProvider.builder().readonly(true).build();
+
+		queriesCount.set(0);
+		provider.warmUp(ImmutableList.of(huId1, huId2, huId3));
+		assertThat(queriesCount.get()).isEqualTo(1);
+
+		assertThat(provider.getBestBeforeDate(huId1)).contains(LocalDate.parse("2020-03-01"));
+		assertThat(provider.getBestBeforeDate(huId2)).contains(LocalDate.parse("2020-03-02"));
+		assertThat(provider.getBestBeforeDate(huId3)).isEmpty();
+		assertThat(queriesCount.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void getBestBeforeDate_withoutWarmUp()
+	{
+		final HuId huId = createHU(LocalDate.parse("2020-03-01"));
+
+		final HUEditorRowAttributesProvider provider = HUEditorRowAttributesProvider.builder().readonly(true).build();
+		assertThat(provider.getBestBeforeDate(huId)).contains(LocalDate.parse("2020-03-01"));
+	}
+
+	@Test
+	public void invalidateAll_forgetsPrefetchedValues()
+	{
+		final HuId huId = createHU(LocalDate.parse("2020-03-01"));
+
+		final HUEditorRowAttributesProvider provider = HUEditorRowAttributesProvider.builder().readonly(true).build();
+		provider.warmUp(ImmutableList.of(huId));
+		provider.invalidateAll();
+
+		queriesCount.set(0);
+		assertThat(provider.getBestBeforeDate(huId)).contains(LocalDate.parse("2020-03-01"));
+		assertThat(queriesCount.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void invalidate_forgetsOnlyGivenHUs()
+	{
+		final HuId huId1 = createHU(LocalDate.parse("2020-03-01"));
+		final HuId huId2 = createHU(LocalDate.parse("2020-03-02"));
+
+		final HUEditorRowAttributesProvider provider = HUEditorRowAttributesProvider.builder().readonly(true).build();
+		provider.warmUp(ImmutableList.of(huId1, huId2));
+		provider.invalidate(ImmutableList.of(huId1));
+
+		queriesCount.set(0);
+		assertThat(provider.getBestBeforeDate(huId2)).contains(LocalDate.parse("2020-03-02"));
+		assertThat(queriesCount.get()).isEqualTo(0);
+		assertThat(provider.getBestBeforeDate(huId1)).contains(LocalDate.parse("2020-03-01"));
+		assertThat(queriesCount.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void attributeValuesAreSharedByProviders()
+	{
+		final HuId huId = createHU(LocalDate.parse("2020-03-01"));
+		HUEditorRowAttributesProvider.builder().readonly(true).build().warmUp(ImmutableList.of(huId));
+
+		queriesCount.set(0);
+		final HUEditorRowAttributesProvider otherProvider = HUEditorRowAttributesProvider.builder().readonly(false).build();
+		assertThat(otherProvider.getBestBeforeDate(huId)).contains(LocalDate.parse("2020-03-01"));
+		assertThat(queriesCount.get()).isEqualTo(0);
+	}
+
+	@Test
+	public void attributeValuesAreResetWhenHUAttributesAreChanged()
+	{
+		final HuId huId = createHU(LocalDate.parse("2020-03-01"));
+		final HUEditorRowAttributesProvider provider = HUEditorRowAttributesProvider.builder().readonly(true).build();
+		provider.warmUp(ImmutableList.of(huId));
+
+		CacheMgt.get().reset(I_M_HU_Attribute.Table_Name);
+
+		queriesCount.set(0);
+		assertThat(provider.getBestBeforeDate(huId)).contains(LocalDate.parse("2020-03-01"));
+		assertThat(queriesCount.get()).isEqualTo(1);
+	}
+}
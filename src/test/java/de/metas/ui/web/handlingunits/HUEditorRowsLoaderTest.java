@@ -0,0 +1,281 @@
+package de.metas.ui.web.handlingunits;
+
+import static org.adempiere.model.InterfaceWrapperHelper.newInstance;
+import static org.adempiere.model.InterfaceWrapperHelper.saveRecord;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import org.adempiere.ad.dao.IQueryBL;
+import org.adempiere.ad.service.IADReferenceDAO;
+import org.adempiere.test.AdempiereTestHelper;
+import org.compiere.model.I_C_UOM;
+import org.compiere.model.I_M_Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.google.common.collect.ImmutableList;
+
+import de.metas.cache.CacheMgt;
+import de.metas.handlingunits.IHUStatusBL;
+import de.metas.handlingunits.IHandlingUnitsBL;
+import de.metas.handlingunits.IHandlingUnitsDAO;
+import de.metas.handlingunits.model.I_M_HU;
+import de.metas.handlingunits.model.I_M_HU_Item;
+import de.metas.handlingunits.model.I_M_HU_PI;
+import de.metas.handlingunits.model.I_M_HU_PI_Version;
+import de.metas.handlingunits.model.I_M_HU_Reservation;
+import de.metas.handlingunits.model.I_M_HU_Storage;
+import de.metas.handlingunits.model.I_M_Locator;
+import de.metas.handlingunits.model.I_M_Warehouse;
+import de.metas.handlingunits.model.X_M_HU;
+import de.metas.handlingunits.model.X_M_HU_Item;
+import de.metas.handlingunits.model.X_M_HU_PI_Version;
+import de.metas.handlingunits.reservation.HUReservationService;
+import de.metas.i18n.IMsgBL;
+import de.metas.ui.web.window.datatypes.WindowId;
+import de.metas.util.Services;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class HUEditorRowsLoaderTest
+{
+	/** Counts all calls which might hit the database, see {@link #beforeEach()} */
+	private AtomicInteger queriesCount;
+	private HUReservationService huReservationService;
+
+	private I_M_HU_PI_Version luPIVersion;
+	private I_M_HU_PI_Version tuPIVersion;
+	private I_M_HU_PI_Version virtualPIVersion;
+	private I_M_Locator locator;
+	private I_M_Product product;
+	private I_C_UOM uom;
+
+	@BeforeEach
+	public void beforeEach()
+	{
+		AdempiereTestHelper.get().init();
+
+		CacheMgt.get().reset(I_M_HU_PI.Table_Name);
+		CacheMgt.get().reset(I_M_HU_Reservation.Table_Name);
+
+		//
+		// Count every call which might end up in the database:
+		// each query builder, and each call to the services which are loading data on their own
+		queriesCount = new AtomicInteger();
+		registerCountingService(IQueryBL.class, method -> method.getName().startsWith("createQueryBuilder"));
+		registerCountingService(IHandlingUnitsBL.class, method -> true);
+		registerCountingService(IHandlingUnitsDAO.class, method -> true);
+		registerCountingService(IHUStatusBL.class, method -> true);
+		registerCountingService(IADReferenceDAO.class, method -> true);
+		registerCountingService(IMsgBL.class, method -> true);
+
+		// the reservations are loaded by warmup; the per VHU lookups afterwards are served from the warmed up cache
+		huReservationService = Mockito.mock(HUReservationService.class, invocation -> {
+			if ("warmup".equals(invocation.getMethod().getName()))
+			{
+				queriesCount.incrementAndGet();
+			}
+			return Mockito.RETURNS_DEFAULTS.answer(invocation);
+		});
+
+		luPIVersion = createPIVersion("LU", X_M_HU_PI_Version.HU_UNITTYPE_LoadLogistiqueUnit);
+		tuPIVersion = createPIVersion("TU", X_M_HU_PI_Version.HU_UNITTYPE_TransportUnit);
+		virtualPIVersion = createPIVersion("Virtual", X_M_HU_PI_Version.HU_UNITTYPE_VirtualPI);
+
+		final I_M_Warehouse warehouse = newInstance(I_M_Warehouse.class);
+		warehouse.setName("WH");
+		saveRecord(warehouse);
+
+		locator = newInstance(I_M_Locator.class);
+		locator.setM_Warehouse_ID(warehouse.getM_Warehouse_ID());
+		locator.setValue("L1");
+		saveRecord(locator);
+
+		uom = newInstance(I_C_UOM.class);
+		uom.setUOMSymbol("Pce");
+		saveRecord(uom);
+
+		product = newInstance(I_M_Product.class);
+		product.setValue("P1");
+		product.setName("Product1");
+		saveRecord(product);
+	}
+
+	private <T> void registerCountingService(final Class<T> serviceClass, final Predicate<Method> countedMethods)
+	{
+		final T delegate = Services.get(serviceClass);
+		final Object countingService = Proxy.newProxyInstance(
+				serviceClass.getClassLoader(),
+				new Class<?>[] { serviceClass },
+				(proxy, method, args) -> {
+					if (countedMethods.test(method))
+					{
+						queriesCount.incrementAndGet();
+					}
+
+					try
+					{
+						return method.invoke(delegate, args);
+					}
+					catch (final InvocationTargetException ex)
+					{
+						throw ex.getCause();
+					}
+				});
+
+		Services.registerService(serviceClass, serviceClass.cast(countingService));
+	}
+
+	private I_M_HU_PI_Version createPIVersion(final String name, final String huUnitType)
+	{
+		final I_M_HU_PI pi = newInstance(I_M_HU_PI.class);
+		pi.setName(name);
+		saveRecord(pi);
+
+		final I_M_HU_PI_Version version = newInstance(I_M_HU_PI_Version.class);
+		version.setName(name);
+		version.setM_HU_PI_ID(pi.getM_HU_PI_ID());
+		version.setIsCurrent(true);
+		version.setHU_UnitType(huUnitType);
+		saveRecord(version);
+		return version;
+	}
+
+	private I_M_HU createLU(final int tusCount, final BigDecimal qtyPerTU)
+	{
+		final I_M_HU lu = createHU(luPIVersion, null);
+		final I_M_HU_Item luItem = createItem(lu, X_M_HU_Item.ITEMTYPE_HandlingUnit);
+		for (int i = 0; i < tusCount; i++)
+		{
+			final I_M_HU tu = createHU(tuPIVersion, luItem);
+			final I_M_HU_Item tuItem = createItem(tu, X_M_HU_Item.ITEMTYPE_Material);
+			final I_M_HU vhu = createHU(virtualPIVersion, tuItem);
+
+			createStorage(vhu, qtyPerTU);
+			createStorage(tu, qtyPerTU);
+		}
+		createStorage(lu, qtyPerTU.multiply(BigDecimal.valueOf(tusCount)));
+
+		return lu;
+	}
+
+	private I_M_HU createHU(final I_M_HU_PI_Version piVersion, final I_M_HU_Item parentItem)
+	{
+		final I_M_HU hu = newInstance(I_M_HU.class);
+		hu.setM_HU_PI_Version_ID(piVersion.getM_HU_PI_Version_ID());
+		hu.setM_HU_Item_Parent_ID(parentItem != null ? parentItem.getM_HU_Item_ID() : -1);
+		hu.setHUStatus(X_M_HU.HUSTATUS_Active);
+		hu.setM_Locator_ID(locator.getM_Locator_ID());
+		hu.setIsActive(true);
+		saveRecord(hu);
+		return hu;
+	}
+
+	private static I_M_HU_Item createItem(final I_M_HU hu, final String itemType)
+	{
+		final I_M_HU_Item item = newInstance(I_M_HU_Item.class);
+		item.setM_HU_ID(hu.getM_HU_ID());
+		item.setItemType(itemType);
+		item.setIsActive(true);
+		saveRecord(item);
+		return item;
+	}
+
+	private void createStorage(final I_M_HU hu, final BigDecimal qty)
+	{
+		final I_M_HU_Storage storage = newInstance(I_M_HU_Storage.class);
+		storage.setM_HU_ID(hu.getM_HU_ID());
+		storage.setM_Product_ID(product.getM_Product_ID());
+		storage.setC_UOM_ID(uom.getC_UOM_ID());
+		storage.setQty(qty);
+		saveRecord(storage);
+	}
+
+	private List<HUEditorRow> load(final List<I_M_HU> topLevelHUs)
+	{
+		return HUEditorRowsLoader.builder()
+				.windowId(WindowId.of(123))
+				.rowProcessedPredicate(HUEditorRowIsProcessedPredicates.NEVER)
+				.huReservationService(huReservationService)
+				.build()
+				.load(topLevelHUs);
+	}
+
+	@Test
+	public void loadLUWithTUs()
+	{
+		final I_M_HU lu = createLU(2, new BigDecimal("10"));
+
+		final List<HUEditorRow> rows = load(ImmutableList.of(lu));
+
+		assertThat(rows).hasSize(1);
+		final HUEditorRow luRow = rows.get(0);
+		assertThat(luRow.isLU()).isTrue();
+		assertThat(luRow.isTopLevel()).isTrue();
+		assertThat(luRow.getQtyCU()).isEqualByComparingTo("20");
+		assertThat(luRow.getProduct().getCaption()).isEqualTo("P1_Product1");
+
+		assertThat(luRow.getIncludedRows()).hasSize(2);
+		for (final HUEditorRow tuRow : luRow.getIncludedRows())
+		{
+			assertThat(tuRow.isTU()).isTrue();
+			assertThat(tuRow.isTopLevel()).isFalse();
+			assertThat(tuRow.getQtyCU()).isEqualByComparingTo("10");
+
+			assertThat(tuRow.getIncludedRows()).hasSize(1);
+			final HUEditorRow cuRow = tuRow.getIncludedRows().get(0);
+			assertThat(cuRow.isCU()).isTrue();
+			assertThat(cuRow.getQtyCU()).isEqualByComparingTo("10");
+			assertThat(cuRow.getUOM().getCaption()).isEqualTo("Pce");
+		}
+	}
+
+	@Test
+	public void queriesCountDoesNotDependOnNumberOfHUs()
+	{
+		load(ImmutableList.of(createLU(1, BigDecimal.ONE))); // warm up caches which are not related to HUs
+
+		final ImmutableList<I_M_HU> oneLU = ImmutableList.of(createLU(1, BigDecimal.ONE));
+		queriesCount.set(0);
+		load(oneLU);
+		final int queriesCountForOneLU = queriesCount.get();
+
+		final ImmutableList<I_M_HU> manyLUs = ImmutableList.of(createLU(3, BigDecimal.ONE), createLU(5, BigDecimal.ONE), createLU(2, BigDecimal.ONE));
+		queriesCount.set(0);
+		final List<HUEditorRow> rows = load(manyLUs);
+		final int queriesCountForManyLUs = queriesCount.get();
+
+		assertThat(rows).hasSize(3);
+		assertThat(rows.get(1).getIncludedRows()).hasSize(5);
+		assertThat(queriesCountForOneLU).isGreaterThan(0);
+		assertThat(queriesCountForManyLUs).isEqualTo(queriesCountForOneLU);
+	}
+}
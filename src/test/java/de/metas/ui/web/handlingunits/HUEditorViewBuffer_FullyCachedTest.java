@@ -0,0 +1,211 @@
+package de.metas.ui.web.handlingunits;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Set;
+
+import org.adempiere.test.AdempiereTestHelper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import de.metas.handlingunits.HuId;
+import de.metas.ui.web.document.filter.DocumentFilterList;
+import de.metas.ui.web.document.filter.sql.SqlDocumentFilterConverterContext;
+import de.metas.ui.web.view.ViewId;
+import de.metas.ui.web.window.datatypes.DocumentId;
+import de.metas.ui.web.window.datatypes.DocumentIdsSelection;
+import de.metas.ui.web.window.datatypes.WindowId;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class HUEditorViewBuffer_FullyCachedTest
+{
+	private static final WindowId windowId = WindowId.of(123);
+
+	private final HuId huId1 = HuId.ofRepoId(1);
+	private final HuId huId2 = HuId.ofRepoId(2);
+	private final HuId huId3 = HuId.ofRepoId(3);
+
+	private HUEditorViewRepository huEditorRepo;
+	private HUEditorViewBuffer_FullyCached buffer;
+
+	@BeforeEach
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+
+		final ImmutableSet<HuId> huIds = ImmutableSet.of(huId1, huId2, huId3);
+
+		huEditorRepo = Mockito.mock(HUEditorViewRepository.class);
+		when(huEditorRepo.retrieveHUIdsEffective(any(), any(), any())).thenReturn(huIds);
+		when(huEditorRepo.retrieveHUEditorRows(anySet(), any())).thenAnswer(invocation -> {
+			final Set<HuId> huIdsToLoad = invocation.getArgument(0);
+			return huIdsToLoad.stream()
+					.filter(huId -> huId.getRepoId() < 100) // simulate HUs which are no longer top level
+					.map(HUEditorViewBuffer_FullyCachedTest::createTopLevelRow)
+					.collect(ImmutableList.toImmutableList());
+		});
+
+		buffer = new HUEditorViewBuffer_FullyCached(
+				ViewId.random(windowId),
+				huEditorRepo,
+				DocumentFilterList.of(HUIdsFilterHelper.createFilter(huIds)),
+				DocumentFilterList.EMPTY,
+				null,
+				SqlDocumentFilterConverterContext.EMPTY);
+	}
+
+	private static HUEditorRow createTopLevelRow(final HuId huId)
+	{
+		final HUEditorRow includedRow = HUEditorRow.builder(windowId)
+				.setRowId(HUEditorRowId.ofHU(includedHUId(huId), huId))
+				.setType(HUEditorRowType.TU)
+				.setTopLevel(false)
+				.build();
+
+		return HUEditorRow.builder(windowId)
+				.setRowId(HUEditorRowId.ofTopLevelHU(huId))
+				.setType(HUEditorRowType.LU)
+				.setTopLevel(true)
+				.addIncludedRow(includedRow)
+				.build();
+	}
+
+	private static HuId includedHUId(final HuId topLevelHUId)
+	{
+		return HuId.ofRepoId(topLevelHUId.getRepoId() * 1000);
+	}
+
+	private static DocumentId rowId(final HuId huId)
+	{
+		return HUEditorRowId.ofTopLevelHU(huId).toDocumentId();
+	}
+
+	private List<HuId> getTopLevelHUIds()
+	{
+		return buffer.streamByIdsExcludingIncludedRows(HUEditorRowFilter.ALL)
+				.filter(HUEditorRow::isTopLevel)
+				.map(HUEditorRow::getHuId)
+				.collect(ImmutableList.toImmutableList());
+	}
+
+	@Test
+	public void changedTopLevelHU_onlyThatRowIsReloaded()
+	{
+		assertThat(buffer.size()).isEqualTo(3);
+		final HUEditorRow row1 = buffer.getById(rowId(huId1));
+		final HUEditorRow row2 = buffer.getById(rowId(huId2));
+		Mockito.clearInvocations(huEditorRepo);
+
+		final DocumentIdsSelection changedRowIds = buffer.patchRows(HUEditorViewChanges.builder()
+				.changedTopLevelHUId(huId2)
+				.build());
+
+		assertThat(changedRowIds.toSet()).containsExactly(rowId(huId2));
+		verify(huEditorRepo).retrieveHUEditorRows(ImmutableSet.of(huId2), HUEditorRowFilter.ALL);
+		verify(huEditorRepo).invalidateCache(ImmutableSet.of(huId2)); // only the attributes of the changed HU
+		verify(huEditorRepo, never()).invalidateCache();
+		assertThat(buffer.getById(rowId(huId1))).isSameAs(row1);
+		assertThat(buffer.getById(rowId(huId2))).isNotSameAs(row2);
+		assertThat(getTopLevelHUIds()).containsExactly(huId1, huId2, huId3);
+	}
+
+	@Test
+	public void changedTopLevelHU_attributesOfIncludedHUsAreInvalidated()
+	{
+		assertThat(buffer.size()).isEqualTo(3);
+
+		buffer.patchRows(HUEditorViewChanges.builder()
+				.notTopLevelHUId(huId1)
+				.changedTopLevelHUId(huId3)
+				.build());
+
+		verify(huEditorRepo).invalidateCache(ImmutableSet.of(huId3, huId1, includedHUId(huId3), includedHUId(huId1)));
+	}
+
+	@Test
+	public void changedHUNotInView_isIgnored()
+	{
+		assertThat(buffer.size()).isEqualTo(3);
+		Mockito.clearInvocations(huEditorRepo);
+
+		final DocumentIdsSelection changedRowIds = buffer.patchRows(HUEditorViewChanges.builder()
+				.changedTopLevelHUId(HuId.ofRepoId(4))
+				.build());
+
+		assertThat(changedRowIds.isEmpty()).isTrue();
+		verify(huEditorRepo, never()).retrieveHUEditorRows(anySet(), any());
+	}
+
+	@Test
+	public void addedAndNotTopLevelHUs()
+	{
+		assertThat(buffer.size()).isEqualTo(3);
+
+		final HuId huId4 = HuId.ofRepoId(4);
+		final DocumentIdsSelection changedRowIds = buffer.patchRows(HUEditorViewChanges.builder()
+				.addedHUId(huId4)
+				.notTopLevelHUId(huId2)
+				.build());
+
+		assertThat(changedRowIds.isAll()).isTrue();
+		assertThat(getTopLevelHUIds()).containsExactly(huId1, huId3, huId4);
+		assertThat(buffer.containsAnyOfHUIds(ImmutableSet.of(huId2))).isFalse();
+	}
+
+	@Test
+	public void reloadedHUWhichIsNoLongerTopLevel_isDropped()
+	{
+		final HuId huId100 = HuId.ofRepoId(100);
+		buffer.addHUIds(ImmutableSet.of(huId100));
+		assertThat(buffer.size()).isEqualTo(3);
+
+		final DocumentIdsSelection changedRowIds = buffer.patchRows(HUEditorViewChanges.builder()
+				.changedTopLevelHUId(huId100)
+				.build());
+
+		assertThat(changedRowIds.isAll()).isTrue();
+		assertThat(buffer.containsAnyOfHUIds(ImmutableSet.of(huId100))).isFalse();
+	}
+
+	@Test
+	public void rowsNotLoadedYet_nothingIsReloaded()
+	{
+		final DocumentIdsSelection changedRowIds = buffer.patchRows(HUEditorViewChanges.builder()
+				.changedTopLevelHUId(huId1)
+				.build());
+
+		assertThat(changedRowIds.isEmpty()).isTrue();
+		verify(huEditorRepo, never()).retrieveHUEditorRows(anySet(), any());
+	}
+}
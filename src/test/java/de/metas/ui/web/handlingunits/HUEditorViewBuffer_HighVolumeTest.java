@@ -0,0 +1,142 @@
+package de.metas.ui.web.handlingunits;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Properties;
+
+import org.adempiere.test.AdempiereTestHelper;
+import org.compiere.util.Env;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.google.common.collect.ImmutableSet;
+
+import de.metas.handlingunits.HuId;
+import de.metas.ui.web.document.filter.DocumentFilterList;
+import de.metas.ui.web.document.filter.sql.SqlDocumentFilterConverterContext;
+import de.metas.ui.web.view.ViewId;
+import de.metas.ui.web.view.ViewRowIdsOrderedSelection;
+import de.metas.ui.web.window.datatypes.DocumentId;
+import de.metas.ui.web.window.datatypes.DocumentIdsSelection;
+import de.metas.ui.web.window.datatypes.WindowId;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class HUEditorViewBuffer_HighVolumeTest
+{
+	private static final WindowId windowId = WindowId.of(123);
+
+	private final HuId huId1 = HuId.ofRepoId(1);
+	private final HuId huId2 = HuId.ofRepoId(2);
+
+	private HUEditorViewRepository huEditorRepo;
+	private HUEditorViewBuffer_HighVolume buffer;
+
+	@BeforeEach
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+
+		final Properties ctx = Env.getCtx();
+		Env.setContext(ctx, "#AD_Role_ID", 0);
+		Env.setContext(ctx, "#AD_User_ID", 0);
+
+		final ViewId viewId = ViewId.random(windowId);
+		final ViewRowIdsOrderedSelection selection = ViewRowIdsOrderedSelection.builder()
+				.viewId(viewId)
+				.size(2)
+				.build();
+
+		huEditorRepo = Mockito.mock(HUEditorViewRepository.class);
+		when(huEditorRepo.createSelection(any(), any(), any(), any(), any())).thenReturn(selection);
+		when(huEditorRepo.addRowIdsToSelection(any(), any())).thenAnswer(invocation -> {
+			final ViewRowIdsOrderedSelection selectionOld = invocation.getArgument(0);
+			final DocumentIdsSelection rowIdsToAdd = invocation.getArgument(1);
+			return selectionOld.withSize((int)selectionOld.getSize() + rowIdsToAdd.size());
+		});
+		when(huEditorRepo.retrieveForHUId(any())).thenAnswer(invocation -> createTopLevelRow(invocation.getArgument(0)));
+
+		buffer = new HUEditorViewBuffer_HighVolume(
+				viewId,
+				huEditorRepo,
+				DocumentFilterList.EMPTY,
+				DocumentFilterList.EMPTY,
+				null,
+				SqlDocumentFilterConverterContext.EMPTY);
+	}
+
+	private static HUEditorRow createTopLevelRow(final HuId huId)
+	{
+		return HUEditorRow.builder(windowId)
+				.setRowId(HUEditorRowId.ofTopLevelHU(huId))
+				.setType(HUEditorRowType.LU)
+				.setTopLevel(true)
+				.build();
+	}
+
+	private static DocumentId rowId(final HuId huId)
+	{
+		return HUEditorRowId.ofTopLevelHU(huId).toDocumentId();
+	}
+
+	@Test
+	public void changedTopLevelHU_onlyThatRowIsEvicted()
+	{
+		final HUEditorRow row1 = buffer.getById(rowId(huId1));
+		final HUEditorRow row2 = buffer.getById(rowId(huId2));
+
+		final HuId huIdNotCached = HuId.ofRepoId(3);
+		final DocumentIdsSelection changedRowIds = buffer.patchRows(HUEditorViewChanges.builder()
+				.changedTopLevelHUId(huId2)
+				.changedTopLevelHUId(huIdNotCached)
+				.build());
+
+		assertThat(changedRowIds.toSet()).containsExactly(rowId(huId2));
+		verify(huEditorRepo).invalidateCache(ImmutableSet.of(huId2, huIdNotCached));
+		verify(huEditorRepo, never()).invalidateCache();
+
+		assertThat(buffer.getById(rowId(huId1))).isSameAs(row1);
+		assertThat(buffer.getById(rowId(huId2))).isNotSameAs(row2);
+		verify(huEditorRepo, times(1)).retrieveForHUId(huId1);
+		verify(huEditorRepo, times(2)).retrieveForHUId(huId2);
+	}
+
+	@Test
+	public void addedHU_changesSelection()
+	{
+		final HuId huId3 = HuId.ofRepoId(3);
+		final DocumentIdsSelection changedRowIds = buffer.patchRows(HUEditorViewChanges.builder()
+				.addedHUId(huId3)
+				.build());
+
+		assertThat(changedRowIds.isAll()).isTrue();
+		assertThat(buffer.size()).isEqualTo(3);
+		verify(huEditorRepo).addRowIdsToSelection(any(), any());
+	}
+}
@@ -0,0 +1,94 @@
+package de.metas.ui.web.handlingunits;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+
+import org.adempiere.test.AdempiereTestHelper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.google.common.collect.ImmutableList;
+
+import de.metas.cache.CacheMgt;
+import de.metas.handlingunits.HuId;
+import de.metas.handlingunits.model.I_M_HU_Reservation;
+import de.metas.handlingunits.reservation.HUReservationService;
+import de.metas.order.OrderLineId;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class HUReservationsIndexTest
+{
+	private static final HuId reservedVhuId = HuId.ofRepoId(1);
+	private static final HuId freeVhuId = HuId.ofRepoId(2);
+	private static final OrderLineId orderLineId = OrderLineId.ofRepoId(10);
+
+	private HUReservationService huReservationService;
+	private HUReservationsIndex index;
+
+	@BeforeEach
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+		CacheMgt.get().reset(I_M_HU_Reservation.Table_Name);
+
+		huReservationService = Mockito.mock(HUReservationService.class);
+		when(huReservationService.getOrderLineIdByReservedVhuId(reservedVhuId)).thenReturn(Optional.of(orderLineId));
+		when(huReservationService.getOrderLineIdByReservedVhuId(freeVhuId)).thenReturn(Optional.empty());
+
+		index = new HUReservationsIndex(huReservationService);
+	}
+
+	@Test
+	public void warmUp_loadsEachVHUOnce()
+	{
+		index.warmUp(ImmutableList.of(reservedVhuId, freeVhuId));
+		verify(huReservationService, times(1)).warmup(any());
+
+		assertThat(index.getOrderLineIdByReservedVhuId(reservedVhuId)).contains(orderLineId);
+		assertThat(index.getOrderLineIdByReservedVhuId(freeVhuId)).isEmpty();
+		index.warmUp(ImmutableList.of(reservedVhuId, freeVhuId));
+
+		verify(huReservationService, times(1)).warmup(any());
+		verify(huReservationService, times(1)).getOrderLineIdByReservedVhuId(reservedVhuId);
+		verify(huReservationService, times(1)).getOrderLineIdByReservedVhuId(freeVhuId);
+	}
+
+	@Test
+	public void reservationChange_reloadsIndex()
+	{
+		assertThat(index.getOrderLineIdByReservedVhuId(freeVhuId)).isEmpty();
+
+		when(huReservationService.getOrderLineIdByReservedVhuId(freeVhuId)).thenReturn(Optional.of(orderLineId));
+		assertThat(index.getOrderLineIdByReservedVhuId(freeVhuId)).isEmpty();
+
+		CacheMgt.get().reset(I_M_HU_Reservation.Table_Name);
+		assertThat(index.getOrderLineIdByReservedVhuId(freeVhuId)).contains(orderLineId);
+	}
+}
@@ -0,0 +1,162 @@
+package de.metas.ui.web.handlingunits.process;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.test.AdempiereTestHelper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import com.google.common.collect.ImmutableList;
+
+import de.metas.handlingunits.HuId;
+import de.metas.ui.web.handlingunits.json.JSONHUTransformProgress;
+import de.metas.ui.web.websocket.WebsocketSender;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class WebuiHUTransformChunkedExecutorTest
+{
+	private static final String WEBSOCKET_ENDPOINT = "/view/123/huTransform";
+
+	private WebsocketSender websocketSender;
+	private WebuiHUTransformChunkedExecutor executor;
+
+	@BeforeEach
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+
+		websocketSender = Mockito.mock(WebsocketSender.class);
+		executor = new WebuiHUTransformChunkedExecutor(
+				websocketSender,
+				2, // threads
+				2); // chunkSize
+	}
+
+	@AfterEach
+	public void shutdown()
+	{
+		executor.shutdown();
+	}
+
+	private static WebuiHUTransformCommandResult transform(final int huRepoId)
+	{
+		if (huRepoId < 0)
+		{
+			throw new AdempiereException("Failed transforming " + huRepoId);
+		}
+
+		return WebuiHUTransformCommandResult.builder()
+				.huIdCreated(HuId.ofRepoId(huRepoId))
+				.huIdToAddToView(HuId.ofRepoId(huRepoId))
+				.build();
+	}
+
+	@Test
+	public void splitInChunks_keepsGroupsTogether()
+	{
+		final List<List<String>> chunks = WebuiHUTransformChunkedExecutor.splitInChunks(
+				ImmutableList.of("A1", "B1", "A2", "C1", "C2", "C3", "D1"),
+				row -> row.charAt(0),
+				2);
+
+		assertThat(chunks).containsExactly(
+				ImmutableList.of("A1", "A2"),
+				ImmutableList.of("B1"),
+				ImmutableList.of("C1", "C2", "C3"),
+				ImmutableList.of("D1"));
+	}
+
+	@Test
+	public void execute_allChunksSucceed()
+	{
+		final WebuiHUTransformChunkedExecutor.ChunkedResult chunkedResult = executor.execute(WebuiHUTransformChunkedExecutor.Request.<Integer> builder()
+				.rows(ImmutableList.of(1, 2, 3, 4, 5))
+				.groupingKeyFunction(row -> row)
+				.transformer(WebuiHUTransformChunkedExecutorTest::transform)
+				.build());
+
+		assertThat(chunkedResult.isSuccess()).isTrue();
+		assertThat(chunkedResult.getRowsCount()).isEqualTo(5);
+		assertThat(chunkedResult.getResult().getHuIdsCreated())
+				.containsExactlyInAnyOrder(HuId.ofRepoId(1), HuId.ofRepoId(2), HuId.ofRepoId(3), HuId.ofRepoId(4), HuId.ofRepoId(5));
+		Mockito.verify(websocketSender, Mockito.never()).convertAndSend(Mockito.anyString(), Mockito.any());
+	}
+
+	@Test
+	public void execute_notParallel_chunksAreProcessedInCallingThread()
+	{
+		final Thread callingThread = Thread.currentThread();
+		final List<Thread> transformerThreads = new ArrayList<>();
+
+		final WebuiHUTransformChunkedExecutor.ChunkedResult chunkedResult = executor.execute(WebuiHUTransformChunkedExecutor.Request.<Integer> builder()
+				.rows(ImmutableList.of(1, 2, -3, 4, 5))
+				.groupingKeyFunction(row -> row)
+				.transformer(row -> {
+					transformerThreads.add(Thread.currentThread());
+					return transform(row);
+				})
+				.parallel(false)
+				.build());
+
+		assertThat(transformerThreads).hasSize(4).containsOnly(callingThread); // 4 was not transformed because -3 failed before it
+		assertThat(chunkedResult.getRowsFailed()).isEqualTo(2);
+		assertThat(chunkedResult.getResult().getHuIdsCreated())
+				.containsExactlyInAnyOrder(HuId.ofRepoId(1), HuId.ofRepoId(2), HuId.ofRepoId(5));
+	}
+
+	@Test
+	public void execute_failedChunkDoesNotAffectTheOthers()
+	{
+		final WebuiHUTransformChunkedExecutor.ChunkedResult chunkedResult = executor.execute(WebuiHUTransformChunkedExecutor.Request.<Integer> builder()
+				.rows(ImmutableList.of(1, 2, -3, 4, 5))
+				.groupingKeyFunction(row -> row)
+				.transformer(WebuiHUTransformChunkedExecutorTest::transform)
+				.websocketEndpoint(WEBSOCKET_ENDPOINT)
+				.build());
+
+		assertThat(chunkedResult.isSuccess()).isFalse();
+		assertThat(chunkedResult.getRowsFailed()).isEqualTo(2); // -3 and 4 were in the same chunk
+		assertThat(chunkedResult.getErrors()).hasSize(1);
+		assertThat(chunkedResult.getResult().getHuIdsCreated())
+				.containsExactlyInAnyOrder(HuId.ofRepoId(1), HuId.ofRepoId(2), HuId.ofRepoId(5));
+
+		final ArgumentCaptor<JSONHUTransformProgress> progressCaptor = ArgumentCaptor.forClass(JSONHUTransformProgress.class);
+		Mockito.verify(websocketSender, Mockito.times(5)).convertAndSend(Mockito.eq(WEBSOCKET_ENDPOINT), progressCaptor.capture());
+
+		final JSONHUTransformProgress lastProgress = progressCaptor.getValue();
+		assertThat(lastProgress.getStatus()).isEqualTo(JSONHUTransformProgress.Status.DONE_WITH_ERRORS);
+		assertThat(lastProgress.getChunksCount()).isEqualTo(3);
+		assertThat(lastProgress.getChunksProcessed()).isEqualTo(3);
+		assertThat(lastProgress.getRowsProcessed()).isEqualTo(5);
+		assertThat(lastProgress.getRowsFailed()).isEqualTo(2);
+		assertThat(lastProgress.getErrorMessage()).contains("-3");
+	}
+}
@@ -0,0 +1,170 @@
+package de.metas.ui.web.handlingunits.report;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.test.AdempiereTestHelper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.google.common.collect.ImmutableList;
+
+import de.metas.handlingunits.HuId;
+import de.metas.handlingunits.report.HUToReport;
+import de.metas.process.AdProcessId;
+import de.metas.ui.web.handlingunits.json.JSONHULabelsPrintStatus;
+import de.metas.ui.web.handlingunits.report.HULabelsBatchPrinter.HULabelsPrintRequest;
+import de.metas.ui.web.websocket.WebSocketConfig;
+import de.metas.ui.web.websocket.WebsocketSender;
+import de.metas.user.UserId;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class HULabelsBatchPrinterTest
+{
+	private static final AdProcessId LABEL_PROCESS_ID = AdProcessId.ofRepoId(540001);
+	private static final UserId OWNER_USER_ID = UserId.ofRepoId(100);
+
+	private WebsocketSender websocketSender;
+	private LocalLabelsPrinter localPrinter;
+	private HULabelsBatchPrinter batchPrinter;
+
+	/** Print stand-in which records the printed documents */
+	private static class LocalLabelsPrinter implements HULabelsBatchPrinter.LabelsDocumentPrinter
+	{
+		private final List<List<HUToReport>> printedDocuments = new ArrayList<>();
+		private int failOnDocumentNo = -1;
+
+		@Override
+		public synchronized void print(final AdProcessId labelProcessId, final List<HUToReport> hus, final int copies)
+		{
+			assertThat(labelProcessId).isEqualTo(LABEL_PROCESS_ID);
+			if (printedDocuments.size() + 1 == failOnDocumentNo)
+			{
+				throw new AdempiereException("printer jammed");
+			}
+			printedDocuments.add(ImmutableList.copyOf(hus));
+		}
+
+		public synchronized List<List<HUToReport>> getPrintedDocuments()
+		{
+			return ImmutableList.copyOf(printedDocuments);
+		}
+	}
+
+	@BeforeEach
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+
+		websocketSender = Mockito.mock(WebsocketSender.class);
+		localPrinter = new LocalLabelsPrinter();
+		batchPrinter = new HULabelsBatchPrinter(
+				websocketSender,
+				localPrinter,
+				1, // printThreads
+				10, // queueCapacity
+				2); // maxLabelsPerDocument
+	}
+
+	@AfterEach
+	public void shutdown()
+	{
+		batchPrinter.shutdown();
+	}
+
+	private static HULabelsPrintRequest request(final int husCount)
+	{
+		final List<HUToReport> hus = IntStream.rangeClosed(1, husCount)
+				.mapToObj(HULabelsBatchPrinterTest::hu)
+				.collect(ImmutableList.toImmutableList());
+
+		return HULabelsPrintRequest.builder()
+				.labelProcessId(LABEL_PROCESS_ID)
+				.hus(hus)
+				.copies(1)
+				.ownerUserId(OWNER_USER_ID)
+				.build();
+	}
+
+	private static HUToReport hu(final int huRepoId)
+	{
+		final HUToReport hu = Mockito.mock(HUToReport.class);
+		Mockito.when(hu.getHUId()).thenReturn(HuId.ofRepoId(huRepoId));
+		return hu;
+	}
+
+	private JSONHULabelsPrintStatus awaitStatus(final JSONHULabelsPrintStatus.Status status)
+	{
+		final String endpoint = WebSocketConfig.buildHULabelsTopicName(OWNER_USER_ID);
+		final List<JSONHULabelsPrintStatus> statuses = new ArrayList<>();
+		Mockito.verify(websocketSender, Mockito.timeout(10000).atLeastOnce()).convertAndSend(
+				Mockito.eq(endpoint),
+				Mockito.argThat(event -> {
+					final JSONHULabelsPrintStatus printStatus = (JSONHULabelsPrintStatus)event;
+					if (printStatus.getStatus() == status)
+					{
+						statuses.add(printStatus);
+						return true;
+					}
+					return false;
+				}));
+
+		return statuses.get(statuses.size() - 1);
+	}
+
+	@Test
+	public void labelsArePrintedInFewDocuments()
+	{
+		final JSONHULabelsPrintStatus queuedStatus = batchPrinter.enqueue(request(5));
+		assertThat(queuedStatus.getStatus()).isEqualTo(JSONHULabelsPrintStatus.Status.QUEUED);
+		assertThat(queuedStatus.getLabelsCount()).isEqualTo(5);
+
+		final JSONHULabelsPrintStatus doneStatus = awaitStatus(JSONHULabelsPrintStatus.Status.DONE);
+		assertThat(doneStatus.getJobId()).isEqualTo(queuedStatus.getJobId());
+		assertThat(doneStatus.getLabelsPrinted()).isEqualTo(5);
+
+		assertThat(localPrinter.getPrintedDocuments())
+				.extracting(List::size)
+				.containsExactly(2, 2, 1);
+	}
+
+	@Test
+	public void failedDocumentIsReported()
+	{
+		localPrinter.failOnDocumentNo = 2;
+
+		batchPrinter.enqueue(request(5));
+
+		final JSONHULabelsPrintStatus failedStatus = awaitStatus(JSONHULabelsPrintStatus.Status.FAILED);
+		assertThat(failedStatus.getLabelsPrinted()).isEqualTo(2);
+		assertThat(failedStatus.getErrorMessage()).contains("printer jammed");
+		assertThat(localPrinter.getPrintedDocuments()).hasSize(1);
+	}
+}
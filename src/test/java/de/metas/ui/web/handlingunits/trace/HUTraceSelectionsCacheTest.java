@@ -0,0 +1,133 @@
+package de.metas.ui.web.handlingunits.trace;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.adempiere.test.AdempiereTestHelper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.google.common.base.Ticker;
+
+import de.metas.cache.CacheMgt;
+import de.metas.handlingunits.model.I_M_HU_Trace;
+import de.metas.handlingunits.trace.HUTraceEventQuery;
+import de.metas.handlingunits.trace.HUTraceEventQuery.RecursionMode;
+import de.metas.handlingunits.trace.HUTraceRepository;
+import de.metas.process.PInstanceId;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class HUTraceSelectionsCacheTest
+{
+	private HUTraceRepository huTraceRepository;
+	private FakeTicker ticker;
+	private List<PInstanceId> deletedSelectionIds;
+	private HUTraceSelectionsCache selectionsCache;
+
+	private static class FakeTicker extends Ticker
+	{
+		private final AtomicLong nanos = new AtomicLong();
+
+		@Override
+		public long read()
+		{
+			return nanos.get();
+		}
+
+		void advance(final Duration duration)
+		{
+			nanos.addAndGet(duration.toNanos());
+		}
+	}
+
+	@BeforeEach
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+
+		huTraceRepository = Mockito.mock(HUTraceRepository.class);
+		Mockito.when(huTraceRepository.queryToSelection(Mockito.any()))
+				.thenReturn(PInstanceId.ofRepoId(1), PInstanceId.ofRepoId(2), PInstanceId.ofRepoId(3));
+
+		ticker = new FakeTicker();
+		deletedSelectionIds = new ArrayList<>();
+		selectionsCache = new HUTraceSelectionsCache(huTraceRepository, 2, Duration.ofMinutes(1), ticker, deletedSelectionIds::add);
+	}
+
+	private static HUTraceEventQuery queryForInOutId(final int inOutId)
+	{
+		return HUTraceEventQuery.builder()
+				.recursionMode(RecursionMode.BOTH)
+				.inOutId(inOutId)
+				.build();
+	}
+
+	@Test
+	public void sameQueryIsTracedOnce()
+	{
+		final PInstanceId selectionId = selectionsCache.getSelectionId(queryForInOutId(10));
+
+		assertThat(selectionsCache.getSelectionId(queryForInOutId(10))).isEqualTo(selectionId);
+		assertThat(selectionsCache.getSelectionId(queryForInOutId(20))).isNotEqualTo(selectionId);
+		Mockito.verify(huTraceRepository, Mockito.times(2)).queryToSelection(Mockito.any());
+	}
+
+	@Test
+	public void newTraceEventsDoNotResetTheSelections()
+	{
+		final PInstanceId selectionId = selectionsCache.getSelectionId(queryForInOutId(10));
+
+		CacheMgt.get().reset(I_M_HU_Trace.Table_Name);
+
+		assertThat(selectionsCache.getSelectionId(queryForInOutId(10))).isEqualTo(selectionId);
+		Mockito.verify(huTraceRepository, Mockito.times(1)).queryToSelection(Mockito.any());
+	}
+
+	@Test
+	public void expiredSelectionIsTracedAgainAndDeleted()
+	{
+		final PInstanceId selectionId = selectionsCache.getSelectionId(queryForInOutId(10));
+
+		ticker.advance(Duration.ofMinutes(2));
+
+		assertThat(selectionsCache.getSelectionId(queryForInOutId(10))).isNotEqualTo(selectionId);
+		Mockito.verify(huTraceRepository, Mockito.times(2)).queryToSelection(Mockito.any());
+		assertThat(deletedSelectionIds).containsExactly(selectionId);
+	}
+
+	@Test
+	public void evictedSelectionIsDeleted()
+	{
+		final PInstanceId selectionId1 = selectionsCache.getSelectionId(queryForInOutId(10));
+		selectionsCache.getSelectionId(queryForInOutId(20));
+		selectionsCache.getSelectionId(queryForInOutId(30)); // over the cache size of 2
+
+		assertThat(deletedSelectionIds).containsExactly(selectionId1);
+	}
+}
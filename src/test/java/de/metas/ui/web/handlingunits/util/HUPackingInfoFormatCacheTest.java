@@ -0,0 +1,111 @@
+package de.metas.ui.web.handlingunits.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.test.AdempiereTestHelper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import de.metas.cache.CacheMgt;
+import de.metas.handlingunits.model.I_M_HU_PI;
+import de.metas.handlingunits.model.X_M_HU_PI_Version;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class HUPackingInfoFormatCacheTest
+{
+	private AtomicInteger formatCalls;
+
+	@BeforeEach
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+		CacheMgt.get().reset(I_M_HU_PI.Table_Name);
+
+		formatCalls = new AtomicInteger();
+	}
+
+	private static HUPackingInfoKey tuKey(final String qtyCU)
+	{
+		return HUPackingInfoKey.builder()
+				.huUnitType(X_M_HU_PI_Version.HU_UNITTYPE_TransportUnit)
+				.piVersionId(10)
+				.qtyCU(new BigDecimal(qtyCU))
+				.uomId(20)
+				.adLanguage("de_DE")
+				.build();
+	}
+
+	private String format(final HUPackingInfoKey key)
+	{
+		formatCalls.incrementAndGet();
+		if (key.getQtyCU().signum() < 0)
+		{
+			throw new AdempiereException("negative qty");
+		}
+		return "IFCO x " + key.getQtyCU().toPlainString() + " Pce";
+	}
+
+	@Test
+	public void sameQtyWithDifferentScaleIsSameKey()
+	{
+		assertThat(tuKey("10")).isEqualTo(tuKey("10.000"));
+		assertThat(tuKey("10")).isNotEqualTo(tuKey("11"));
+	}
+
+	@Test
+	public void eachKeyIsFormattedOnce()
+	{
+		final Map<HUPackingInfoKey, String> packingInfos = HUPackingInfoFormatCache.getAllOrFormat(
+				ImmutableList.of(tuKey("10"), tuKey("20")),
+				this::format);
+		assertThat(packingInfos).containsEntry(tuKey("10"), "IFCO x 10 Pce");
+		assertThat(packingInfos).containsEntry(tuKey("20"), "IFCO x 20 Pce");
+		assertThat(formatCalls).hasValue(2);
+
+		final Map<HUPackingInfoKey, String> packingInfosAgain = HUPackingInfoFormatCache.getAllOrFormat(
+				ImmutableList.of(tuKey("10.0"), tuKey("20"), tuKey("30")),
+				this::format);
+		assertThat(packingInfosAgain).hasSize(3);
+		assertThat(formatCalls).hasValue(3); // only the new key was formatted
+	}
+
+	@Test
+	public void failedFormattingIsNotCached()
+	{
+		final Map<HUPackingInfoKey, String> packingInfos = HUPackingInfoFormatCache.getAllOrFormat(
+				ImmutableList.of(tuKey("-1"), tuKey("5")),
+				this::format);
+		assertThat(packingInfos).containsOnlyKeys(tuKey("5"));
+
+		HUPackingInfoFormatCache.getAllOrFormat(ImmutableList.of(tuKey("-1")), this::format);
+		assertThat(formatCalls).hasValue(3);
+	}
+}
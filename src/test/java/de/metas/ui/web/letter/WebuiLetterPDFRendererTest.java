@@ -0,0 +1,179 @@
+package de.metas.ui.web.letter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.adempiere.test.AdempiereTestHelper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import com.google.common.collect.ImmutableList;
+
+import de.metas.ui.web.letter.json.JSONLetterRenderStatus;
+import de.metas.ui.web.websocket.WebsocketSender;
+import de.metas.ui.web.window.datatypes.DocumentId;
+import de.metas.ui.web.window.datatypes.DocumentPath;
+import de.metas.ui.web.window.datatypes.WindowId;
+import de.metas.user.UserId;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class WebuiLetterPDFRendererTest
+{
+	private static final String AD_LANGUAGE = "de_DE";
+
+	private WebsocketSender websocketSender;
+	private AtomicInteger renderingsCount;
+	private CountDownLatch renderingAllowed;
+	private WebuiLetterPDFRenderer renderer;
+
+	@BeforeEach
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+
+		renderingsCount = new AtomicInteger();
+		renderingAllowed = new CountDownLatch(1);
+		websocketSender = Mockito.mock(WebsocketSender.class);
+		renderer = new WebuiLetterPDFRenderer(
+				websocketSender,
+				letter -> {
+					awaitRenderingAllowed();
+					renderingsCount.incrementAndGet();
+					return letter.getBody().getBytes();
+				},
+				1, // renderThreads
+				10, // queueCapacity
+				1); // cacheMaxSizeMB
+	}
+
+	@AfterEach
+	public void shutdown()
+	{
+		renderer.shutdown();
+	}
+
+	private void awaitRenderingAllowed()
+	{
+		try
+		{
+			renderingAllowed.await(10, TimeUnit.SECONDS);
+		}
+		catch (final InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static WebuiLetter letter(final String letterId, final String content)
+	{
+		return WebuiLetter.builder()
+				.letterId(letterId)
+				.ownerUserId(UserId.ofRepoId(100))
+				.contextDocumentPath(DocumentPath.rootDocumentPath(WindowId.of(123), DocumentId.of(1)))
+				.bpartnerId(1)
+				.bpartnerLocationId(2)
+				.content(content)
+				.build();
+	}
+
+	@Test
+	public void contentHash_dependsOnlyOnRenderedContent()
+	{
+		final String hash = WebuiLetterPDFRenderer.computeContentHash(letter("1", "content"), AD_LANGUAGE);
+
+		assertThat(WebuiLetterPDFRenderer.computeContentHash(letter("2", "content"), AD_LANGUAGE)).isEqualTo(hash);
+		assertThat(WebuiLetterPDFRenderer.computeContentHash(letter("1", "other content"), AD_LANGUAGE)).isNotEqualTo(hash);
+		assertThat(WebuiLetterPDFRenderer.computeContentHash(letter("1", "content"), "en_US")).isNotEqualTo(hash);
+	}
+
+	@Test
+	public void sameContentIsRenderedOnce() throws Exception
+	{
+		final CompletableFuture<byte[]> rendering1 = renderer.render(letter("1", "content"), AD_LANGUAGE);
+		final CompletableFuture<byte[]> rendering2 = renderer.render(letter("1", "content"), AD_LANGUAGE);
+		assertThat(rendering1).isNotDone();
+
+		renderingAllowed.countDown();
+		assertThat(rendering1.get(10, TimeUnit.SECONDS)).isEqualTo("content".getBytes());
+		assertThat(rendering2.get(10, TimeUnit.SECONDS)).isEqualTo("content".getBytes());
+
+		// cached
+		final CompletableFuture<byte[]> rendering3 = renderer.render(letter("2", "content"), AD_LANGUAGE);
+		assertThat(rendering3).isDone();
+
+		assertThat(renderingsCount.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void completedStatusIsPublishedOncePerLetter() throws Exception
+	{
+		final CompletableFuture<byte[]> rendering1 = renderer.render(letter("1", "content"), AD_LANGUAGE);
+		renderer.render(letter("1", "content"), AD_LANGUAGE);
+		renderer.render(letter("2", "content"), AD_LANGUAGE);
+
+		renderingAllowed.countDown();
+		rendering1.get(10, TimeUnit.SECONDS);
+
+		// NOTE: the completed status is published before the rendering future is completed
+		final ArgumentCaptor<JSONLetterRenderStatus> statusCaptor = ArgumentCaptor.forClass(JSONLetterRenderStatus.class);
+		Mockito.verify(websocketSender, Mockito.atLeastOnce()).convertAndSend(Mockito.anyString(), statusCaptor.capture());
+
+		final List<String> doneLetterIds = statusCaptor.getAllValues()
+				.stream()
+				.filter(status -> status.getStatus() == JSONLetterRenderStatus.Status.DONE)
+				.map(JSONLetterRenderStatus::getLetterId)
+				.collect(ImmutableList.toImmutableList());
+		assertThat(doneLetterIds).containsExactlyInAnyOrder("1", "2");
+	}
+
+	@Test
+	public void renderNow_alwaysRendersFromCurrentData() throws Exception
+	{
+		renderingAllowed.countDown();
+		renderer.render(letter("1", "content"), AD_LANGUAGE).get(10, TimeUnit.SECONDS);
+
+		assertThat(renderer.renderNow(letter("1", "content"), AD_LANGUAGE)).isEqualTo("content".getBytes());
+		assertThat(renderingsCount.get()).isEqualTo(2);
+	}
+
+	@Test
+	public void startRendering() throws Exception
+	{
+		final WebuiLetter letter = letter("1", "content");
+		assertThat(renderer.startRendering(letter, AD_LANGUAGE).getStatus()).isEqualTo(JSONLetterRenderStatus.Status.QUEUED);
+
+		renderingAllowed.countDown();
+		renderer.render(letter, AD_LANGUAGE).get(10, TimeUnit.SECONDS);
+
+		assertThat(renderer.startRendering(letter, AD_LANGUAGE).getStatus()).isEqualTo(JSONLetterRenderStatus.Status.DONE);
+	}
+}
@@ -0,0 +1,333 @@
+package de.metas.ui.web.mail;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.test.AdempiereTestHelper;
+import org.compiere.util.Env;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.util.FileSystemUtils;
+
+import com.google.common.collect.ImmutableList;
+
+import de.metas.ui.web.mail.WebuiEmailSendQueue.WebuiEmailSendFinishedEvent;
+import de.metas.ui.web.websocket.WebsocketSender;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class WebuiEmailSendQueueTest
+{
+	/**
+	 * Stand-in for an SMTP server: fails the first <code>failuresCount</code> attempts, then accepts the emails.
+	 */
+	private static class StandInTransport implements WebuiEmailTransport
+	{
+		private final AtomicInteger remainingFailures;
+		private final List<WebuiEmailSendRequest> sentRequests = new CopyOnWriteArrayList<>();
+		private final CountDownLatch sentLatch = new CountDownLatch(1);
+		private final AtomicInteger attempts = new AtomicInteger();
+		private final List<Integer> contextRoleIds = new CopyOnWriteArrayList<>();
+
+		StandInTransport(final int failuresCount)
+		{
+			remainingFailures = new AtomicInteger(failuresCount);
+		}
+
+		@Override
+		public void send(final WebuiEmailSendRequest request)
+		{
+			attempts.incrementAndGet();
+			contextRoleIds.add(Env.getAD_Role_ID(Env.getCtx()));
+			if (remainingFailures.getAndDecrement() > 0)
+			{
+				throw new AdempiereException("SMTP server not reachable");
+			}
+
+			sentRequests.add(request);
+			sentLatch.countDown();
+		}
+
+		boolean awaitSent() throws InterruptedException
+		{
+			return sentLatch.await(10, TimeUnit.SECONDS);
+		}
+	}
+
+	private static class CollectingEventPublisher implements ApplicationEventPublisher
+	{
+		private final List<Object> events = new CopyOnWriteArrayList<>();
+
+		@Override
+		public void publishEvent(final ApplicationEvent event)
+		{
+			publishEvent((Object)event);
+		}
+
+		@Override
+		public void publishEvent(final Object event)
+		{
+			events.add(event);
+		}
+
+		List<WebuiEmailSendFinishedEvent> getSendFinishedEvents()
+		{
+			return events.stream()
+					.filter(WebuiEmailSendFinishedEvent.class::isInstance)
+					.map(WebuiEmailSendFinishedEvent.class::cast)
+					.collect(ImmutableList.toImmutableList());
+		}
+	}
+
+	private File directory;
+	private CollectingEventPublisher eventPublisher;
+	private WebuiEmailSendQueue queue;
+
+	@BeforeEach
+	public void init() throws IOException
+	{
+		AdempiereTestHelper.get().init();
+		directory = Files.createTempDirectory(WebuiEmailSendQueueTest.class.getSimpleName()).toFile();
+		eventPublisher = new CollectingEventPublisher();
+	}
+
+	@AfterEach
+	public void cleanup()
+	{
+		if (queue != null)
+		{
+			queue.shutdown();
+		}
+		FileSystemUtils.deleteRecursively(directory);
+	}
+
+	private WebuiEmailSendQueue createQueue(final WebuiEmailTransport transport, final int maxAttempts, final long retryInitialDelayMillis)
+	{
+		return new WebuiEmailSendQueue(
+				transport,
+				Mockito.mock(WebsocketSender.class),
+				eventPublisher,
+				directory.getAbsolutePath(),
+				1, // workers
+				maxAttempts,
+				retryInitialDelayMillis,
+				retryInitialDelayMillis * 100);
+	}
+
+	private static WebuiEmailSendRequest newRequest()
+	{
+		return WebuiEmailSendRequest.builder()
+				.requestId(WebuiEmailSendQueue.newRequestId())
+				.emailId("1")
+				.ownerUserId(100)
+				.clientId(1)
+				.fromUserId(100)
+				.to("test@example.com")
+				.subject("subject")
+				.message("message")
+				.attachment(WebuiEmailSendRequest.Attachment.builder()
+						.attachmentId("attachment1")
+						.filename("file.txt")
+						.build())
+				.build();
+	}
+
+	private File[] pendingFiles()
+	{
+		return directory.listFiles((dir, name) -> name.endsWith(".json"));
+	}
+
+	private static boolean waitUntil(final BooleanSupplier condition) throws InterruptedException
+	{
+		for (int i = 0; i < 200; i++)
+		{
+			if (condition.getAsBoolean())
+			{
+				return true;
+			}
+			Thread.sleep(50);
+		}
+		return false;
+	}
+
+	private static String readFile(final File file)
+	{
+		try
+		{
+			return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+		}
+		catch (final IOException ex)
+		{
+			throw new AdempiereException("Failed reading " + file, ex);
+		}
+	}
+
+	@Test
+	public void sentAfterRetries() throws Exception
+	{
+		final StandInTransport transport = new StandInTransport(2);
+		queue = createQueue(transport, 5, 10);
+
+		queue.enqueue(newRequest());
+
+		assertThat(transport.awaitSent()).isTrue();
+		assertThat(transport.attempts.get()).isEqualTo(3);
+		assertThat(transport.sentRequests).hasSize(1);
+		assertThat(transport.sentRequests.get(0).getAttachments().get(0).getAttachmentId()).isEqualTo("attachment1");
+		assertThat(waitUntil(() -> pendingFiles().length == 0)).isTrue();
+
+		assertThat(waitUntil(() -> !eventPublisher.getSendFinishedEvents().isEmpty())).isTrue();
+		assertThat(eventPublisher.getSendFinishedEvents().get(0).isSent()).isTrue();
+	}
+
+	@Test
+	public void reportedAndDeletedAfterMaxAttempts() throws Exception
+	{
+		final StandInTransport transport = new StandInTransport(Integer.MAX_VALUE);
+		queue = createQueue(transport, 2, 10);
+
+		final WebuiEmailSendRequest request = newRequest();
+		queue.enqueue(request);
+
+		assertThat(waitUntil(() -> !eventPublisher.getSendFinishedEvents().isEmpty())).isTrue();
+		final WebuiEmailSendFinishedEvent event = eventPublisher.getSendFinishedEvents().get(0);
+		assertThat(event.isSent()).isFalse();
+		assertThat(event.getRequest().getRequestId()).isEqualTo(request.getRequestId());
+		assertThat(event.getRequest().getLastErrorMsg()).contains("SMTP server not reachable");
+		assertThat(transport.attempts.get()).isEqualTo(2);
+
+		assertThat(waitUntil(() -> pendingFiles().length == 0)).isTrue();
+		assertThat(new File(directory, "failed")).doesNotExist();
+	}
+
+	@Test
+	public void expiredFailedFilesAreDeletedOnStart() throws Exception
+	{
+		final File failedDirectory = new File(directory, "failed");
+		Files.createDirectories(failedDirectory.toPath());
+		final File expiredFile = new File(failedDirectory, "expired.json");
+		final File recentFile = new File(failedDirectory, "recent.json");
+		Files.write(expiredFile.toPath(), new byte[] { 1 });
+		Files.write(recentFile.toPath(), new byte[] { 1 });
+		assertThat(expiredFile.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(8))).isTrue();
+
+		queue = createQueue(new StandInTransport(0), 5, 10);
+		queue.resumePendingEmails();
+
+		assertThat(expiredFile).doesNotExist();
+		assertThat(recentFile).exists();
+	}
+
+	@Test
+	public void pendingEmailsAreResumed() throws Exception
+	{
+		// SMTP server is down and the retry is far in the future
+		queue = createQueue(new StandInTransport(Integer.MAX_VALUE), 5, TimeUnit.HOURS.toMillis(1));
+		final WebuiEmailSendRequest request = newRequest();
+		queue.enqueue(request);
+		final File pendingFile = new File(directory, request.getRequestId() + ".json");
+		assertThat(waitUntil(() -> readFile(pendingFile).contains("lastErrorMsg"))).isTrue();
+		queue.shutdown();
+
+		// restart
+		final StandInTransport transport = new StandInTransport(0);
+		queue = createQueue(transport, 5, 10);
+		queue.resumePendingEmails();
+
+		assertThat(transport.awaitSent()).isTrue();
+		assertThat(transport.sentRequests.get(0).getAttempts()).isEqualTo(1);
+		assertThat(waitUntil(() -> pendingFiles().length == 0)).isTrue();
+	}
+
+	@Test
+	public void sentInTheContextOfTheUserWhoEnqueued() throws Exception
+	{
+		Env.setContext(Env.getCtx(), Env.CTXNAME_AD_Role_ID, 1000001);
+		final StandInTransport transport = new StandInTransport(1);
+		queue = createQueue(transport, 5, 10);
+
+		queue.enqueue(newRequest());
+		Env.setContext(Env.getCtx(), Env.CTXNAME_AD_Role_ID, 1000002); // shall not matter
+
+		assertThat(transport.awaitSent()).isTrue();
+		assertThat(transport.contextRoleIds).containsExactly(1000001, 1000001);
+		assertThat(transport.sentRequests.get(0).getRoleId()).isEqualTo(1000001);
+	}
+
+	@Test
+	public void resumedEmailIsSentInThePersistedContext() throws Exception
+	{
+		Env.setContext(Env.getCtx(), Env.CTXNAME_AD_Role_ID, 1000001);
+		queue = createQueue(new StandInTransport(Integer.MAX_VALUE), 5, TimeUnit.HOURS.toMillis(1));
+		final WebuiEmailSendRequest request = newRequest();
+		queue.enqueue(request);
+		final File pendingFile = new File(directory, request.getRequestId() + ".json");
+		assertThat(waitUntil(() -> readFile(pendingFile).contains("lastErrorMsg"))).isTrue();
+		queue.shutdown();
+
+		// restart
+		Env.setContext(Env.getCtx(), Env.CTXNAME_AD_Role_ID, 0);
+		final StandInTransport transport = new StandInTransport(0);
+		queue = createQueue(transport, 5, 10);
+		queue.resumePendingEmails();
+
+		assertThat(transport.awaitSent()).isTrue();
+		assertThat(transport.contextRoleIds).containsExactly(1000001);
+	}
+
+	@Test
+	public void computeRetryDelay()
+	{
+		queue = new WebuiEmailSendQueue(
+				new StandInTransport(0),
+				Mockito.mock(WebsocketSender.class),
+				eventPublisher,
+				directory.getAbsolutePath(),
+				1, // workers
+				5, // maxAttempts
+				1000, // retryInitialDelayMillis
+				5000); // retryMaxDelayMillis
+
+		assertThat(queue.computeRetryDelay(1)).isEqualTo(Duration.ofSeconds(1));
+		assertThat(queue.computeRetryDelay(2)).isEqualTo(Duration.ofSeconds(2));
+		assertThat(queue.computeRetryDelay(3)).isEqualTo(Duration.ofSeconds(4));
+		assertThat(queue.computeRetryDelay(4)).isEqualTo(Duration.ofSeconds(5));
+		assertThat(queue.computeRetryDelay(100)).isEqualTo(Duration.ofSeconds(5));
+	}
+}
@@ -0,0 +1,81 @@
+package de.metas.ui.web.notification;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+import org.adempiere.test.AdempiereTestHelper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import de.metas.notification.INotificationRepository;
+import de.metas.ui.web.websocket.WebsocketSender;
+import de.metas.ui.web.window.datatypes.json.JSONOptions;
+import de.metas.user.UserId;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class UserNotificationsQueueTest
+{
+	private static final UserId userId = UserId.ofRepoId(1000);
+
+	private INotificationRepository notificationsRepo;
+	private UserNotificationsQueue queue;
+
+	@BeforeEach
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+
+		notificationsRepo = Mockito.mock(INotificationRepository.class);
+
+		queue = UserNotificationsQueue.builder()
+				.userId(userId)
+				.jsonOptions(JSONOptions.newInstance())
+				.notificationsRepo(notificationsRepo)
+				.unreadCounters(new UserNotificationsUnreadCounters(userId -> 2))
+				.websocketSender(Mockito.mock(WebsocketSender.class))
+				.build();
+	}
+
+	@Test
+	public void markAsRead_unreadNotification()
+	{
+		when(notificationsRepo.markAsReadById(1)).thenReturn(true);
+
+		queue.markAsRead("1");
+
+		assertThat(queue.getUnreadCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void markAsRead_alreadyReadNotification()
+	{
+		when(notificationsRepo.markAsReadById(1)).thenReturn(false);
+
+		queue.markAsRead("1");
+		queue.markAsRead("1");
+
+		assertThat(queue.getUnreadCount()).isEqualTo(2);
+	}
+}
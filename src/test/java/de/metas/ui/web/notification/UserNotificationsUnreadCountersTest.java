@@ -0,0 +1,121 @@
+package de.metas.ui.web.notification;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.metas.user.UserId;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class UserNotificationsUnreadCountersTest
+{
+	private static final UserId userId = UserId.ofRepoId(1000);
+
+	private Map<UserId, Integer> unreadCountsInDB;
+	private int loadsCount;
+	private UserNotificationsUnreadCounters counters;
+
+	@BeforeEach
+	public void init()
+	{
+		unreadCountsInDB = new HashMap<>();
+		loadsCount = 0;
+		counters = new UserNotificationsUnreadCounters(userId -> {
+			loadsCount++;
+			return unreadCountsInDB.getOrDefault(userId, 0);
+		});
+	}
+
+	@Test
+	public void loadedOnlyOnce()
+	{
+		unreadCountsInDB.put(userId, 5);
+
+		assertThat(counters.getUnreadCount(userId)).isEqualTo(5);
+		assertThat(counters.getUnreadCount(userId)).isEqualTo(5);
+		assertThat(loadsCount).isEqualTo(1);
+	}
+
+	@Test
+	public void incrementalUpdates()
+	{
+		unreadCountsInDB.put(userId, 1);
+		counters.getUnreadCount(userId);
+
+		counters.incrementUnreadCount(userId);
+		counters.incrementUnreadCount(userId);
+		assertThat(counters.getUnreadCount(userId)).isEqualTo(3);
+
+		counters.decrementUnreadCount(userId);
+		assertThat(counters.getUnreadCount(userId)).isEqualTo(2);
+
+		counters.setUnreadCount(userId, 0);
+		counters.decrementUnreadCount(userId);
+		assertThat(counters.getUnreadCount(userId)).isEqualTo(0);
+
+		assertThat(loadsCount).isEqualTo(1);
+	}
+
+	@Test
+	public void incrementBeforeLoad_isIgnored()
+	{
+		unreadCountsInDB.put(userId, 4);
+
+		counters.incrementUnreadCount(userId);
+		assertThat(counters.getUnreadCount(userId)).isEqualTo(4);
+	}
+
+	@Test
+	public void invalidate()
+	{
+		unreadCountsInDB.put(userId, 2);
+		counters.getUnreadCount(userId);
+
+		unreadCountsInDB.put(userId, 1);
+		counters.invalidate(userId);
+
+		assertThat(counters.getUnreadCount(userId)).isEqualTo(1);
+		assertThat(loadsCount).isEqualTo(2);
+	}
+
+	@Test
+	public void reconcile()
+	{
+		final UserId otherUserId = UserId.ofRepoId(1001);
+		unreadCountsInDB.put(userId, 2);
+		unreadCountsInDB.put(otherUserId, 3);
+		counters.getUnreadCount(userId);
+		counters.getUnreadCount(otherUserId);
+
+		unreadCountsInDB.put(userId, 7); // changed by another node
+
+		assertThat(counters.reconcile()).isEqualTo(1);
+		assertThat(counters.getUnreadCount(userId)).isEqualTo(7);
+		assertThat(counters.getUnreadCount(otherUserId)).isEqualTo(3);
+	}
+}
@@ -0,0 +1,137 @@
+package de.metas.ui.web.pattribute;
+
+import static org.adempiere.model.InterfaceWrapperHelper.newInstance;
+import static org.adempiere.model.InterfaceWrapperHelper.saveRecord;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.sql.Timestamp;
+
+import org.adempiere.mm.attributes.AttributeId;
+import org.adempiere.mm.attributes.AttributeSetInstanceId;
+import org.adempiere.test.AdempiereTestHelper;
+import org.compiere.model.I_M_AttributeInstance;
+import org.compiere.model.I_M_AttributeValue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.google.common.collect.ImmutableList;
+
+import de.metas.cache.CacheMgt;
+import de.metas.ui.web.window.datatypes.LookupValue.StringLookupValue;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class ASIRepositoryTest
+{
+	private static final AttributeSetInstanceId asiId1 = AttributeSetInstanceId.ofRepoId(1);
+	private static final AttributeSetInstanceId asiId2 = AttributeSetInstanceId.ofRepoId(2);
+
+	private ASIRepository asiRepository;
+
+	@BeforeEach
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+		CacheMgt.get().reset(I_M_AttributeInstance.Table_Name);
+
+		asiRepository = new ASIRepository(Mockito.mock(ASIDescriptorFactory.class));
+	}
+
+	private I_M_AttributeInstance createAttributeInstance(final AttributeSetInstanceId asiId, final int attributeId, final String value)
+	{
+		final I_M_AttributeInstance record = newInstance(I_M_AttributeInstance.class);
+		record.setM_AttributeSetInstance_ID(asiId.getRepoId());
+		record.setM_Attribute_ID(attributeId);
+		record.setValue(value);
+		saveRecord(record);
+		return record;
+	}
+
+	@Test
+	public void warmUpAttributeInstances()
+	{
+		createAttributeInstance(asiId1, 10, "a");
+		createAttributeInstance(asiId1, 20, "b");
+
+		asiRepository.warmUpAttributeInstances(ImmutableList.of(asiId1, asiId2, AttributeSetInstanceId.NONE));
+
+		assertThat(asiRepository.getAttributeInstances(asiId1))
+				.extracting(ASIAttributeInstance::getAttributeId, ASIAttributeInstance::getValue)
+				.containsExactly(
+						tuple(AttributeId.ofRepoId(10), "a"),
+						tuple(AttributeId.ofRepoId(20), "b"));
+
+		// the ASIs without attribute instances are cached too
+		createAttributeInstance(asiId2, 10, "not loaded because already cached");
+		assertThat(asiRepository.getAttributeInstances(asiId2)).isEmpty();
+	}
+
+	@Test
+	public void listValueNamesAreLoadedTogetherWithTheInstances()
+	{
+		final I_M_AttributeValue attributeValue = newInstance(I_M_AttributeValue.class);
+		attributeValue.setM_Attribute_ID(10);
+		attributeValue.setValue("red");
+		attributeValue.setName("Red");
+		saveRecord(attributeValue);
+
+		final I_M_AttributeInstance listInstance = createAttributeInstance(asiId1, 10, "red");
+		listInstance.setM_AttributeValue_ID(attributeValue.getM_AttributeValue_ID());
+		saveRecord(listInstance);
+		createAttributeInstance(asiId1, 20, "not a list value");
+
+		asiRepository.warmUpAttributeInstances(ImmutableList.of(asiId1));
+
+		assertThat(asiRepository.getAttributeInstances(asiId1))
+				.extracting(ASIAttributeInstance::getListValue)
+				.containsExactly(
+						StringLookupValue.of("red", "Red"),
+						"not a list value");
+		assertThat(asiRepository.getAttributeInstances(asiId1))
+				.extracting(ASIAttributeInstance::getValueName)
+				.containsExactly("Red", null);
+	}
+
+	@Test
+	public void cachedValuesAreSnapshots()
+	{
+		final I_M_AttributeInstance record = createAttributeInstance(asiId1, 10, "a");
+		final Timestamp valueDate = Timestamp.valueOf("2020-03-04 00:00:00");
+		record.setValueDate(valueDate);
+		saveRecord(record);
+		CacheMgt.get().reset(I_M_AttributeInstance.Table_Name);
+
+		final ASIAttributeInstance attributeInstance = asiRepository.getAttributeInstances(asiId1).get(0);
+
+		// changing what was returned, or the record, does not change the cached values
+		attributeInstance.getValueDateAsTimestamp().setTime(0);
+		record.setValue("changed");
+
+		final ASIAttributeInstance attributeInstanceAgain = asiRepository.getAttributeInstances(asiId1).get(0);
+		assertThat(attributeInstanceAgain).isSameAs(attributeInstance);
+		assertThat(attributeInstanceAgain.getValue()).isEqualTo("a");
+		assertThat(attributeInstanceAgain.getValueDateAsTimestamp()).isEqualTo(valueDate);
+	}
+}
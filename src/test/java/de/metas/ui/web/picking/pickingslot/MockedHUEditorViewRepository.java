@@ -1,5 +1,6 @@
 package de.metas.ui.web.picking.pickingslot;
 
+import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Set;
@@ -61,6 +62,12 @@ public class MockedHUEditorViewRepository implements HUEditorViewRepository
 		// nothing
 	}
 
+	@Override
+	public void invalidateCache(final Collection<HuId> huIds)
+	{
+		// nothing
+	}
+
 	@Override
 	public List<HUEditorRow> retrieveHUEditorRows(final Set<HuId> huIds, final HUEditorRowFilter filter)
 	{
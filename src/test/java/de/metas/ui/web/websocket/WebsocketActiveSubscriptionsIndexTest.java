@@ -0,0 +1,96 @@
+package de.metas.ui.web.websocket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class WebsocketActiveSubscriptionsIndexTest
+{
+	private WebsocketMetrics metrics;
+	private WebsocketActiveSubscriptionsIndex index;
+
+	@BeforeEach
+	public void init()
+	{
+		metrics = new WebsocketMetrics();
+		index = new WebsocketActiveSubscriptionsIndex(metrics);
+	}
+
+	@Test
+	public void destinationIsSubscribedUntilLastSubscriptionIsRemoved()
+	{
+		index.addSubscription("session1", "sub-1", "/view/1");
+		index.addSubscription("session2", "sub-1", "/view/1");
+		assertThat(index.hasSubscriptions("/view/1")).isTrue();
+		assertThat(index.hasSubscriptions("/view/2")).isFalse();
+
+		index.removeSubscription("session1", "sub-1");
+		assertThat(index.hasSubscriptions("/view/1")).isTrue();
+
+		index.removeSubscription("session2", "sub-1");
+		assertThat(index.hasSubscriptions("/view/1")).isFalse();
+	}
+
+	@Test
+	public void disconnectRemovesAllSessionSubscriptions()
+	{
+		index.addSubscription("session1", "sub-1", "/view/1");
+		index.addSubscription("session1", "sub-2", "/document/123/1");
+		index.addSubscription("session2", "sub-1", "/document/123/1");
+
+		index.removeSession("session1");
+
+		assertThat(index.hasSubscriptions("/view/1")).isFalse();
+		assertThat(index.hasSubscriptions("/document/123/1")).isTrue();
+		assertThat(index.getStats().getSessionsCount()).isEqualTo(1);
+		assertThat(index.getStats().getSubscriptionsCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void unsubscribeWithoutSubscriptionIdRemovesSession()
+	{
+		index.addSubscription("session1", "sub-1", "/view/1");
+
+		index.removeSubscription("session1", null);
+
+		assertThat(index.hasSubscriptions("/view/1")).isFalse();
+	}
+
+	@Test
+	public void statsAreReportedByMetrics()
+	{
+		index.addSubscription("session1", "sub-1", "/view/1");
+		metrics.recordSuppressed("/view/2");
+		metrics.recordSuppressed("/view/3");
+
+		final WebsocketMetrics.Snapshot snapshot = metrics.snapshot();
+		assertThat(snapshot.getSubscriptions().getDestinationsCount()).isEqualTo(1);
+		assertThat(snapshot.getDestinations())
+				.filteredOn(destination -> destination.getDestination().equals("/view"))
+				.extracting(WebsocketMetrics.DestinationSnapshot::getSuppressedEventsCount)
+				.containsExactly(2L);
+	}
+}
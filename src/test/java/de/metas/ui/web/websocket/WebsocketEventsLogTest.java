@@ -0,0 +1,140 @@
+package de.metas.ui.web.websocket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class WebsocketEventsLogTest
+{
+	private WebsocketEventsLog eventsLog;
+
+	@BeforeEach
+	public void init()
+	{
+		eventsLog = new WebsocketEventsLog();
+		eventsLog.setLogEventsEnabled(true);
+	}
+
+	private List<Object> getLoggedPayloads()
+	{
+		final List<Object> payloads = new ArrayList<>();
+		eventsLog.getLoggedEvents().forEach(record -> payloads.add(record.getPayload()));
+		return payloads;
+	}
+
+	@Test
+	public void notFull()
+	{
+		eventsLog.setLogEventsMaxSize(3);
+		eventsLog.logEvent("/topic", 0);
+		eventsLog.logEvent("/topic", 1);
+
+		assertThat(getLoggedPayloads()).containsExactly(0, 1);
+	}
+
+	@Test
+	public void wrapAround_newestAreKeptInOrder()
+	{
+		eventsLog.setLogEventsMaxSize(3);
+		for (int i = 0; i <= 6; i++)
+		{
+			eventsLog.logEvent("/topic", i);
+		}
+
+		assertThat(getLoggedPayloads()).containsExactly(4, 5, 6);
+	}
+
+	@Test
+	public void concurrentWritersAndReaders() throws Exception
+	{
+		final int capacity = 16;
+		final int writersCount = 4;
+		final int eventsPerWriter = 20000;
+		eventsLog.setLogEventsMaxSize(capacity);
+
+		final ExecutorService executor = Executors.newFixedThreadPool(writersCount + 1);
+		try
+		{
+			final CountDownLatch writersDone = new CountDownLatch(writersCount);
+			for (int writer = 0; writer < writersCount; writer++)
+			{
+				final String destination = "/topic/" + writer;
+				executor.submit(() -> {
+					for (int i = 0; i < eventsPerWriter; i++)
+					{
+						eventsLog.logEvent(destination, i);
+					}
+					writersDone.countDown();
+				});
+			}
+
+			final Future<?> reader = executor.submit(() -> {
+				while (writersDone.getCount() > 0)
+				{
+					assertOrderedPerDestination(eventsLog.getLoggedEvents(), capacity);
+				}
+			});
+
+			assertThat(writersDone.await(30, TimeUnit.SECONDS)).isTrue();
+			reader.get(30, TimeUnit.SECONDS);
+
+			final List<WebsocketEventLogRecord> records = eventsLog.getLoggedEvents();
+			assertThat(records).hasSize(capacity);
+			assertOrderedPerDestination(records, capacity);
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	/** Each writer logs increasing payloads, so they shall be returned in increasing order, without duplicates */
+	private static void assertOrderedPerDestination(final List<WebsocketEventLogRecord> records, final int capacity)
+	{
+		assertThat(records.size()).isLessThanOrEqualTo(capacity);
+
+		final Map<String, Integer> lastPayloadByDestination = new HashMap<>();
+		for (final WebsocketEventLogRecord record : records)
+		{
+			final int payload = (Integer)record.getPayload();
+			final Integer lastPayload = lastPayloadByDestination.put(record.getDestination(), payload);
+			if (lastPayload != null)
+			{
+				assertThat(payload).isGreaterThan(lastPayload);
+			}
+		}
+	}
+}
@@ -0,0 +1,295 @@
+package de.metas.ui.web.websocket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class WebsocketOutboundTaskExecutorTest
+{
+	private WebsocketOutboundTaskExecutor executor;
+
+	private WebsocketOutboundTaskExecutor createExecutor(final int maxQueueSizePerSession)
+	{
+		executor = WebsocketOutboundTaskExecutor.builder()
+				.maxQueueSizePerSession(maxQueueSizePerSession)
+				.build();
+		executor.setCorePoolSize(4);
+		executor.setMaxPoolSize(4);
+		executor.initialize();
+		return executor;
+	}
+
+	@AfterEach
+	public void shutdown()
+	{
+		if (executor != null)
+		{
+			executor.shutdown();
+		}
+	}
+
+	private static Message<byte[]> message(final String sessionId, final String payload)
+	{
+		return message(sessionId, "sub1", payload);
+	}
+
+	private static Message<byte[]> message(final String sessionId, final String subscriptionId, final String payload)
+	{
+		return MessageBuilder.withPayload(payload.getBytes())
+				.setHeader(SimpMessageHeaderAccessor.MESSAGE_TYPE_HEADER, SimpMessageType.MESSAGE)
+				.setHeader(SimpMessageHeaderAccessor.SESSION_ID_HEADER, sessionId)
+				.setHeader(SimpMessageHeaderAccessor.SUBSCRIPTION_ID_HEADER, subscriptionId)
+				.setHeader(SimpMessageHeaderAccessor.DESTINATION_HEADER, "/test")
+				.build();
+	}
+
+	private static MessageHandlingRunnable task(final Message<byte[]> message, final Runnable action)
+	{
+		return task(message, action, null);
+	}
+
+	private static MessageHandlingRunnable task(final Message<byte[]> message, final Runnable action, final MessageHandler messageHandler)
+	{
+		return new MessageHandlingRunnable()
+		{
+			@Override
+			public void run()
+			{
+				action.run();
+			}
+
+			@Override
+			public Message<?> getMessage()
+			{
+				return message;
+			}
+
+			@Override
+			public MessageHandler getMessageHandler()
+			{
+				return messageHandler;
+			}
+		};
+	}
+
+	@Test
+	public void messagesAreSentInOrderPerSession() throws Exception
+	{
+		createExecutor(10000);
+
+		final int sessionsCount = 10;
+		final int messagesPerSession = 500;
+		final ConcurrentHashMap<String, List<Integer>> sentBySessionId = new ConcurrentHashMap<>();
+		final CountDownLatch allSent = new CountDownLatch(sessionsCount * messagesPerSession);
+
+		for (int i = 0; i < messagesPerSession; i++)
+		{
+			for (int s = 0; s < sessionsCount; s++)
+			{
+				final String sessionId = "session" + s;
+				final int seqNo = i;
+				executor.execute(task(message(sessionId, sessionId + "-" + seqNo), () -> {
+					sentBySessionId.computeIfAbsent(sessionId, k -> Collections.synchronizedList(new ArrayList<>())).add(seqNo);
+					allSent.countDown();
+				}));
+			}
+		}
+
+		assertThat(allSent.await(30, TimeUnit.SECONDS)).isTrue();
+		assertThat(sentBySessionId).hasSize(sessionsCount);
+		sentBySessionId.values().forEach(sent -> assertThat(sent).hasSize(messagesPerSession).isSorted());
+	}
+
+	@Test
+	public void sessionTaskIsExecutedInOrderWithTheSessionMessages() throws Exception
+	{
+		createExecutor(10000);
+
+		final List<String> executed = Collections.synchronizedList(new ArrayList<>());
+		final CountDownLatch allExecuted = new CountDownLatch(3);
+
+		executor.execute(task(message("session1", "1"), () -> {
+			executed.add("message1");
+			allExecuted.countDown();
+		}));
+		executor.executeForSession("session1", () -> {
+			executed.add("sessionTask");
+			allExecuted.countDown();
+		});
+		executor.execute(task(message("session1", "2"), () -> {
+			executed.add("message2");
+			allExecuted.countDown();
+		}));
+
+		assertThat(allExecuted.await(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(executed).containsExactly("message1", "sessionTask", "message2");
+	}
+
+	@Test
+	public void slowConsumer_isDisconnected() throws Exception
+	{
+		createExecutor(3);
+
+		final CountDownLatch unblock = new CountDownLatch(1);
+		final List<String> sent = Collections.synchronizedList(new ArrayList<>());
+		final CountDownLatch errorSent = new CountDownLatch(1);
+		final List<Message<?>> handledMessages = Collections.synchronizedList(new ArrayList<>());
+		final MessageHandler messageHandler = message -> {
+			handledMessages.add(message);
+			errorSent.countDown();
+		};
+
+		// block the session while we are enqueueing
+		executor.execute(task(message("s1", "blocker"), () -> await(unblock)));
+		Thread.sleep(100);
+
+		for (int i = 1; i <= 5; i++)
+		{
+			final String payload = "m" + i;
+			executor.execute(task(message("s1", payload), () -> sent.add(payload), messageHandler));
+		}
+
+		unblock.countDown();
+		assertThat(errorSent.await(10, TimeUnit.SECONDS)).isTrue();
+
+		// no message was sent after the queue overflowed, only the error frame which closes the session
+		assertThat(sent).isEmpty();
+		assertThat(handledMessages).hasSize(1);
+		final StompHeaderAccessor errorHeaders = StompHeaderAccessor.wrap(handledMessages.get(0));
+		assertThat(errorHeaders.getCommand()).isEqualTo(StompCommand.ERROR);
+		assertThat(errorHeaders.getSessionId()).isEqualTo("s1");
+
+		assertThat(executor.getStats().getDisconnectedSessionsCount()).isEqualTo(1);
+		assertThat(executor.getStats().getDiscardedMessagesCount()).isEqualTo(5); // m1..m3 queued, m4 overflowing, m5 received while disconnecting
+	}
+
+	@Test
+	public void identicalConsecutiveMessagesAreMerged() throws Exception
+	{
+		createExecutor(100);
+
+		final CountDownLatch unblock = new CountDownLatch(1);
+		final List<String> sent = Collections.synchronizedList(new ArrayList<>());
+		final CountDownLatch lastSent = new CountDownLatch(1);
+
+		executor.execute(task(message("s1", "blocker"), () -> await(unblock)));
+		Thread.sleep(100);
+
+		executor.execute(task(message("s1", "same"), () -> sent.add("same")));
+		executor.execute(task(message("s1", "same"), () -> sent.add("same")));
+		executor.execute(task(message("s1", "other"), () -> {
+			sent.add("other");
+			lastSent.countDown();
+		}));
+
+		unblock.countDown();
+		assertThat(lastSent.await(10, TimeUnit.SECONDS)).isTrue();
+
+		assertThat(sent).containsExactly("same", "other");
+		assertThat(executor.getStats().getMergedMessagesCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void messagesOfDifferentSubscriptionsAreNotMerged() throws Exception
+	{
+		createExecutor(100);
+
+		final CountDownLatch unblock = new CountDownLatch(1);
+		final List<String> sent = Collections.synchronizedList(new ArrayList<>());
+		final CountDownLatch lastSent = new CountDownLatch(1);
+
+		executor.execute(task(message("s1", "blocker"), () -> await(unblock)));
+		Thread.sleep(100);
+
+		executor.execute(task(message("s1", "sub1", "same"), () -> sent.add("sub1")));
+		executor.execute(task(message("s1", "sub2", "same"), () -> {
+			sent.add("sub2");
+			lastSent.countDown();
+		}));
+
+		unblock.countDown();
+		assertThat(lastSent.await(10, TimeUnit.SECONDS)).isTrue();
+
+		assertThat(sent).containsExactly("sub1", "sub2");
+		assertThat(executor.getStats().getMergedMessagesCount()).isZero();
+	}
+
+	@Test
+	public void nonMessageFramesAreNotMerged() throws Exception
+	{
+		createExecutor(100);
+
+		final CountDownLatch unblock = new CountDownLatch(1);
+		final List<String> sent = Collections.synchronizedList(new ArrayList<>());
+		final CountDownLatch lastSent = new CountDownLatch(1);
+
+		executor.execute(task(message("s1", "blocker"), () -> await(unblock)));
+		Thread.sleep(100);
+
+		final StompHeaderAccessor receiptHeaders = StompHeaderAccessor.create(StompCommand.RECEIPT);
+		receiptHeaders.setSessionId("s1");
+		receiptHeaders.setReceiptId("r1");
+		final Message<byte[]> receipt = MessageBuilder.createMessage(new byte[0], receiptHeaders.getMessageHeaders());
+
+		executor.execute(task(receipt, () -> sent.add("receipt")));
+		executor.execute(task(receipt, () -> {
+			sent.add("receipt");
+			lastSent.countDown();
+		}));
+
+		unblock.countDown();
+		assertThat(lastSent.await(10, TimeUnit.SECONDS)).isTrue();
+
+		assertThat(sent).containsExactly("receipt", "receipt");
+	}
+
+	private static void await(final CountDownLatch latch)
+	{
+		try
+		{
+			latch.await(10, TimeUnit.SECONDS);
+		}
+		catch (final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,183 @@
+package de.metas.ui.web.websocket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class WebsocketSubscriptionsExecutorTest
+{
+	private WebsocketSubscriptionsExecutor executor;
+
+	@BeforeEach
+	public void init()
+	{
+		executor = WebsocketSubscriptionsExecutor.builder()
+				.threads(1)
+				.maxPendingSubscriptions(2)
+				.deferBaseDelayMillis(100)
+				.deferMaxJitterMillis(50)
+				.build();
+	}
+
+	@AfterEach
+	public void close()
+	{
+		executor.shutdown();
+	}
+
+	@Test
+	public void subscriptionsOverLimitAreDeferred() throws Exception
+	{
+		final CountDownLatch release = new CountDownLatch(1);
+		final Runnable blockingTask = () -> awaitUninterruptibly(release);
+
+		assertThat(executor.submitSubscribe("session1", "sub-1", "/view/1", blockingTask)).isTrue();
+		assertThat(executor.submitSubscribe("session2", "sub-1", "/view/2", blockingTask)).isTrue();
+
+		final CountDownLatch deferredExecuted = new CountDownLatch(1);
+		assertThat(executor.submitSubscribe("session3", "sub-1", "/view/3", deferredExecuted::countDown)).isFalse();
+		assertThat(executor.getStats().getWaitingDeferredSubscriptions()).isEqualTo(1);
+
+		// still over the limit when the deferred subscription is submitted again
+		Thread.sleep(300);
+		assertThat(deferredExecuted.getCount()).isEqualTo(1);
+
+		release.countDown();
+		assertThat(deferredExecuted.await(5, TimeUnit.SECONDS)).isTrue();
+
+		assertThat(executor.getStats().getAcceptedSubscriptions()).isEqualTo(3);
+		assertThat(executor.getStats().getDeferredSubscriptions()).isGreaterThanOrEqualTo(2);
+		assertThat(executor.getStats().getWaitingDeferredSubscriptions()).isEqualTo(0);
+	}
+
+	@Test
+	public void deferredSubscriptionIsDroppedOnUnsubscribe() throws Exception
+	{
+		final CountDownLatch release = new CountDownLatch(1);
+		final Runnable blockingTask = () -> awaitUninterruptibly(release);
+		executor.submitSubscribe("session1", "sub-1", "/view/1", blockingTask);
+		executor.submitSubscribe("session2", "sub-1", "/view/2", blockingTask);
+
+		final List<String> executed = Collections.synchronizedList(new ArrayList<>());
+		assertThat(executor.submitSubscribe("session3", "sub-1", "/view/3", () -> executed.add("sub-1"))).isFalse();
+		assertThat(executor.submitSubscribe("session3", "sub-2", "/view/4", () -> executed.add("sub-2"))).isFalse();
+
+		executor.submitUnsubscribe("session3", "sub-1", () -> executed.add("unsubscribe sub-1"));
+		release.countDown();
+
+		final CountDownLatch done = new CountDownLatch(1);
+		executor.submitSubscribe("session3", "sub-3", "/view/5", done::countDown);
+		Thread.sleep(500); // let the deferred subscriptions come back
+		assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+
+		assertThat(executed).containsExactlyInAnyOrder("unsubscribe sub-1", "sub-2");
+	}
+
+	@Test
+	public void deferredSubscriptionsAreDroppedOnDisconnect() throws Exception
+	{
+		final CountDownLatch release = new CountDownLatch(1);
+		final Runnable blockingTask = () -> awaitUninterruptibly(release);
+		executor.submitSubscribe("session1", "sub-1", "/view/1", blockingTask);
+		executor.submitSubscribe("session2", "sub-1", "/view/2", blockingTask);
+
+		final List<String> executed = Collections.synchronizedList(new ArrayList<>());
+		executor.submitSubscribe("session3", "sub-1", "/view/3", () -> executed.add("sub-1"));
+		executor.submitSubscribe("session3", "sub-2", "/view/4", () -> executed.add("sub-2"));
+
+		final CountDownLatch disconnected = new CountDownLatch(1);
+		executor.submitUnsubscribe("session3", null, disconnected::countDown);
+		release.countDown();
+
+		assertThat(disconnected.await(5, TimeUnit.SECONDS)).isTrue();
+		Thread.sleep(500); // let the deferred subscriptions come back
+		assertThat(executed).isEmpty();
+		assertThat(executor.getStats().getWaitingDeferredSubscriptions()).isEqualTo(0);
+	}
+
+	@Test
+	public void unsubscribeIsAlwaysAccepted() throws Exception
+	{
+		final CountDownLatch release = new CountDownLatch(1);
+		executor.submitSubscribe("session1", "sub-1", "/view/1", () -> awaitUninterruptibly(release));
+		executor.submitSubscribe("session1", "sub-2", "/view/2", () -> awaitUninterruptibly(release));
+
+		final CountDownLatch unsubscribed = new CountDownLatch(1);
+		executor.submitUnsubscribe("session1", "sub-1", unsubscribed::countDown);
+		release.countDown();
+
+		assertThat(unsubscribed.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(executor.getStats().getDeferredSubscriptions()).isEqualTo(0);
+	}
+
+	@Test
+	public void tasksOfSameSessionAreExecutedInOrder() throws Exception
+	{
+		final List<String> executed = Collections.synchronizedList(new ArrayList<>());
+		final CountDownLatch done = new CountDownLatch(1);
+
+		executor.submitSubscribe("session1", "sub-1", "/view/1", () -> executed.add("subscribe"));
+		executor.submitUnsubscribe("session1", "sub-1", () -> executed.add("unsubscribe"));
+		executor.submitUnsubscribe("session1", null, done::countDown);
+
+		assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(executed).containsExactly("subscribe", "unsubscribe");
+	}
+
+	@Test
+	public void deferDelayIsJittered()
+	{
+		final long first = executor.computeDeferDelayMillis();
+		boolean differentDelayFound = false;
+		for (int i = 0; i < 100 && !differentDelayFound; i++)
+		{
+			final long delay = executor.computeDeferDelayMillis();
+			assertThat(delay).isBetween(100L, 150L);
+			differentDelayFound = delay != first;
+		}
+
+		assertThat(differentDelayFound).isTrue();
+	}
+
+	private static void awaitUninterruptibly(final CountDownLatch latch)
+	{
+		try
+		{
+			latch.await(5, TimeUnit.SECONDS);
+		}
+		catch (final InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,224 @@
+package de.metas.ui.web.window.events;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+
+import de.metas.JsonObjectMapperHolder;
+import de.metas.ui.web.window.datatypes.DocumentId;
+import de.metas.ui.web.window.datatypes.DocumentIdsSelection;
+import de.metas.ui.web.window.datatypes.WindowId;
+import de.metas.ui.web.window.datatypes.json.JSONIncludedTabInfo;
+import de.metas.ui.web.window.descriptor.DetailId;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class DocumentWebsocketTopicStatesTest
+{
+	private static final WindowId windowId = WindowId.fromJson("123");
+	private static final DocumentId documentId = DocumentId.of(1);
+	private static final DetailId tabId = DetailId.fromAD_Tab_ID(10);
+
+	private ObjectMapper jsonObjectMapper;
+	private DocumentWebsocketTopicStates topicStates;
+	private List<JSONDocumentChangedWebSocketEvent> sentEvents;
+
+	@BeforeEach
+	public void init()
+	{
+		jsonObjectMapper = JsonObjectMapperHolder.newJsonObjectMapper();
+		topicStates = new DocumentWebsocketTopicStates(100, 60);
+		sentEvents = new ArrayList<>();
+	}
+
+	private static JSONDocumentChangedWebSocketEvent eventWithFlags(final boolean allowCreateNew, final boolean allowDelete)
+	{
+		final JSONIncludedTabInfo tabInfo = JSONIncludedTabInfo.newInstance(tabId);
+		tabInfo.setAllowCreateNew(allowCreateNew, null);
+		tabInfo.setAllowDelete(allowDelete, null);
+
+		final JSONDocumentChangedWebSocketEvent event = JSONDocumentChangedWebSocketEvent.rootDocument(windowId, documentId);
+		event.addIncludedTabInfo(tabInfo);
+		return event;
+	}
+
+	private boolean send(final JSONDocumentChangedWebSocketEvent event)
+	{
+		return topicStates.sendDelta(event, sentEvents::add);
+	}
+
+	private JsonNode lastSentAsJson()
+	{
+		return jsonObjectMapper.valueToTree(sentEvents.get(sentEvents.size() - 1));
+	}
+
+	@Test
+	public void firstEventIsFullState()
+	{
+		assertThat(send(eventWithFlags(true, true))).isTrue();
+
+		final JsonNode json = lastSentAsJson();
+		assertThat(json.get("seqNo").asLong()).isEqualTo(1);
+		assertThat(json.get("fullState").asBoolean()).isTrue();
+		assertThat(json.get("includedTabsInfo").get(tabId.toJson()).get("allowCreateNew").asBoolean()).isTrue();
+	}
+
+	@Test
+	public void afterForgetNextEventIsFullState()
+	{
+		send(eventWithFlags(true, true));
+		topicStates.forget(eventWithFlags(true, true).getWebsocketEndpoint());
+
+		assertThat(send(eventWithFlags(true, true))).isTrue();
+
+		final JsonNode json = lastSentAsJson();
+		assertThat(json.get("seqNo").asLong()).isEqualTo(1);
+		assertThat(json.get("fullState").asBoolean()).isTrue();
+	}
+
+	@Test
+	public void unchangedFlagsAreNotSentAgain()
+	{
+		send(eventWithFlags(true, true));
+		assertThat(send(eventWithFlags(true, true))).isFalse();
+		assertThat(sentEvents).hasSize(1);
+	}
+
+	@Test
+	public void onlyChangedFlagsAreSent()
+	{
+		send(eventWithFlags(true, true));
+		assertThat(send(eventWithFlags(true, false))).isTrue();
+
+		final JsonNode json = lastSentAsJson();
+		assertThat(json.get("seqNo").asLong()).isEqualTo(2);
+		assertThat(json.has("fullState")).isFalse();
+
+		final JsonNode tabInfoJson = json.get("includedTabsInfo").get(tabId.toJson());
+		assertThat(tabInfoJson.has("allowCreateNew")).isFalse();
+		assertThat(tabInfoJson.get("allowDelete").asBoolean()).isFalse();
+	}
+
+	@Test
+	public void staleTabIsAlwaysSent_withoutStaleRowIds()
+	{
+		for (int i = 1; i <= 2; i++)
+		{
+			final JSONDocumentChangedWebSocketEvent event = JSONDocumentChangedWebSocketEvent.rootDocument(windowId, documentId);
+			event.staleIncludedRows(tabId, DocumentIdsSelection.of(ImmutableList.of(DocumentId.of(100))));
+			assertThat(send(event)).isTrue();
+
+			final JsonNode tabInfoJson = lastSentAsJson().get("includedTabsInfo").get(tabId.toJson());
+			assertThat(tabInfoJson.get("stale").asBoolean()).isTrue();
+			assertThat(tabInfoJson.has("staleRowIds")).isFalse();
+		}
+
+		assertThat(sentEvents).hasSize(2);
+	}
+
+	@Test
+	public void staleDocument_dropsImpliedTabStaleMarkers_butKeepsFlags()
+	{
+		final JSONDocumentChangedWebSocketEvent event = eventWithFlags(true, false);
+		event.setStale();
+		event.staleTab(tabId);
+		event.staleIncludedRows(tabId, DocumentIdsSelection.of(ImmutableList.of(DocumentId.of(100))));
+		assertThat(send(event)).isTrue();
+
+		final JsonNode json = lastSentAsJson();
+		assertThat(json.get("stale").asBoolean()).isTrue();
+		final JsonNode tabInfoJson = json.get("includedTabsInfo").get(tabId.toJson());
+		assertThat(tabInfoJson.has("stale")).isFalse();
+		assertThat(tabInfoJson.has("staleRowIds")).isFalse();
+		assertThat(tabInfoJson.get("allowCreateNew").asBoolean()).isTrue();
+	}
+
+	@Test
+	public void newSubscriberGetsAccumulatedStateWithCurrentSeqNo()
+	{
+		send(eventWithFlags(true, true));
+		send(eventWithFlags(true, false));
+
+		final List<JSONDocumentChangedWebSocketEvent> subscriberEvents = new ArrayList<>();
+		final String topic = eventWithFlags(true, true).getWebsocketEndpoint();
+		assertThat(topicStates.sendFullState(topic, subscriberEvents::add)).isTrue();
+
+		assertThat(subscriberEvents).hasSize(1);
+		final JsonNode json = jsonObjectMapper.valueToTree(subscriberEvents.get(0));
+		assertThat(json.get("seqNo").asLong()).isEqualTo(2);
+		assertThat(json.get("fullState").asBoolean()).isTrue();
+		assertThat(json.has("stale")).isFalse();
+		final JsonNode tabInfoJson = json.get("includedTabsInfo").get(tabId.toJson());
+		assertThat(tabInfoJson.get("allowCreateNew").asBoolean()).isTrue();
+		assertThat(tabInfoJson.get("allowDelete").asBoolean()).isFalse();
+
+		// the other subscribers got nothing and the next delta continues the sequence
+		assertThat(sentEvents).hasSize(2);
+		assertThat(send(eventWithFlags(false, false))).isTrue();
+		assertThat(lastSentAsJson().get("seqNo").asLong()).isEqualTo(3);
+		assertThat(lastSentAsJson().has("fullState")).isFalse();
+	}
+
+	@Test
+	public void newSubscriberGetsNothingIfNothingWasSent()
+	{
+		final List<JSONDocumentChangedWebSocketEvent> subscriberEvents = new ArrayList<>();
+		final String topic = eventWithFlags(true, true).getWebsocketEndpoint();
+
+		assertThat(topicStates.sendFullState(topic, subscriberEvents::add)).isFalse();
+		assertThat(subscriberEvents).isEmpty();
+	}
+
+	@Test
+	public void getFullState_doesNotChangeTheTopicState()
+	{
+		send(eventWithFlags(true, true));
+
+		final JsonNode json = jsonObjectMapper.valueToTree(topicStates.getFullState(windowId, documentId));
+		assertThat(json.get("seqNo").asLong()).isEqualTo(1);
+		assertThat(json.get("fullState").asBoolean()).isTrue();
+		assertThat(json.get("includedTabsInfo").get(tabId.toJson()).get("allowCreateNew").asBoolean()).isTrue();
+
+		// same flags are still known as sent
+		assertThat(send(eventWithFlags(true, true))).isFalse();
+		assertThat(sentEvents).hasSize(1);
+	}
+
+	@Test
+	public void getFullState_withoutTopicState()
+	{
+		final JsonNode json = jsonObjectMapper.valueToTree(topicStates.getFullState(windowId, documentId));
+		assertThat(json.get("seqNo").asLong()).isEqualTo(0);
+		assertThat(json.get("fullState").asBoolean()).isTrue();
+
+		assertThat(topicStates.size()).isZero();
+	}
+}
@@ -17,6 +17,8 @@ import org.compiere.util.TimeUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import com.google.common.collect.ImmutableSet;
+
 import de.metas.ui.web.window.datatypes.LookupValue.IntegerLookupValue;
 import de.metas.ui.web.window.datatypes.LookupValue.StringLookupValue;
 
@@ -129,4 +131,49 @@ public class LookupDataSourceContextTest
 		assertThat(evalCtx.get_ValueAsString("TestString")).isEqualTo(expectedString);
 	}
 
+	@Test
+	public void testCacheKey_ignoresNotRelevantParameters()
+	{
+		final LookupDataSourceContext evalCtx1 = LookupDataSourceContext.builder("TestTableName")
+				.requiresParameter(CtxNames.parse("C_BPartner_ID"))
+				.requiresParameter(CtxNames.parse("AD_Org_ID"))
+				.setParentEvaluatee(Evaluatees.mapBuilder()
+						.put("C_BPartner_ID", 1)
+						.put("AD_Org_ID", 1000000)
+						.build())
+				.build();
+		final LookupDataSourceContext evalCtx2 = LookupDataSourceContext.builder("TestTableName")
+				.requiresParameter(CtxNames.parse("C_BPartner_ID"))
+				.requiresParameter(CtxNames.parse("AD_Org_ID"))
+				.setParentEvaluatee(Evaluatees.mapBuilder()
+						.put("C_BPartner_ID", 1)
+						.put("AD_Org_ID", 2000000)
+						.build())
+				.build();
+
+		assertThat(evalCtx1).isNotEqualTo(evalCtx2);
+		assertThat(evalCtx1.toCacheKey(ImmutableSet.of("C_BPartner_ID")))
+				.isEqualTo(evalCtx2.toCacheKey(ImmutableSet.of("C_BPartner_ID")));
+		assertThat(evalCtx1.toCacheKey(null))
+				.isNotEqualTo(evalCtx2.toCacheKey(null));
+	}
+
+	@Test
+	public void testCacheKey_canonicalValues()
+	{
+		final LookupDataSourceContext evalCtx1 = LookupDataSourceContext.builder("TestTableName")
+				.requiresParameter(CtxNames.parse("C_BPartner_ID"))
+				.setParentEvaluatee(Evaluatees.mapBuilder()
+						.put("C_BPartner_ID", IntegerLookupValue.of(1, "partner"))
+						.build())
+				.build();
+		final LookupDataSourceContext evalCtx2 = LookupDataSourceContext.builder("TestTableName")
+				.requiresParameter(CtxNames.parse("C_BPartner_ID"))
+				.setParentEvaluatee(Evaluatees.mapBuilder()
+						.put("C_BPartner_ID", 1)
+						.build())
+				.build();
+
+		assertThat(evalCtx1.toCacheKey(null)).isEqualTo(evalCtx2.toCacheKey(null));
+	}
 }
@@ -0,0 +1,111 @@
+package de.metas.ui.web.window.model.lookup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import de.metas.ui.web.window.datatypes.LookupValue.IntegerLookupValue;
+import de.metas.ui.web.window.datatypes.LookupValue.StringLookupValue;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class LookupValueInternPoolTest
+{
+	private final LookupValueInternPool pool = new LookupValueInternPool();
+
+	@Test
+	public void identicalValues_areShared()
+	{
+		final IntegerLookupValue value1 = IntegerLookupValue.of(1, "BPartner 1");
+		final IntegerLookupValue value2 = IntegerLookupValue.of(1, "BPartner 1");
+
+		assertThat(pool.intern("C_BPartner", "de_DE", value1)).isSameAs(value1);
+		assertThat(pool.intern("C_BPartner", "de_DE", value2)).isSameAs(value1);
+	}
+
+	@Test
+	public void changedDisplayName_replacesCanonicalValue()
+	{
+		final IntegerLookupValue value = IntegerLookupValue.of(1, "BPartner 1");
+		final IntegerLookupValue valueRenamed = IntegerLookupValue.of(1, "BPartner 1 - renamed");
+
+		assertThat(pool.intern("C_BPartner", "de_DE", value)).isSameAs(value);
+		assertThat(pool.intern("C_BPartner", "de_DE", valueRenamed)).isSameAs(valueRenamed);
+		assertThat(pool.intern("C_BPartner", "de_DE", IntegerLookupValue.of(1, "BPartner 1 - renamed"))).isSameAs(valueRenamed);
+	}
+
+	@Test
+	public void differentLanguagesOrTables_areNotShared()
+	{
+		final IntegerLookupValue value1 = IntegerLookupValue.of(1, "UOM");
+		final IntegerLookupValue value2 = IntegerLookupValue.of(1, "UOM");
+		final IntegerLookupValue value3 = IntegerLookupValue.of(1, "UOM");
+
+		assertThat(pool.intern("C_UOM", "de_DE", value1)).isSameAs(value1);
+		assertThat(pool.intern("C_UOM", "en_US", value2)).isSameAs(value2);
+		assertThat(pool.intern("M_Product", "de_DE", value3)).isSameAs(value3);
+	}
+
+	@Test
+	public void integerAndStringIds_areNotMixed()
+	{
+		final IntegerLookupValue intValue = IntegerLookupValue.of(1, "one");
+		final StringLookupValue stringValue = StringLookupValue.of("1", "one");
+
+		assertThat(pool.intern("C_BPartner", "de_DE", intValue)).isSameAs(intValue);
+		assertThat(pool.intern("C_BPartner", "de_DE", stringValue)).isSameAs(stringValue);
+	}
+
+	@Test
+	public void nullTableName_notInterned()
+	{
+		final IntegerLookupValue value1 = IntegerLookupValue.of(1, "one");
+		final IntegerLookupValue value2 = IntegerLookupValue.of(1, "one");
+
+		assertThat(pool.intern(null, null, value1)).isSameAs(value1);
+		assertThat(pool.intern(null, null, value2)).isSameAs(value2);
+	}
+
+	@Test
+	public void stats()
+	{
+		pool.intern("C_BPartner", "de_DE", IntegerLookupValue.of(1, "one"));
+		pool.intern("C_BPartner", "de_DE", IntegerLookupValue.of(1, "one"));
+		pool.intern("C_BPartner", "de_DE", IntegerLookupValue.of(2, "two"));
+
+		final LookupValueInternPool.Stats stats = pool.getStats();
+		assertThat(stats.getHits()).isEqualTo(1);
+		assertThat(stats.getMisses()).isEqualTo(2);
+		assertThat(stats.getEstimatedBytesSaved()).isEqualTo(LookupValueInternPool.estimateRetainedSizeBytes(IntegerLookupValue.of(1, "one")));
+	}
+
+	@Test
+	public void estimateRetainedSizeBytes_dependsOnContent()
+	{
+		final long shortName = LookupValueInternPool.estimateRetainedSizeBytes(IntegerLookupValue.of(1, "a"));
+		final long longName = LookupValueInternPool.estimateRetainedSizeBytes(IntegerLookupValue.of(1, "a very long business partner name"));
+
+		assertThat(shortName).isPositive();
+		assertThat(longName).isGreaterThan(shortName);
+	}
+}
@@ -0,0 +1,152 @@
+package de.metas.ui.web.window.model.lookup.warmup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Properties;
+
+import org.adempiere.test.AdempiereTestHelper;
+import org.compiere.util.Env;
+import org.compiere.util.Evaluatee;
+import org.compiere.util.Evaluatees;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.google.common.collect.ImmutableMap;
+
+import de.metas.ui.web.window.datatypes.DocumentType;
+import de.metas.ui.web.window.datatypes.WindowId;
+import de.metas.ui.web.window.descriptor.DocumentEntityDescriptor;
+import de.metas.ui.web.window.descriptor.LookupDescriptor;
+import de.metas.ui.web.window.model.lookup.LookupDataSource;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class LookupWarmUpRecorderTest
+{
+	private LookupWarmUpRecorder recorder;
+	private DocumentEntityDescriptor entityDescriptor;
+	private LookupDescriptor lookupDescriptor;
+	private LookupDataSource lookupDataSource;
+
+	@BeforeEach
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+
+		final Properties ctx = Env.getCtx();
+		Env.setContext(ctx, Env.CTXNAME_AD_Language, "de_DE");
+		Env.setContext(ctx, Env.CTXNAME_AD_Client_ID, 1);
+		Env.setContext(ctx, Env.CTXNAME_AD_Org_ID, 2);
+		Env.setContext(ctx, Env.CTXNAME_AD_Role_ID, 3);
+		Env.setContext(ctx, Env.CTXNAME_AD_User_ID, 4);
+
+		recorder = new LookupWarmUpRecorder();
+		recorder.setEnabled(true);
+
+		entityDescriptor = Mockito.mock(DocumentEntityDescriptor.class);
+		when(entityDescriptor.getDocumentType()).thenReturn(DocumentType.Window);
+		when(entityDescriptor.getWindowId()).thenReturn(WindowId.of(123));
+
+		lookupDescriptor = Mockito.mock(LookupDescriptor.class);
+		lookupDataSource = Mockito.mock(LookupDataSource.class);
+	}
+
+	private void record(final String fieldName, final Evaluatee documentEvaluatee)
+	{
+		recorder.recordDocumentFieldLookupUsage(entityDescriptor, fieldName, lookupDescriptor, lookupDataSource, documentEvaluatee);
+	}
+
+	@Test
+	public void recordsLookupCacheKeyParametersAndContext()
+	{
+		final Evaluatee documentEvaluatee = Evaluatees.empty();
+		when(lookupDataSource.getCacheKeyContextParameters(documentEvaluatee)).thenReturn(ImmutableMap.of("C_BPartner_ID", "1", "IsSOTrx", "Y"));
+
+		record("C_BPartner_Location_ID", documentEvaluatee);
+
+		assertThat(recorder.getMostUsedRecipes(10)).containsExactly(LookupWarmUpRecipe.builder()
+				.windowId("123")
+				.fieldName("C_BPartner_Location_ID")
+				.adLanguage("de_DE")
+				.adClientId(1)
+				.adOrgId(2)
+				.adRoleId(3)
+				.adUserId(4)
+				.parameters(ImmutableMap.of("C_BPartner_ID", "1", "IsSOTrx", "Y"))
+				.build());
+	}
+
+	@Test
+	public void sameParametersAreRecordedOnce_mostUsedFirst()
+	{
+		when(lookupDataSource.getCacheKeyContextParameters(any())).thenReturn(ImmutableMap.of());
+
+		record("Field1", Evaluatees.empty());
+		record("Field2", Evaluatees.empty());
+		record("Field2", Evaluatees.empty());
+
+		assertThat(recorder.getMostUsedRecipes(10))
+				.extracting(LookupWarmUpRecipe::getFieldName)
+				.containsExactly("Field2", "Field1");
+	}
+
+	@Test
+	public void maxRecipesIsRespected()
+	{
+		when(lookupDataSource.getCacheKeyContextParameters(any())).thenReturn(ImmutableMap.of());
+		recorder.setMaxRecipes(2);
+
+		record("Field1", Evaluatees.empty());
+		record("Field2", Evaluatees.empty());
+		record("Field3", Evaluatees.empty());
+
+		assertThat(recorder.size()).isEqualTo(2);
+	}
+
+	@Test
+	public void highVolumeLookupsAreNotRecorded()
+	{
+		when(lookupDescriptor.isHighVolume()).thenReturn(true);
+
+		record("C_BPartner_ID", Evaluatees.empty());
+
+		assertThat(recorder.size()).isZero();
+		verify(lookupDataSource, never()).getCacheKeyContextParameters(any());
+	}
+
+	@Test
+	public void nothingIsRecordedWhenDisabled()
+	{
+		recorder.setEnabled(false);
+
+		record("C_BPartner_ID", Evaluatees.empty());
+
+		assertThat(recorder.size()).isZero();
+		verify(lookupDataSource, never()).getCacheKeyContextParameters(any());
+	}
+}
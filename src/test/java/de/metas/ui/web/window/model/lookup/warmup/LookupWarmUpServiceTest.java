@@ -0,0 +1,175 @@
+package de.metas.ui.web.window.model.lookup.warmup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.Properties;
+
+import org.adempiere.test.AdempiereTestHelper;
+import org.adempiere.util.lang.IAutoCloseable;
+import org.compiere.util.CtxNames;
+import org.compiere.util.Env;
+import org.compiere.util.Evaluatee;
+import org.compiere.util.Evaluatees;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.google.common.collect.ImmutableSet;
+
+import de.metas.ui.web.session.WebRestApiContextProvider;
+import de.metas.ui.web.window.datatypes.DocumentType;
+import de.metas.ui.web.window.datatypes.LookupValue.IntegerLookupValue;
+import de.metas.ui.web.window.datatypes.LookupValuesList;
+import de.metas.ui.web.window.datatypes.WindowId;
+import de.metas.ui.web.window.descriptor.DocumentEntityDescriptor;
+import de.metas.ui.web.window.descriptor.LookupDescriptor;
+import de.metas.ui.web.window.model.lookup.LookupDataSource;
+import de.metas.ui.web.window.model.lookup.LookupDataSourceContext;
+import de.metas.ui.web.window.model.lookup.LookupDataSourceFactory;
+import de.metas.ui.web.window.model.lookup.LookupDataSourceFetcher;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class LookupWarmUpServiceTest
+{
+	private LookupDataSourceFetcher fetcher;
+	private LookupDataSource lookupDataSource;
+
+	@BeforeEach
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+
+		fetcher = Mockito.mock(LookupDataSourceFetcher.class);
+		when(fetcher.getCachePrefix()).thenReturn("TestTable");
+		when(fetcher.getCacheKeyParameterNames()).thenReturn(Optional.of(ImmutableSet.of("C_BPartner_ID", "IsSOTrx", "DateOrdered")));
+		when(fetcher.newContextForFetchingList()).thenAnswer(invocation -> LookupDataSourceContext.builder("TestTable")
+				.requiresParameter(CtxNames.parse("C_BPartner_ID"))
+				.requiresParameter(CtxNames.parse("IsSOTrx"))
+				.requiresParameter(CtxNames.parse("DateOrdered")));
+		when(fetcher.retrieveEntities(any())).thenReturn(LookupValuesList.EMPTY);
+
+		final LookupDescriptor lookupDescriptor = Mockito.mock(LookupDescriptor.class);
+		when(lookupDescriptor.getLookupDataSourceFetcher()).thenReturn(fetcher);
+		when(lookupDescriptor.hasParameters()).thenReturn(true);
+		when(lookupDescriptor.getDependsOnFieldNames()).thenReturn(ImmutableSet.of("C_BPartner_ID", "IsSOTrx", "DateOrdered"));
+
+		lookupDataSource = LookupDataSourceFactory.instance.createLookupDataSource(lookupDescriptor);
+	}
+
+	private static Properties createWebSessionContext()
+	{
+		final Properties ctx = new Properties();
+		Env.setContext(ctx, WebRestApiContextProvider.CTXNAME_IsWebUI, true);
+		Env.setContext(ctx, Env.CTXNAME_AD_Language, "de_DE");
+		Env.setContext(ctx, Env.CTXNAME_AD_Client_ID, 1);
+		Env.setContext(ctx, Env.CTXNAME_AD_Org_ID, 2);
+		Env.setContext(ctx, Env.CTXNAME_AD_Role_ID, 3);
+		Env.setContext(ctx, Env.CTXNAME_AD_User_ID, 4);
+		return ctx;
+	}
+
+	@Test
+	public void replayLoadsTheCacheEntryOfTheRecordedRequest()
+	{
+		// document values are typed, while the recorded ones are strings
+		final Evaluatee documentEvaluatee = Evaluatees.mapBuilder()
+				.put("C_BPartner_ID", IntegerLookupValue.of(1, "partner"))
+				.put("IsSOTrx", Boolean.TRUE)
+				.put("DateOrdered", LocalDate.of(2020, 3, 4))
+				.put("Description", "not relevant for the lookup")
+				.build();
+
+		final LookupWarmUpRecorder recorder = new LookupWarmUpRecorder();
+		recorder.setEnabled(true);
+		final DocumentEntityDescriptor entityDescriptor = Mockito.mock(DocumentEntityDescriptor.class);
+		when(entityDescriptor.getDocumentType()).thenReturn(DocumentType.Window);
+		when(entityDescriptor.getWindowId()).thenReturn(WindowId.of(123));
+		try (final IAutoCloseable c = Env.switchContext(createWebSessionContext()))
+		{
+			recorder.recordDocumentFieldLookupUsage(entityDescriptor, "C_BPartner_Location_ID", Mockito.mock(LookupDescriptor.class), lookupDataSource, documentEvaluatee);
+		}
+
+		final LookupWarmUpRecipe recipe = recorder.getMostUsedRecipes(1).get(0);
+		assertThat(recipe.getParameters())
+				.containsEntry("C_BPartner_ID", "1")
+				.containsEntry("IsSOTrx", "Y")
+				.containsKey("DateOrdered")
+				.doesNotContainKey("Description");
+
+		// after restart
+		LookupWarmUpService.replay(lookupDataSource, recipe);
+		verify(fetcher, times(1)).retrieveEntities(any());
+
+		// the user opens the same document
+		try (final IAutoCloseable c = Env.switchContext(createWebSessionContext()))
+		{
+			lookupDataSource.findEntities(documentEvaluatee);
+		}
+		verify(fetcher, times(1)).retrieveEntities(any());
+	}
+
+	@Test
+	public void replayWithOtherParametersDoesNotLoadTheCacheEntry()
+	{
+		final Evaluatee documentEvaluatee = Evaluatees.mapBuilder()
+				.put("C_BPartner_ID", 1)
+				.put("IsSOTrx", true)
+				.put("DateOrdered", LocalDate.of(2020, 3, 4))
+				.build();
+		final Evaluatee otherDocumentEvaluatee = Evaluatees.mapBuilder()
+				.put("C_BPartner_ID", 2)
+				.put("IsSOTrx", true)
+				.put("DateOrdered", LocalDate.of(2020, 3, 4))
+				.build();
+
+		final LookupWarmUpRecipe recipe;
+		try (final IAutoCloseable c = Env.switchContext(createWebSessionContext()))
+		{
+			recipe = LookupWarmUpRecipe.builder()
+					.windowId("123")
+					.fieldName("C_BPartner_Location_ID")
+					.adLanguage("de_DE")
+					.adClientId(1)
+					.adOrgId(2)
+					.adRoleId(3)
+					.adUserId(4)
+					.parameters(lookupDataSource.getCacheKeyContextParameters(documentEvaluatee))
+					.build();
+		}
+
+		LookupWarmUpService.replay(lookupDataSource, recipe);
+
+		try (final IAutoCloseable c = Env.switchContext(createWebSessionContext()))
+		{
+			lookupDataSource.findEntities(otherDocumentEvaluatee);
+		}
+		verify(fetcher, times(2)).retrieveEntities(any());
+	}
+}